@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Builds a trimmed runtime image for the kiosk (run through mvn -Pimage package).
+#
+#   target/image/bin/java        jlink runtime: java.base + the JavaFX and JDK modules the app requires
+#   target/image/app/            the application jar and OpenCV (an automatic module, so not linkable)
+#   target/image/lib/            JavaFX and OpenCV natives extracted at build time, kiosk.jsa (AppCDS)
+#   target/image/bin/kiosk       launcher for the UI
+#   target/image/bin/kiosk-headless
+#   target/image/bin/inference-server   shared detection for thin kiosks
+#   target/image/bin/telemetry-collector fleet telemetry store and rollup queries
+#
+# Usage: build-image.sh <target dir> <application jar>
+set -euo pipefail
+
+TARGET="$(cd "$1" && pwd)"
+APP_JAR="$TARGET/$2"
+DEPS="$TARGET/image-deps"
+IMAGE="$TARGET/image"
+JAVA_HOME="${JAVA_HOME:-$(dirname "$(dirname "$(readlink -f "$(command -v java)")")")}"
+
+echo "[build-image] Linking runtime from $JAVA_HOME"
+rm -rf "$IMAGE"
+FX_JARS=$(ls "$DEPS"/javafx-*-linux.jar | tr '\n' ':')
+"$JAVA_HOME/bin/jlink" \
+    --module-path "$JAVA_HOME/jmods:$FX_JARS" \
+    --add-modules javafx.controls,javafx.fxml,javafx.graphics,javafx.swing,java.desktop,java.management,jdk.management,jdk.httpserver,jdk.unsupported,jdk.incubator.vector \
+    --strip-debug --no-header-files --no-man-pages --compress=2 \
+    --exclude-resources='glob:/javafx.*/*.so' \
+    --output "$IMAGE"
+# Base CDS archive for the linked modules (jlink --generate-cds-archive needs JDK 18+)
+"$IMAGE/bin/java" -Xshare:dump -Xlog:disable > /dev/null
+
+echo "[build-image] Copying application modules"
+mkdir -p "$IMAGE/app"
+cp "$APP_JAR" "$IMAGE/app/"
+cp "$DEPS"/opencv-*.jar "$IMAGE/app/"
+
+# Natives ship inside the jars and are otherwise extracted on every start
+# (JavaFX to ~/.openjfx/cache, OpenCV to a temporary directory). The JavaFX
+# copies were left out of the linked modules above, so JavaFX falls back to
+# loading them from lib/.
+echo "[build-image] Extracting native libraries"
+for jar in "$DEPS"/javafx-*-linux.jar; do
+    unzip -q -o -j "$jar" '*.so' -d "$IMAGE/lib" 2>/dev/null || true
+done
+unzip -q -o -j "$DEPS"/opencv-*.jar 'nu/pattern/opencv/linux/x86_64/*.so' -d "$IMAGE/lib"
+
+cat > "$IMAGE/bin/kiosk" <<'LAUNCHER'
+#!/usr/bin/env bash
+DIR="$(cd "$(dirname "$0")/.." && pwd)"
+# OpenCV keeps compiled OpenCL kernels here (used with -Dsmartbin.yolo.target=opencl*)
+export OPENCV_OPENCL_CACHE_DIR="${OPENCV_OPENCL_CACHE_DIR:-model-cache/opencl}"
+exec "$DIR/bin/java" -XX:SharedArchiveFile="$DIR/lib/kiosk.jsa" -Djava.library.path="$DIR/lib" \
+    --add-modules jdk.incubator.vector ${KIOSK_OPTS:-} --module-path "$DIR/app" -m com.kiosk/com.kiosk.Main "$@"
+LAUNCHER
+sed 's#com.kiosk/com.kiosk.Main#com.kiosk/com.kiosk.headless.HeadlessKiosk#' "$IMAGE/bin/kiosk" > "$IMAGE/bin/kiosk-headless"
+sed 's#com.kiosk/com.kiosk.Main#com.kiosk/com.smartbin.remote.InferenceServer#' "$IMAGE/bin/kiosk" > "$IMAGE/bin/inference-server"
+sed 's#com.kiosk/com.kiosk.Main#com.kiosk/com.kiosk.telemetry.TelemetryCollector#' "$IMAGE/bin/kiosk" > "$IMAGE/bin/telemetry-collector"
+chmod +x "$IMAGE/bin/kiosk" "$IMAGE/bin/kiosk-headless" "$IMAGE/bin/inference-server" "$IMAGE/bin/telemetry-collector"
+
+# Record the classes loaded by FXML loading, YoloBridge init and one
+# inference into a dynamic AppCDS archive on top of the image's base archive.
+echo "[build-image] Training run for the AppCDS archive"
+"$IMAGE/bin/java" -XX:ArchiveClassesAtExit="$IMAGE/lib/kiosk.jsa" -Djava.library.path="$IMAGE/lib" \
+    -Dsmartbin.log.file=none -Dsmartbin.clips=off -Dsmartbin.yolo.cache.dir="$TARGET/model-cache" --add-modules jdk.incubator.vector \
+    --module-path "$IMAGE/app" -m com.kiosk/com.kiosk.bench.StartupTraining ${TRAINING_ARGS:-}
+
+du -sh "$IMAGE" | sed 's/^/[build-image] Image size: /'
@@ -1,5 +1,7 @@
 package com.kiosk;
 
+import com.kiosk.runtime.ResourceBudget;
+import com.smartbin.capture.CaptureProfileNegotiator;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -16,6 +18,10 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // Share cores between capture, OpenCV, detection and the UI (-Dsmartbin.budget.*)
+        ResourceBudget budget = ResourceBudget.fromSystemProperties();
+        budget.apply();
+        
         // Load FXML
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/disposal_message.fxml"));
         Parent root = loader.load();
@@ -32,6 +38,7 @@ public class Main extends Application {
         // primaryStage.setFullScreen(true);
         
         primaryStage.show();
+        budget.pinUiThreads();
         
         System.out.println("[Main] Application started successfully");
     }
@@ -42,6 +49,8 @@ public class Main extends Application {
     }
 
     public static void main(String[] args) {
+        // Probe the camera while JavaFX starts and the model loads, not on the FX thread
+        CaptureProfileNegotiator.selectAsync(0, 640, 480);
         launch(args);
     }
 }
@@ -0,0 +1,202 @@
+package com.kiosk.bench;
+
+import com.kiosk.runtime.CpuAffinity;
+import com.kiosk.runtime.ResourceBudget;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tries resource budgets on this machine and reports the one with the best
+ * p99 glass-to-glass message latency.
+ *
+ * Each candidate runs {@link LatencyHarness} in a fresh JVM (affinity and
+ * OpenCV's pool are process-wide, so runs must not share a process) with
+ * the same JVM options as this one plus the {@code smartbin.budget.*}
+ * properties. Candidates are OpenCV thread counts of 1, 2, half and all
+ * cores, each with no pinning and, where taskset is available, a split
+ * layout: UI on CPU 0, capture on CPU 1, inference and OpenCV on the rest.
+ *
+ * Usage: BudgetSweep [--trials N] [--fps F] [--model path] [--threads 1,2,4] [--layouts shared,split]
+ * Headless on Linux: mvn -Pheadless compile exec:exec -Dharness.main=com.kiosk.bench.BudgetSweep
+ */
+public class BudgetSweep {
+    private static final Pattern P99 = Pattern.compile("p99=\\s*([0-9.]+)ms");
+
+    private static final class Result {
+        final ResourceBudget budget;
+        final String layout;
+        final double previewP99;
+        final double messageP99;
+
+        Result(ResourceBudget budget, String layout, double previewP99, double messageP99) {
+            this.budget = budget;
+            this.layout = layout;
+            this.previewP99 = previewP99;
+            this.messageP99 = messageP99;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> harnessArgs = new ArrayList<>(List.of("--trials", "30"));
+        Set<Integer> threads = new LinkedHashSet<>();
+        List<String> layouts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--trials" -> harnessArgs.set(1, args[++i]);
+                case "--fps", "--model" -> {
+                    harnessArgs.add(args[i]);
+                    harnessArgs.add(args[++i]);
+                }
+                case "--threads" -> {
+                    for (String count : args[++i].split(",")) {
+                        threads.add(Integer.parseInt(count.trim()));
+                    }
+                }
+                case "--layouts" -> layouts.addAll(List.of(args[++i].split(",")));
+                default -> {
+                    System.err.println("Usage: BudgetSweep [--trials N] [--fps F] [--model path] "
+                            + "[--threads 1,2,4] [--layouts shared,split]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        if (threads.isEmpty()) {
+            for (int count : new int[]{1, 2, cpus / 2, cpus}) {
+                if (count >= 1 && count <= cpus) {
+                    threads.add(count);
+                }
+            }
+        }
+        if (layouts.isEmpty()) {
+            layouts.add("shared");
+            if (cpus >= 2 && CpuAffinity.isAvailable()) {
+                layouts.add("split");
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (String layout : layouts) {
+            if ("split".equals(layout) && cpus < 2) {
+                System.out.println("[BudgetSweep] Skipping split layout on a single CPU");
+                continue;
+            }
+            for (int count : threads) {
+                ResourceBudget budget = budgetFor(layout, count, cpus);
+                System.out.println("[BudgetSweep] Running " + layout + " " + budget);
+                Result result = run(budget, layout, harnessArgs);
+                if (result != null) {
+                    System.out.printf("[BudgetSweep]   preview p99 %.1f ms, message p99 %.1f ms%n",
+                            result.previewP99, result.messageP99);
+                    results.add(result);
+                }
+            }
+        }
+        if (results.isEmpty()) {
+            System.err.println("[BudgetSweep] No run produced a result");
+            System.exit(1);
+        }
+
+        results.sort(Comparator.comparingDouble((Result r) -> r.messageP99).thenComparingDouble(r -> r.previewP99));
+        System.out.println();
+        System.out.printf("=== Resource budget sweep (%d CPUs) ===%n", cpus);
+        System.out.printf("%-8s %-8s %-8s %-10s %-8s %12s %12s%n",
+                "layout", "opencv", "capture", "inference", "ui", "preview p99", "message p99");
+        for (Result r : results) {
+            System.out.printf("%-8s %-8d %-8s %-10s %-8s %9.1f ms %9.1f ms%n", r.layout,
+                    r.budget.getOpencvThreads(), orAny(r.budget.getCaptureCpus()),
+                    orAny(r.budget.getInferenceCpus()), orAny(r.budget.getUiCpus()), r.previewP99, r.messageP99);
+        }
+        Result best = results.get(0);
+        System.out.println("Best: " + String.join(" ", propertiesFor(best.budget)));
+    }
+
+    private static ResourceBudget budgetFor(String layout, int opencvThreads, int cpus) {
+        if (!"split".equals(layout)) {
+            return new ResourceBudget(opencvThreads, null, null, null);
+        }
+        if (cpus == 2) {
+            return new ResourceBudget(opencvThreads, "0", "1", "0");
+        }
+        String inference = cpus == 3 ? "2" : "2-" + (cpus - 1);
+        return new ResourceBudget(opencvThreads, "1", inference, "0");
+    }
+
+    private static Result run(ResourceBudget budget, String layout, List<String> harnessArgs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!option.startsWith("-Dsmartbin.budget.")) {
+                command.add(option);
+            }
+        }
+        command.addAll(propertiesFor(budget));
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.add("--module-path");
+            command.add(modulePath);
+            command.add("-m");
+            command.add("com.kiosk/" + LatencyHarness.class.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(LatencyHarness.class.getName());
+        }
+        command.addAll(harnessArgs);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<Double> endToEnd = new ArrayList<>();
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.contains("end to end")) {
+                    Matcher matcher = P99.matcher(line);
+                    if (matcher.find()) {
+                        endToEnd.add(Double.parseDouble(matcher.group(1)));
+                    }
+                }
+            }
+        }
+        process.waitFor();
+        // The harness prints the preview path first, then the detection path
+        if (endToEnd.size() < 2) {
+            System.err.println("[BudgetSweep]   run failed (exit " + process.exitValue() + ")");
+            return null;
+        }
+        return new Result(budget, layout, endToEnd.get(0), endToEnd.get(1));
+    }
+
+    private static List<String> propertiesFor(ResourceBudget budget) {
+        List<String> properties = new ArrayList<>();
+        properties.add("-Dsmartbin.budget.opencvThreads=" + budget.getOpencvThreads());
+        if (budget.getCaptureCpus() != null) {
+            properties.add("-Dsmartbin.budget.captureCpus=" + budget.getCaptureCpus());
+        }
+        if (budget.getInferenceCpus() != null) {
+            properties.add("-Dsmartbin.budget.inferenceCpus=" + budget.getInferenceCpus());
+        }
+        if (budget.getUiCpus() != null) {
+            properties.add("-Dsmartbin.budget.uiCpus=" + budget.getUiCpus());
+        }
+        return properties;
+    }
+
+    private static String orAny(String cpus) {
+        return cpus != null ? cpus : "any";
+    }
+}
@@ -0,0 +1,196 @@
+package com.kiosk.bench;
+
+import com.kiosk.config.ConfigWatcher;
+import com.kiosk.config.KioskConfig;
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.scheduling.TimerWheel;
+import com.kiosk.scheduling.VirtualClock;
+import com.kiosk.services.KioskStateMachine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Checks and times live configuration reloads.
+ *
+ * <ul>
+ *   <li>Reload latency: time from writing the file (in place, and by
+ *       write-and-rename as editors do) to the listener being told.</li>
+ *   <li>Rejection: an invalid file leaves the settings in use unchanged.</li>
+ *   <li>Snapshot consistency: a reader thread checks an invariant across
+ *       fields (confirmation = message, rescan = message + 500) while
+ *       reloads keep changing them; a torn read would break it.</li>
+ *   <li>Hot-path cost of reading a setting through the snapshot.</li>
+ *   <li>A {@link KioskStateMachine} on a virtual clock uses the reloaded
+ *       message duration from the next instruction on.</li>
+ * </ul>
+ *
+ * Usage: ConfigReloadBench [--reloads 20]
+ */
+public class ConfigReloadBench {
+
+    public static void main(String[] args) throws Exception {
+        int reloads = 20;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--reloads")) {
+                reloads = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Usage: ConfigReloadBench [--reloads 20]");
+                System.exit(2);
+            }
+        }
+
+        Path dir = Files.createTempDirectory("kiosk-config");
+        Path file = dir.resolve("kiosk.properties");
+        boolean pass = true;
+        try {
+            write(file, settings(3000), false);
+            ConfigWatcher watcher = new ConfigWatcher(file);
+            SynchronousQueue<Long> told = new SynchronousQueue<>();
+            watcher.addListener((previous, next) -> told.offer(System.nanoTime()));
+            watcher.start();
+
+            System.out.println("=== Config reload ===");
+            for (boolean rename : new boolean[]{false, true}) {
+                long[] millis = new long[reloads];
+                for (int i = 0; i < reloads; i++) {
+                    long start = System.nanoTime();
+                    write(file, settings(3000 + (i + 1) * 10 + (rename ? 1 : 0)), rename);
+                    Long at = told.poll(5, TimeUnit.SECONDS);
+                    if (at == null) {
+                        System.out.println("Reload " + i + " was not noticed");
+                        pass = false;
+                        break;
+                    }
+                    millis[i] = (at - start) / 1_000_000;
+                }
+                Arrays.sort(millis);
+                System.out.printf("%-26s p50 %4d ms   max %4d ms   (includes %d ms debounce)%n",
+                        rename ? "Write and rename:" : "Write in place:", millis[reloads / 2],
+                        millis[reloads - 1], 100);
+            }
+
+            KioskConfig before = KioskConfig.current();
+            write(file, "detection.confidence=1.5\nmessage.durationMs=abc\ndetecton.intervalMs=50\n", true);
+            Thread.sleep(500);
+            boolean kept = KioskConfig.current() == before;
+            System.out.println("Invalid file: " + (kept ? "rejected, settings unchanged" : "APPLIED"));
+            pass &= kept;
+
+            pass &= consistency(file, watcher);
+            readCost();
+            pass &= stateMachine(file);
+            watcher.close();
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println(pass ? "PASS" : "FAIL");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean consistency(Path file, ConfigWatcher watcher) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            long n = 0;
+            while (running.get()) {
+                KioskConfig config = KioskConfig.current();
+                if (config.getConfirmationMillis() != config.getMessageMillis()
+                        || config.getRescanDelayMillis() != config.getMessageMillis() + 500) {
+                    torn.incrementAndGet();
+                }
+                n++;
+            }
+            reads.set(n);
+        }, "config-reader");
+        reader.start();
+        int changes = 200;
+        for (int i = 0; i < changes; i++) {
+            write(file, settings(4000 + i), false);
+            watcher.reload();
+        }
+        running.set(false);
+        reader.join();
+        System.out.printf("Consistency: %,d reads during %d reloads, %d torn%n", reads.get(), changes, torn.get());
+        return torn.get() == 0;
+    }
+
+    private static void readCost() {
+        int iterations = 50_000_000;
+        double sink = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += KioskConfig.current().getClassifyConfidence();
+            }
+            long snapshot = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += CONSTANT;
+            }
+            long constant = System.nanoTime() - start;
+            if (round == 2) {
+                System.out.printf("Read cost: snapshot %.2f ns, constant %.2f ns per read (%s)%n",
+                        snapshot / (double) iterations, constant / (double) iterations, sink > 0 ? "ok" : "");
+            }
+        }
+    }
+
+    private static final double CONSTANT = 0.5;
+
+    private static boolean stateMachine(Path file) throws Exception {
+        VirtualClock clock = new VirtualClock();
+        TimerWheel wheel = new TimerWheel(clock, 10);
+        long[] hiddenAt = {-1};
+        long[] now = {0};
+        KioskStateMachine machine = new KioskStateMachine(wheel, event -> {
+            if (event.getType() == KioskEvent.Type.INSTRUCTION_HIDDEN) {
+                hiddenAt[0] = now[0];
+            }
+        });
+        write(file, settings(1500), false);
+        new ConfigWatcher(file).reload();
+        machine.startScanning();
+        machine.onDetectionResult(WasteCategory.RECYCLE, 1, 0.9);
+        while (hiddenAt[0] < 0 && now[0] < 10_000) {
+            clock.advanceMillis(10);
+            now[0] += 10;
+            wheel.poll();
+        }
+        System.out.println("State machine: instruction hidden after " + hiddenAt[0]
+                + " ms with message.durationMs=1500");
+        return Math.abs(hiddenAt[0] - 1500) <= 20;
+    }
+
+    private static String settings(long messageMillis) {
+        return "message.durationMs=" + messageMillis + "\n"
+                + "confirmation.durationMs=" + messageMillis + "\n"
+                + "rescan.delayMs=" + (messageMillis + 500) + "\n";
+    }
+
+    private static void write(Path file, String text, boolean rename) throws IOException {
+        if (!rename) {
+            Files.writeString(file, text, StandardCharsets.UTF_8);
+            return;
+        }
+        Path partial = file.resolveSibling(file.getFileName() + ".new");
+        Files.writeString(partial, text, StandardCharsets.UTF_8);
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
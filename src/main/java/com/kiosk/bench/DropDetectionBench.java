@@ -0,0 +1,433 @@
+package com.kiosk.bench;
+
+import com.kiosk.models.WasteCategory;
+import com.kiosk.services.DisposalWatcher;
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.VideoFileFrameSource;
+import com.smartbin.vision.DropDetector;
+import com.smartbin.vision.DropReplay;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoWriter;
+import org.opencv.videoio.Videoio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Checks automatic disposal confirmation on a synthetic recording of the
+ * bin camera, against known drops, and measures what it costs.
+ *
+ * Writes an MJPEG video (320x240 at 30 fps, like a cheap USB camera) of
+ * four bin openings seen from above with sensor noise and a slow
+ * brightness drift. Travellers drop items by hand (straight or reaching
+ * across other openings) or toss them in. Distractors are mixed in: hands
+ * hovering over an opening for seconds, arms passing below the openings
+ * and the lights switching. The ground truth and the zones file are
+ * written next to it. Then:
+ *
+ * <ul>
+ *   <li>{@link DropReplay} runs the detector over the recording at the
+ *       watcher's rate and scores it: right zone, wrong zone, missed, made
+ *       up. It also reports CPU per frame and the share of one core.</li>
+ *   <li>The {@link DisposalWatcher} test mode plays the recording for a
+ *       while like a live camera, and reports the share of one core its
+ *       thread actually used.</li>
+ * </ul>
+ *
+ * Usage: DropDetectionBench [--minutes 5] [--fps 10] [--live-seconds 20] [--seed 7]
+ */
+public class DropDetectionBench {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final double VIDEO_FPS = 30;
+    private static final double CORE_BUDGET_PERCENT = 5;
+    private static final WasteCategory[] BINS = {
+            WasteCategory.RECYCLE, WasteCategory.TRASH, WasteCategory.COMPOST, WasteCategory.HAZARDOUS};
+    private static final Scalar[] RIMS = {
+            new Scalar(200, 120, 30), new Scalar(90, 90, 90), new Scalar(40, 150, 40), new Scalar(40, 40, 200)};
+    private static final Scalar SKIN = new Scalar(120, 160, 210);
+
+    public static void main(String[] args) throws Exception {
+        double minutes = 5;
+        double fps = 10;
+        int liveSeconds = 20;
+        long seed = 7;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--minutes" -> minutes = Double.parseDouble(args[++i]);
+                case "--fps" -> fps = Double.parseDouble(args[++i]);
+                case "--live-seconds" -> liveSeconds = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Usage: DropDetectionBench [--minutes 5] [--fps 10] [--live-seconds 20] [--seed 7]");
+                    System.exit(2);
+                }
+            }
+        }
+        OpenCvLoader.load();
+
+        Path work = Files.createTempDirectory("drop-bench");
+        boolean pass;
+        try {
+            Path video = work.resolve("bins.avi");
+            Path zones = work.resolve("bin-zones.properties");
+            Path truthFile = work.resolve("drops.csv");
+            Scenario scenario = new Scenario(new Random(seed), minutes * 60);
+            scenario.write(video, zones, truthFile);
+            System.out.printf(Locale.ROOT, "=== Drop detection: %.0f s of %dx%d video, %d drops, %d distractors ===%n",
+                    scenario.duration, WIDTH, HEIGHT, scenario.truth.size(), scenario.distractors);
+
+            DropDetector detector = DropDetector.fromSystemProperties(DropDetector.loadZones(zones));
+            DropReplay replay = new DropReplay(detector, fps);
+            replay.replayVideo(video.toString(), VIDEO_FPS);
+            int[] score = replay.score(DropReplay.loadTruth(truthFile), 1500);
+            System.out.println("Replay: " + detector);
+            System.out.printf(Locale.ROOT, "Replay: right zone %d, wrong zone %d, missed %d, made up %d%n",
+                    score[0], score[1], score[2], score[3]);
+            System.out.printf(Locale.ROOT, "Replay cost at %.0f fps: read %.0f us + detect %.0f us per frame"
+                            + " = %.2f%% of one core%n",
+                    fps, replay.getReadMicrosPerFrame(), replay.getDetectMicrosPerFrame(), replay.getCorePercent());
+            detector.close();
+
+            double livePercent = 0;
+            if (liveSeconds > 0) {
+                AtomicInteger seen = new AtomicInteger();
+                DisposalWatcher watcher = new DisposalWatcher(() -> new VideoFileFrameSource(video.toString(), true),
+                        DropDetector.fromSystemProperties(DropDetector.loadZones(zones)), fps, "recording");
+                watcher.setListener(category -> seen.incrementAndGet());
+                watcher.start();
+                Thread.sleep(liveSeconds * 1000L);
+                livePercent = watcher.getCorePercent();
+                System.out.printf(Locale.ROOT, "Live test mode: %d s, %d drops seen, watcher thread %.2f%% of one core%n",
+                        liveSeconds, seen.get(), livePercent);
+                watcher.close();
+            }
+
+            int drops = scenario.truth.size();
+            pass = score[0] >= 0.95 * drops && score[3] <= Math.max(1, drops / 50)
+                    && replay.getCorePercent() < CORE_BUDGET_PERCENT && livePercent < CORE_BUDGET_PERCENT;
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println(pass
+                ? "PASS: >= 95% in the right zone, <= 2% made up, under 5% of one core"
+                : "FAIL: needs >= 95% in the right zone, <= 2% made up, under 5% of one core");
+        System.exit(pass ? 0 : 1);
+    }
+
+    /**
+     * What happens in front of the bin camera, and the frames it records.
+     */
+    private static final class Scenario {
+        private final Random random;
+        private final double duration;
+        private final List<Event> events = new ArrayList<>();
+        private final List<String> truth = new ArrayList<>();
+        private final Point[] openings = new Point[BINS.length];
+        private int distractors;
+
+        Scenario(Random random, double duration) {
+            this.random = random;
+            this.duration = duration;
+            for (int i = 0; i < BINS.length; i++) {
+                openings[i] = new Point(WIDTH * (0.13 + 0.245 * i), HEIGHT * 0.45);
+            }
+            double t = 2;
+            boolean lightsOn = true;
+            while (t < duration - 8) {
+                double roll = random.nextDouble();
+                int bin = random.nextInt(BINS.length);
+                Event event;
+                if (roll < 0.45) {
+                    event = new HandDrop(t, bin, false);
+                } else if (roll < 0.60) {
+                    event = new HandDrop(t, bin, true);
+                } else if (roll < 0.78) {
+                    event = new Toss(t, bin);
+                } else if (roll < 0.88) {
+                    event = new Hover(t, bin, 3.5 + 2 * random.nextDouble());
+                } else if (roll < 0.95) {
+                    event = new PassBy(t);
+                } else {
+                    lightsOn = !lightsOn;
+                    event = new LightSwitch(t, lightsOn ? 0 : -45);
+                }
+                events.add(event);
+                if (event.dropAt() >= 0) {
+                    truth.add(String.format(Locale.ROOT, "%.3f,%s", event.dropAt(), BINS[bin]));
+                } else {
+                    distractors++;
+                }
+                t = event.end() + 1.5 + 3 * random.nextDouble();
+            }
+        }
+
+        void write(Path video, Path zones, Path truthFile) throws IOException {
+            StringBuilder zoneText = new StringBuilder("# Bin openings, x,y relative to the frame\n");
+            for (int i = 0; i < BINS.length; i++) {
+                double x = openings[i].x / WIDTH;
+                double y = openings[i].y / HEIGHT;
+                // A slight trapezoid, as a camera above and in front of the bins sees them
+                zoneText.append(String.format(Locale.ROOT, "%s = %.3f,%.3f %.3f,%.3f %.3f,%.3f %.3f,%.3f%n", BINS[i],
+                        x - 0.09, y - 0.17, x + 0.09, y - 0.17, x + 0.10, y + 0.20, x - 0.10, y + 0.20));
+            }
+            Files.writeString(zones, zoneText, StandardCharsets.UTF_8);
+            Files.writeString(truthFile, "# seconds,bin\n" + String.join("\n", truth) + "\n", StandardCharsets.UTF_8);
+
+            Mat scene = background();
+            Mat frame = new Mat();
+            Mat noise = new Mat(HEIGHT, WIDTH, CvType.CV_16SC3);
+            Mat wide = new Mat();
+            VideoWriter writer = new VideoWriter(video.toString(), Videoio.CAP_OPENCV_MJPEG,
+                    VideoWriter.fourcc('M', 'J', 'P', 'G'), VIDEO_FPS,
+                    new Size(WIDTH, HEIGHT));
+            if (!writer.isOpened()) {
+                throw new IOException("cannot write " + video);
+            }
+            int eventIndex = 0;
+            double lighting = 0;
+            long frames = Math.round(duration * VIDEO_FPS);
+            for (long n = 0; n < frames; n++) {
+                double t = n / VIDEO_FPS;
+                scene.copyTo(frame);
+                while (eventIndex < events.size() && events.get(eventIndex).end() < t) {
+                    if (events.get(eventIndex) instanceof LightSwitch light) {
+                        lighting = light.offset;
+                    }
+                    eventIndex++;
+                }
+                if (eventIndex < events.size()) {
+                    Event event = events.get(eventIndex);
+                    if (t >= event.start && event instanceof LightSwitch light) {
+                        lighting = light.offset;
+                    } else if (t >= event.start) {
+                        event.draw(frame, t);
+                    }
+                }
+                // Slow drift (clouds, daylight) plus lights, then sensor noise
+                double drift = 8 * Math.sin(2 * Math.PI * t / 90);
+                frame.convertTo(wide, CvType.CV_16SC3, 1, lighting + drift);
+                Core.randn(noise, 0, 3);
+                Core.add(wide, noise, wide);
+                wide.convertTo(frame, CvType.CV_8UC3);
+                writer.write(frame);
+            }
+            writer.release();
+            scene.release();
+            frame.release();
+            noise.release();
+            wide.release();
+        }
+
+        private Mat background() {
+            Mat scene = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3, new Scalar(150, 150, 145));
+            Mat texture = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3);
+            Core.randn(texture, 0, 20);
+            Imgproc.GaussianBlur(texture, texture, new Size(9, 9), 0);
+            Core.add(scene, texture, scene);
+            texture.release();
+            for (int i = 0; i < BINS.length; i++) {
+                Size axes = new Size(WIDTH * 0.075, HEIGHT * 0.12);
+                Imgproc.ellipse(scene, openings[i], new Size(axes.width + 5, axes.height + 5), 0, 0, 360, RIMS[i], -1);
+                Imgproc.ellipse(scene, openings[i], axes, 0, 0, 360, new Scalar(25, 25, 25), -1);
+            }
+            return scene;
+        }
+
+        private abstract class Event {
+            final double start;
+
+            Event(double start) {
+                this.start = start;
+            }
+
+            abstract double end();
+
+            /**
+             * When the item went in, or -1 for a distractor.
+             */
+            double dropAt() {
+                return -1;
+            }
+
+            void draw(Mat frame, double t) {
+            }
+        }
+
+        private static double ease(double from, double to, double fraction) {
+            double f = Math.max(0, Math.min(1, fraction));
+            return from + (to - from) * f;
+        }
+
+        private void arm(Mat frame, Point from, Point hand) {
+            Imgproc.line(frame, from, hand, SKIN, 26);
+            Imgproc.ellipse(frame, hand, new Size(20, 26), 0, 0, 360, SKIN, -1);
+        }
+
+        private void item(Mat frame, Point at, double scale, Scalar color) {
+            Point corner = new Point(at.x + 9 * scale, at.y + 14 * scale);
+            Imgproc.rectangle(frame, new Point(at.x - 9 * scale, at.y - 14 * scale), corner, color, -1);
+        }
+
+        /**
+         * Reach in from the bottom edge, let go, fall, pull back.
+         */
+        private final class HandDrop extends Event {
+            private final Point from;
+            private final Point target;
+            private final double reach;
+            private final double hold;
+            private final Scalar color;
+
+            HandDrop(double start, int bin, boolean across) {
+                super(start);
+                target = openings[bin];
+                // Across: from the far side, so the arm passes over other openings
+                double x = across ? (bin < 2 ? WIDTH * 0.95 : WIDTH * 0.05) : target.x;
+                from = new Point(x, HEIGHT + 10);
+                reach = 0.35 + 0.2 * random.nextDouble();
+                hold = 0.2 + 0.5 * random.nextDouble();
+                color = new Scalar(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            }
+
+            @Override
+            double end() {
+                return start + 2 * reach + hold + 0.15;
+            }
+
+            @Override
+            double dropAt() {
+                return start + reach + hold + 0.15;
+            }
+
+            @Override
+            void draw(Mat frame, double t) {
+                double s = t - start;
+                double fraction = s < reach ? s / reach : s < reach + hold + 0.15 ? 1 : 1 - (s - reach - hold - 0.15) / reach;
+                Point hand = new Point(ease(from.x, target.x, fraction), ease(from.y, target.y + 20, fraction));
+                if (s < reach + hold) {
+                    item(frame, new Point(hand.x, hand.y - 22), 1, color);
+                } else if (s < reach + hold + 0.15) {
+                    item(frame, target, 1 - (s - reach - hold) / 0.15, color);
+                }
+                arm(frame, from, hand);
+            }
+        }
+
+        /**
+         * Thrown in from below without the hand reaching the opening.
+         */
+        private final class Toss extends Event {
+            private final Point target;
+            private final Scalar color;
+
+            Toss(double start, int bin) {
+                super(start);
+                target = openings[bin];
+                color = new Scalar(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            }
+
+            @Override
+            double end() {
+                return start + 0.45;
+            }
+
+            @Override
+            double dropAt() {
+                return end();
+            }
+
+            @Override
+            void draw(Mat frame, double t) {
+                double s = t - start;
+                if (s < 0.3) {
+                    item(frame, new Point(target.x, ease(HEIGHT - 10, target.y, s / 0.3)), 1, color);
+                } else {
+                    item(frame, target, 1 - (s - 0.3) / 0.15, color);
+                }
+            }
+        }
+
+        /**
+         * A hand held over an opening for seconds, nothing dropped.
+         */
+        private final class Hover extends Event {
+            private final Point target;
+            private final double seconds;
+
+            Hover(double start, int bin, double seconds) {
+                super(start);
+                this.target = openings[bin];
+                this.seconds = seconds;
+            }
+
+            @Override
+            double end() {
+                return start + seconds;
+            }
+
+            @Override
+            void draw(Mat frame, double t) {
+                double s = t - start;
+                double fraction = Math.min(1, Math.min(s, seconds - s) / 0.4);
+                Point from = new Point(target.x, HEIGHT + 10);
+                Point hand = new Point(target.x + 6 * Math.sin(s * 3), ease(from.y, target.y + 10, fraction));
+                arm(frame, from, hand);
+            }
+        }
+
+        /**
+         * An arm sweeping along the bottom of the view, below the openings.
+         */
+        private final class PassBy extends Event {
+            PassBy(double start) {
+                super(start);
+            }
+
+            @Override
+            double end() {
+                return start + 1.2;
+            }
+
+            @Override
+            void draw(Mat frame, double t) {
+                double x = ease(-40, WIDTH + 40, (t - start) / 1.2);
+                arm(frame, new Point(x - 60, HEIGHT + 10), new Point(x, HEIGHT * 0.9));
+            }
+        }
+
+        /**
+         * Lights switched: everything darker (or back to normal) from now on.
+         */
+        private final class LightSwitch extends Event {
+            private final double offset;
+
+            LightSwitch(double start, double offset) {
+                super(start);
+                this.offset = offset;
+            }
+
+            @Override
+            double end() {
+                return start;
+            }
+        }
+    }
+}
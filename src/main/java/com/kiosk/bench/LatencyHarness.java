@@ -0,0 +1,283 @@
+package com.kiosk.bench;
+
+import com.kiosk.controllers.DisposalMessageController;
+import com.kiosk.metrics.LatencyHistogram;
+import com.kiosk.metrics.LatencyProbe;
+import com.kiosk.runtime.ResourceBudget;
+import com.kiosk.services.CameraService;
+import com.kiosk.services.YoloAdapter;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.SyntheticFrameSource;
+import com.smartbin.yolo.Detector;
+import com.smartbin.yolo.YoloBridge;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelReader;
+import javafx.stage.Stage;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Glass-to-glass latency harness.
+ *
+ * Replaces the webcam with SyntheticFrameSource, whose frames carry their
+ * sequence number in the pixels, and runs the real UI (FXML, controller,
+ * CameraService, YoloAdapter) against it. Each pipeline stage reports
+ * through a LatencyProbe; on every FX pulse the harness decodes the
+ * sequence number back out of the Image shown in cameraFeedView and checks
+ * whether the disposal message is visible. Because the capture time of any
+ * sequence number is known, every stage can be timed from "glass".
+ *
+ * The harness repeatedly dismisses the message and restarts scanning, so
+ * each trial measures one capture → detect → map → show → pulse cycle.
+ *
+ * Usage: LatencyHarness [--trials N] [--fps F] [--model path/to/best.onnx]
+ * Headless on Linux: mvn -Pheadless compile exec:exec
+ */
+public class LatencyHarness {
+    private static final long PREVIEW_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long MESSAGE_BUDGET_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int WARMUP_TRIALS = 3;
+
+    private final long startNanos;
+    private final long intervalNanos;
+
+    // Preview path
+    private final LatencyHistogram captureToPreviewSet = new LatencyHistogram();
+    private final LatencyHistogram previewSetToPulse = new LatencyHistogram();
+    private final LatencyHistogram previewEndToEnd = new LatencyHistogram();
+
+    // Detection path
+    private final LatencyHistogram captureToDetected = new LatencyHistogram();
+    private final LatencyHistogram detectedToMapped = new LatencyHistogram();
+    private final LatencyHistogram mappedToShown = new LatencyHistogram();
+    private final LatencyHistogram shownToPulse = new LatencyHistogram();
+    private final LatencyHistogram messageEndToEnd = new LatencyHistogram();
+
+    private final long[] previewSetNanos = new long[4096];
+    private long lastPulsedPreviewSequence = -1;
+
+    private volatile boolean recording = false;
+    private long detectedNanos;
+    private long mappedNanos;
+    private long shownNanos;
+    private long shownSequence = -1;
+    private volatile CountDownLatch trialLatch;
+
+    private LatencyHarness(long startNanos, long intervalNanos) {
+        this.startNanos = startNanos;
+        this.intervalNanos = intervalNanos;
+    }
+
+    private long captureTimeOf(long sequence) {
+        return startNanos + sequence * intervalNanos;
+    }
+
+    /**
+     * Receives stage marks from the services. Detection marks arrive on the FX
+     * thread (the detection Timeline), preview marks from the capture thread
+     * and the FX thread.
+     */
+    private void mark(LatencyProbe.Stage stage, long sequence, long nanos) {
+        if (sequence < 0) {
+            return;
+        }
+        switch (stage) {
+            case PREVIEW_SET:
+                previewSetNanos[(int) (sequence % previewSetNanos.length)] = nanos;
+                if (recording) {
+                    captureToPreviewSet.record(nanos - captureTimeOf(sequence));
+                }
+                break;
+            case DETECTED:
+                detectedNanos = nanos;
+                break;
+            case MAPPED:
+                mappedNanos = nanos;
+                break;
+            case INSTRUCTIONS_SHOWN:
+                shownNanos = nanos;
+                shownSequence = sequence;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Runs after layout on every pulse: read back what the scene now shows.
+     */
+    private void onPulse(ImageView cameraFeedView, Node messageContainer) {
+        long now = System.nanoTime();
+
+        Image image = cameraFeedView.getImage();
+        if (image != null) {
+            long sequence = SyntheticFrameSource.sequenceOf(decode(image));
+            if (sequence > lastPulsedPreviewSequence) {
+                lastPulsedPreviewSequence = sequence;
+                if (recording) {
+                    long setAt = previewSetNanos[(int) (sequence % previewSetNanos.length)];
+                    previewSetToPulse.record(now - setAt);
+                    previewEndToEnd.record(now - captureTimeOf(sequence));
+                }
+            }
+        }
+
+        CountDownLatch latch = trialLatch;
+        if (latch != null && shownSequence >= 0 && messageContainer.isVisible()) {
+            if (recording) {
+                long captured = captureTimeOf(shownSequence);
+                captureToDetected.record(detectedNanos - captured);
+                detectedToMapped.record(mappedNanos - detectedNanos);
+                mappedToShown.record(shownNanos - mappedNanos);
+                shownToPulse.record(now - shownNanos);
+                messageEndToEnd.record(now - captured);
+            }
+            shownSequence = -1;
+            trialLatch = null;
+            latch.countDown();
+        }
+    }
+
+    private static long decode(Image image) {
+        PixelReader reader = image.getPixelReader();
+        int blockWidth = (int) image.getWidth() / SyntheticFrameSource.CODE_BITS;
+        long code = 0;
+        for (int bit = 0; bit < SyntheticFrameSource.CODE_BITS; bit++) {
+            int argb = reader.getArgb(bit * blockWidth + blockWidth / 2, SyntheticFrameSource.CODE_HEIGHT / 2);
+            if ((argb & 0xFF) > 127) {
+                code |= 1L << bit;
+            }
+        }
+        return code;
+    }
+
+    private String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("Preview path (camera -> cameraFeedView)\n");
+        out.append("  ").append(captureToPreviewSet.summary("capture -> setImage")).append('\n');
+        out.append("  ").append(previewSetToPulse.summary("setImage -> pulse")).append('\n');
+        out.append("  ").append(previewEndToEnd.summary("end to end")).append('\n');
+        out.append("Detection path (camera -> disposal message)\n");
+        out.append("  ").append(captureToDetected.summary("capture -> detect")).append('\n');
+        out.append("  ").append(detectedToMapped.summary("detect -> map")).append('\n');
+        out.append("  ").append(mappedToShown.summary("map -> show")).append('\n');
+        out.append("  ").append(shownToPulse.summary("show -> pulse")).append('\n');
+        out.append("  ").append(messageEndToEnd.summary("end to end")).append('\n');
+        return out.toString();
+    }
+
+    private boolean withinBudget() {
+        return previewEndToEnd.percentile(99) < PREVIEW_BUDGET_NANOS
+                && messageEndToEnd.percentile(99) < MESSAGE_BUDGET_NANOS;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int trials = 50;
+        double fps = 30;
+        String modelPath = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--trials":
+                    trials = Integer.parseInt(args[++i]);
+                    break;
+                case "--fps":
+                    fps = Double.parseDouble(args[++i]);
+                    break;
+                case "--model":
+                    modelPath = args[++i];
+                    break;
+                default:
+                    System.err.println("Usage: LatencyHarness [--trials N] [--fps F] [--model path]");
+                    System.exit(2);
+            }
+        }
+
+        ResourceBudget budget = ResourceBudget.fromSystemProperties();
+        budget.apply();
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        double frameRate = fps;
+        SyntheticFrameSource detectionSource = new SyntheticFrameSource(640, 480, frameRate, start);
+        LatencyHarness harness = new LatencyHarness(start, detectionSource.getIntervalNanos());
+
+        Detector costModel = modelPath != null ? new YoloBridge(modelPath, (FrameSource) null, 640) : null;
+        YoloAdapter adapter = new YoloAdapter(detectionSource, new SyntheticDetector(costModel));
+        adapter.setLatencyProbe(harness::mark);
+        CameraService camera = new CameraService(() -> new SyntheticFrameSource(640, 480, frameRate, start));
+        camera.setLatencyProbe(harness::mark);
+
+        CountDownLatch started = new CountDownLatch(1);
+        DisposalMessageController[] controllerRef = new DisposalMessageController[1];
+        Platform.startup(() -> {
+            try {
+                FXMLLoader loader = new FXMLLoader(LatencyHarness.class.getResource("/fxml/disposal_message.fxml"));
+                loader.setControllerFactory(type -> new DisposalMessageController(adapter, camera));
+                Parent root = loader.load();
+                DisposalMessageController controller = loader.getController();
+                controller.setLatencyProbe(harness::mark);
+                controllerRef[0] = controller;
+
+                Scene scene = new Scene(root, 1024, 900);
+                ImageView cameraFeedView = (ImageView) root.lookup("#cameraFeedView");
+                Node messageContainer = root.lookup("#messageContainer");
+                scene.addPostLayoutPulseListener(() -> harness.onPulse(cameraFeedView, messageContainer));
+
+                Stage stage = new Stage();
+                stage.setScene(scene);
+                stage.show();
+                budget.pinUiThreads();
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            started.countDown();
+        });
+        started.await();
+        DisposalMessageController controller = controllerRef[0];
+
+        int completed = 0;
+        for (int i = 0; i < WARMUP_TRIALS + trials; i++) {
+            harness.recording = i >= WARMUP_TRIALS;
+            CountDownLatch latch = new CountDownLatch(1);
+            harness.trialLatch = latch;
+            Platform.runLater(() -> {
+                controller.dismissMessage();
+                controller.startScanning();
+            });
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                System.err.println("[LatencyHarness] Trial " + i + " timed out");
+                harness.trialLatch = null;
+            } else if (harness.recording) {
+                completed++;
+            }
+            // Decorrelate the next trial from the 100 ms detection tick
+            Thread.sleep(50 + ThreadLocalRandom.current().nextInt(100));
+        }
+        harness.recording = false;
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            controller.shutdown();
+            stopped.countDown();
+        });
+        stopped.await(5, TimeUnit.SECONDS);
+        Platform.exit();
+
+        System.out.printf("Glass-to-glass latency, %d trials at %.0f fps (%s detector)%n",
+                completed, fps, modelPath != null ? "real" : "synthetic");
+        System.out.print(harness.report());
+        boolean ok = harness.withinBudget();
+        System.out.println(ok
+                ? "PASS: preview p99 < 500 ms and message p99 < 1 s"
+                : "FAIL: latency budget exceeded (preview p99 < 500 ms, message p99 < 1 s)");
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,381 @@
+package com.kiosk.bench;
+
+import com.kiosk.models.WasteCategory;
+import com.kiosk.views.MessageScenes;
+import javafx.animation.FadeTransition;
+import javafx.animation.ScaleTransition;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.CacheHint;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the FX thread pays to put a disposal message or the
+ * confirmation on screen, relabelling shared labels (as the controller did)
+ * against switching between {@link MessageScenes}.
+ *
+ * Each mode runs in a new process, because the glyph cache and CSS caches
+ * are per process and the first appearance of each message is the case
+ * that matters most. For every show it records the show call itself, the
+ * CSS and layout pass of the pulse that displays it (pre- to post-layout
+ * pulse listener), and the time to render the message off screen right
+ * after that pulse (a snapshot, which rasterizes any glyphs not yet
+ * cached). Messages cycle through the four categories and the
+ * confirmation; first appearances are reported apart from the rest.
+ *
+ * Usage: MessageSceneBench [--shows 100]
+ * Headless on Linux: mvn -Pheadless compile exec:exec -Dharness.main=com.kiosk.bench.MessageSceneBench
+ */
+public class MessageSceneBench {
+    private static final String RESULT = "RESULT ";
+    private static final String PREPARE = "PREPARE ";
+    private static final String CONFIRMATION = "CONFIRMATION";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            try {
+                child(args[1], Integer.parseInt(args[2]));
+            } catch (Exception e) {
+                e.printStackTrace();
+                // The FX thread would keep the process alive
+                System.exit(1);
+            }
+            return;
+        }
+        int shows = 100;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--shows")) {
+                shows = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Usage: MessageSceneBench [--shows 100]");
+                System.exit(2);
+            }
+        }
+
+        System.out.printf("=== Message display, %d shows per mode (ms: median / max) ===%n", shows);
+        boolean ok = report("Relabel (previous)", run("relabel", shows));
+        ok &= report("Prebuilt scenes", run("prebuilt", shows));
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static List<String> run(String mode, int shows) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                "-Dsmartbin.log.file=none"));
+        for (String property : List.of("glass.platform", "monocle.platform", "prism.order")) {
+            if (System.getProperty(property) != null) {
+                command.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        command.addAll(List.of(MessageSceneBench.class.getName(), "--child", mode, String.valueOf(shows)));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> results = new ArrayList<>();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                output.append(line).append('\n');
+                if (line.startsWith(RESULT) || line.startsWith(PREPARE)) {
+                    results.add(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            System.err.print(output);
+            return null;
+        }
+        return results;
+    }
+
+    /**
+     * Lines are {@code RESULT kind first callNanos layoutNanos renderNanos}
+     * and, for prebuilt scenes, {@code PREPARE nanos}.
+     */
+    private static boolean report(String name, List<String> results) {
+        if (results == null || results.isEmpty()) {
+            System.out.printf("%-20s failed%n", name);
+            return false;
+        }
+        List<List<Long>> first = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        List<List<Long>> later = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        String prepare = "";
+        for (String line : results) {
+            String[] parts = line.split(" ");
+            if (line.startsWith(PREPARE)) {
+                prepare = String.format("   (prepared at start-up in %.1f ms)", Long.parseLong(parts[1]) / 1e6);
+                continue;
+            }
+            List<List<Long>> into = parts[2].equals("1") ? first : later;
+            for (int i = 0; i < 3; i++) {
+                into.get(i).add(Long.parseLong(parts[3 + i]));
+            }
+        }
+        System.out.println(name + prepare);
+        System.out.println("  " + row("first appearance", first));
+        System.out.println("  " + row("after that", later));
+        return true;
+    }
+
+    private static String row(String name, List<List<Long>> values) {
+        return String.format("%-18s show %s   css+layout %s   render %s", name,
+                stat(values.get(0)), stat(values.get(1)), stat(values.get(2)));
+    }
+
+    private static String stat(List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return "      -      ";
+        }
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        return String.format("%5.2f / %5.2f", sorted.get(sorted.size() / 2) / 1e6, sorted.get(sorted.size() - 1) / 1e6);
+    }
+
+    // Child process: one mode
+
+    private static long preLayoutNanos;
+    private static long layoutNanos;
+    private static volatile CountDownLatch pulse;
+
+    private static void child(String mode, int shows) throws Exception {
+        boolean prebuilt = mode.equals("prebuilt");
+        Platform.startup(() -> { });
+        MessageView view = onFx(() -> {
+            MessageView built = prebuilt ? new Prebuilt() : new Relabel();
+            VBox root = new VBox(20, built.message(), built.confirmation());
+            root.setAlignment(Pos.CENTER);
+            root.getStyleClass().add("root-container");
+            root.getStylesheets().add(MessageSceneBench.class.getResource("/css/kiosk-styles.css").toExternalForm());
+
+            Scene scene = new Scene(root, 1024, 900);
+            scene.addPreLayoutPulseListener(() -> preLayoutNanos = System.nanoTime());
+            scene.addPostLayoutPulseListener(() -> {
+                CountDownLatch latch = pulse;
+                if (latch != null) {
+                    layoutNanos = System.nanoTime() - preLayoutNanos;
+                    pulse = null;
+                    latch.countDown();
+                }
+            });
+            Stage stage = new Stage();
+            stage.setScene(scene);
+            stage.show();
+            long start = System.nanoTime();
+            if (built.prepare()) {
+                System.out.println(PREPARE + (System.nanoTime() - start));
+            }
+            return built;
+        });
+        Thread.sleep(500);
+
+        List<String> kinds = new ArrayList<>();
+        for (WasteCategory category : WasteCategory.values()) {
+            kinds.add(category.name());
+        }
+        kinds.add(CONFIRMATION);
+        List<String> seen = new ArrayList<>();
+        for (int i = 0; i < shows; i++) {
+            String kind = kinds.get(i % kinds.size());
+            CountDownLatch latch = new CountDownLatch(1);
+            long call = onFx(() -> {
+                pulse = latch;
+                long start = System.nanoTime();
+                if (kind.equals(CONFIRMATION)) {
+                    view.showConfirmation();
+                } else {
+                    view.show(WasteCategory.valueOf(kind));
+                }
+                return System.nanoTime() - start;
+            });
+            if (!latch.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("no pulse after showing " + kind);
+            }
+            long layout = layoutNanos;
+            long render = onFx(() -> {
+                long start = System.nanoTime();
+                (kind.equals(CONFIRMATION) ? view.confirmation() : view.message()).snapshot(null, null);
+                long nanos = System.nanoTime() - start;
+                view.hide();
+                return nanos;
+            });
+            boolean first = !seen.contains(kind);
+            seen.add(kind);
+            System.out.println(RESULT + kind + " " + (first ? 1 : 0) + " " + call + " " + layout + " " + render);
+            // Let the hide reach the screen before the next message
+            Thread.sleep(50);
+        }
+        Platform.exit();
+        System.exit(0);
+    }
+
+    private static <T> T onFx(Callable<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    private interface MessageView {
+        VBox message();
+
+        VBox confirmation();
+
+        /**
+         * Start-up work before the first message; false if there is none.
+         */
+        boolean prepare();
+
+        void show(WasteCategory category);
+
+        void showConfirmation();
+
+        void hide();
+    }
+
+    private static VBox container(String styleClass, Label... labels) {
+        VBox box = new VBox(10, labels);
+        box.setAlignment(Pos.CENTER);
+        box.getStyleClass().add(styleClass);
+        box.setMaxWidth(600);
+        box.setVisible(false);
+        return box;
+    }
+
+    private static Label label(String text, String styleClass) {
+        Label label = new Label(text);
+        label.getStyleClass().add(styleClass);
+        label.setWrapText(true);
+        return label;
+    }
+
+    /**
+     * Shared labels relabelled per message, new transitions per confirmation.
+     */
+    private static final class Relabel implements MessageView {
+        private final Label icon = label("♻", "icon-label");
+        private final Label name = label("Recycling", "category-label");
+        private final Label instruction = label(WasteCategory.RECYCLE.getInstruction(), "instruction-label");
+        private final Label checkmark = label("✓", "checkmark-label");
+        private final Label confirmationText = label("Correct Disposal!", "confirmation-text");
+        private final VBox message = container("message-container", icon, name, instruction);
+        private final VBox confirmation = container("confirmation-container", checkmark, confirmationText);
+
+        public VBox message() {
+            return message;
+        }
+
+        public VBox confirmation() {
+            return confirmation;
+        }
+
+        public boolean prepare() {
+            return false;
+        }
+
+        public void show(WasteCategory category) {
+            icon.setText(category.getIcon());
+            name.setText(category.getCategoryName());
+            instruction.setText(category.getInstruction());
+            message.setVisible(true);
+        }
+
+        public void showConfirmation() {
+            checkmark.setText("✓");
+            confirmationText.setText("Correct Disposal!");
+            confirmation.setVisible(true);
+            ScaleTransition scaleIn = new ScaleTransition(Duration.seconds(0.3), checkmark);
+            scaleIn.setFromX(0.0);
+            scaleIn.setFromY(0.0);
+            scaleIn.setToX(1.0);
+            scaleIn.setToY(1.0);
+            scaleIn.play();
+            FadeTransition fadeIn = new FadeTransition(Duration.seconds(0.3), confirmationText);
+            fadeIn.setFromValue(0.0);
+            fadeIn.setToValue(1.0);
+            fadeIn.play();
+        }
+
+        public void hide() {
+            message.setVisible(false);
+            confirmation.setVisible(false);
+        }
+    }
+
+    /**
+     * {@link MessageScenes} and a confirmation prepared the way the controller does.
+     */
+    private static final class Prebuilt implements MessageView {
+        private final MessageScenes scenes = new MessageScenes();
+        private final Label checkmark = label("✓", "checkmark-label");
+        private final Label confirmationText = label("Correct Disposal!", "confirmation-text");
+        private final VBox message = new VBox(scenes);
+        private final VBox confirmation = container("confirmation-container", checkmark, confirmationText);
+        private final ScaleTransition scaleIn = new ScaleTransition(Duration.seconds(0.3), checkmark);
+        private final FadeTransition fadeIn = new FadeTransition(Duration.seconds(0.3), confirmationText);
+
+        Prebuilt() {
+            message.setAlignment(Pos.CENTER);
+            message.getStyleClass().add("message-container");
+            message.setMaxWidth(600);
+            message.setVisible(false);
+            scaleIn.setFromX(0.0);
+            scaleIn.setFromY(0.0);
+            scaleIn.setToX(1.0);
+            scaleIn.setToY(1.0);
+            fadeIn.setFromValue(0.0);
+            fadeIn.setToValue(1.0);
+            for (Label label : List.of(checkmark, confirmationText)) {
+                label.setCache(true);
+                label.setCacheHint(CacheHint.SPEED);
+            }
+        }
+
+        public VBox message() {
+            return message;
+        }
+
+        public VBox confirmation() {
+            return confirmation;
+        }
+
+        public boolean prepare() {
+            scenes.prepare();
+            MessageScenes.render(confirmation);
+            return true;
+        }
+
+        public void show(WasteCategory category) {
+            scenes.show(category, List.of());
+            message.setVisible(true);
+        }
+
+        public void showConfirmation() {
+            confirmation.setVisible(true);
+            scaleIn.playFromStart();
+            fadeIn.playFromStart();
+        }
+
+        public void hide() {
+            message.setVisible(false);
+            confirmation.setVisible(false);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.kiosk.bench;
+
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.yolo.YoloBridge;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long a kiosk waits for its model with and without the
+ * model artifact cache.
+ *
+ * Each run is a new process that loads the OpenCV library (not timed), the
+ * model into a {@link YoloBridge} (time to ready) and detects one frame
+ * (time to first detection). Runs with the cache off, with an empty cache
+ * directory (cold: the entry is written) and with the entry in place (warm)
+ * are compared; the first run of each is a discarded warm-up for the OS
+ * page cache. Without {@code --model} a {@link SyntheticOnnxModel} is
+ * generated.
+ *
+ * Usage: ModelLoadBenchmark [--model path] [--runs 5] [--backend opencv] [--target cpu]
+ */
+public class ModelLoadBenchmark {
+    private static final String RESULT = "RESULT ";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            child(args[1]);
+            return;
+        }
+        String model = null;
+        int runs = 5;
+        String backend = "opencv";
+        String target = "cpu";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model" -> model = args[++i];
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--backend" -> backend = args[++i];
+                case "--target" -> target = args[++i];
+                default -> {
+                    System.err.println("Usage: ModelLoadBenchmark [--model path] [--runs N]"
+                            + " [--backend name] [--target name]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        Path work = Files.createTempDirectory("model-load");
+        try {
+            if (model == null) {
+                Path synthetic = work.resolve("synthetic.onnx");
+                SyntheticOnnxModel.write(synthetic, 64, 6, 80, 42);
+                model = synthetic.toString();
+            }
+            Path cacheDir = work.resolve("cache");
+            List<String> base = List.of(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-cp", System.getProperty("java.class.path"),
+                    "-Dsmartbin.log.file=none",
+                    "-Dsmartbin.yolo.backend=" + backend,
+                    "-Dsmartbin.yolo.target=" + target,
+                    "-Dsmartbin.yolo.cache.dir=" + cacheDir);
+
+            System.out.printf("=== Model load benchmark: %s (%d KB), %s/%s, %d runs after one warm-up ===%n",
+                    model, Files.size(Path.of(model)) / 1024, backend, target, runs);
+            long[] off = report("Cache off", command(base, "off", model), runs, null);
+            long[] cold = report("Cache cold (entry written)", command(base, "on", model), runs, cacheDir);
+            long[] warm = report("Cache warm", command(base, "on", model), runs, null);
+            if (off != null && warm != null) {
+                System.out.printf("Warm vs off: ready %+d ms, first detection %+d ms, total %+d ms%n",
+                        warm[0] - off[0], warm[1] - off[1], warm[0] + warm[1] - off[0] - off[1]);
+            }
+            if (off == null || cold == null || warm == null) {
+                System.exit(1);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static List<String> command(List<String> base, String cache, String model) {
+        List<String> command = new ArrayList<>(base);
+        command.add("-Dsmartbin.yolo.cache=" + cache);
+        command.add(ModelLoadBenchmark.class.getName());
+        command.add("--child");
+        command.add(model);
+        return command;
+    }
+
+    /**
+     * @param clearBefore cache directory emptied before every run, or null
+     * @return median {ready, first detection} in ms, or null if a run failed
+     */
+    private static long[] report(String name, List<String> command, int runs, Path clearBefore)
+            throws IOException, InterruptedException {
+        long[] ready = new long[runs];
+        long[] first = new long[runs];
+        for (int i = -1; i < runs; i++) {
+            if (clearBefore != null) {
+                clear(clearBefore);
+            }
+            long[] result = run(command);
+            if (result == null) {
+                System.out.printf("%-28s failed%n", name);
+                return null;
+            }
+            if (i >= 0) {
+                ready[i] = result[0];
+                first[i] = result[1];
+            }
+        }
+        Arrays.sort(ready);
+        Arrays.sort(first);
+        long[] median = {ready[runs / 2], first[runs / 2]};
+        System.out.printf("%-28s ready %5d ms   first detection %5d ms   total %5d ms%n",
+                name, median[0], median[1], median[0] + median[1]);
+        return median;
+    }
+
+    private static void clear(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static long[] run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        StringBuilder output = new StringBuilder();
+        long[] result = null;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                output.append(line).append('\n');
+                if (line.startsWith(RESULT)) {
+                    String[] parts = line.substring(RESULT.length()).split(" ");
+                    result = new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            System.err.print(output);
+            return null;
+        }
+        return result;
+    }
+
+    private static void child(String model) {
+        OpenCvLoader.load();
+        long start = System.nanoTime();
+        YoloBridge bridge = new YoloBridge(model, (FrameSource) null, 640);
+        long ready = System.nanoTime();
+        Mat frame = new Mat(480, 640, CvType.CV_8UC3, new Scalar(90, 120, 150));
+        bridge.detect(frame);
+        long first = System.nanoTime();
+        frame.release();
+        bridge.close();
+        System.out.println(RESULT + (ready - start) / 1_000_000 + " " + (first - ready) / 1_000_000);
+    }
+}
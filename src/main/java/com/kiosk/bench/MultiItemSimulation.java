@@ -0,0 +1,235 @@
+package com.kiosk.bench;
+
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.scheduling.TimerWheel;
+import com.kiosk.scheduling.VirtualClock;
+import com.kiosk.services.KioskStateMachine;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares one instruction per scan with multi-item instructions at a busy
+ * kiosk, on a virtual clock through {@link KioskStateMachine}.
+ *
+ * Visitors queue up and each carries one to three items (possibly several
+ * of the same category). With one item per scan the kiosk classifies the
+ * best item only; the visitor disposes of it and has to hold up the rest
+ * again once the kiosk is scanning. With multi-item detection every
+ * category in view is reported at once, the visitor sees the queued bins
+ * and disposes of them one after another. Both runs use the same visitors,
+ * reaction times and handling times, and must have no incorrect disposals.
+ *
+ * Usage: MultiItemSimulation [--kiosks 100] [--hours 8] [--seed 42]
+ */
+public class MultiItemSimulation {
+    private static final long FRAME_MILLIS = 100;
+    private static final long TICK_MILLIS = 10;
+    /** Taking an item out and holding it up to the camera. */
+    private static final long PRESENT_MILLIS = 700;
+    /** Item still moving into view: seen, not yet classified. */
+    private static final long SETTLE_MILLIS = 300;
+    private static final WasteCategory[] CATEGORIES = WasteCategory.values();
+
+    private static final class Kiosk {
+        final KioskStateMachine machine;
+        final boolean multiItem;
+        final Random random;
+        // Current visitor
+        final Map<WasteCategory, Integer> items = new EnumMap<>(WasteCategory.class);
+        final List<WasteCategory> order = new ArrayList<>();
+        final List<long[]> disposals = new ArrayList<>(); // {time, category ordinal}
+        long arrivedAt;
+        long presentedAt = Long.MAX_VALUE;
+        long nextHandsFree;
+        // Totals
+        long visitors;
+        long itemsDisposed;
+        long visitMillis;
+        long incorrect;
+
+        Kiosk(TimerWheel wheel, boolean multiItem, long seed) {
+            this.multiItem = multiItem;
+            this.random = new Random(seed);
+            this.machine = new KioskStateMachine(wheel, this::onEvent);
+        }
+
+        void onEvent(KioskEvent event) {
+            switch (event.getType()) {
+                case INSTRUCTION_SHOWN -> {
+                    learn(event.getCategory(), now);
+                    for (WasteCategory queued : machine.getQueuedCategories()) {
+                        learn(queued, now);
+                    }
+                }
+                case SCANNING_STARTED -> {
+                    if (!items.isEmpty() && disposals.isEmpty()) {
+                        // Still holding items the kiosk has not named: show the next one
+                        presentedAt = now + PRESENT_MILLIS;
+                    }
+                }
+                case DISPOSAL_INCORRECT -> incorrect++;
+                default -> { }
+            }
+        }
+
+        /**
+         * The visitor now knows where one of their categories goes.
+         */
+        void learn(WasteCategory category, long at) {
+            if (!items.containsKey(category)) {
+                return;
+            }
+            for (long[] disposal : disposals) {
+                if (disposal[1] == category.ordinal()) {
+                    return;
+                }
+            }
+            long start = Math.max(at + 1000 + random.nextInt(2000), nextHandsFree);
+            long done = start + (items.get(category) - 1) * 600L;
+            nextHandsFree = done + 800 + random.nextInt(700);
+            disposals.add(new long[]{done, category.ordinal()});
+            presentedAt = Long.MAX_VALUE;
+        }
+
+        void nextVisitor(long at, Random visitorRandom) {
+            items.clear();
+            order.clear();
+            disposals.clear();
+            int roll = visitorRandom.nextInt(100);
+            int count = roll < 55 ? 1 : roll < 85 ? 2 : 3;
+            for (int i = 0; i < count; i++) {
+                WasteCategory category = CATEGORIES[visitorRandom.nextInt(CATEGORIES.length)];
+                if (items.merge(category, 1, Integer::sum) == 1) {
+                    order.add(category);
+                }
+            }
+            arrivedAt = at + visitorRandom.nextInt(1000);
+            presentedAt = arrivedAt + PRESENT_MILLIS;
+            nextHandsFree = 0;
+        }
+    }
+
+    private static long now;
+
+    public static void main(String[] args) {
+        int kioskCount = 100;
+        double hours = 8;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--kiosks" -> kioskCount = Integer.parseInt(args[++i]);
+                case "--hours" -> hours = Double.parseDouble(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Usage: MultiItemSimulation [--kiosks 100] [--hours 8] [--seed 42]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        System.out.println("=== Multi-item simulation ===");
+        System.out.printf("Kiosks: %d, simulated time: %.1f h each, 55%% of visitors with 1 item, 30%% with 2,"
+                + " 15%% with 3%n", kioskCount, hours);
+        Kiosk[] single = run(kioskCount, hours, seed, false);
+        Kiosk[] multi = run(kioskCount, hours, seed, true);
+        double singleRate = report("One item per scan", single, hours);
+        double multiRate = report("Multi-item", multi, hours);
+        System.out.printf("Throughput gain: %+.1f%% items per minute%n", (multiRate / singleRate - 1) * 100);
+        long incorrect = 0;
+        for (Kiosk kiosk : single) {
+            incorrect += kiosk.incorrect;
+        }
+        for (Kiosk kiosk : multi) {
+            incorrect += kiosk.incorrect;
+        }
+        boolean pass = incorrect == 0 && multiRate > singleRate;
+        System.out.println(pass ? "PASS" : "FAIL: " + incorrect + " incorrect disposals");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    private static Kiosk[] run(int kioskCount, double hours, long seed, boolean multiItem) {
+        VirtualClock clock = new VirtualClock();
+        TimerWheel wheel = new TimerWheel(clock, TICK_MILLIS);
+        now = 0;
+        Kiosk[] kiosks = new Kiosk[kioskCount];
+        Random[] visitors = new Random[kioskCount];
+        for (int k = 0; k < kioskCount; k++) {
+            visitors[k] = new Random(seed + k);
+            kiosks[k] = new Kiosk(wheel, multiItem, seed * 31 + k);
+            kiosks[k].machine.startScanning();
+            kiosks[k].nextVisitor(0, visitors[k]);
+        }
+        long end = (long) (hours * 3_600_000);
+        while (now < end) {
+            clock.advanceMillis(FRAME_MILLIS);
+            now += FRAME_MILLIS;
+            wheel.poll();
+            for (int k = 0; k < kioskCount; k++) {
+                step(kiosks[k], visitors[k]);
+            }
+        }
+        return kiosks;
+    }
+
+    private static void step(Kiosk kiosk, Random visitorRandom) {
+        KioskStateMachine machine = kiosk.machine;
+        if (machine.isScanning()) {
+            if (now >= kiosk.presentedAt && !kiosk.items.isEmpty()) {
+                if (now - kiosk.presentedAt < SETTLE_MILLIS) {
+                    machine.onDetectionResult(null, now / FRAME_MILLIS, 0.45);
+                } else {
+                    List<WasteCategory> inView = new ArrayList<>();
+                    for (WasteCategory category : kiosk.order) {
+                        if (kiosk.items.containsKey(category)) {
+                            inView.add(category);
+                        }
+                    }
+                    machine.onDetectionResults(kiosk.multiItem ? inView : inView.subList(0, 1),
+                            now / FRAME_MILLIS, 0.8);
+                }
+            } else {
+                machine.onDetectionResult(null, now / FRAME_MILLIS, Double.NaN);
+            }
+        }
+
+        for (int i = 0; i < kiosk.disposals.size(); i++) {
+            long[] disposal = kiosk.disposals.get(i);
+            if (now < disposal[0]) {
+                continue;
+            }
+            WasteCategory category = CATEGORIES[(int) disposal[1]];
+            kiosk.disposals.remove(i--);
+            machine.validateDisposal(category);
+            kiosk.itemsDisposed += kiosk.items.remove(category);
+            if (kiosk.items.isEmpty()) {
+                kiosk.visitors++;
+                kiosk.visitMillis += now - kiosk.arrivedAt;
+                kiosk.nextVisitor(now, visitorRandom);
+            } else if (kiosk.disposals.isEmpty() && machine.isScanning()) {
+                kiosk.presentedAt = now + PRESENT_MILLIS;
+            }
+        }
+    }
+
+    private static double report(String name, Kiosk[] kiosks, double hours) {
+        long visitors = 0;
+        long items = 0;
+        long visitMillis = 0;
+        for (Kiosk kiosk : kiosks) {
+            visitors += kiosk.visitors;
+            items += kiosk.itemsDisposed;
+            visitMillis += kiosk.visitMillis;
+        }
+        double perMinute = items / (kiosks.length * hours * 60);
+        System.out.printf("%-18s %,9d visitors, %,9d items: %.2f items/min per kiosk, %.1f s per visit%n",
+                name, visitors, items, perMinute, visitMillis / 1000.0 / Math.max(1, visitors));
+        return perMinute;
+    }
+}
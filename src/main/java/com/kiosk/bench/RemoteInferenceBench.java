@@ -0,0 +1,412 @@
+package com.kiosk.bench;
+
+import com.kiosk.metrics.LatencyHistogram;
+import com.smartbin.DetectionResult;
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.SyntheticFrameSource;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.remote.InferenceServer;
+import com.smartbin.remote.RemoteDetector;
+import com.smartbin.remote.RemoteDetectorMetrics;
+import com.smartbin.yolo.Detector;
+import com.smartbin.yolo.YoloBridge;
+import org.opencv.core.Mat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loopback test of the shared inference server.
+ *
+ * Starts an InferenceServer in a child JVM on 127.0.0.1 and drives it from
+ * several simulated kiosks, each with its own RemoteDetector and synthetic
+ * camera. The synthetic detector on the server answers from the code strip
+ * in the pixels, so every answer is checked against what the kiosk sent,
+ * after JPEG or raw transport. The server is then killed and the kiosks
+ * keep running on their local fallback; the run fails if any answer was
+ * wrong, if the fallback did not take over, or if a frame waited much
+ * longer than the timeout.
+ *
+ * Without --model the server simulates an accelerator by sleeping a fixed
+ * cost per batch plus a cost per frame, which shows batching but not real
+ * inference speed. With --model every batch also runs through YoloBridge.
+ *
+ * Usage: RemoteInferenceBench [--kiosks 4] [--depth 1] [--seconds 10] [--outage-seconds 3]
+ * [--fps 30] [--format jpeg|raw] [--timeout-ms 250] [--max-batch 8] [--batch-window-ms 2]
+ * [--cost-ms 12] [--cost-per-frame-ms 3] [--model best.onnx]
+ */
+public class RemoteInferenceBench {
+    private static final Pattern LISTENING = Pattern.compile("\\[InferenceServer\\] Listening on .*:(\\d+) ");
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ITEM_PERIOD = 7;
+
+    /**
+     * Stand-in for an accelerator: a batch costs the same fixed overhead however many frames it holds.
+     */
+    private static final class SimulatedCost implements Detector {
+        private final long fixedNanos;
+        private final long perFrameNanos;
+
+        SimulatedCost(long fixedNanos, long perFrameNanos) {
+            this.fixedNanos = fixedNanos;
+            this.perFrameNanos = perFrameNanos;
+        }
+
+        @Override
+        public List<DetectionResult> detect(Mat frame) {
+            sleep(fixedNanos + perFrameNanos);
+            return List.of();
+        }
+
+        @Override
+        public List<List<DetectionResult>> detectBatch(List<Mat> frames) {
+            sleep(fixedNanos + perFrameNanos * frames.size());
+            List<List<DetectionResult>> results = new ArrayList<>(frames.size());
+            for (int i = 0; i < frames.size(); i++) {
+                results.add(List.of());
+            }
+            return results;
+        }
+
+        private static void sleep(long nanos) {
+            long end = System.nanoTime() + nanos;
+            while (System.nanoTime() < end) {
+                LockSupport.parkNanos(end - System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Counters for one phase, summed over all kiosks.
+     */
+    private static final class Phase {
+        final String name;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong frames = new AtomicLong();
+        final AtomicLong wrong = new AtomicLong();
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Pending {
+        final CompletableFuture<List<DetectionResult>> result;
+        final Mat frame;
+        final boolean item;
+        final long submitted;
+
+        Pending(CompletableFuture<List<DetectionResult>> result, Mat frame, boolean item, long submitted) {
+            this.result = result;
+            this.frame = frame;
+            this.item = item;
+            this.submitted = submitted;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int kiosks = 4;
+        int depth = 1;
+        long seconds = 10;
+        long outageSeconds = 3;
+        double fps = 30;
+        String format = RemoteDetector.FORMAT_JPEG;
+        long timeoutMillis = 250;
+        int maxBatch = 8;
+        long batchWindowMillis = 2;
+        double costMillis = 12;
+        double costPerFrameMillis = 3;
+        String model = null;
+        boolean serve = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--kiosks" -> kiosks = Integer.parseInt(args[++i]);
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Long.parseLong(args[++i]);
+                case "--outage-seconds" -> outageSeconds = Long.parseLong(args[++i]);
+                case "--fps" -> fps = Double.parseDouble(args[++i]);
+                case "--format" -> format = args[++i];
+                case "--timeout-ms" -> timeoutMillis = Long.parseLong(args[++i]);
+                case "--max-batch" -> maxBatch = Integer.parseInt(args[++i]);
+                case "--batch-window-ms" -> batchWindowMillis = Long.parseLong(args[++i]);
+                case "--cost-ms" -> costMillis = Double.parseDouble(args[++i]);
+                case "--cost-per-frame-ms" -> costPerFrameMillis = Double.parseDouble(args[++i]);
+                case "--model" -> model = args[++i];
+                case "--serve" -> serve = true;
+                default -> {
+                    System.err.println("Usage: RemoteInferenceBench [--kiosks 4] [--depth 1] [--seconds 10]"
+                            + " [--outage-seconds 3] [--fps 30] [--format jpeg|raw] [--timeout-ms 250]"
+                            + " [--max-batch 8] [--batch-window-ms 2] [--cost-ms 12] [--cost-per-frame-ms 3]"
+                            + " [--model best.onnx]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        OpenCvLoader.load();
+        if (serve) {
+            serve(maxBatch, batchWindowMillis, costMillis, costPerFrameMillis, model);
+            return;
+        }
+
+        List<String> serverArgs = new ArrayList<>(List.of("--serve",
+                "--max-batch", String.valueOf(maxBatch),
+                "--batch-window-ms", String.valueOf(batchWindowMillis),
+                "--cost-ms", String.valueOf(costMillis),
+                "--cost-per-frame-ms", String.valueOf(costPerFrameMillis)));
+        if (model != null) {
+            serverArgs.add("--model");
+            serverArgs.add(model);
+        }
+        Process server = startServer(serverArgs);
+        int port;
+        try {
+            port = awaitPort(server);
+        } catch (IOException e) {
+            server.destroyForcibly();
+            throw e;
+        }
+        System.out.println("[RemoteInferenceBench] Server process " + server.pid() + " on port " + port + ", "
+                + kiosks + " kiosks at " + fps + " fps, depth " + depth + ", " + format
+                + (model != null ? ", model " + model : ", simulated cost " + costMillis + " ms + "
+                + costPerFrameMillis + " ms/frame"));
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        List<RemoteDetector> detectors = new ArrayList<>();
+        for (int k = 0; k < kiosks; k++) {
+            detectors.add(new RemoteDetector(address, timeoutMillis, format, 85, WIDTH, 1.0,
+                    () -> new SyntheticDetector(null)));
+        }
+
+        long start = System.nanoTime();
+        Phase remote = runPhase("remote", detectors, depth, fps, seconds, timeoutMillis, start);
+        long responses = 0;
+        for (int k = 0; k < kiosks; k++) {
+            RemoteDetectorMetrics metrics = detectors.get(k).getMetrics();
+            responses += metrics.getResponses();
+            System.out.println("[RemoteInferenceBench] kiosk-" + k + " server up:   " + metrics);
+            metrics.reset();
+        }
+
+        // Through the handle so the server's output stays readable for its closing summary
+        server.toHandle().destroy();
+        if (!server.waitFor(10, TimeUnit.SECONDS)) {
+            server.destroyForcibly();
+        }
+        Phase outage = runPhase("outage", detectors, 1, fps, outageSeconds, timeoutMillis, start);
+        long remoteDuringOutage = 0;
+        long fallbacks = 0;
+        for (int k = 0; k < kiosks; k++) {
+            RemoteDetectorMetrics metrics = detectors.get(k).getMetrics();
+            remoteDuringOutage += metrics.getRemote();
+            fallbacks += metrics.getFallbacks();
+            System.out.println("[RemoteInferenceBench] kiosk-" + k + " server down: " + metrics);
+            detectors.get(k).close();
+        }
+
+        report(remote, seconds);
+        report(outage, outageSeconds);
+
+        boolean failed = false;
+        if (remote.wrong.get() + outage.wrong.get() > 0) {
+            System.out.println("[RemoteInferenceBench] FAIL: " + (remote.wrong.get() + outage.wrong.get())
+                    + " frames got the wrong answer");
+            failed = true;
+        }
+        if (responses == 0) {
+            System.out.println("[RemoteInferenceBench] FAIL: no frame was answered by the server");
+            failed = true;
+        }
+        if (remoteDuringOutage > 0 || fallbacks == 0) {
+            System.out.println("[RemoteInferenceBench] FAIL: fallback did not take over after the server stopped");
+            failed = true;
+        }
+        // A connect attempt may cost one timeout on top of detecting locally
+        long limit = TimeUnit.MILLISECONDS.toNanos(timeoutMillis * 2 + 50);
+        if (outage.latency.getMax() > limit) {
+            System.out.println("[RemoteInferenceBench] FAIL: a frame waited " + outage.latency.getMax() / 1_000_000
+                    + " ms with the server down");
+            failed = true;
+        }
+        System.out.println("[RemoteInferenceBench] " + (failed ? "FAILED" : "PASSED"));
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static void serve(int maxBatch, long batchWindowMillis, double costMillis, double costPerFrameMillis,
+                              String model) throws Exception {
+        Detector costModel = model != null
+                ? new YoloBridge(model, (FrameSource) null, Integer.getInteger("smartbin.yolo.inputSize", 640))
+                : new SimulatedCost((long) (costMillis * 1e6), (long) (costPerFrameMillis * 1e6));
+        SyntheticDetector detector = new SyntheticDetector(costModel);
+        InferenceServer server = new InferenceServer(detector,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxBatch, batchWindowMillis, 500);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "inference-server-stop"));
+        server.start();
+        server.awaitStop();
+    }
+
+    /**
+     * Same JVM, options and class or module path as this process, in server mode.
+     */
+    private static Process startServer(List<String> serverArgs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if ((arg.startsWith("-D") && !arg.startsWith("-Djdk.module")) || arg.startsWith("-X")
+                    || arg.startsWith("--add-modules")) {
+                command.add(arg);
+            }
+        }
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.add("--module-path");
+            command.add(modulePath);
+            command.add("-m");
+            command.add("com.kiosk/" + RemoteInferenceBench.class.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(RemoteInferenceBench.class.getName());
+        }
+        command.addAll(serverArgs);
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    /**
+     * Wait for the server's "Listening" line, then keep echoing its output.
+     */
+    private static int awaitPort(Process server) throws IOException, InterruptedException {
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+        AtomicReference<Integer> port = new AtomicReference<>();
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread echo = new Thread(() -> {
+            try {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    System.out.println("  server | " + line);
+                    Matcher matcher = LISTENING.matcher(line);
+                    if (matcher.find()) {
+                        port.set(Integer.parseInt(matcher.group(1)));
+                        ready.countDown();
+                    }
+                }
+            } catch (IOException ignored) {
+                // Server gone
+            }
+            ready.countDown();
+        }, "server-output");
+        echo.setDaemon(true);
+        echo.start();
+        if (!ready.await(30, TimeUnit.SECONDS) || port.get() == null) {
+            throw new IOException("Inference server did not start");
+        }
+        return port.get();
+    }
+
+    private static Phase runPhase(String name, List<RemoteDetector> detectors, int depth, double fps,
+                                  long seconds, long timeoutMillis, long startNanos) throws InterruptedException {
+        Phase phase = new Phase(name);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < detectors.size(); k++) {
+            RemoteDetector detector = detectors.get(k);
+            // Stagger the kiosks' cameras so their frames do not arrive in lockstep
+            long cameraStart = startNanos + (long) (k * 1e9 / fps / detectors.size());
+            Thread thread = new Thread(() -> runKiosk(detector, depth, fps, cameraStart, end, timeoutMillis, phase),
+                    "kiosk-" + k);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return phase;
+    }
+
+    private static void runKiosk(RemoteDetector detector, int depth, double fps, long cameraStart, long end,
+                                 long timeoutMillis, Phase phase) {
+        SyntheticFrameSource camera = new SyntheticFrameSource(WIDTH, HEIGHT, fps, cameraStart);
+        TimestampedFrame frame = new TimestampedFrame();
+        ArrayDeque<Pending> inFlight = new ArrayDeque<>();
+        try {
+            while (System.nanoTime() < end) {
+                camera.setItemPresent((frame.getSequence() + 1) % ITEM_PERIOD < ITEM_PERIOD / 2);
+                if (!camera.read(frame)) {
+                    break;
+                }
+                boolean item = SyntheticFrameSource.itemOf(SyntheticFrameSource.decode(frame.getMat()));
+                long submitted = System.nanoTime();
+                if (depth <= 1) {
+                    List<DetectionResult> detections = detector.detect(frame.getMat());
+                    record(phase, item, detections, System.nanoTime() - submitted);
+                    continue;
+                }
+                Mat copy = frame.getMat().clone();
+                inFlight.add(new Pending(detector.submit(copy), copy, item, submitted));
+                while (inFlight.size() >= depth || (!inFlight.isEmpty() && inFlight.peek().result.isDone())) {
+                    complete(inFlight.poll(), detector, timeoutMillis, phase);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                complete(inFlight.poll(), detector, timeoutMillis, phase);
+            }
+        } finally {
+            frame.release();
+            camera.close();
+        }
+    }
+
+    /**
+     * Wait for a pipelined request; like RemoteDetector.detect, detect locally if it fails or is late.
+     */
+    private static void complete(Pending pending, RemoteDetector detector, long timeoutMillis, Phase phase) {
+        long remaining = pending.submitted + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - System.nanoTime();
+        List<DetectionResult> detections;
+        try {
+            detections = pending.result.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            pending.result.cancel(false);
+            detections = new SyntheticDetector(null).detect(pending.frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            detections = List.of();
+        }
+        record(phase, pending.item, detections, System.nanoTime() - pending.submitted);
+        pending.frame.release();
+    }
+
+    private static void record(Phase phase, boolean item, List<DetectionResult> detections, long nanos) {
+        phase.frames.incrementAndGet();
+        phase.latency.record(nanos);
+        if (item == detections.isEmpty()) {
+            phase.wrong.incrementAndGet();
+        }
+    }
+
+    private static void report(Phase phase, long seconds) {
+        System.out.println(phase.latency.summary(phase.name + " frame latency"));
+        System.out.println(String.format("%-24s %d frames, %.1f frames/s, %d wrong",
+                phase.name, phase.frames.get(), phase.frames.get() / (double) seconds, phase.wrong.get()));
+    }
+}
@@ -0,0 +1,156 @@
+package com.kiosk.bench;
+
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.scheduling.TimerWheel;
+import com.kiosk.scheduling.VirtualClock;
+import com.kiosk.services.KioskStateMachine;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs many simulated user sessions through {@link KioskStateMachine} on a
+ * virtual clock, with no JavaFX and no real waiting.
+ *
+ * Each simulated kiosk sees a visitor approach (a few uncertain frames),
+ * get classified, and dispose into the right or a wrong bin at a random
+ * time. The run checks that every kiosk goes back to scanning within the
+ * rescan delay (plus confirmation time) after each session, i.e. that no
+ * restart is lost, and reports simulated sessions per wall-clock second.
+ *
+ * Usage: SessionSimulation [--kiosks N] [--sessions N] [--seed S]
+ */
+public class SessionSimulation {
+    private static final long FRAME_MILLIS = 100;
+    private static final long TICK_MILLIS = 10;
+
+    private static final class Kiosk {
+        final KioskStateMachine machine;
+        final Map<KioskEvent.Type, Long> counts = new EnumMap<>(KioskEvent.Type.class);
+        WasteCategory item;
+        long itemArrivesAt;
+        long disposeAt = -1;
+        WasteCategory disposeInto;
+        long notScanningSince = -1;
+        long longestPauseMillis;
+        long sessions;
+
+        Kiosk(TimerWheel wheel) {
+            machine = new KioskStateMachine(wheel, null);
+        }
+    }
+
+    public static void main(String[] args) {
+        int kioskCount = 100;
+        long targetSessions = 100_000;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--kiosks" -> kioskCount = Integer.parseInt(args[++i]);
+                case "--sessions" -> targetSessions = Long.parseLong(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Usage: SessionSimulation [--kiosks N] [--sessions N] [--seed S]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        VirtualClock clock = new VirtualClock();
+        TimerWheel wheel = new TimerWheel(clock, TICK_MILLIS);
+        Random random = new Random(seed);
+        Kiosk[] kiosks = new Kiosk[kioskCount];
+        long[] now = {0};
+        for (int k = 0; k < kioskCount; k++) {
+            Kiosk kiosk = new Kiosk(wheel);
+            kiosk.machine.setListener(event -> {
+                kiosk.counts.merge(event.getType(), 1L, Long::sum);
+                if (event.getType() == KioskEvent.Type.CONFIRMATION_HIDDEN
+                        || event.getType() == KioskEvent.Type.DISPOSAL_INCORRECT) {
+                    kiosk.sessions++;
+                }
+            });
+            kiosk.machine.startScanning();
+            nextVisitor(kiosk, random, 0);
+            kiosks[k] = kiosk;
+        }
+
+        long totalSessions = 0;
+        long frames = 0;
+        long start = System.nanoTime();
+        while (totalSessions < targetSessions) {
+            clock.advanceMillis(FRAME_MILLIS);
+            now[0] += FRAME_MILLIS;
+            wheel.poll();
+            totalSessions = 0;
+            for (Kiosk kiosk : kiosks) {
+                step(kiosk, random, now[0]);
+                totalSessions += kiosk.sessions;
+            }
+            frames++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long maxPause = 0;
+        Map<KioskEvent.Type, Long> totals = new EnumMap<>(KioskEvent.Type.class);
+        for (Kiosk kiosk : kiosks) {
+            maxPause = Math.max(maxPause, kiosk.longestPauseMillis);
+            kiosk.counts.forEach((type, count) -> totals.merge(type, count, Long::sum));
+        }
+        long allowedPause = KioskStateMachine.RESCAN_DELAY_MILLIS + KioskStateMachine.CONFIRMATION_MILLIS
+                + FRAME_MILLIS + TICK_MILLIS;
+
+        System.out.println("=== Session simulation ===");
+        System.out.printf("Kiosks: %d, sessions: %d, simulated time: %.1f h%n",
+                kioskCount, totalSessions, frames * FRAME_MILLIS / 3_600_000.0);
+        System.out.printf("Wall time: %.2f s, %.0f sessions/s%n", seconds, totalSessions / seconds);
+        totals.forEach((type, count) -> System.out.printf("  %-20s %d%n", type, count));
+        System.out.printf("Longest time not scanning: %d ms (limit %d ms)%n", maxPause, allowedPause);
+        boolean pass = maxPause <= allowedPause;
+        System.out.println(pass ? "PASS" : "FAIL: a kiosk did not resume scanning");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    private static void step(Kiosk kiosk, Random random, long now) {
+        KioskStateMachine machine = kiosk.machine;
+        if (machine.isScanning()) {
+            kiosk.notScanningSince = -1;
+            if (now >= kiosk.itemArrivesAt) {
+                long shownFor = now - kiosk.itemArrivesAt;
+                if (shownFor < 300) {
+                    // Item still moving into view: seen, not yet classified
+                    machine.onDetectionResult(null, now / FRAME_MILLIS, 0.45);
+                } else {
+                    machine.onDetectionResult(kiosk.item, now / FRAME_MILLIS, 0.8);
+                    long delay = 1000 + random.nextInt(5000);
+                    kiosk.disposeAt = now + delay;
+                    kiosk.disposeInto = random.nextInt(10) == 0
+                            ? WasteCategory.values()[random.nextInt(WasteCategory.values().length)]
+                            : kiosk.item;
+                }
+            } else {
+                machine.onDetectionResult(null, now / FRAME_MILLIS, Double.NaN);
+            }
+        } else {
+            if (kiosk.notScanningSince < 0) {
+                kiosk.notScanningSince = now;
+            }
+            kiosk.longestPauseMillis = Math.max(kiosk.longestPauseMillis, now - kiosk.notScanningSince);
+        }
+
+        if (kiosk.disposeAt >= 0 && now >= kiosk.disposeAt) {
+            machine.validateDisposal(kiosk.disposeInto);
+            kiosk.disposeAt = -1;
+            nextVisitor(kiosk, random, now);
+        }
+    }
+
+    private static void nextVisitor(Kiosk kiosk, Random random, long now) {
+        kiosk.item = WasteCategory.values()[random.nextInt(WasteCategory.values().length)];
+        kiosk.itemArrivesAt = now + 500 + random.nextInt(4000);
+    }
+}
@@ -0,0 +1,415 @@
+package com.kiosk.bench;
+
+import com.kiosk.metrics.LatencyHistogram;
+import com.kiosk.services.PreviewPresenter;
+import com.kiosk.views.DetectionOverlay;
+import com.smartbin.DetectionResult;
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.FrameExchange;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.SyntheticFrameSource;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.capture.VideoFileFrameSource;
+import com.smartbin.yolo.Detector;
+import com.smartbin.yolo.YoloBridge;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Multi-hour soak test of the capture → detect → overlay → preview pipeline.
+ *
+ * Drives the pipeline as fast as it will go from a looping video or the
+ * synthetic camera, and every sample period records RSS, native memory
+ * outside the JVM (mostly OpenCV Mats), GC activity, open file
+ * descriptors, thread count, FX pulse time and pipeline FPS. At the end a
+ * least-squares slope per hour is fitted to each series (ignoring the
+ * warm-up) and the run fails if any exceeds its limit.
+ *
+ * Native memory is estimated as RSS minus what the JVM has committed, so
+ * run with -Xms equal to -Xmx and -XX:+AlwaysPreTouch for a stable figure.
+ *
+ * A text report and a CSV of all samples are written to the report
+ * directory, named after the start time, for archiving with each release.
+ *
+ * Usage: SoakTest [--hours H | --minutes M] [--video file] [--model best.onnx]
+ *                 [--sample-seconds S] [--no-ui] [--report-dir dir]
+ *                 [--max-rss-slope MB/h] [--max-native-slope MB/h]
+ *                 [--max-fd-slope n/h] [--max-thread-slope n/h] [--max-fps-drop %/h]
+ */
+public class SoakTest {
+
+    static class Sample {
+        double elapsedHours;
+        long rssBytes;
+        long heapUsedBytes;
+        long nativeBytes;
+        long gcCount;
+        long gcMillis;
+        long openFds;
+        int threads;
+        double pipelineFps;
+        double previewFps;
+        double pulseP99Ms;
+    }
+
+    private final List<Sample> samples = new ArrayList<>();
+    private final AtomicLong pipelineFrames = new AtomicLong();
+    private volatile PreviewPresenter presenter;
+    private final FrameExchange<List<DetectionResult>> overlayUpdates = new FrameExchange<>();
+    private volatile int frameWidth = 640;
+    private volatile int frameHeight = 480;
+    private final LatencyHistogram pulseTimes = new LatencyHistogram();
+    private volatile boolean running = true;
+    private long pulseStartNanos;
+
+    // Limits
+    private double maxRssSlopeMb = 20;
+    private double maxNativeSlopeMb = 20;
+    private double maxFdSlope = 1;
+    private double maxThreadSlope = 1;
+    private double maxFpsDropPercent = 5;
+
+    /**
+     * The pipeline loop: read, detect, convert for the preview, publish the overlay.
+     */
+    private void runPipeline(FrameSource source, Detector detector) {
+        TimestampedFrame frame = new TimestampedFrame();
+        try {
+            while (running) {
+                if (!source.read(frame)) {
+                    continue;
+                }
+                List<DetectionResult> detections = detector.detect(frame.getMat());
+
+                frameWidth = frame.getMat().cols();
+                frameHeight = frame.getMat().rows();
+                overlayUpdates.offer(detections);
+                PreviewPresenter current = presenter;
+                if (current != null) {
+                    current.submit(frame.getMat(), frame.getSequence());
+                }
+                pipelineFrames.incrementAndGet();
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void startUi(CountDownLatch started) {
+        Platform.startup(() -> {
+            ImageView view = new ImageView();
+            view.setFitWidth(400);
+            view.setFitHeight(300);
+            view.setPreserveRatio(true);
+            DetectionOverlay overlay = new DetectionOverlay();
+            overlay.attachTo(view);
+            StackPane root = new StackPane(view, overlay);
+            Scene scene = new Scene(root, 640, 480);
+            scene.addPreLayoutPulseListener(() -> pulseStartNanos = System.nanoTime());
+            scene.addPostLayoutPulseListener(() -> pulseTimes.record(System.nanoTime() - pulseStartNanos));
+
+            PreviewPresenter preview = new PreviewPresenter(view);
+            preview.start();
+            presenter = preview;
+
+            new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    List<DetectionResult> detections = overlayUpdates.take();
+                    if (detections != null) {
+                        overlay.showDetections(detections, frameWidth, frameHeight, 0.5);
+                    }
+                }
+            }.start();
+
+            Stage stage = new Stage();
+            stage.setScene(scene);
+            stage.show();
+            started.countDown();
+        });
+    }
+
+    private long previewFrames() {
+        PreviewPresenter current = presenter;
+        return current != null ? current.getPresentedFrames() : 0;
+    }
+
+    private Sample takeSample(long startNanos, long lastSampleNanos, long lastPipeline, long lastPreview) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long jvmCommitted = memory.getHeapMemoryUsage().getCommitted()
+                + memory.getNonHeapMemoryUsage().getCommitted();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            jvmCommitted += pool.getMemoryUsed();
+        }
+
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1e9;
+
+        Sample sample = new Sample();
+        sample.elapsedHours = (now - startNanos) / 3.6e12;
+        sample.rssBytes = readRssBytes();
+        sample.heapUsedBytes = memory.getHeapMemoryUsage().getUsed();
+        sample.nativeBytes = sample.rssBytes > 0 ? Math.max(0, sample.rssBytes - jvmCommitted) : 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample.gcCount += Math.max(0, gc.getCollectionCount());
+            sample.gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        sample.openFds = openFileDescriptors();
+        sample.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        sample.pipelineFps = (pipelineFrames.get() - lastPipeline) / seconds;
+        sample.previewFps = (previewFrames() - lastPreview) / seconds;
+        sample.pulseP99Ms = pulseTimes.percentile(99) / 1e6;
+        pulseTimes.reset();
+        return sample;
+    }
+
+    /**
+     * Resident set size from /proc (Linux only), or -1.
+     */
+    static long readRssBytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] parts = line.trim().split("\\s+");
+                    return Long.parseLong(parts[1]) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    static long openFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    /**
+     * Least-squares slope per hour over the samples after warm-up.
+     */
+    static double slope(List<Sample> samples, ToDoubleFunction<Sample> value) {
+        int n = samples.size();
+        if (n < 3) {
+            return 0;
+        }
+        double sumX = 0;
+        double sumY = 0;
+        double sumXY = 0;
+        double sumXX = 0;
+        for (Sample sample : samples) {
+            double x = sample.elapsedHours;
+            double y = value.applyAsDouble(sample);
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        return denominator == 0 ? 0 : (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    private List<String> evaluate(List<Sample> steady, StringBuilder report) {
+        List<String> failures = new ArrayList<>();
+        double mb = 1024.0 * 1024.0;
+        double rssSlope = slope(steady, s -> s.rssBytes / mb);
+        double nativeSlope = slope(steady, s -> s.nativeBytes / mb);
+        double fdSlope = slope(steady, s -> s.openFds);
+        double threadSlope = slope(steady, s -> s.threads);
+        double fpsSlope = slope(steady, s -> s.pipelineFps);
+        double meanFps = steady.stream().mapToDouble(s -> s.pipelineFps).average().orElse(0);
+        double fpsDropPercent = meanFps > 0 ? -100.0 * fpsSlope / meanFps : 0;
+
+        report.append(String.format("  RSS slope:          %+8.2f MB/h   (limit %.1f)%n", rssSlope, maxRssSlopeMb));
+        report.append(String.format("  Native slope:       %+8.2f MB/h   (limit %.1f)%n", nativeSlope, maxNativeSlopeMb));
+        report.append(String.format("  Open FD slope:      %+8.2f /h     (limit %.1f)%n", fdSlope, maxFdSlope));
+        report.append(String.format("  Thread slope:       %+8.2f /h     (limit %.1f)%n", threadSlope, maxThreadSlope));
+        report.append(String.format("  Pipeline FPS drift: %+8.2f %%/h    (limit -%.1f), mean %.1f fps%n",
+                -fpsDropPercent, maxFpsDropPercent, meanFps));
+
+        if (rssSlope > maxRssSlopeMb) {
+            failures.add("RSS grows " + String.format("%.2f", rssSlope) + " MB/h");
+        }
+        if (nativeSlope > maxNativeSlopeMb) {
+            failures.add("native memory grows " + String.format("%.2f", nativeSlope) + " MB/h");
+        }
+        if (fdSlope > maxFdSlope) {
+            failures.add("open file descriptors grow " + String.format("%.2f", fdSlope) + "/h");
+        }
+        if (threadSlope > maxThreadSlope) {
+            failures.add("thread count grows " + String.format("%.2f", threadSlope) + "/h");
+        }
+        if (fpsDropPercent > maxFpsDropPercent) {
+            failures.add("pipeline FPS drops " + String.format("%.2f", fpsDropPercent) + "%/h");
+        }
+        return failures;
+    }
+
+    private void writeCsv(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("elapsed_h,rss_mb,heap_used_mb,native_mb,gc_count,gc_ms,open_fds,threads,pipeline_fps,preview_fps,pulse_p99_ms");
+            double mb = 1024.0 * 1024.0;
+            for (Sample s : samples) {
+                out.printf("%.4f,%.1f,%.1f,%.1f,%d,%d,%d,%d,%.2f,%.2f,%.2f%n",
+                        s.elapsedHours, s.rssBytes / mb, s.heapUsedBytes / mb, s.nativeBytes / mb,
+                        s.gcCount, s.gcMillis, s.openFds, s.threads,
+                        s.pipelineFps, s.previewFps, s.pulseP99Ms);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SoakTest soak = new SoakTest();
+        double hours = 4;
+        String video = null;
+        String model = null;
+        int sampleSeconds = 60;
+        boolean ui = true;
+        String reportDir = "soak-reports";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--hours":
+                    hours = Double.parseDouble(args[++i]);
+                    break;
+                case "--minutes":
+                    hours = Double.parseDouble(args[++i]) / 60.0;
+                    break;
+                case "--video":
+                    video = args[++i];
+                    break;
+                case "--model":
+                    model = args[++i];
+                    break;
+                case "--sample-seconds":
+                    sampleSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-ui":
+                    ui = false;
+                    break;
+                case "--report-dir":
+                    reportDir = args[++i];
+                    break;
+                case "--max-rss-slope":
+                    soak.maxRssSlopeMb = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-native-slope":
+                    soak.maxNativeSlopeMb = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-fd-slope":
+                    soak.maxFdSlope = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-thread-slope":
+                    soak.maxThreadSlope = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-fps-drop":
+                    soak.maxFpsDropPercent = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        OpenCvLoader.load();
+
+        FrameSource source = video != null
+                ? new VideoFileFrameSource(video, true)
+                : new SyntheticFrameSource(640, 480, 1000, System.nanoTime());
+        YoloBridge bridge = model != null ? new YoloBridge(model, (FrameSource) null, 640) : null;
+        Detector detector = bridge != null ? bridge : new SyntheticDetector(null);
+
+        if (ui) {
+            CountDownLatch started = new CountDownLatch(1);
+            soak.startUi(started);
+            started.await();
+        }
+
+        Thread pipeline = new Thread(() -> soak.runPipeline(source, detector), "soak-pipeline");
+        pipeline.setDaemon(true);
+        pipeline.start();
+
+        String startedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        long start = System.nanoTime();
+        long end = start + (long) (hours * 3.6e12);
+        long lastSample = start;
+        long lastPipeline = 0;
+        long lastPreview = 0;
+        System.out.printf("[SoakTest] Running for %.2f h, sampling every %d s%n", hours, sampleSeconds);
+
+        while (System.nanoTime() < end) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(sampleSeconds));
+            Sample sample = soak.takeSample(start, lastSample, lastPipeline, lastPreview);
+            lastSample = System.nanoTime();
+            lastPipeline = soak.pipelineFrames.get();
+            lastPreview = soak.previewFrames();
+            soak.samples.add(sample);
+            System.out.printf("[SoakTest] %6.2f h  rss=%.0fMB native=%.0fMB fds=%d threads=%d fps=%.1f preview=%.1f pulse99=%.1fms%n",
+                    sample.elapsedHours, sample.rssBytes / 1048576.0, sample.nativeBytes / 1048576.0,
+                    sample.openFds, sample.threads, sample.pipelineFps, sample.previewFps, sample.pulseP99Ms);
+        }
+
+        soak.running = false;
+        pipeline.join(5000);
+        if (ui) {
+            Platform.exit();
+        }
+        detector.close();
+        source.close();
+
+        // Ignore the first 10% of samples while caches, JIT and pools warm up
+        int warmup = Math.max(1, soak.samples.size() / 10);
+        List<Sample> steady = soak.samples.size() > warmup
+                ? soak.samples.subList(warmup, soak.samples.size())
+                : soak.samples;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Soak test started %s, %.2f h, %d samples (%d warm-up)%n",
+                startedAt, hours, soak.samples.size(), warmup));
+        report.append(String.format("Source: %s, detector: %s, UI: %s%n",
+                video != null ? video : "synthetic", model != null ? model : "synthetic", ui ? "on" : "off"));
+        List<String> failures = soak.evaluate(steady, report);
+        report.append(failures.isEmpty() ? "RESULT: PASS\n" : "RESULT: FAIL - " + String.join("; ", failures) + "\n");
+
+        File dir = new File(reportDir);
+        dir.mkdirs();
+        File reportFile = new File(dir, "soak-" + startedAt + ".txt");
+        Files.writeString(reportFile.toPath(), report.toString());
+        soak.writeCsv(new File(dir, "soak-" + startedAt + ".csv"));
+
+        System.out.print(report);
+        System.out.println("[SoakTest] Report written to " + reportFile.getPath());
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+}
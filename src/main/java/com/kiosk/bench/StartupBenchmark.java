@@ -0,0 +1,107 @@
+package com.kiosk.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares start-up time of {@link StartupTraining} on the development
+ * runtime against the jlink image, with and without the AppCDS archive.
+ *
+ * Each configuration is started {@code --runs} times in a new process and
+ * timed from launch to exit. The first run of each is a discarded warm-up
+ * (it fills the OS page cache), so the numbers compare JVM and library
+ * start-up, not disk speed.
+ *
+ * Usage: StartupBenchmark [--image target/image] [--runs 5] [--model path] [--no-ui]
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path image = Path.of("target", "image");
+        int runs = 5;
+        List<String> workloadArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--image" -> image = Path.of(args[++i]);
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--model" -> {
+                    workloadArgs.add("--model");
+                    workloadArgs.add(args[++i]);
+                }
+                case "--no-ui" -> workloadArgs.add("--no-ui");
+                default -> {
+                    System.err.println("Usage: StartupBenchmark [--image dir] [--runs N] [--model path] [--no-ui]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        String main = StartupTraining.class.getName();
+        List<String> jdk = new ArrayList<>(List.of(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"), main));
+        jdk.addAll(workloadArgs);
+
+        Path imageJava = image.resolve("bin").resolve("java");
+        List<String> imageNoCds = new ArrayList<>(List.of(imageJava.toString(),
+                "--module-path", image.resolve("app").toString(), "-m", "com.kiosk/" + main));
+        imageNoCds.addAll(workloadArgs);
+        List<String> imageCds = new ArrayList<>(imageNoCds);
+        imageCds.add(1, "-XX:SharedArchiveFile=" + image.resolve("lib").resolve("kiosk.jsa"));
+
+        System.out.printf("=== Start-up benchmark (%d runs after one warm-up) ===%n", runs);
+        report("JDK, classpath, OpenCV from jar", jdk, runs);
+        if (Files.isExecutable(imageJava)) {
+            report("jlink image", imageNoCds, runs);
+            report("jlink image + AppCDS", imageCds, runs);
+        } else {
+            System.out.println("No image at " + image + "; build it with mvn -Pimage package");
+        }
+    }
+
+    private static void report(String name, List<String> command, int runs) throws IOException, InterruptedException {
+        time(command);
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = time(command);
+            if (millis[i] < 0) {
+                System.out.printf("%-34s failed%n", name);
+                return;
+            }
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-34s median %5d ms   min %5d ms   max %5d ms%n",
+                name, millis[runs / 2], millis[0], millis[runs - 1]);
+    }
+
+    /**
+     * Wall time from launch to exit, or -1 if the run failed.
+     */
+    private static long time(List<String> command) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        }
+        int exit = process.waitFor();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        if (exit != 0) {
+            System.err.print(output);
+            return -1;
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,113 @@
+package com.kiosk.bench;
+
+import com.kiosk.controllers.DisposalMessageController;
+import com.kiosk.services.CameraService;
+import com.kiosk.services.YoloAdapter;
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.SyntheticFrameSource;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.yolo.Detector;
+import com.smartbin.yolo.YoloBridge;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The kiosk's cold-start work in one short run, used to record the AppCDS
+ * archive for the jlink image and as the workload of {@link StartupBenchmark}.
+ *
+ * Loads OpenCV, initialises YoloBridge and runs one inference (when the
+ * model file exists), then starts the JavaFX toolkit and loads the kiosk
+ * FXML with its controller against synthetic camera and detector. Steps
+ * that cannot run on this machine (no model, no display) are skipped with
+ * a message so the archive still covers the rest.
+ *
+ * Usage: StartupTraining [--model path/to/best.onnx] [--no-ui]
+ */
+public class StartupTraining {
+
+    public static void main(String[] args) throws Exception {
+        String modelPath = System.getProperty("smartbin.yolo.model", "model/YOLO/best.onnx");
+        boolean ui = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model" -> modelPath = args[++i];
+                case "--no-ui" -> ui = false;
+                default -> {
+                    System.err.println("Usage: StartupTraining [--model path] [--no-ui]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        OpenCvLoader.load();
+        System.out.println("[StartupTraining] OpenCV " + OpenCvLoader.getSource());
+
+        Detector model = null;
+        if (new File(modelPath).exists()) {
+            YoloBridge bridge = new YoloBridge(modelPath, (FrameSource) null, 640);
+            SyntheticFrameSource source = new SyntheticFrameSource(640, 480, 1000, System.nanoTime());
+            TimestampedFrame frame = new TimestampedFrame();
+            source.read(frame);
+            bridge.detect(frame.getMat());
+            frame.release();
+            source.close();
+            model = bridge;
+            System.out.println("[StartupTraining] Model loaded and one inference run");
+        } else {
+            System.out.println("[StartupTraining] No model at " + modelPath + ", skipping inference");
+        }
+
+        if (ui) {
+            loadUi(model);
+        }
+        if (model != null) {
+            model.close();
+        }
+
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(null);
+        if (jvmStart != null) {
+            System.out.println("[StartupTraining] Done " + Duration.between(jvmStart, Instant.now()).toMillis()
+                    + " ms after JVM start");
+        }
+        System.exit(0);
+    }
+
+    private static void loadUi(Detector model) throws InterruptedException {
+        long start = System.nanoTime();
+        SyntheticFrameSource detectionSource = new SyntheticFrameSource(640, 480, 30, start);
+        YoloAdapter adapter = new YoloAdapter(detectionSource, new SyntheticDetector(model));
+        CameraService camera = new CameraService(() -> new SyntheticFrameSource(640, 480, 30, start));
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            Platform.startup(() -> {
+                try {
+                    FXMLLoader loader = new FXMLLoader(StartupTraining.class.getResource("/fxml/disposal_message.fxml"));
+                    loader.setControllerFactory(type -> new DisposalMessageController(adapter, camera));
+                    Parent root = loader.load();
+                    new Scene(root, 1024, 900);
+                    DisposalMessageController controller = loader.getController();
+                    controller.shutdown();
+                    System.out.println("[StartupTraining] FXML loaded");
+                } catch (Exception e) {
+                    System.err.println("[StartupTraining] FXML load failed: " + e);
+                }
+                done.countDown();
+            });
+            done.await(30, TimeUnit.SECONDS);
+            Platform.exit();
+        } catch (RuntimeException | Error e) {
+            // Typically no display on a build machine
+            System.err.println("[StartupTraining] JavaFX unavailable, skipping UI: " + e.getMessage());
+            adapter.close();
+        }
+    }
+}
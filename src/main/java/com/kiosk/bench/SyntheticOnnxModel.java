@@ -0,0 +1,201 @@
+package com.kiosk.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Writes a YOLO-shaped ONNX model for benchmarks that need a real network
+ * but run where no trained model is available.
+ *
+ * A stack of stride-2 3×3 convolutions with ReLU brings a 3×640×640 input
+ * down to 80×80, a 1×1 convolution produces 4 + classes channels and a
+ * reshape gives the YOLOv8 channel-major output [1, 4 + classes, 6400].
+ * Weights are random, so detections are meaningless; load, layer set-up
+ * and inference cost scale with {@code width} like a real backbone's do.
+ * The protobuf is encoded by hand, so no ONNX tooling is needed.
+ *
+ * Usage: SyntheticOnnxModel output.onnx [--width 64] [--blocks 6] [--classes 80]
+ */
+public final class SyntheticOnnxModel {
+    private static final int FLOAT = 1;
+    private static final int INT64 = 7;
+    private static final int ATTRIBUTE_INTS = 7;
+    private static final int INPUT_SIZE = 640;
+
+    private SyntheticOnnxModel() {
+    }
+
+    /**
+     * @param width  Channels of the convolution stack
+     * @param blocks Convolutions; the first three halve the resolution, the rest keep it
+     */
+    public static void write(Path file, int width, int blocks, int classes, long seed) throws IOException {
+        Random random = new Random(seed);
+        ByteArrayOutputStream graph = new ByteArrayOutputStream();
+        String previous = "images";
+        int channels = 3;
+        for (int i = 0; i < blocks; i++) {
+            int stride = i < 3 ? 2 : 1;
+            String weights = "w" + i;
+            String bias = "b" + i;
+            field(graph, 5, floatTensor(weights, new long[]{width, channels, 3, 3},
+                    random, Math.sqrt(2.0 / (channels * 9))));
+            field(graph, 5, floatTensor(bias, new long[]{width}, random, 0.01));
+            String conv = "conv" + i;
+            field(graph, 1, node("Conv", conv, new String[]{previous, weights, bias}, conv,
+                    intsAttribute("kernel_shape", 3, 3), intsAttribute("strides", stride, stride),
+                    intsAttribute("pads", 1, 1, 1, 1)));
+            String relu = "relu" + i;
+            field(graph, 1, node("Relu", relu, new String[]{conv}, relu));
+            previous = relu;
+            channels = width;
+        }
+        int outputs = 4 + classes;
+        field(graph, 5, floatTensor("head_w", new long[]{outputs, channels, 1, 1}, random, Math.sqrt(1.0 / channels)));
+        field(graph, 5, floatTensor("head_b", new long[]{outputs}, random, 0.01));
+        field(graph, 1, node("Conv", "head", new String[]{previous, "head_w", "head_b"}, "head",
+                intsAttribute("kernel_shape", 1, 1)));
+        field(graph, 5, int64Tensor("shape", 1, outputs, -1));
+        field(graph, 1, node("Reshape", "flatten", new String[]{"head", "shape"}, "output0"));
+        string(graph, 2, "synthetic-yolo");
+        int cells = (INPUT_SIZE / 8) * (INPUT_SIZE / 8);
+        field(graph, 11, valueInfo("images", 1, 3, INPUT_SIZE, INPUT_SIZE));
+        field(graph, 12, valueInfo("output0", 1, outputs, cells));
+
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        varintField(model, 1, 8); // ir_version
+        string(model, 2, "smartbin-bench");
+        field(model, 7, graph.toByteArray());
+        ByteArrayOutputStream opset = new ByteArrayOutputStream();
+        string(opset, 1, "");
+        varintField(opset, 2, 13);
+        field(model, 8, opset.toByteArray());
+        Files.write(file, model.toByteArray());
+    }
+
+    private static byte[] node(String op, String name, String[] inputs, String output, byte[]... attributes) {
+        ByteArrayOutputStream node = new ByteArrayOutputStream();
+        for (String input : inputs) {
+            string(node, 1, input);
+        }
+        string(node, 2, output);
+        string(node, 3, name);
+        string(node, 4, op);
+        for (byte[] attribute : attributes) {
+            field(node, 5, attribute);
+        }
+        return node.toByteArray();
+    }
+
+    private static byte[] intsAttribute(String name, long... values) {
+        ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+        string(attribute, 1, name);
+        for (long value : values) {
+            varintField(attribute, 8, value);
+        }
+        varintField(attribute, 20, ATTRIBUTE_INTS);
+        return attribute.toByteArray();
+    }
+
+    private static byte[] floatTensor(String name, long[] dims, Random random, double scale) {
+        long count = 1;
+        for (long dim : dims) {
+            count *= dim;
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (long i = 0; i < count; i++) {
+            data.putFloat((float) (random.nextGaussian() * scale));
+        }
+        return tensor(name, dims, FLOAT, data.array());
+    }
+
+    private static byte[] int64Tensor(String name, long... values) {
+        ByteBuffer data = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (long value : values) {
+            data.putLong(value);
+        }
+        return tensor(name, new long[]{values.length}, INT64, data.array());
+    }
+
+    private static byte[] tensor(String name, long[] dims, int type, byte[] raw) {
+        ByteArrayOutputStream tensor = new ByteArrayOutputStream();
+        for (long dim : dims) {
+            varintField(tensor, 1, dim);
+        }
+        varintField(tensor, 2, type);
+        string(tensor, 8, name);
+        field(tensor, 9, raw);
+        return tensor.toByteArray();
+    }
+
+    private static byte[] valueInfo(String name, long... dims) {
+        ByteArrayOutputStream shape = new ByteArrayOutputStream();
+        for (long dim : dims) {
+            ByteArrayOutputStream dimension = new ByteArrayOutputStream();
+            varintField(dimension, 1, dim);
+            field(shape, 1, dimension.toByteArray());
+        }
+        ByteArrayOutputStream tensorType = new ByteArrayOutputStream();
+        varintField(tensorType, 1, FLOAT);
+        field(tensorType, 2, shape.toByteArray());
+        ByteArrayOutputStream type = new ByteArrayOutputStream();
+        field(type, 1, tensorType.toByteArray());
+        ByteArrayOutputStream info = new ByteArrayOutputStream();
+        string(info, 1, name);
+        field(info, 2, type.toByteArray());
+        return info.toByteArray();
+    }
+
+    private static void string(ByteArrayOutputStream out, int number, String value) {
+        field(out, number, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void field(ByteArrayOutputStream out, int number, byte[] value) {
+        varint(out, ((long) number << 3) | 2);
+        varint(out, value.length);
+        out.writeBytes(value);
+    }
+
+    private static void varintField(ByteArrayOutputStream out, int number, long value) {
+        varint(out, (long) number << 3);
+        varint(out, value);
+    }
+
+    private static void varint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticOnnxModel output.onnx [--width 64] [--blocks 6] [--classes 80]");
+            System.exit(2);
+        }
+        int width = 64;
+        int blocks = 6;
+        int classes = 80;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--width" -> width = Integer.parseInt(args[++i]);
+                case "--blocks" -> blocks = Integer.parseInt(args[++i]);
+                case "--classes" -> classes = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        Path file = Path.of(args[0]);
+        write(file, width, blocks, classes, 42);
+        System.out.println("[SyntheticOnnxModel] Wrote " + file + " (" + Files.size(file) / 1024 + " KB)");
+    }
+}
@@ -0,0 +1,273 @@
+package com.kiosk.bench;
+
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.telemetry.RollupRow;
+import com.kiosk.telemetry.TelemetryClient;
+import com.kiosk.telemetry.TelemetryCollector;
+import com.kiosk.telemetry.TelemetryStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loopback test of fleet telemetry.
+ *
+ * Starts a TelemetryCollector in-process on a temporary directory and has
+ * many simulated kiosks send events and detection latencies spread over
+ * two days, as fast as the collector takes them. Reports ingest rate and
+ * bytes stored per row, then times rollup queries from the pre-aggregated
+ * sketches against the same queries computed from the stored segments and
+ * fails if any answer differs, or if the totals differ from what the
+ * kiosks sent. The store is then reopened from disk and checked again.
+ *
+ * Finally one kiosk records while the collector is down: it must keep only
+ * its newest {@code capacity} rows, count the rest as dropped, and deliver
+ * what it kept once the collector comes up.
+ *
+ * Usage: TelemetryBench [--kiosks 50] [--rows 100000] [--hours 48] [--capacity 20000]
+ * [--batch 2000] [--queries 200] [--dir path]
+ */
+public class TelemetryBench {
+    private static final WasteCategory[] CATEGORIES = WasteCategory.values();
+    private static final TelemetryStore.GroupBy[] GROUPINGS = TelemetryStore.GroupBy.values();
+
+    public static void main(String[] args) throws Exception {
+        int kiosks = 50;
+        int rowsPerKiosk = 100_000;
+        int hours = 48;
+        int capacity = 20_000;
+        int batch = 2000;
+        int queries = 200;
+        Path dir = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--kiosks" -> kiosks = Integer.parseInt(args[++i]);
+                case "--rows" -> rowsPerKiosk = Integer.parseInt(args[++i]);
+                case "--hours" -> hours = Integer.parseInt(args[++i]);
+                case "--capacity" -> capacity = Integer.parseInt(args[++i]);
+                case "--batch" -> batch = Integer.parseInt(args[++i]);
+                case "--queries" -> queries = Integer.parseInt(args[++i]);
+                case "--dir" -> dir = Path.of(args[++i]);
+                default -> {
+                    System.err.println("Usage: TelemetryBench [--kiosks 50] [--rows 100000] [--hours 48]"
+                            + " [--capacity 20000] [--batch 2000] [--queries 200] [--dir path]");
+                    System.exit(2);
+                }
+            }
+        }
+        if (dir == null) {
+            dir = Files.createTempDirectory("telemetry-bench");
+        }
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        long end = System.currentTimeMillis();
+        long start = end - hours * 3_600_000L;
+
+        // Ingest
+        TelemetryCollector collector = new TelemetryCollector(new TelemetryStore(dir, 1 << 16),
+                new InetSocketAddress(loopback, 0), new InetSocketAddress(loopback, 0), 3600);
+        collector.start();
+        long[] expectedByType = new long[KioskEvent.Type.values().length];
+        long[] expectedDetected = new long[CATEGORIES.length];
+        long expectedLatencies = 0;
+        List<TelemetryClient> clients = new ArrayList<>();
+        for (int k = 0; k < kiosks; k++) {
+            clients.add(new TelemetryClient(new InetSocketAddress(loopback, collector.getPort()),
+                    String.format("kiosk-%03d", k), capacity, batch, 100));
+        }
+        long ingestStart = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(42);
+        long spacing = Math.max(1, (end - start) / rowsPerKiosk);
+        for (int i = 0; i < rowsPerKiosk; i++) {
+            for (int k = 0; k < kiosks; k++) {
+                TelemetryClient client = clients.get(k);
+                while (client.getPending() > capacity - batch) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+                long timestamp = start + i * spacing + random.nextInt((int) spacing);
+                if (i % 2 == 0) {
+                    // Detection latency, roughly log-normal around 40 ms with a tail
+                    long nanos = (long) (40e6 * Math.exp(random.nextDouble() * random.nextDouble() * 3 - 0.5));
+                    client.recordLatency(timestamp, "detect", nanos);
+                    expectedLatencies++;
+                    continue;
+                }
+                KioskEvent.Type type = eventType(random);
+                WasteCategory category = type == KioskEvent.Type.DETECTED || type == KioskEvent.Type.INSTRUCTION_SHOWN
+                        ? CATEGORIES[random.nextInt(CATEGORIES.length)] : null;
+                double confidence = type == KioskEvent.Type.DETECTED ? 0.6 + random.nextDouble() * 0.4
+                        : type == KioskEvent.Type.LOW_CONFIDENCE ? random.nextDouble() * 0.6 : Double.NaN;
+                client.publish(new KioskEvent(type, category, i, confidence, timestamp));
+                expectedByType[type.ordinal()]++;
+                if (type == KioskEvent.Type.DETECTED) {
+                    expectedDetected[category.ordinal()]++;
+                }
+            }
+        }
+        awaitDelivered(clients, 60_000);
+        double ingestSeconds = (System.nanoTime() - ingestStart) / 1e9;
+        long totalRows = (long) kiosks * rowsPerKiosk;
+        for (TelemetryClient client : clients) {
+            client.close(2000);
+        }
+        TelemetryStore store = collector.getStore();
+        long flushStart = System.nanoTime();
+        store.flush();
+        double flushMillis = (System.nanoTime() - flushStart) / 1e6;
+        System.out.printf("[TelemetryBench] Ingested %,d rows from %d kiosks in %.2f s: %,.0f rows/s; flush %.0f ms%n",
+                totalRows, kiosks, ingestSeconds, totalRows / ingestSeconds, flushMillis);
+        System.out.printf("[TelemetryBench] On disk: %,d bytes, %.2f bytes/row (%s)%n",
+                store.getBytesOnDisk(), (double) store.getBytesOnDisk() / totalRows, directorySummary(dir));
+
+        // Queries
+        boolean ok = store.getRows() == totalRows;
+        long from = start;
+        long to = end + 3_600_000L;
+        for (TelemetryStore.GroupBy groupBy : GROUPINGS) {
+            long[] rollupNanos = new long[queries];
+            List<RollupRow> rollup = null;
+            for (int q = 0; q < queries; q++) {
+                long t0 = System.nanoTime();
+                rollup = store.rollup(from, to, groupBy, null);
+                rollupNanos[q] = System.nanoTime() - t0;
+            }
+            long t0 = System.nanoTime();
+            List<RollupRow> scan = store.scan(from, to, groupBy, null);
+            long scanNanos = System.nanoTime() - t0;
+            boolean same = toJson(rollup).equals(toJson(scan));
+            ok &= same;
+            Arrays.sort(rollupNanos);
+            System.out.printf("[TelemetryBench] %-14s %5d groups: rollup p50 %.3f ms p99 %.3f ms, scan %.0f ms%s%n",
+                    groupBy, rollup.size(), rollupNanos[queries / 2] / 1e6, rollupNanos[queries * 99 / 100] / 1e6,
+                    scanNanos / 1e6, same ? "" : "  MISMATCH");
+        }
+        RollupRow all = store.rollup(from, to, TelemetryStore.GroupBy.ALL, null).get(0);
+        for (KioskEvent.Type type : KioskEvent.Type.values()) {
+            if (all.getEventCount(type) != expectedByType[type.ordinal()]) {
+                System.out.println("[TelemetryBench] Count mismatch for " + type + ": " + all.getEventCount(type)
+                        + " stored, " + expectedByType[type.ordinal()] + " sent");
+                ok = false;
+            }
+        }
+        for (WasteCategory category : CATEGORIES) {
+            ok &= all.getCategoryCounts().getOrDefault(category.name(), 0L) == expectedDetected[category.ordinal()];
+        }
+        ok &= all.getLatency("detect").getCount() == expectedLatencies;
+        System.out.println("[TelemetryBench] All: " + all.toJson());
+
+        long httpStart = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + collector.getHttpPort()
+                + "/rollup?by=hour,kiosk&from=" + from + "&to=" + to).toURL().openConnection();
+        int status = connection.getResponseCode();
+        int length;
+        try (InputStream body = connection.getInputStream()) {
+            length = body.readAllBytes().length;
+        }
+        System.out.printf("[TelemetryBench] HTTP by=hour,kiosk: status %d, %,d bytes in %.1f ms%n",
+                status, length, (System.nanoTime() - httpStart) / 1e6);
+        ok &= status == 200;
+        String before = toJson(store.rollup(from, to, TelemetryStore.GroupBy.HOUR_AND_KIOSK, null));
+        collector.close();
+
+        // Reopen from disk
+        long reopenStart = System.nanoTime();
+        TelemetryStore reopened = new TelemetryStore(dir, 1 << 16);
+        System.out.printf("[TelemetryBench] Reopened %,d rows in %.0f ms%n", reopened.getRows(),
+                (System.nanoTime() - reopenStart) / 1e6);
+        boolean sameAfterReopen = before.equals(toJson(reopened.rollup(from, to,
+                TelemetryStore.GroupBy.HOUR_AND_KIOSK, null)));
+        ok &= sameAfterReopen && reopened.getRows() == totalRows;
+
+        // Outage: a kiosk records while the collector is down
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 1, loopback)) {
+            port = probe.getLocalPort();
+        }
+        int outageCapacity = 5000;
+        int outageRows = 8000;
+        TelemetryClient offline = new TelemetryClient(new InetSocketAddress(loopback, port), "kiosk-offline",
+                outageCapacity, 1000, 100);
+        for (int i = 0; i < outageRows; i++) {
+            offline.recordLatency(end - outageRows + i, "detect", 30_000_000L);
+        }
+        TimeUnit.MILLISECONDS.sleep(1500);
+        long droppedWhileDown = offline.getDropped();
+        TelemetryCollector restarted = new TelemetryCollector(reopened, new InetSocketAddress(loopback, port),
+                null, 3600);
+        restarted.start();
+        awaitDelivered(List.of(offline), 60_000);
+        offline.close(2000);
+        long delivered = reopened.getRows() - totalRows;
+        boolean outageOk = droppedWhileDown == outageRows - outageCapacity && delivered == outageCapacity;
+        System.out.printf("[TelemetryBench] Outage: recorded %d with capacity %d, dropped %d, delivered %d after"
+                + " reconnect%s%n", outageRows, outageCapacity, droppedWhileDown, delivered, outageOk ? "" : "  FAILED");
+        ok &= outageOk;
+        restarted.close();
+
+        System.out.println(ok ? "[TelemetryBench] PASS" : "[TelemetryBench] FAIL");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Mostly scanning and detections, like a kiosk in use.
+     */
+    private static KioskEvent.Type eventType(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 30) {
+            return KioskEvent.Type.DETECTED;
+        }
+        if (roll < 40) {
+            return KioskEvent.Type.LOW_CONFIDENCE;
+        }
+        if (roll < 60) {
+            return KioskEvent.Type.INSTRUCTION_SHOWN;
+        }
+        if (roll < 75) {
+            return KioskEvent.Type.DISPOSAL_CONFIRMED;
+        }
+        if (roll < 80) {
+            return KioskEvent.Type.DISPOSAL_INCORRECT;
+        }
+        return KioskEvent.Type.SCANNING_STARTED;
+    }
+
+    private static void awaitDelivered(List<TelemetryClient> clients, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (TelemetryClient client : clients) {
+            while (client.getPending() > 0 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+        }
+    }
+
+    private static String toJson(List<RollupRow> rows) {
+        StringBuilder json = new StringBuilder();
+        for (RollupRow row : rows) {
+            json.append(row.toJson()).append('\n');
+        }
+        return json.toString();
+    }
+
+    private static String directorySummary(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            List<Path> segments = walk.filter(path -> path.toString().endsWith(".seg"))
+                    .sorted(Comparator.naturalOrder()).toList();
+            return segments.size() + " segments in " + segments.stream().map(Path::getParent).distinct().count()
+                    + " hour directories";
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.kiosk.config;
+
+import com.smartbin.logging.Log;
+import com.smartbin.logging.LogLevel;
+import com.smartbin.logging.Logger;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the kiosk's settings from a file and publishes a new
+ * {@link KioskConfig} whenever the file changes, while the kiosk runs.
+ *
+ * The file's directory is watched with a {@link WatchService}; events are
+ * debounced so an editor's truncate-and-write or write-and-rename is read
+ * once, complete. A file that does not parse or validate is rejected as a
+ * whole and the previous settings stay in use. Accepted settings are
+ * published with one volatile write, then listeners are told on the
+ * watcher thread so they can re-apply what is not read per use (capture
+ * and detection rates). The model and camera are never reopened.
+ *
+ * Files ending in .yml or .yaml are read as flat or nested {@code key: value}
+ * YAML (no lists), anything else as a properties file. Keys are those of
+ * {@link KioskConfig}; missing keys take their default.
+ *
+ * Configured with {@code -Dsmartbin.config=path/to/kiosk.properties}.
+ */
+public class ConfigWatcher implements AutoCloseable {
+    private static final Logger LOG = Log.get("config");
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    /**
+     * Told after a changed configuration was published.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onConfigChanged(KioskConfig previous, KioskConfig next);
+    }
+
+    private final Path file;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    public ConfigWatcher(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Watcher for {@code -Dsmartbin.config}, or null if it is not set.
+     */
+    public static ConfigWatcher fromSystemProperties() {
+        String path = System.getProperty("smartbin.config");
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        return new ConfigWatcher(Path.of(path));
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Load the file now and keep watching it. A missing or invalid file
+     * leaves the defaults in place; it is picked up once it is fixed.
+     */
+    public void start() throws IOException {
+        reload();
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        thread = new Thread(this::watch, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("[ConfigWatcher] Watching " + file);
+    }
+
+    /**
+     * Read, validate and publish the file.
+     *
+     * @return true if a changed configuration was published
+     */
+    public synchronized boolean reload() {
+        KioskConfig next;
+        try {
+            next = KioskConfig.parse(read(file));
+        } catch (NoSuchFileException e) {
+            rejected.incrementAndGet();
+            LOG.warn("config file not found, keeping current settings").str("file", file).log();
+            return false;
+        } catch (IOException | IllegalArgumentException e) {
+            rejected.incrementAndGet();
+            LOG.error("config file rejected, keeping current settings")
+                    .str("file", file)
+                    .str("reason", e.getMessage())
+                    .log();
+            return false;
+        }
+        KioskConfig previous = KioskConfig.current();
+        if (next.equals(previous)) {
+            unchanged.incrementAndGet();
+            return false;
+        }
+        KioskConfig.publish(next);
+        applied.incrementAndGet();
+        if (next.getLogLevel() != previous.getLogLevel()) {
+            Log.setDefaultLevel(next.getLogLevel() != null ? next.getLogLevel() : startupLogLevel());
+        }
+        System.out.println("[ConfigWatcher] Applied " + String.join(", ", next.changesSince(previous)));
+        for (Listener listener : listeners) {
+            try {
+                listener.onConfigChanged(previous, next);
+            } catch (RuntimeException e) {
+                LOG.error("config listener failed").error(e).log();
+            }
+        }
+        return true;
+    }
+
+    private void watch() {
+        Path name = file.getFileName();
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                boolean ours = pollEvents(key, name);
+                // Let the writer finish, then take everything that arrived meanwhile
+                while (ours && (key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    pollEvents(key, name);
+                }
+                if (ours) {
+                    reload();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private static boolean pollEvents(WatchKey key, Path name) {
+        boolean ours = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                ours = true;
+            }
+        }
+        key.reset();
+        return ours;
+    }
+
+    private static LogLevel startupLogLevel() {
+        String level = System.getProperty("smartbin.log.level");
+        return level == null || level.isBlank() ? LogLevel.INFO : LogLevel.parse(level);
+    }
+
+    /**
+     * Key/value pairs of a properties or (flat or nested) YAML file.
+     */
+    static Map<String, String> read(Path file) throws IOException {
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".yml") || name.endsWith(".yaml")) {
+            return readYaml(text);
+        }
+        Properties properties = new Properties();
+        properties.load(new StringReader(text));
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key));
+        }
+        return values;
+    }
+
+    /**
+     * Mappings only: {@code detection:} followed by indented {@code confidence: 0.55}
+     * gives {@code detection.confidence}.
+     */
+    static Map<String, String> readYaml(String text) {
+        Map<String, String> values = new LinkedHashMap<>();
+        Deque<int[]> indents = new ArrayDeque<>();
+        Deque<String> prefixes = new ArrayDeque<>();
+        String[] lines = text.split("\r?\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = stripComment(lines[n]);
+            if (line.isBlank() || line.strip().equals("---")) {
+                continue;
+            }
+            int indent = 0;
+            while (indent < line.length() && line.charAt(indent) == ' ') {
+                indent++;
+            }
+            String content = line.strip();
+            int colon = content.indexOf(':');
+            if (content.startsWith("-") || colon <= 0) {
+                throw new IllegalArgumentException("line " + (n + 1) + ": expected 'key: value'");
+            }
+            while (!indents.isEmpty() && indents.peek()[0] >= indent) {
+                indents.pop();
+                prefixes.pop();
+            }
+            String key = (prefixes.isEmpty() ? "" : prefixes.peek()) + content.substring(0, colon).strip();
+            String value = content.substring(colon + 1).strip();
+            if (value.isEmpty()) {
+                indents.push(new int[]{indent});
+                prefixes.push(key + ".");
+            } else {
+                values.put(key, unquote(value));
+            }
+        }
+        return values;
+    }
+
+    private static String stripComment(String line) {
+        int hash = line.indexOf('#');
+        while (hash > 0 && line.charAt(hash - 1) != ' ') {
+            hash = line.indexOf('#', hash + 1);
+        }
+        return hash >= 0 ? line.substring(0, hash) : line;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"")
+                || value.startsWith("'") && value.endsWith("'"))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("[ConfigWatcher] " + this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfigWatcher[file=%s, applied=%d, rejected=%d, unchanged=%d]",
+                file.getFileName(), applied.get(), rejected.get(), unchanged.get());
+    }
+}
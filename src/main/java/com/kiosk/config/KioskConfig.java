@@ -0,0 +1,245 @@
+package com.kiosk.config;
+
+import com.kiosk.services.KioskStateMachine;
+import com.smartbin.logging.LogLevel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One immutable set of the kiosk's tunable settings.
+ *
+ * The settings in use are published as a whole by {@link ConfigWatcher};
+ * hot paths read them with a single volatile load ({@link #current()}) and
+ * keep that snapshot for the rest of the frame or timer, so they never see
+ * half of an update. Until a file is loaded the defaults below are used,
+ * which are the values the kiosk had before they were configurable.
+ *
+ * <pre>
+ * detection.confidence     0.5   best detection needed to classify (YoloAdapter)
+ * detector.confidence      0.4   candidate threshold in the network decoder (YoloBridge)
+ * detector.nms             0.45  IoU above which NMS suppresses a box
+ * detection.intervalMs     100   time between detection passes
+ * camera.frameIntervalMs   33    preview capture interval while active
+ * message.durationMs       3000  disposal instruction shown
+ * confirmation.durationMs  3000  confirmation shown
+ * rescan.delayMs           3500  instruction to scanning again, at least message.durationMs
+ * disposal.windowMs        15000 instruction to the last disposal checked against it, at least rescan.delayMs
+ * log.level                      default log level (unset: -Dsmartbin.log.level)
+ * </pre>
+ */
+public final class KioskConfig {
+    public static final KioskConfig DEFAULTS = new KioskConfig(0.5, 0.4, 0.45, 100, 33,
+            KioskStateMachine.MESSAGE_MILLIS, KioskStateMachine.CONFIRMATION_MILLIS,
+            KioskStateMachine.RESCAN_DELAY_MILLIS, KioskStateMachine.DISPOSAL_WINDOW_MILLIS, null);
+
+    private static volatile KioskConfig current = DEFAULTS;
+
+    private final double classifyConfidence;
+    private final double detectorConfidence;
+    private final double nmsThreshold;
+    private final long detectionIntervalMillis;
+    private final long frameIntervalMillis;
+    private final long messageMillis;
+    private final long confirmationMillis;
+    private final long rescanDelayMillis;
+    private final long disposalWindowMillis;
+    private final LogLevel logLevel;
+
+    private KioskConfig(double classifyConfidence, double detectorConfidence, double nmsThreshold,
+                        long detectionIntervalMillis, long frameIntervalMillis, long messageMillis,
+                        long confirmationMillis, long rescanDelayMillis, long disposalWindowMillis,
+                        LogLevel logLevel) {
+        this.classifyConfidence = classifyConfidence;
+        this.detectorConfidence = detectorConfidence;
+        this.nmsThreshold = nmsThreshold;
+        this.detectionIntervalMillis = detectionIntervalMillis;
+        this.frameIntervalMillis = frameIntervalMillis;
+        this.messageMillis = messageMillis;
+        this.confirmationMillis = confirmationMillis;
+        this.rescanDelayMillis = rescanDelayMillis;
+        this.disposalWindowMillis = disposalWindowMillis;
+        this.logLevel = logLevel;
+    }
+
+    /**
+     * The settings in use. Read it once per frame or timer and use that snapshot.
+     */
+    public static KioskConfig current() {
+        return current;
+    }
+
+    static void publish(KioskConfig config) {
+        current = Objects.requireNonNull(config);
+    }
+
+    /**
+     * Settings from key/value pairs; missing keys take their default.
+     *
+     * @throws IllegalArgumentException listing every unknown key and invalid value
+     */
+    public static KioskConfig parse(Map<String, String> values) {
+        List<String> errors = new ArrayList<>();
+        Map<String, String> remaining = new LinkedHashMap<>(values);
+        KioskConfig d = DEFAULTS;
+        double classify = fraction(remaining, "detection.confidence", d.classifyConfidence, errors);
+        double detector = fraction(remaining, "detector.confidence", d.detectorConfidence, errors);
+        double nms = fraction(remaining, "detector.nms", d.nmsThreshold, errors);
+        long detection = millis(remaining, "detection.intervalMs", d.detectionIntervalMillis, 20, 5000, errors);
+        long frame = millis(remaining, "camera.frameIntervalMs", d.frameIntervalMillis, 10, 1000, errors);
+        long message = millis(remaining, "message.durationMs", d.messageMillis, 500, 60_000, errors);
+        long confirmation = millis(remaining, "confirmation.durationMs", d.confirmationMillis, 500, 60_000, errors);
+        long rescan = millis(remaining, "rescan.delayMs", d.rescanDelayMillis, 500, 120_000, errors);
+        long window = millis(remaining, "disposal.windowMs", d.disposalWindowMillis, 500, 600_000, errors);
+        LogLevel level = null;
+        String levelValue = remaining.remove("log.level");
+        if (levelValue != null && !levelValue.isBlank()) {
+            try {
+                level = LogLevel.parse(levelValue);
+            } catch (IllegalArgumentException e) {
+                errors.add("log.level: unknown level '" + levelValue + "'");
+            }
+        }
+        for (String key : remaining.keySet()) {
+            errors.add(key + ": unknown setting");
+        }
+        if (errors.isEmpty() && rescan < message) {
+            errors.add("rescan.delayMs (" + rescan + ") must not be shorter than message.durationMs (" + message + ")");
+        }
+        if (errors.isEmpty() && window < rescan) {
+            errors.add("disposal.windowMs (" + window + ") must not be shorter than rescan.delayMs (" + rescan + ")");
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return new KioskConfig(classify, detector, nms, detection, frame, message, confirmation, rescan, window,
+                level);
+    }
+
+    private static double fraction(Map<String, String> values, String key, double fallback, List<String> errors) {
+        String value = values.remove(key);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            if (parsed >= 0 && parsed <= 1) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        errors.add(key + ": expected a number from 0 to 1, got '" + value + "'");
+        return fallback;
+    }
+
+    private static long millis(Map<String, String> values, String key, long fallback, long min, long max,
+                               List<String> errors) {
+        String value = values.remove(key);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        errors.add(key + ": expected milliseconds from " + min + " to " + max + ", got '" + value + "'");
+        return fallback;
+    }
+
+    public double getClassifyConfidence() {
+        return classifyConfidence;
+    }
+
+    public double getDetectorConfidence() {
+        return detectorConfidence;
+    }
+
+    public double getNmsThreshold() {
+        return nmsThreshold;
+    }
+
+    public long getDetectionIntervalMillis() {
+        return detectionIntervalMillis;
+    }
+
+    public long getFrameIntervalMillis() {
+        return frameIntervalMillis;
+    }
+
+    public long getMessageMillis() {
+        return messageMillis;
+    }
+
+    public long getConfirmationMillis() {
+        return confirmationMillis;
+    }
+
+    public long getRescanDelayMillis() {
+        return rescanDelayMillis;
+    }
+
+    public long getDisposalWindowMillis() {
+        return disposalWindowMillis;
+    }
+
+    /**
+     * Default log level, or null to keep the one from system properties.
+     */
+    public LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Settings that differ from {@code previous}, e.g. {@code detection.confidence 0.5 -> 0.55}.
+     */
+    public List<String> changesSince(KioskConfig previous) {
+        Map<String, String> before = previous.asMap();
+        List<String> changes = new ArrayList<>();
+        for (Map.Entry<String, String> entry : asMap().entrySet()) {
+            String old = before.get(entry.getKey());
+            if (!entry.getValue().equals(old)) {
+                changes.add(entry.getKey() + " " + old + " -> " + entry.getValue());
+            }
+        }
+        return changes;
+    }
+
+    private Map<String, String> asMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("detection.confidence", String.valueOf(classifyConfidence));
+        map.put("detector.confidence", String.valueOf(detectorConfidence));
+        map.put("detector.nms", String.valueOf(nmsThreshold));
+        map.put("detection.intervalMs", String.valueOf(detectionIntervalMillis));
+        map.put("camera.frameIntervalMs", String.valueOf(frameIntervalMillis));
+        map.put("message.durationMs", String.valueOf(messageMillis));
+        map.put("confirmation.durationMs", String.valueOf(confirmationMillis));
+        map.put("rescan.delayMs", String.valueOf(rescanDelayMillis));
+        map.put("disposal.windowMs", String.valueOf(disposalWindowMillis));
+        map.put("log.level", logLevel == null ? "default" : logLevel.name().toLowerCase(Locale.ROOT));
+        return map;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof KioskConfig other && asMap().equals(other.asMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return asMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "KioskConfig" + asMap();
+    }
+}
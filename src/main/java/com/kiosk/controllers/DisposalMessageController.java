@@ -1,15 +1,31 @@
 
 package com.kiosk.controllers;
 
+import com.kiosk.config.ConfigWatcher;
+import com.kiosk.config.KioskConfig;
+import com.kiosk.metrics.LatencyProbe;
+import com.kiosk.models.KioskEvent;
 import com.kiosk.models.WasteCategory;
+import com.kiosk.runtime.PowerManager;
+import com.kiosk.services.KioskStateMachine;
 import com.kiosk.services.MessageDisplayService;
+import com.kiosk.services.PreviewStreamServer;
 import com.kiosk.services.YoloAdapter;
 import com.kiosk.services.CameraService;
+import com.kiosk.services.ClipRecorder;
+import com.kiosk.services.DisposalWatcher;
+import com.kiosk.telemetry.TelemetryClient;
+import com.kiosk.views.DetectionOverlay;
+import com.kiosk.views.MessageScenes;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
 import javafx.animation.FadeTransition;
 import javafx.animation.KeyFrame;
 import javafx.animation.ScaleTransition;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.CacheHint;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.image.ImageView;
@@ -17,6 +33,9 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.util.Duration;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Controller for the disposal message display with YOLO integration.
  * 
@@ -35,19 +54,14 @@ import javafx.util.Duration;
  * - After disposal, show green checkmark confirmation if correct
  */
 public class DisposalMessageController {
+    private static final Logger LOG = Log.get("controller");
 
     // Main message display components
     @FXML
     private VBox messageContainer;
 
     @FXML
-    private Label iconLabel;
-
-    @FXML
-    private Label categoryLabel;
-
-    @FXML
-    private Label instructionLabel;
+    private MessageScenes messageScenes;
 
     // Confirmation display components (Story #19)
     @FXML
@@ -59,6 +73,9 @@ public class DisposalMessageController {
     @FXML
     private Label confirmationLabel;
 
+    private ScaleTransition checkmarkIn;
+    private FadeTransition confirmationIn;
+
     // Scanning overlay components (Task #413)
     @FXML
     private StackPane scanningOverlay;
@@ -83,6 +100,9 @@ public class DisposalMessageController {
     @FXML
     private ImageView cameraFeedView;
     
+    @FXML
+    private DetectionOverlay detectionOverlay;
+    
     @FXML
     private VBox cameraErrorOverlay;
     
@@ -91,21 +111,48 @@ public class DisposalMessageController {
     
     // Camera service
     private CameraService cameraService;
+    private PreviewStreamServer streamServer;
+    private ClipRecorder clipRecorder;
+    private PowerManager powerManager;
+    private DisposalWatcher disposalWatcher;
+    private TelemetryClient telemetry;
+    private ConfigWatcher configWatcher;
+    private boolean resumeScanningOnWake;
 
     // Track selected model
     private String selectedModel = "Chris";
 
     // Services
     private MessageDisplayService displayService;
+    private KioskStateMachine stateMachine;
     private YoloAdapter yoloAdapter;
     
     // State tracking
-    private WasteCategory lastRecommendedCategory;
     private Timeline detectionLoop;
-    private boolean isScanning = false;
+    private boolean itemInView;
+    private LatencyProbe latencyProbe = LatencyProbe.NONE;
 
     public DisposalMessageController() {
         this.displayService = new MessageDisplayService();
+        this.stateMachine = displayService.getStateMachine();
+        this.stateMachine.setListener(this::onKioskEvent);
+    }
+
+    /**
+     * Create a controller with pre-built services (used with
+     * FXMLLoader.setControllerFactory, e.g. by the latency harness).
+     */
+    public DisposalMessageController(YoloAdapter yoloAdapter, CameraService cameraService) {
+        this();
+        this.yoloAdapter = yoloAdapter;
+        this.cameraService = cameraService;
+    }
+
+    /**
+     * Install a probe that is told when disposal instructions have been shown.
+     */
+    public void setLatencyProbe(LatencyProbe latencyProbe) {
+        this.latencyProbe = latencyProbe != null ? latencyProbe : LatencyProbe.NONE;
     }
 
     @FXML
@@ -113,26 +160,178 @@ public class DisposalMessageController {
         // Hide all UI components initially
         messageContainer.setVisible(false);
         confirmationContainer.setVisible(false);
+        prepareConfirmation();
         
         // Initialize scanning overlay if it exists in FXML
         if (scanningOverlay != null) {
             scanningOverlay.setVisible(false);
         }
 
+        if (detectionOverlay != null) {
+            detectionOverlay.attachTo(cameraFeedView);
+        }
+
+        // Settings file first, so the camera and detection loop start with its rates
+        startConfigWatcher();
+
         // Task #412: Initialize YOLO adapter
-        try {
-            yoloAdapter = new YoloAdapter();
-            System.out.println("[Controller] YoloAdapter initialized successfully");
-        } catch (Exception e) {
-            System.err.println("[Controller] Failed to initialize YoloAdapter: " + e.getMessage());
-            e.printStackTrace();
+        if (yoloAdapter == null) {
+            try {
+                yoloAdapter = new YoloAdapter();
+                System.out.println("[Controller] YoloAdapter initialized successfully");
+            } catch (Exception e) {
+                System.err.println("[Controller] Failed to initialize YoloAdapter: " + e.getMessage());
+                e.printStackTrace();
+            }
         }
         
         // Initialize camera service and start feed
-        cameraService = new CameraService();
+        if (cameraService == null) {
+            cameraService = new CameraService();
+        }
+        startStreamServer();
+        startClipRecorder();
+        startPowerManager();
+        startDisposalWatcher();
+        startTelemetry();
         startCameraFeed();
     }
 
+    /**
+     * Reload tuning settings while running (-Dsmartbin.config=path).
+     */
+    private void startConfigWatcher() {
+        configWatcher = ConfigWatcher.fromSystemProperties();
+        if (configWatcher == null) {
+            return;
+        }
+        configWatcher.addListener((previous, next) -> Platform.runLater(() -> applyConfig(previous, next)));
+        try {
+            configWatcher.start();
+        } catch (IOException e) {
+            System.err.println("[Controller] Config watcher failed to start: " + e.getMessage());
+            configWatcher = null;
+        }
+    }
+
+    /**
+     * Re-apply the rates that are not read per use. Thresholds and message
+     * durations pick up the new snapshot on their own.
+     */
+    private void applyConfig(KioskConfig previous, KioskConfig next) {
+        if (next.getFrameIntervalMillis() != previous.getFrameIntervalMillis() && cameraService != null) {
+            cameraService.refreshFrameInterval();
+        }
+        if (next.getDetectionIntervalMillis() != previous.getDetectionIntervalMillis() && detectionLoop != null) {
+            detectionLoop.stop();
+            detectionLoop = null;
+            startDetectionLoop();
+        }
+    }
+
+    /**
+     * Optional live view for maintenance staff (-Dsmartbin.stream.port).
+     */
+    private void startStreamServer() {
+        streamServer = PreviewStreamServer.fromSystemProperties();
+        if (streamServer == null) {
+            return;
+        }
+        try {
+            streamServer.start();
+            cameraService.addFrameTap(streamServer);
+        } catch (IOException e) {
+            System.err.println("[Controller] Live view server failed to start: " + e.getMessage());
+            streamServer = null;
+        }
+    }
+
+    /**
+     * Keep the last seconds of preview frames for incident clips (-Dsmartbin.clips=off disables).
+     */
+    private void startClipRecorder() {
+        clipRecorder = ClipRecorder.fromSystemProperties();
+        if (clipRecorder == null) {
+            return;
+        }
+        clipRecorder.start();
+        cameraService.addFrameTap(clipRecorder);
+    }
+
+    /**
+     * Duty-cycle camera, detection and preview when nobody is around (-Dsmartbin.power=off disables).
+     */
+    private void startPowerManager() {
+        powerManager = PowerManager.fromSystemProperties();
+        if (powerManager == null) {
+            return;
+        }
+        powerManager.setListener(this::onPowerStateChanged);
+        cameraService.addFrameTap(powerManager);
+    }
+
+    /**
+     * Confirm disposals from a camera on the bin openings (-Dsmartbin.drop.camera or .video).
+     */
+    private void startDisposalWatcher() {
+        try {
+            disposalWatcher = DisposalWatcher.fromSystemProperties();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("[Controller] Disposal watcher not started: " + e.getMessage());
+            return;
+        }
+        if (disposalWatcher == null) {
+            return;
+        }
+        disposalWatcher.setListener(category -> Platform.runLater(() -> validateDisposal(category)));
+        disposalWatcher.start();
+    }
+
+    /**
+     * Report events and latencies to a collector (-Dsmartbin.telemetry=host:port).
+     */
+    private void startTelemetry() {
+        try {
+            telemetry = TelemetryClient.fromSystemProperties();
+        } catch (IllegalArgumentException e) {
+            System.err.println("[Controller] Telemetry not started: " + e.getMessage());
+            telemetry = null;
+        }
+    }
+
+    /**
+     * Called on the capture thread (presence, timeouts) or the FX thread (activity).
+     */
+    private void onPowerStateChanged(PowerManager.State from, PowerManager.State to) {
+        // Capture rate first, so a wake-up is not held back by the FX queue
+        cameraService.setFrameInterval(powerManager.getFrameIntervalMillis());
+        if (to == PowerManager.State.ACTIVE) {
+            cameraService.setPreviewPaused(false);
+            Platform.runLater(this::wakeUp);
+        } else if (from == PowerManager.State.ACTIVE) {
+            cameraService.setPreviewPaused(true);
+            Platform.runLater(this::goIdle);
+        }
+    }
+
+    private void goIdle() {
+        if (!powerManager.isActive() && stateMachine.isScanning()) {
+            resumeScanningOnWake = true;
+            stateMachine.stop();
+        }
+    }
+
+    private void wakeUp() {
+        if (resumeScanningOnWake && powerManager.isActive()) {
+            resumeScanningOnWake = false;
+            startScanning();
+            // Don't wait a Timeline period for the first detection
+            if (detectionLoop != null) {
+                runDetection();
+            }
+        }
+    }
+
     // ==================== CAMERA FEED ====================
 
     /**
@@ -187,6 +386,10 @@ public class DisposalMessageController {
         }
         
         System.err.println("[Controller] Camera error - displaying error overlay");
+        
+        if (clipRecorder != null) {
+            clipRecorder.trigger("camera-error", null, 0, 0, null);
+        }
     }
 
     /**
@@ -202,55 +405,147 @@ public class DisposalMessageController {
      * Task #412 & #413: Start YOLO detection loop.
      */
     @FXML
-    private void startScanning() {
+    public void startScanning() {
         if (yoloAdapter == null) {
             System.err.println("[Controller] Cannot start scanning - YoloAdapter not initialized");
             return;
         }
 
-        if (isScanning) {
-            System.out.println("[Controller] Already scanning");
+        if (stateMachine.isScanning()) {
+            LOG.debug("already scanning").log();
             return;
         }
 
-        isScanning = true;
-        showScanningOverlay();
+        stateMachine.startScanning();
+    }
 
-        detectionLoop = new Timeline(new KeyFrame(Duration.millis(100), event -> {
-            try {
-                WasteCategory detectedCategory = yoloAdapter.detectCategory();
+    /**
+     * Stop YOLO detection loop.
+     */
+    @FXML
+    private void stopScanning() {
+        stateMachine.stop();
+    }
 
-                if (detectedCategory != null) {
-                    System.out.println("[Controller] Detection: " + detectedCategory);
-                    stopScanning();
-                    showDisposalInstructions(detectedCategory);
-                    displayService.scheduleAction(3.5, this::startScanning);
+    /**
+     * Apply a state machine step to the UI. Runs on the FX thread: inputs
+     * come from the detection Timeline and timers from FX pulses.
+     */
+    private void onKioskEvent(KioskEvent event) {
+        if (powerManager != null && event.getType() != KioskEvent.Type.STOPPED
+                && event.getType() != KioskEvent.Type.SCANNING_STARTED) {
+            powerManager.onActivity();
+        }
+        if (clipRecorder != null && yoloAdapter != null) {
+            clipRecorder.onKioskEvent(event, stateMachine.getLastRecommendedCategory(), yoloAdapter);
+        }
+        if (telemetry != null) {
+            telemetry.publish(event);
+        }
+        switch (event.getType()) {
+            case SCANNING_STARTED -> startDetectionLoop();
+            case LOW_CONFIDENCE -> {
+                if (scanningMessageLabel != null) {
+                    scanningMessageLabel.setText("Hold the item steady");
                 }
-            } catch (Exception e) {
-                System.err.println("[Controller] Detection error: " + e.getMessage());
             }
-        }));
+            case DETECTED -> LOG.info("detection")
+                    .str("category", event.getCategory())
+                    .num("seq", event.getFrameSequence())
+                    .num("confidence", event.getConfidence())
+                    .log();
+            case INSTRUCTION_SHOWN -> {
+                stopDetectionLoop();
+                showDisposalInstructions(event.getCategory(), event.getFrameSequence());
+            }
+            case INSTRUCTION_HIDDEN -> hideDisposalInstructions();
+            case DISPOSAL_CONFIRMED -> {
+                stopDetectionLoop();
+                showConfirmation();
+            }
+            case DISPOSAL_INCORRECT -> LOG.info("incorrect disposal")
+                    .str("expected", stateMachine.getLastRecommendedCategory())
+                    .str("disposed", event.getCategory())
+                    .log();
+            case CONFIRMATION_HIDDEN -> hideConfirmation();
+            case STOPPED -> stopDetectionLoop();
+        }
+    }
+
+    private void startDetectionLoop() {
+        showScanningOverlay();
+        if (detectionLoop != null) {
+            return;
+        }
+
+        long interval = KioskConfig.current().getDetectionIntervalMillis();
+        detectionLoop = new Timeline(new KeyFrame(Duration.millis(interval), event -> runDetection()));
         
         detectionLoop.setCycleCount(Timeline.INDEFINITE);
         detectionLoop.play();
         
-        System.out.println("[Controller] Scanning started");
+        LOG.debug("scanning started").log();
     }
 
-    /**
-     * Stop YOLO detection loop.
-     */
-    @FXML
-    private void stopScanning() {
-        if (detectionLoop != null) {
-            detectionLoop.stop();
-            detectionLoop = null;
+    private void runDetection() {
+        try {
+            long detectStart = System.nanoTime();
+            WasteCategory detectedCategory = yoloAdapter.detectCategory();
+            if (telemetry != null) {
+                telemetry.recordLatency("detect", System.nanoTime() - detectStart);
+            }
+            updateDetectionOverlay();
+            double confidence = yoloAdapter.getLastBestConfidence();
+            if (powerManager != null) {
+                powerManager.onPipelineResumed();
+                // Something appearing or leaving is activity; an item left in view is not
+                boolean inView = detectedCategory != null || !Double.isNaN(confidence);
+                if (inView != itemInView) {
+                    itemInView = inView;
+                    powerManager.onActivity();
+                }
+            }
+            stateMachine.onDetectionResults(
+                    detectedCategory != null ? yoloAdapter.getLastItemCategories() : List.of(),
+                    yoloAdapter.getLastFrameSequence(), confidence);
+        } catch (Exception e) {
+            LOG.error("detection loop failed").error(e).log();
+        }
+    }
+
+    private void stopDetectionLoop() {
+        if (detectionLoop == null) {
+            return;
         }
+        detectionLoop.stop();
+        detectionLoop = null;
         
-        isScanning = false;
         hideScanningOverlay();
+        if (detectionOverlay != null) {
+            detectionOverlay.clear();
+        }
         
-        System.out.println("[Controller] Scanning stopped");
+        LOG.debug("scanning stopped").log();
+    }
+
+    /**
+     * Draw the latest detection boxes over the live feed.
+     */
+    private void updateDetectionOverlay() {
+        if (streamServer != null) {
+            streamServer.updateDetections(
+                    yoloAdapter.getLastDetections(),
+                    yoloAdapter.getLastFrameWidth(),
+                    yoloAdapter.getLastFrameHeight(),
+                    yoloAdapter.getConfidenceThreshold());
+        }
+        if (detectionOverlay != null) {
+            detectionOverlay.showDetections(
+                    yoloAdapter.getLastDetections(),
+                    yoloAdapter.getLastFrameWidth(),
+                    yoloAdapter.getLastFrameHeight(),
+                    yoloAdapter.getConfidenceThreshold());
+        }
     }
 
     /**
@@ -280,20 +575,15 @@ public class DisposalMessageController {
     /**
      * Task #414: Display disposal instructions based on YOLO classification.
      */
-    private void showDisposalInstructions(WasteCategory category) {
-        lastRecommendedCategory = category;
-        
+    private void showDisposalInstructions(WasteCategory category, long frameSequence) {
         hideScanningOverlay();
         
-        iconLabel.setText(category.getIcon());
-        categoryLabel.setText(category.getCategoryName());
-        instructionLabel.setText(category.getInstruction());
+        messageScenes.show(category, stateMachine.getQueuedCategories());
         
         messageContainer.setVisible(true);
+        latencyProbe.mark(LatencyProbe.Stage.INSTRUCTIONS_SHOWN, frameSequence, System.nanoTime());
         
-        displayService.displayMessage(category, this::hideDisposalInstructions);
-        
-        System.out.println("[Controller] Showing disposal instruction: " + category);
+        LOG.info("showing disposal instruction").str("category", category).log();
     }
 
     /**
@@ -307,48 +597,52 @@ public class DisposalMessageController {
      * Display a disposal message for a given waste category.
      */
     public void showDisposalMessage(WasteCategory category) {
-        if (isScanning) {
-            stopScanning();
-        }
-        showDisposalInstructions(category);
+        stateMachine.showInstruction(category);
     }
 
     /**
      * Story #19: Validate disposal and show confirmation.
      */
     public void validateDisposal(WasteCategory disposedCategory) {
-        if (lastRecommendedCategory != null && 
-            lastRecommendedCategory == disposedCategory) {
-            showConfirmation();
-        } else {
-            System.out.println("[Controller] Incorrect disposal detected");
-        }
+        stateMachine.validateDisposal(disposedCategory);
     }
 
     /**
      * Story #19: Show green checkmark confirmation.
      */
     private void showConfirmation() {
-        checkmarkLabel.setText("✓");
-        confirmationLabel.setText("Correct Disposal!");
-        
         confirmationContainer.setVisible(true);
+        checkmarkIn.playFromStart();
+        confirmationIn.playFromStart();
         
-        ScaleTransition scaleIn = new ScaleTransition(Duration.seconds(0.3), checkmarkLabel);
-        scaleIn.setFromX(0.0);
-        scaleIn.setFromY(0.0);
-        scaleIn.setToX(1.0);
-        scaleIn.setToY(1.0);
-        scaleIn.play();
-        
-        FadeTransition fadeIn = new FadeTransition(Duration.seconds(0.3), confirmationLabel);
-        fadeIn.setFromValue(0.0);
-        fadeIn.setToValue(1.0);
-        fadeIn.play();
-        
-        displayService.displayConfirmation(this::hideConfirmation);
-        
-        System.out.println("[Controller] Showing confirmation");
+        LOG.info("showing confirmation").str("category", stateMachine.getLastRecommendedCategory()).log();
+    }
+
+    /**
+     * Build the confirmation animations once and cache the animated labels
+     * as bitmaps, so showing it only restarts them. The labels keep their
+     * FXML text and are rendered off screen once the view is in a scene.
+     */
+    private void prepareConfirmation() {
+        checkmarkIn = new ScaleTransition(Duration.seconds(0.3), checkmarkLabel);
+        checkmarkIn.setFromX(0.0);
+        checkmarkIn.setFromY(0.0);
+        checkmarkIn.setToX(1.0);
+        checkmarkIn.setToY(1.0);
+
+        confirmationIn = new FadeTransition(Duration.seconds(0.3), confirmationLabel);
+        confirmationIn.setFromValue(0.0);
+        confirmationIn.setToValue(1.0);
+
+        for (Label label : List.of(checkmarkLabel, confirmationLabel)) {
+            label.setCache(true);
+            label.setCacheHint(CacheHint.SPEED);
+        }
+        confirmationContainer.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null && oldScene == null) {
+                Platform.runLater(() -> MessageScenes.render(confirmationContainer));
+            }
+        });
     }
 
     /**
@@ -363,26 +657,48 @@ public class DisposalMessageController {
      */
     public void dismissMessage() {
         displayService.cancelMessage();
+        stateMachine.stop();
         hideDisposalInstructions();
         hideConfirmation();
-        
-        if (isScanning) {
-            stopScanning();
-        }
     }
 
     /**
      * Cleanup resources when controller is destroyed.
      */
     public void shutdown() {
-        if (detectionLoop != null) {
-            detectionLoop.stop();
-        }
+        stateMachine.stop();
         
         if (cameraService != null) {
             cameraService.stopFeed();
         }
         
+        if (streamServer != null) {
+            streamServer.stop();
+        }
+        
+        if (clipRecorder != null) {
+            cameraService.removeFrameTap(clipRecorder);
+            clipRecorder.close();
+        }
+        
+        if (powerManager != null) {
+            cameraService.removeFrameTap(powerManager);
+            System.out.println("[Controller] " + powerManager);
+            powerManager.close();
+        }
+        
+        if (disposalWatcher != null) {
+            disposalWatcher.close();
+        }
+        
+        if (telemetry != null) {
+            telemetry.close();
+        }
+        
+        if (configWatcher != null) {
+            configWatcher.close();
+        }
+        
         if (yoloAdapter != null) {
             yoloAdapter.close();
         }
@@ -499,7 +815,7 @@ public class DisposalMessageController {
         
         WasteCategory mockDetection = yoloAdapter.simulateDetection("bottle");
         if (mockDetection != null) {
-            showDisposalInstructions(mockDetection);
+            showDisposalMessage(mockDetection);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.kiosk.headless;
+
+import com.kiosk.models.KioskEvent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Destination for kiosk events in headless mode.
+ */
+public interface EventSink extends AutoCloseable {
+
+    void publish(KioskEvent event) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Build a sink from a command-line spec:
+     * {@code stdout}, {@code file:path}, {@code tcp:host:port} or {@code unix:/path/to/socket}.
+     */
+    static EventSink parse(String spec) throws IOException {
+        if ("stdout".equals(spec)) {
+            return new StdoutEventSink(System.out);
+        }
+        if (spec.startsWith("file:")) {
+            return new FileEventSink(Path.of(spec.substring("file:".length())));
+        }
+        if (spec.startsWith("tcp:")) {
+            String address = spec.substring("tcp:".length());
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected tcp:host:port, got " + spec);
+            }
+            return SocketEventSink.tcp(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        }
+        if (spec.startsWith("unix:")) {
+            return SocketEventSink.unix(Path.of(spec.substring("unix:".length())));
+        }
+        throw new IllegalArgumentException("Unknown sink '" + spec + "' (use stdout, file:, tcp: or unix:)");
+    }
+}
@@ -0,0 +1,39 @@
+package com.kiosk.headless;
+
+import com.kiosk.models.KioskEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends one JSON object per line to a file. Events are rare (a few per
+ * disposal), so each one is flushed immediately.
+ */
+public class FileEventSink implements EventSink {
+    private final BufferedWriter out;
+
+    public FileEventSink(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void publish(KioskEvent event) throws IOException {
+        out.write(event.toJson());
+        out.newLine();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
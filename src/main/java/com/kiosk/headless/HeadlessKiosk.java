@@ -0,0 +1,456 @@
+package com.kiosk.headless;
+
+import com.kiosk.config.ConfigWatcher;
+import com.kiosk.config.KioskConfig;
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.runtime.PowerManager;
+import com.kiosk.runtime.ResourceBudget;
+import com.kiosk.scheduling.KioskClock;
+import com.kiosk.scheduling.TimerWheel;
+import com.kiosk.services.ClipRecorder;
+import com.kiosk.services.DisposalWatcher;
+import com.kiosk.services.KioskStateMachine;
+import com.kiosk.services.PreviewStreamServer;
+import com.kiosk.services.YoloAdapter;
+import com.kiosk.telemetry.TelemetryClient;
+import com.smartbin.capture.CameraFrameSource;
+import com.smartbin.capture.CaptureProfileNegotiator;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.VideoFileFrameSource;
+import com.smartbin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Kiosk runtime without the JavaFX UI, for kiosks that drive LED bin
+ * indicators and for test rigs.
+ *
+ * Runs capture, YOLO detection, category mapping and the message /
+ * confirmation timing ({@link KioskStateMachine}) and publishes each step as a
+ * JSON event to one or more sinks. The JavaFX toolkit is never started.
+ *
+ * Usage: HeadlessKiosk [--sink stdout|file:path|tcp:host:port|unix:path]...
+ *                      [--camera N | --video file [--loop]]
+ *                      [--interval-ms 100] [--duration-seconds S]
+ *
+ * The detection interval defaults to detection.intervalMs of the settings
+ * file ({@code -Dsmartbin.config}); a changed value in that file also
+ * replaces an interval given with --interval-ms.
+ *
+ * Commands on standard input: {@code dispose <CATEGORY>} reports what went
+ * into the bin (as validateDisposal does in the UI), {@code quit} exits.
+ * With a bin camera ({@code -Dsmartbin.drop.camera}, see DisposalWatcher)
+ * disposals are also reported on their own.
+ * With the stdout sink, all other console output moves to stderr so stdout
+ * stays pure JSON lines.
+ */
+public class HeadlessKiosk {
+    private static final long TICK_MILLIS = 10;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "kiosk-headless");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<EventSink> sinks;
+    private final YoloAdapter yoloAdapter;
+    private final TimerWheel wheel = new TimerWheel(KioskClock.SYSTEM, TICK_MILLIS);
+    private final KioskStateMachine flow;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile PreviewStreamServer streamServer;
+    private volatile ClipRecorder clipRecorder;
+    private volatile PowerManager powerManager;
+    private volatile TelemetryClient telemetry;
+    private volatile ConfigWatcher configWatcher;
+    private volatile DisposalWatcher disposalWatcher;
+    private ScheduledFuture<?> detectTask;
+    private boolean resumeScanningOnWake;
+    private long lastSenseNanos;
+    private boolean itemInView;
+
+    public HeadlessKiosk(YoloAdapter yoloAdapter, List<EventSink> sinks) {
+        this.yoloAdapter = yoloAdapter;
+        this.sinks = sinks;
+        this.flow = new KioskStateMachine(wheel, this::publish);
+    }
+
+    /**
+     * Also stream detection frames to maintenance staff (may be null).
+     */
+    public void setStreamServer(PreviewStreamServer streamServer) {
+        this.streamServer = streamServer;
+    }
+
+    /**
+     * Keep recent detection frames and save a clip on low-confidence results
+     * and incorrect disposals (may be null).
+     */
+    public void setClipRecorder(ClipRecorder clipRecorder) {
+        this.clipRecorder = clipRecorder;
+        if (clipRecorder != null) {
+            yoloAdapter.addFrameTap(clipRecorder);
+        }
+    }
+
+    /**
+     * Idle the detector when nobody is around and sense presence on low-rate
+     * frames instead (may be null). Call before {@link #start}.
+     */
+    public void setPowerManager(PowerManager powerManager) {
+        this.powerManager = powerManager;
+        if (powerManager != null) {
+            powerManager.setListener(this::onPowerStateChanged);
+            yoloAdapter.addFrameTap(powerManager);
+        }
+    }
+
+    /**
+     * Also report events and detection latency to a fleet telemetry collector (may be null).
+     */
+    public void setTelemetryClient(TelemetryClient telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * Confirm disposals seen by a camera on the bin openings (may be null);
+     * started with the kiosk.
+     */
+    public void setDisposalWatcher(DisposalWatcher disposalWatcher) {
+        this.disposalWatcher = disposalWatcher;
+        if (disposalWatcher != null) {
+            disposalWatcher.setListener(this::validateDisposal);
+        }
+    }
+
+    /**
+     * Apply a changed detection interval from the settings file (may be null).
+     * Call before {@link #start}.
+     */
+    public void setConfigWatcher(ConfigWatcher configWatcher) {
+        this.configWatcher = configWatcher;
+        if (configWatcher != null) {
+            configWatcher.addListener((previous, next) -> {
+                if (next.getDetectionIntervalMillis() != previous.getDetectionIntervalMillis()) {
+                    scheduler.execute(() -> scheduleDetection(next.getDetectionIntervalMillis()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs on the detection thread: frames, activity and polls all come from it.
+     */
+    private void onPowerStateChanged(PowerManager.State from, PowerManager.State to) {
+        if (to == PowerManager.State.ACTIVE) {
+            if (resumeScanningOnWake) {
+                resumeScanningOnWake = false;
+                // Queued, as this may run inside a flow event; detect without waiting for the next interval
+                scheduler.execute(() -> {
+                    flow.startScanning();
+                    detect();
+                });
+            }
+        } else if (from == PowerManager.State.ACTIVE && flow.isScanning()) {
+            resumeScanningOnWake = true;
+            flow.stop();
+        }
+    }
+
+    /**
+     * Start the detection loop; all detection and timing run on one thread.
+     */
+    public void start(long intervalMillis) {
+        scheduler.execute(() -> ResourceBudget.current().pinCurrentThread(ResourceBudget.Stage.INFERENCE));
+        scheduler.execute(flow::startScanning);
+        scheduler.scheduleAtFixedRate(wheel::poll, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.execute(() -> scheduleDetection(intervalMillis));
+        if (disposalWatcher != null) {
+            disposalWatcher.start();
+        }
+    }
+
+    /**
+     * Runs on the detection thread, so no detection pass is cut short.
+     */
+    private void scheduleDetection(long intervalMillis) {
+        if (detectTask != null) {
+            detectTask.cancel(false);
+        }
+        detectTask = scheduler.scheduleWithFixedDelay(this::detect, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void detect() {
+        PowerManager power = powerManager;
+        if (power != null && !power.isActive()) {
+            sense(power);
+            return;
+        }
+        if (!flow.isScanning()) {
+            if (power != null) {
+                power.poll();
+            }
+            return;
+        }
+        try {
+            long detectStart = System.nanoTime();
+            WasteCategory category = yoloAdapter.detectCategory();
+            TelemetryClient reporter = telemetry;
+            if (reporter != null) {
+                reporter.recordLatency("detect", System.nanoTime() - detectStart);
+            }
+            if (power != null) {
+                power.onPipelineResumed();
+                // Something appearing or leaving is activity; an item left in view is not
+                boolean inView = category != null || !Double.isNaN(yoloAdapter.getLastBestConfidence());
+                if (inView != itemInView) {
+                    itemInView = inView;
+                    power.onActivity();
+                }
+            }
+            PreviewStreamServer stream = streamServer;
+            if (stream != null) {
+                stream.updateDetections(yoloAdapter.getLastDetections(), yoloAdapter.getLastFrameWidth(),
+                        yoloAdapter.getLastFrameHeight(), yoloAdapter.getConfidenceThreshold());
+                stream.offerFrame(yoloAdapter.getLastFrame());
+            }
+            flow.onDetectionResults(category != null ? yoloAdapter.getLastItemCategories() : List.of(),
+                    yoloAdapter.getLastFrameSequence(), yoloAdapter.getLastBestConfidence());
+        } catch (RuntimeException e) {
+            System.err.println("[HeadlessKiosk] Detection error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read a frame for presence sensing at the low-power frame rate.
+     */
+    private void sense(PowerManager power) {
+        long now = System.nanoTime();
+        if (now - lastSenseNanos < power.getFrameIntervalMillis() * 1_000_000L) {
+            return;
+        }
+        lastSenseNanos = now;
+        try {
+            if (!yoloAdapter.readFrame()) {
+                power.poll();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[HeadlessKiosk] Presence sensing error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Report what was put into the bin; thread-safe.
+     */
+    public void validateDisposal(WasteCategory disposedCategory) {
+        scheduler.execute(() -> flow.validateDisposal(disposedCategory));
+    }
+
+    public void requestStop() {
+        finished.countDown();
+    }
+
+    public boolean awaitStop(long timeoutMillis) throws InterruptedException {
+        if (timeoutMillis <= 0) {
+            finished.await();
+            return true;
+        }
+        return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop timers, release the camera and model, and close the sinks.
+     */
+    public void shutdown() {
+        try {
+            scheduler.submit(() -> {
+                flow.stop();
+                if (powerManager != null) {
+                    System.out.println("[HeadlessKiosk] " + powerManager);
+                    powerManager.close();
+                }
+                yoloAdapter.close();
+            }).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("[HeadlessKiosk] Shutdown did not finish cleanly: " + e);
+        }
+        scheduler.shutdownNow();
+        if (streamServer != null) {
+            streamServer.stop();
+        }
+        if (clipRecorder != null) {
+            clipRecorder.close();
+        }
+        if (disposalWatcher != null) {
+            disposalWatcher.close();
+        }
+        if (telemetry != null) {
+            telemetry.close();
+        }
+        if (configWatcher != null) {
+            configWatcher.close();
+        }
+        for (EventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                System.err.println("[HeadlessKiosk] Failed to close sink: " + e.getMessage());
+            }
+        }
+    }
+
+    private void publish(KioskEvent event) {
+        PowerManager power = powerManager;
+        if (power != null && event.getType() != KioskEvent.Type.STOPPED
+                && event.getType() != KioskEvent.Type.SCANNING_STARTED) {
+            power.onActivity();
+        }
+        ClipRecorder clips = clipRecorder;
+        if (clips != null) {
+            clips.onKioskEvent(event, flow.getLastRecommendedCategory(), yoloAdapter);
+        }
+        TelemetryClient reporter = telemetry;
+        if (reporter != null) {
+            reporter.publish(event);
+        }
+        for (EventSink sink : sinks) {
+            try {
+                sink.publish(event);
+            } catch (IOException e) {
+                System.err.println("[HeadlessKiosk] Sink failed for " + event.getType() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> sinkSpecs = new ArrayList<>();
+        int cameraIndex = 0;
+        String video = null;
+        boolean loop = false;
+        long intervalMillis = 0;
+        long durationSeconds = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sink" -> sinkSpecs.add(args[++i]);
+                case "--camera" -> cameraIndex = Integer.parseInt(args[++i]);
+                case "--video" -> video = args[++i];
+                case "--loop" -> loop = true;
+                case "--interval-ms" -> intervalMillis = Long.parseLong(args[++i]);
+                case "--duration-seconds" -> durationSeconds = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.err.println("Usage: HeadlessKiosk [--sink stdout|file:path|tcp:host:port|unix:path]... "
+                            + "[--camera N | --video file [--loop]] [--interval-ms 100] [--duration-seconds S]");
+                    System.exit(2);
+                }
+            }
+        }
+        if (sinkSpecs.isEmpty()) {
+            sinkSpecs.add("stdout");
+        }
+
+        // Keep stdout for events only; everything else printed goes to stderr
+        PrintStream events = System.out;
+        if (sinkSpecs.contains("stdout")) {
+            System.setOut(System.err);
+        }
+        List<EventSink> sinks = new ArrayList<>();
+        for (String spec : sinkSpecs) {
+            sinks.add("stdout".equals(spec) ? new StdoutEventSink(events) : EventSink.parse(spec));
+        }
+
+        int camera = cameraIndex;
+        String videoPath = video;
+        boolean loopVideo = loop;
+        Supplier<FrameSource> frameSource = videoPath != null
+                ? () -> new VideoFileFrameSource(videoPath, loopVideo)
+                : () -> new CameraFrameSource(camera, CaptureProfileNegotiator.select(camera, 640, 480));
+        ResourceBudget.fromSystemProperties().apply();
+        ConfigWatcher config = ConfigWatcher.fromSystemProperties();
+        if (config != null) {
+            config.start();
+        }
+        if (intervalMillis <= 0) {
+            intervalMillis = KioskConfig.current().getDetectionIntervalMillis();
+        }
+        YoloAdapter adapter = new YoloAdapter(frameSource);
+        if (!adapter.isReady()) {
+            System.err.println("[HeadlessKiosk] Detector or frame source unavailable, exiting");
+            System.exit(1);
+        }
+
+        HeadlessKiosk kiosk = new HeadlessKiosk(adapter, sinks);
+        PreviewStreamServer stream = PreviewStreamServer.fromSystemProperties();
+        if (stream != null) {
+            stream.start();
+            kiosk.setStreamServer(stream);
+        }
+        ClipRecorder clips = ClipRecorder.fromSystemProperties();
+        if (clips != null) {
+            clips.start();
+            kiosk.setClipRecorder(clips);
+        }
+        kiosk.setPowerManager(PowerManager.fromSystemProperties());
+        kiosk.setTelemetryClient(TelemetryClient.fromSystemProperties());
+        kiosk.setConfigWatcher(config);
+        kiosk.setDisposalWatcher(DisposalWatcher.fromSystemProperties());
+        Runtime.getRuntime().addShutdownHook(new Thread(kiosk::requestStop, "kiosk-headless-stop"));
+        kiosk.start(intervalMillis);
+        startCommandReader(kiosk);
+
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(null);
+        if (jvmStart != null) {
+            System.out.println("[HeadlessKiosk] Ready " + Duration.between(jvmStart, Instant.now()).toMillis()
+                    + " ms after JVM start, heap used "
+                    + (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024) + " MB");
+        }
+
+        kiosk.awaitStop(durationSeconds * 1000);
+        kiosk.shutdown();
+        Log.shutdown();
+    }
+
+    private static void startCommandReader(HeadlessKiosk kiosk) {
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] parts = line.trim().split("\\s+");
+                    if (parts[0].equalsIgnoreCase("quit")) {
+                        kiosk.requestStop();
+                        return;
+                    }
+                    if (parts[0].equalsIgnoreCase("dispose") && parts.length == 2) {
+                        try {
+                            kiosk.validateDisposal(WasteCategory.valueOf(parts[1].toUpperCase(Locale.ROOT)));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("[HeadlessKiosk] Unknown category " + parts[1]);
+                        }
+                    } else if (!parts[0].isEmpty()) {
+                        System.err.println("[HeadlessKiosk] Commands: dispose <CATEGORY>, quit");
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("[HeadlessKiosk] Command input closed: " + e.getMessage());
+            }
+        }, "kiosk-headless-commands");
+        reader.setDaemon(true);
+        reader.start();
+    }
+}
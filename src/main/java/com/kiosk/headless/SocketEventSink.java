@@ -0,0 +1,133 @@
+package com.kiosk.headless;
+
+import com.kiosk.models.KioskEvent;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Sends JSON lines to a local listener, e.g. the LED bin indicator daemon,
+ * over TCP or a Unix domain socket.
+ *
+ * The listener may start after the kiosk or restart: events are dropped
+ * while it is unreachable and later events retry, backing off from one to
+ * 30 seconds. Connecting is non-blocking and finished by later events, so
+ * a listener that never answers costs detection nothing; a connect still
+ * pending after two seconds is given up.
+ */
+public class SocketEventSink implements EventSink {
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final long CONNECT_TIMEOUT_MILLIS = 2000;
+
+    private final SocketAddress address;
+    private final StandardProtocolFamily family;
+    private SocketChannel channel;
+    private boolean connected;
+    private long connectDeadlineMillis;
+    private long nextAttemptMillis;
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+    private long dropped;
+
+    private SocketEventSink(SocketAddress address, StandardProtocolFamily family) {
+        this.address = address;
+        this.family = family;
+    }
+
+    public static SocketEventSink tcp(String host, int port) {
+        return new SocketEventSink(new InetSocketAddress(host, port), StandardProtocolFamily.INET);
+    }
+
+    public static SocketEventSink unix(Path path) {
+        return new SocketEventSink(UnixDomainSocketAddress.of(path), StandardProtocolFamily.UNIX);
+    }
+
+    @Override
+    public void publish(KioskEvent event) throws IOException {
+        if (!ensureConnected()) {
+            dropped++;
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap((event.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            dropped++;
+            retryLater(System.currentTimeMillis());
+            throw e;
+        }
+    }
+
+    private boolean ensureConnected() {
+        if (connected) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            if (channel == null) {
+                if (now < nextAttemptMillis) {
+                    return false;
+                }
+                channel = SocketChannel.open(family);
+                channel.configureBlocking(false);
+                connectDeadlineMillis = now + CONNECT_TIMEOUT_MILLIS;
+                if (!channel.connect(address)) {
+                    return false;
+                }
+            } else if (!channel.finishConnect()) {
+                if (now < connectDeadlineMillis) {
+                    return false;
+                }
+                throw new IOException("Connect timed out");
+            }
+            // Lines are small and the listener is local; write them whole
+            channel.configureBlocking(true);
+            connected = true;
+            backoffMillis = MIN_BACKOFF_MILLIS;
+            System.out.println("[SocketEventSink] Connected to " + address);
+            return true;
+        } catch (IOException e) {
+            retryLater(now);
+            return false;
+        }
+    }
+
+    private void retryLater(long now) {
+        disconnect();
+        nextAttemptMillis = now + backoffMillis;
+        backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+            channel = null;
+        }
+        connected = false;
+    }
+
+    /**
+     * Events dropped because the listener was not reachable.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+    }
+}
@@ -0,0 +1,22 @@
+package com.kiosk.headless;
+
+import com.kiosk.models.KioskEvent;
+
+import java.io.PrintStream;
+
+/**
+ * One JSON object per line on standard output.
+ */
+public class StdoutEventSink implements EventSink {
+    private final PrintStream out;
+
+    public StdoutEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void publish(KioskEvent event) {
+        out.println(event.toJson());
+        out.flush();
+    }
+}
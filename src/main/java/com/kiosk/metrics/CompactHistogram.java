@@ -0,0 +1,131 @@
+package com.kiosk.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Sparse form of {@link LatencyHistogram} for keeping many small sketches,
+ * e.g. one per kiosk and hour in the telemetry collector.
+ *
+ * Same buckets and about 3% accuracy, but only buckets that have samples
+ * are stored, as sorted (bucket, count) pairs. Latencies of one kiosk in
+ * one hour fall into a few dozen buckets, so a sketch takes a few hundred
+ * bytes instead of 15 KB. Sketches merge exactly. Not thread-safe.
+ */
+public class CompactHistogram {
+    private short[] buckets = new short[8];
+    private long[] counts = new long[8];
+    private int size;
+    private long total;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        add((short) LatencyHistogram.indexOf(value), 1);
+        total++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private void add(short bucket, long count) {
+        int position = Arrays.binarySearch(buckets, 0, size, bucket);
+        if (position >= 0) {
+            counts[position] += count;
+            return;
+        }
+        position = -position - 1;
+        if (size == buckets.length) {
+            buckets = Arrays.copyOf(buckets, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        System.arraycopy(buckets, position, buckets, position + 1, size - position);
+        System.arraycopy(counts, position, counts, position + 1, size - position);
+        buckets[position] = bucket;
+        counts[position] = count;
+        size++;
+    }
+
+    /**
+     * Add all samples of another sketch to this one.
+     */
+    public void merge(CompactHistogram other) {
+        if (other.total == 0) {
+            return;
+        }
+        if (size == 0) {
+            buckets = Arrays.copyOf(other.buckets, Math.max(8, other.size));
+            counts = Arrays.copyOf(other.counts, Math.max(8, other.size));
+            size = other.size;
+        } else {
+            short[] mergedBuckets = new short[size + other.size];
+            long[] mergedCounts = new long[size + other.size];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && buckets[i] < other.buckets[j])) {
+                    mergedBuckets[n] = buckets[i];
+                    mergedCounts[n++] = counts[i++];
+                } else if (i == size || other.buckets[j] < buckets[i]) {
+                    mergedBuckets[n] = other.buckets[j];
+                    mergedCounts[n++] = other.counts[j++];
+                } else {
+                    mergedBuckets[n] = buckets[i];
+                    mergedCounts[n++] = counts[i++] + other.counts[j++];
+                }
+            }
+            buckets = mergedBuckets;
+            counts = mergedCounts;
+            size = n;
+        }
+        total += other.total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return approximate duration in nanoseconds, or 0 if empty
+     */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        rank = Math.max(1, Math.min(total, rank));
+        long seen = 0;
+        for (int i = 0; i < size; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, LatencyHistogram.valueOf(buckets[i])));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMin() {
+        return total == 0 ? 0 : min;
+    }
+
+    public double getMean() {
+        return total == 0 ? 0.0 : (double) sum / total;
+    }
+
+    /**
+     * Buckets with samples, i.e. the sketch's size in (bucket, count) pairs.
+     */
+    public int getBucketCount() {
+        return size;
+    }
+}
@@ -0,0 +1,33 @@
+package com.kiosk.metrics;
+
+/**
+ * Hook for timing a frame's trip through the pipeline.
+ *
+ * Services call {@link #mark} as each stage finishes. The default is a
+ * no-op; the latency harness installs a recording probe.
+ */
+@FunctionalInterface
+public interface LatencyProbe {
+
+    enum Stage {
+        /** Frame handed over by the camera driver (or synthetic source). */
+        CAPTURED,
+        /** Preview image handed to cameraFeedView on the FX thread. */
+        PREVIEW_SET,
+        /** Detector finished with the frame. */
+        DETECTED,
+        /** Detection mapped to a WasteCategory. */
+        MAPPED,
+        /** showDisposalInstructions finished updating the message labels. */
+        INSTRUCTIONS_SHOWN
+    }
+
+    LatencyProbe NONE = (stage, frameSequence, nanos) -> { };
+
+    /**
+     * @param stage Stage that just finished
+     * @param frameSequence Sequence number of the frame, or -1 if unknown
+     * @param nanos System.nanoTime() when the stage finished
+     */
+    void mark(Stage stage, long frameSequence, long nanos);
+}
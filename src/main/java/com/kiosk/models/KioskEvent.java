@@ -0,0 +1,92 @@
+package com.kiosk.models;
+
+/**
+ * Something the kiosk did that an outside consumer (LED bin indicators,
+ * test rigs, telemetry) may want to react to.
+ */
+public final class KioskEvent {
+
+    public enum Type {
+        SCANNING_STARTED,
+        DETECTED,
+        LOW_CONFIDENCE,
+        INSTRUCTION_SHOWN,
+        INSTRUCTION_HIDDEN,
+        DISPOSAL_CONFIRMED,
+        DISPOSAL_INCORRECT,
+        CONFIRMATION_HIDDEN,
+        STOPPED
+    }
+
+    private final Type type;
+    private final WasteCategory category;
+    private final long frameSequence;
+    private final double confidence;
+    private final long timestampMillis;
+
+    public KioskEvent(Type type, WasteCategory category, long frameSequence, double confidence,
+                      long timestampMillis) {
+        this.type = type;
+        this.category = category;
+        this.frameSequence = frameSequence;
+        this.confidence = confidence;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public static KioskEvent of(Type type, WasteCategory category) {
+        return new KioskEvent(type, category, -1, Double.NaN, System.currentTimeMillis());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Category the event refers to, or null (e.g. for SCANNING_STARTED).
+     */
+    public WasteCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * Camera frame that triggered the event, or -1.
+     */
+    public long getFrameSequence() {
+        return frameSequence;
+    }
+
+    /**
+     * Detection confidence, or NaN when not applicable.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Single-line JSON form used by the headless sinks.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128)
+                .append("{\"ts\":").append(timestampMillis)
+                .append(",\"event\":\"").append(type.name()).append('"');
+        if (category != null) {
+            json.append(",\"category\":\"").append(category.name()).append('"');
+        }
+        if (frameSequence >= 0) {
+            json.append(",\"seq\":").append(frameSequence);
+        }
+        if (!Double.isNaN(confidence)) {
+            json.append(",\"confidence\":").append(Math.round(confidence * 1000) / 1000.0);
+        }
+        return json.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,117 @@
+package com.kiosk.runtime;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Linux CPU affinity for individual threads, through {@code taskset}.
+ *
+ * Java has no API for this, so threads are found by their kernel thread id:
+ * the calling thread through {@code /proc/thread-self}, other threads by
+ * the name the JVM gives them in {@code /proc/self/task/<tid>/comm} (the
+ * first 15 characters of the Java thread name). Threads a pinned thread
+ * creates later inherit its affinity. Every method is a no-op returning
+ * false when {@code /proc} or {@code taskset} is unavailable.
+ */
+public final class CpuAffinity {
+    private static final Path THREAD_SELF = Path.of("/proc/thread-self");
+    private static final Path TASKS = Path.of("/proc/self/task");
+    private static volatile Boolean available;
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * True on Linux with {@code taskset} on the PATH.
+     */
+    public static boolean isAvailable() {
+        Boolean result = available;
+        if (result == null) {
+            result = Files.isDirectory(TASKS) && run("taskset", "-V") == 0;
+            available = result;
+        }
+        return result;
+    }
+
+    /**
+     * Pin the calling thread to a CPU list such as {@code "0"} or {@code "2-3,6"}.
+     */
+    public static boolean pinCurrentThread(String cpuList) {
+        if (!isAvailable()) {
+            return false;
+        }
+        try {
+            // "<pid>/task/<tid>"
+            Path link = Files.readSymbolicLink(THREAD_SELF);
+            return pin(link.getFileName().toString(), cpuList);
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Pin every thread whose kernel name starts with {@code namePrefix}.
+     *
+     * @return number of threads pinned
+     */
+    public static int pinThreads(String namePrefix, String cpuList) {
+        if (!isAvailable()) {
+            return 0;
+        }
+        int pinned = 0;
+        for (String tid : threadIds(namePrefix)) {
+            if (pin(tid, cpuList)) {
+                pinned++;
+            }
+        }
+        return pinned;
+    }
+
+    private static List<String> threadIds(String namePrefix) {
+        List<String> ids = new ArrayList<>();
+        try (Stream<Path> tasks = Files.list(TASKS)) {
+            for (Path task : tasks.toList()) {
+                try {
+                    String name = Files.readString(task.resolve("comm"), StandardCharsets.UTF_8).trim();
+                    if (name.startsWith(namePrefix)) {
+                        ids.add(task.getFileName().toString());
+                    }
+                } catch (IOException e) {
+                    // Thread exited while listing
+                }
+            }
+        } catch (IOException e) {
+            return ids;
+        }
+        return ids;
+    }
+
+    private static boolean pin(String tid, String cpuList) {
+        return run("taskset", "-p", "-c", cpuList, tid) == 0;
+    }
+
+    private static int run(String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return -1;
+            }
+            return process.exitValue();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.kiosk.runtime;
+
+import com.kiosk.metrics.LatencyHistogram;
+import com.kiosk.scheduling.KioskClock;
+import com.smartbin.capture.FrameTap;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import com.smartbin.yolo.MotionPresenceGate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Duty-cycles the kiosk when nobody is using it.
+ *
+ * <pre>
+ * ACTIVE --no activity for idleAfterSeconds--> IDLE --no presence for sleepAfterSeconds--> SLEEP
+ * IDLE / SLEEP --presence--> ACTIVE
+ * </pre>
+ *
+ * ACTIVE is the full pipeline. In IDLE the owner stops the detector,
+ * pauses the preview and captures at {@code idleFps}; in SLEEP it captures
+ * at {@code sleepFps} and the display is switched off. The camera and the
+ * model stay open in every state, so waking only means speeding capture
+ * back up and restarting the detection loop.
+ *
+ * Presence is sensed on the frames handed to {@link #onFrame} with a
+ * {@link MotionPresenceGate} on a small grey thumbnail, no DNN. Activity
+ * (something appearing in or leaving the detector's view, any kiosk event,
+ * a disposal) is reported with {@link #onActivity()}; presence alone does
+ * not keep the kiosk
+ * active, so an object left in view cannot stop it from idling. The
+ * gate's background is relearned on every drop to IDLE.
+ *
+ * Time and process CPU time are accounted per state; the CPU saved is
+ * estimated from the CPU rate measured while ACTIVE. Thread-safe; the
+ * listener is called on the thread that caused the transition, outside
+ * the lock.
+ *
+ * <pre>
+ * smartbin.power=off                      disable (always ACTIVE)
+ * smartbin.power.idleAfterSeconds         60
+ * smartbin.power.sleepAfterSeconds        900 (counted from entering IDLE)
+ * smartbin.power.idleFps                  2
+ * smartbin.power.sleepFps                 0.5
+ * smartbin.power.senseWidth               160 (presence thumbnail width)
+ * smartbin.power.minForeground            0.02
+ * smartbin.power.wakeLatencyMillis        300 (presence to first full detection)
+ * smartbin.power.displayOffCommand        e.g. "xset dpms force off"
+ * smartbin.power.displayOnCommand         e.g. "xset dpms force on"
+ * </pre>
+ */
+public class PowerManager implements FrameTap, AutoCloseable {
+    private static final Logger LOG = Log.get("power");
+
+    public enum State {
+        ACTIVE, IDLE, SLEEP
+    }
+
+    /**
+     * Told about every state change.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onPowerStateChanged(State from, State to);
+    }
+
+    private final KioskClock clock;
+    private final long idleAfterNanos;
+    private final long sleepAfterNanos;
+    private final double idleFps;
+    private final double sleepFps;
+    private final long wakeLatencyBudgetNanos;
+    private final String[] displayOffCommand;
+    private final String[] displayOnCommand;
+    private final MotionPresenceGate gate;
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private volatile Listener listener = (from, to) -> { };
+
+    private volatile State state = State.ACTIVE;
+    private long lastActivityNanos;
+    private long stateEnteredNanos;
+    private long stateEnteredCpuNanos;
+    private long wakeStartNanos = -1;
+    private final Map<State, Long> wallNanos = new EnumMap<>(State.class);
+    private final Map<State, Long> cpuNanos = new EnumMap<>(State.class);
+    private final Map<State, Long> entries = new EnumMap<>(State.class);
+    private final LatencyHistogram wakeLatency = new LatencyHistogram();
+    private long wakeBudgetMisses;
+
+    public PowerManager(KioskClock clock, double idleAfterSeconds, double sleepAfterSeconds,
+                        double idleFps, double sleepFps, int senseWidth, double minForeground,
+                        long wakeLatencyMillis, String displayOffCommand, String displayOnCommand) {
+        if (idleFps <= 0 || sleepFps <= 0) {
+            throw new IllegalArgumentException("idle and sleep fps must be positive");
+        }
+        this.clock = clock;
+        this.idleAfterNanos = (long) (idleAfterSeconds * 1e9);
+        this.sleepAfterNanos = (long) (sleepAfterSeconds * 1e9);
+        this.idleFps = idleFps;
+        this.sleepFps = sleepFps;
+        this.wakeLatencyBudgetNanos = wakeLatencyMillis * 1_000_000L;
+        this.displayOffCommand = splitCommand(displayOffCommand);
+        this.displayOnCommand = splitCommand(displayOnCommand);
+        this.gate = new MotionPresenceGate(senseWidth, minForeground);
+        for (State s : State.values()) {
+            wallNanos.put(s, 0L);
+            cpuNanos.put(s, 0L);
+            entries.put(s, 0L);
+        }
+        long now = clock.nanoTime();
+        lastActivityNanos = now;
+        stateEnteredNanos = now;
+        stateEnteredCpuNanos = processCpuNanos();
+        entries.put(State.ACTIVE, 1L);
+    }
+
+    /**
+     * Power manager configured from -Dsmartbin.power.*, or null if -Dsmartbin.power=off.
+     */
+    public static PowerManager fromSystemProperties() {
+        if ("off".equalsIgnoreCase(System.getProperty("smartbin.power", "on"))) {
+            return null;
+        }
+        return new PowerManager(KioskClock.SYSTEM,
+                Double.parseDouble(System.getProperty("smartbin.power.idleAfterSeconds", "60")),
+                Double.parseDouble(System.getProperty("smartbin.power.sleepAfterSeconds", "900")),
+                Double.parseDouble(System.getProperty("smartbin.power.idleFps", "2")),
+                Double.parseDouble(System.getProperty("smartbin.power.sleepFps", "0.5")),
+                Integer.getInteger("smartbin.power.senseWidth", 160),
+                Double.parseDouble(System.getProperty("smartbin.power.minForeground", "0.02")),
+                Long.getLong("smartbin.power.wakeLatencyMillis", 300),
+                System.getProperty("smartbin.power.displayOffCommand"),
+                System.getProperty("smartbin.power.displayOnCommand"));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener != null ? listener : (from, to) -> { };
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    /**
+     * Capture period for the current state: 0 (full rate) while ACTIVE.
+     */
+    public long getFrameIntervalMillis() {
+        return switch (state) {
+            case ACTIVE -> 0;
+            case IDLE -> Math.round(1000 / idleFps);
+            case SLEEP -> Math.round(1000 / sleepFps);
+        };
+    }
+
+    /**
+     * Someone is using the kiosk: keep (or bring) it ACTIVE.
+     */
+    public void onActivity() {
+        State from;
+        synchronized (this) {
+            lastActivityNanos = clock.nanoTime();
+            if (state == State.ACTIVE) {
+                return;
+            }
+            from = state;
+            wakeStartNanos = lastActivityNanos;
+            enter(State.ACTIVE);
+        }
+        changed(from, State.ACTIVE);
+    }
+
+    /**
+     * Sense presence on a captured frame while IDLE or SLEEP, then apply the
+     * idle and sleep timeouts. Frames in ACTIVE only drive the timeouts.
+     */
+    @Override
+    public void onFrame(TimestampedFrame frame) {
+        if (state != State.ACTIVE && frame != null && !frame.isEmpty()) {
+            boolean present;
+            synchronized (gate) {
+                present = gate.isItemPresent(frame.getMat());
+            }
+            if (present) {
+                LOG.debug("presence").str("state", state).num("seq", frame.getSequence()).log();
+                onActivity();
+                return;
+            }
+        }
+        poll();
+    }
+
+    /**
+     * Apply the idle and sleep timeouts; call periodically when no frames arrive.
+     */
+    public void poll() {
+        State from;
+        State to;
+        synchronized (this) {
+            long now = clock.nanoTime();
+            from = state;
+            if (state == State.ACTIVE && now - lastActivityNanos >= idleAfterNanos) {
+                to = State.IDLE;
+            } else if (state == State.IDLE && now - stateEnteredNanos >= sleepAfterNanos) {
+                to = State.SLEEP;
+            } else {
+                return;
+            }
+            wakeStartNanos = -1;
+            enter(to);
+        }
+        if (to == State.IDLE) {
+            // Whatever is in view now is the new empty scene
+            synchronized (gate) {
+                gate.close();
+            }
+        }
+        changed(from, to);
+    }
+
+    /**
+     * The full pipeline produced a detection; completes a pending wake-up
+     * measurement. Cheap when no wake-up is pending.
+     */
+    public void onPipelineResumed() {
+        long latency;
+        synchronized (this) {
+            if (wakeStartNanos < 0) {
+                return;
+            }
+            latency = clock.nanoTime() - wakeStartNanos;
+            wakeStartNanos = -1;
+            wakeLatency.record(latency);
+            if (latency > wakeLatencyBudgetNanos) {
+                wakeBudgetMisses++;
+            }
+        }
+        if (latency > wakeLatencyBudgetNanos) {
+            LOG.warn("wake-up over budget")
+                    .num("ms", latency / 1_000_000)
+                    .num("budgetMs", wakeLatencyBudgetNanos / 1_000_000)
+                    .log();
+        } else {
+            LOG.debug("wake-up").num("ms", latency / 1_000_000).log();
+        }
+    }
+
+    private void enter(State next) {
+        long now = clock.nanoTime();
+        long cpu = processCpuNanos();
+        wallNanos.merge(state, now - stateEnteredNanos, Long::sum);
+        cpuNanos.merge(state, Math.max(0, cpu - stateEnteredCpuNanos), Long::sum);
+        entries.merge(next, 1L, Long::sum);
+        state = next;
+        stateEnteredNanos = now;
+        stateEnteredCpuNanos = cpu;
+    }
+
+    private void changed(State from, State to) {
+        LOG.info("power state").str("from", from).str("to", to).log();
+        if (to == State.SLEEP) {
+            runCommand(displayOffCommand);
+        } else if (from == State.SLEEP) {
+            runCommand(displayOnCommand);
+        }
+        try {
+            listener.onPowerStateChanged(from, to);
+        } catch (RuntimeException e) {
+            LOG.error("power listener failed").str("to", to).error(e).log();
+        }
+    }
+
+    private void runCommand(String[] command) {
+        if (command == null) {
+            return;
+        }
+        try {
+            new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            LOG.warn("display command failed").str("command", String.join(" ", command)).error(e).log();
+        }
+    }
+
+    /**
+     * Wall time spent in a state so far, including the current stay.
+     */
+    public synchronized long getTimeNanos(State s) {
+        long total = wallNanos.get(s);
+        return s == state ? total + clock.nanoTime() - stateEnteredNanos : total;
+    }
+
+    /**
+     * Process CPU time used while in a state, including the current stay (0 if unavailable).
+     */
+    public synchronized long getCpuNanos(State s) {
+        long total = cpuNanos.get(s);
+        return s == state ? total + Math.max(0, processCpuNanos() - stateEnteredCpuNanos) : total;
+    }
+
+    /**
+     * CPU time the low-power states did not use compared with running the
+     * full pipeline at the ACTIVE rate, or 0 until ACTIVE has been measured.
+     */
+    public synchronized long getEstimatedCpuSavedNanos() {
+        long activeWall = getTimeNanos(State.ACTIVE);
+        if (activeWall <= 0) {
+            return 0;
+        }
+        double activeRate = (double) getCpuNanos(State.ACTIVE) / activeWall;
+        long saved = 0;
+        for (State s : new State[] {State.IDLE, State.SLEEP}) {
+            saved += Math.max(0, (long) (activeRate * getTimeNanos(s)) - getCpuNanos(s));
+        }
+        return saved;
+    }
+
+    /**
+     * Presence-to-first-detection times of completed wake-ups.
+     */
+    public LatencyHistogram getWakeLatency() {
+        return wakeLatency;
+    }
+
+    public synchronized long getWakeBudgetMisses() {
+        return wakeBudgetMisses;
+    }
+
+    private long processCpuNanos() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return Math.max(0, ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime());
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        synchronized (gate) {
+            gate.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("PowerManager{");
+        for (State s : State.values()) {
+            long wall = getTimeNanos(s);
+            double cpu = wall > 0 ? 100.0 * getCpuNanos(s) / wall : 0;
+            sb.append(String.format("%s=%.0fs (x%d, cpu %.1f%%), ",
+                    s.name().toLowerCase(), wall / 1e9, entries.get(s), cpu));
+        }
+        sb.append(String.format("cpuSaved=%.1fs, wakeups=%d, wakeP50=%.0fms, wakeMax=%.0fms, overBudget=%d}",
+                getEstimatedCpuSavedNanos() / 1e9, wakeLatency.getCount(),
+                wakeLatency.percentile(50) / 1e6, wakeLatency.getMax() / 1e6, wakeBudgetMisses));
+        return sb.toString();
+    }
+
+    private static String[] splitCommand(String command) {
+        return command == null || command.isBlank() ? null : command.trim().split("\\s+");
+    }
+}
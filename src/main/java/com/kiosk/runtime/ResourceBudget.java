@@ -0,0 +1,155 @@
+package com.kiosk.runtime;
+
+import com.smartbin.OpenCvLoader;
+import org.opencv.core.Core;
+
+/**
+ * How the kiosk's busy threads share the CPU cores.
+ *
+ * Four stages compete for the cores: the camera capture thread, the
+ * detection thread, OpenCV's internal worker pool (which also runs the DNN
+ * forward pass) and the JavaFX threads. Capture and detection are single
+ * threads by design, so the tunable thread count is OpenCV's pool size.
+ * Each stage can also be pinned to a CPU list on Linux ({@link CpuAffinity}).
+ *
+ * <pre>
+ * smartbin.budget.opencvThreads  OpenCV/DNN worker threads (default: OpenCV's choice)
+ * smartbin.budget.captureCpus    e.g. "1"
+ * smartbin.budget.inferenceCpus  e.g. "2-3"; OpenCV workers inherit this
+ * smartbin.budget.uiCpus         e.g. "0"
+ * </pre>
+ *
+ * In the JavaFX UI the detection Timeline runs on the FX thread, so that
+ * thread is pinned to the UI and inference CPUs together while the render
+ * thread gets the UI CPUs only. Headless, the detection thread gets the
+ * inference CPUs. Applied once at startup with {@link #apply()}; the stage
+ * threads pin themselves through {@link #current()}.
+ */
+public class ResourceBudget {
+    public enum Stage {
+        CAPTURE, INFERENCE, UI
+    }
+
+    public static final ResourceBudget DEFAULT = new ResourceBudget(0, null, null, null);
+    private static volatile ResourceBudget current = DEFAULT;
+
+    private final int opencvThreads;
+    private final String captureCpus;
+    private final String inferenceCpus;
+    private final String uiCpus;
+
+    /**
+     * @param opencvThreads OpenCV pool size, or 0 to leave OpenCV's default
+     * @param captureCpus   CPU list for the capture thread, or null for no pinning
+     */
+    public ResourceBudget(int opencvThreads, String captureCpus, String inferenceCpus, String uiCpus) {
+        this.opencvThreads = opencvThreads;
+        this.captureCpus = blankToNull(captureCpus);
+        this.inferenceCpus = blankToNull(inferenceCpus);
+        this.uiCpus = blankToNull(uiCpus);
+    }
+
+    public static ResourceBudget fromSystemProperties() {
+        return new ResourceBudget(
+                Integer.getInteger("smartbin.budget.opencvThreads", 0),
+                System.getProperty("smartbin.budget.captureCpus"),
+                System.getProperty("smartbin.budget.inferenceCpus"),
+                System.getProperty("smartbin.budget.uiCpus"));
+    }
+
+    /**
+     * The budget installed by the last {@link #apply()}.
+     */
+    public static ResourceBudget current() {
+        return current;
+    }
+
+    /**
+     * Set OpenCV's thread count and make this the budget stage threads pin
+     * themselves to. Call before the model is loaded.
+     */
+    public void apply() {
+        OpenCvLoader.load();
+        if (opencvThreads > 0) {
+            Core.setNumThreads(opencvThreads);
+        }
+        current = this;
+        if (isPinning() && !CpuAffinity.isAvailable()) {
+            System.err.println("[ResourceBudget] CPU affinity requested but taskset is not available; ignoring");
+        }
+        System.out.println("[ResourceBudget] " + this + ", OpenCV threads in use: " + Core.getNumThreads());
+    }
+
+    /**
+     * Pin the calling thread to the stage's CPUs, if any are configured.
+     */
+    public boolean pinCurrentThread(Stage stage) {
+        String cpus = cpusFor(stage);
+        return cpus != null && CpuAffinity.pinCurrentThread(cpus);
+    }
+
+    /**
+     * Call on the FX application thread: pins it to the UI and inference CPUs
+     * (detection runs on it) and the Quantum render thread to the UI CPUs.
+     */
+    public void pinUiThreads() {
+        String fxCpus = join(uiCpus, inferenceCpus);
+        if (fxCpus != null) {
+            CpuAffinity.pinCurrentThread(fxCpus);
+        }
+        if (uiCpus != null) {
+            CpuAffinity.pinThreads("QuantumRenderer", uiCpus);
+        }
+    }
+
+    private String cpusFor(Stage stage) {
+        switch (stage) {
+            case CAPTURE:
+                return captureCpus;
+            case INFERENCE:
+                return inferenceCpus;
+            default:
+                return uiCpus;
+        }
+    }
+
+    public boolean isPinning() {
+        return captureCpus != null || inferenceCpus != null || uiCpus != null;
+    }
+
+    public int getOpencvThreads() {
+        return opencvThreads;
+    }
+
+    public String getCaptureCpus() {
+        return captureCpus;
+    }
+
+    public String getInferenceCpus() {
+        return inferenceCpus;
+    }
+
+    public String getUiCpus() {
+        return uiCpus;
+    }
+
+    private static String join(String a, String b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : a + "," + b;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResourceBudget{opencvThreads=%s, captureCpus=%s, inferenceCpus=%s, uiCpus=%s}",
+                opencvThreads > 0 ? opencvThreads : "default",
+                captureCpus != null ? captureCpus : "any",
+                inferenceCpus != null ? inferenceCpus : "any",
+                uiCpus != null ? uiCpus : "any");
+    }
+}
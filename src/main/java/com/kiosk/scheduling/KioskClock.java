@@ -0,0 +1,16 @@
+package com.kiosk.scheduling;
+
+/**
+ * Time source for kiosk timers, so tests and simulations can run on a
+ * {@link VirtualClock} instead of waiting in real time.
+ */
+@FunctionalInterface
+public interface KioskClock {
+
+    KioskClock SYSTEM = System::nanoTime;
+
+    /**
+     * Monotonic time in nanoseconds; only differences are meaningful.
+     */
+    long nanoTime();
+}
@@ -0,0 +1,268 @@
+package com.kiosk.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical timer wheel for the kiosk's message, confirmation and
+ * rescan timers.
+ *
+ * Four levels of 64 slots each: level 0 holds timers due within the current
+ * 64-tick window, level 1 within the current 64^2-tick window and so on;
+ * timers cascade down a level as their deadline approaches (at a 10 ms
+ * tick the top level reaches about 46 hours, later timers wait in an
+ * overflow list). Scheduling and cancelling are O(1) and there
+ * is no per-timer JavaFX node or thread. Nothing runs on its own: the
+ * owner calls {@link #poll()} (from an FX pulse, a scheduled executor, or
+ * after advancing a {@link VirtualClock}) and due tasks run on that thread.
+ *
+ * Not thread-safe; use it from a single thread.
+ */
+public class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final KioskClock clock;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout[][] wheels = new Timeout[LEVELS][SLOTS];
+    private final List<Timeout> expired = new ArrayList<>();
+    private Timeout overflow;
+    private long currentTick;
+    private int pending;
+    private Runnable wakeUp;
+
+    public TimerWheel(KioskClock clock, long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.clock = clock;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.startNanos = clock.nanoTime();
+    }
+
+    public KioskClock getClock() {
+        return clock;
+    }
+
+    public long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    /**
+     * Called when a timer is added to an empty wheel, so a poller that
+     * stopped while idle (e.g. an FX pulse listener) can restart.
+     */
+    public void setWakeUp(Runnable wakeUp) {
+        this.wakeUp = wakeUp;
+    }
+
+    /**
+     * Run {@code task} once, no earlier than {@code delayMillis} from now
+     * (rounded up to the next tick).
+     */
+    public Timeout schedule(long delayMillis, Runnable task) {
+        if (pending == 0) {
+            // No poller may have run while the wheel was empty; count from now, not the last poll
+            currentTick = Math.max(currentTick, (clock.nanoTime() - startNanos) / tickNanos);
+        }
+        long delayTicks = Math.max(1, (TimeUnit.MILLISECONDS.toNanos(delayMillis) + tickNanos - 1) / tickNanos);
+        Timeout timeout = new Timeout(this, task, currentTick + delayTicks);
+        place(timeout);
+        if (pending++ == 0 && wakeUp != null) {
+            wakeUp.run();
+        }
+        return timeout;
+    }
+
+    /**
+     * Advance to the clock's current time and run every timer that is due.
+     *
+     * @return number of tasks run
+     */
+    public int poll() {
+        long targetTick = (clock.nanoTime() - startNanos) / tickNanos;
+        int ran = 0;
+        while (currentTick < targetTick) {
+            if (pending == 0) {
+                // Nothing to cascade or fire; jump straight to now
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            ran += runTick();
+        }
+        return ran;
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    public int size() {
+        return pending;
+    }
+
+    private int runTick() {
+        int index = (int) (currentTick & SLOT_MASK);
+        if (index == 0) {
+            cascade(1);
+        }
+
+        Timeout timeout = wheels[0][index];
+        wheels[0][index] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.unlink();
+            pending--;
+            expired.add(timeout);
+            timeout = next;
+        }
+
+        int ran = 0;
+        for (int i = 0; i < expired.size(); i++) {
+            Timeout due = expired.get(i);
+            if (due.cancelled) {
+                // Cancelled by a task that ran earlier in this tick
+                continue;
+            }
+            due.expired = true;
+            due.task.run();
+            ran++;
+        }
+        expired.clear();
+        return ran;
+    }
+
+    /**
+     * Move timers from the next slot of {@code level} down to finer levels.
+     */
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            Timeout timeout = overflow;
+            overflow = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.unlink();
+                place(timeout);
+                timeout = next;
+            }
+            return;
+        }
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        Timeout timeout = wheels[level][index];
+        wheels[level][index] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.unlink();
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long deadline = timeout.deadlineTick;
+        long differingBits = deadline ^ currentTick;
+        if ((differingBits >>> (SLOT_BITS * LEVELS)) != 0) {
+            // Past the top level's current rotation; re-placed when it comes round
+            timeout.linkOverflow();
+            return;
+        }
+        // Lowest level whose current window (shared higher bits) contains the deadline
+        int level = 0;
+        while ((differingBits >>> (SLOT_BITS * (level + 1))) != 0) {
+            level++;
+        }
+        int index = (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timeout.link(level, index);
+    }
+
+    /**
+     * Handle for a scheduled task.
+     */
+    public static final class Timeout {
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private int level = -1;
+        private int index;
+        private boolean cancelled;
+        private boolean expired;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancel if still pending; returns false if it already ran or was cancelled.
+         */
+        public boolean cancel() {
+            if (cancelled || expired) {
+                return false;
+            }
+            cancelled = true;
+            if (level >= 0) {
+                unlink();
+                wheel.pending--;
+            }
+            return true;
+        }
+
+        public boolean isPending() {
+            return !cancelled && !expired;
+        }
+
+        private void link(int level, int index) {
+            this.level = level;
+            this.index = index;
+            Timeout[] slots = wheel.wheels[level];
+            next = slots[index];
+            prev = null;
+            if (next != null) {
+                next.prev = this;
+            }
+            slots[index] = this;
+        }
+
+        private void linkOverflow() {
+            level = LEVELS;
+            next = wheel.overflow;
+            prev = null;
+            if (next != null) {
+                next.prev = this;
+            }
+            wheel.overflow = this;
+        }
+
+        private void unlink() {
+            if (level < 0) {
+                return;
+            }
+            if (prev != null) {
+                prev.next = next;
+            } else if (level == LEVELS) {
+                if (wheel.overflow == this) {
+                    wheel.overflow = next;
+                }
+            } else if (wheel.wheels[level][index] == this) {
+                wheel.wheels[level][index] = next;
+            }
+            if (next != null) {
+                next.prev = prev;
+            }
+            prev = null;
+            next = null;
+            level = -1;
+        }
+    }
+}
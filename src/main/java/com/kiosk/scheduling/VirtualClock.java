@@ -0,0 +1,32 @@
+package com.kiosk.scheduling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manually advanced clock for simulations. Not thread-safe; advance it from
+ * the thread that polls the timer wheel.
+ */
+public class VirtualClock implements KioskClock {
+    private long now;
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    public VirtualClock(long startNanos) {
+        this.now = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    public void advance(long amount, TimeUnit unit) {
+        now += unit.toNanos(amount);
+    }
+
+    public void advanceMillis(long millis) {
+        advance(millis, TimeUnit.MILLISECONDS);
+    }
+}
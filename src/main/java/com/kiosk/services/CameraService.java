@@ -1,18 +1,26 @@
 package com.kiosk.services;
 
+import com.kiosk.config.KioskConfig;
+import com.kiosk.metrics.LatencyProbe;
+import com.kiosk.runtime.ResourceBudget;
+import com.smartbin.capture.CameraFrameSource;
+import com.smartbin.capture.CaptureProfile;
+import com.smartbin.capture.CaptureProfileNegotiator;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.FrameTap;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
 import javafx.application.Platform;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import org.opencv.core.Mat;
-import org.opencv.core.MatOfByte;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.videoio.VideoCapture;
-import org.opencv.videoio.Videoio;
 
-import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Service for managing live camera feed display.
@@ -24,23 +32,67 @@ import java.util.concurrent.TimeUnit;
  * - Clearly visible detection area
  * - Continuous feed during operation
  * - Error message if camera fails
+ * 
+ * The camera is opened with the lowest-latency capture profile found by
+ * CaptureProfileNegotiator (MJPG where possible, one-frame driver buffer).
  */
 public class CameraService {
+    private static final Logger LOG = Log.get("camera");
     
-    private VideoCapture camera;
+    private final Supplier<FrameSource> frameSourceFactory;
+    private FrameSource camera;
+    private volatile LatencyProbe latencyProbe = LatencyProbe.NONE;
+    private final TimestampedFrame frame = new TimestampedFrame();
+    private volatile long lastFrameCaptureNanos;
     private ScheduledExecutorService executor;
+    private ScheduledFuture<?> captureTask;
+    private long frameDelayMillis;
+    private long requestedFrameMillis;
+    private volatile boolean previewPaused;
     private ImageView imageView;
+    private volatile PreviewPresenter presenter;
+    private final List<FrameTap> frameTaps = new CopyOnWriteArrayList<>();
     private Runnable onCameraError;
     private boolean isRunning = false;
-    
-    // Target ~30 FPS for smooth video (33ms between frames)
-    private static final int FRAME_DELAY_MS = 33;
+    private boolean capturePinned;
     
     /**
      * Initialize camera service.
      */
     public CameraService() {
         // OpenCV should already be loaded by YoloAdapter
+        this(() -> new CameraFrameSource(0, CaptureProfileNegotiator.select(0, 640, 480)));
+    }
+    
+    /**
+     * Initialize camera service with a custom frame source (e.g. a synthetic
+     * camera for latency measurements). A new source is created on every
+     * startFeed.
+     */
+    public CameraService(Supplier<FrameSource> frameSourceFactory) {
+        this.frameSourceFactory = frameSourceFactory;
+    }
+    
+    /**
+     * Also hand every captured frame to the tap (live-view stream, clip
+     * recorder). Taps run on the capture thread and must not block.
+     */
+    public void addFrameTap(FrameTap tap) {
+        frameTaps.add(tap);
+    }
+    
+    public void removeFrameTap(FrameTap tap) {
+        frameTaps.remove(tap);
+    }
+    
+    /**
+     * Install a probe that is told when each frame is captured and handed to the view.
+     */
+    public void setLatencyProbe(LatencyProbe latencyProbe) {
+        this.latencyProbe = latencyProbe != null ? latencyProbe : LatencyProbe.NONE;
+        if (presenter != null) {
+            presenter.setLatencyProbe(this.latencyProbe);
+        }
     }
     
     /**
@@ -53,10 +105,8 @@ public class CameraService {
         this.imageView = imageView;
         this.onCameraError = onError;
         
-        // Initialize camera
-        camera = new VideoCapture(0);
-        camera.set(Videoio.CAP_PROP_FRAME_WIDTH, 640);
-        camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, 480);
+        // Initialize camera (negotiated low-latency profile by default)
+        camera = frameSourceFactory.get();
         
         if (!camera.isOpened()) {
             System.err.println("[CameraService] Failed to open camera");
@@ -69,9 +119,75 @@ public class CameraService {
         isRunning = true;
         System.out.println("[CameraService] Camera feed started");
         
+        // Frames are pulled on each FX pulse instead of queued with Platform.runLater
+        presenter = new PreviewPresenter(imageView);
+        presenter.setLatencyProbe(latencyProbe);
+        if (!previewPaused) {
+            presenter.start();
+        }
+        
         // Start frame capture thread
-        executor = Executors.newSingleThreadScheduledExecutor();
-        executor.scheduleAtFixedRate(this::captureFrame, 0, FRAME_DELAY_MS, TimeUnit.MILLISECONDS);
+        capturePinned = false;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "camera-capture"));
+        synchronized (this) {
+            frameDelayMillis = frameDelay(requestedFrameMillis);
+            captureTask = executor.scheduleAtFixedRate(this::captureFrame, 0, frameDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Capture every {@code millis} ms instead of at the configured rate
+     * (camera.frameIntervalMs, ~30 FPS; 0 restores it). Takes effect
+     * immediately; the camera stays open.
+     */
+    public synchronized void setFrameInterval(long millis) {
+        requestedFrameMillis = millis;
+        long delay = frameDelay(millis);
+        if (delay == frameDelayMillis) {
+            return;
+        }
+        frameDelayMillis = delay;
+        if (captureTask != null && executor != null && !executor.isShutdown()) {
+            captureTask.cancel(false);
+            captureTask = executor.scheduleAtFixedRate(this::captureFrame, 0, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Apply a changed camera.frameIntervalMs to the running capture.
+     */
+    public synchronized void refreshFrameInterval() {
+        setFrameInterval(requestedFrameMillis);
+    }
+    
+    private static long frameDelay(long requestedMillis) {
+        long configured = KioskConfig.current().getFrameIntervalMillis();
+        return requestedMillis > 0 ? Math.max(configured, requestedMillis) : configured;
+    }
+    
+    /**
+     * Stop converting and showing frames while paused; taps still get every
+     * captured frame. Safe to call from any thread.
+     */
+    public void setPreviewPaused(boolean paused) {
+        if (previewPaused == paused) {
+            return;
+        }
+        previewPaused = paused;
+        PreviewPresenter current = presenter;
+        if (current != null) {
+            // An idle presenter must not keep requesting FX pulses
+            Runnable toggle = paused ? current::stop : current::start;
+            if (Platform.isFxApplicationThread()) {
+                toggle.run();
+            } else {
+                Platform.runLater(toggle);
+            }
+        }
+    }
+    
+    public boolean isPreviewPaused() {
+        return previewPaused;
     }
     
     /**
@@ -81,38 +197,35 @@ public class CameraService {
         if (!isRunning || camera == null || !camera.isOpened()) {
             return;
         }
+        if (!capturePinned) {
+            ResourceBudget.current().pinCurrentThread(ResourceBudget.Stage.CAPTURE);
+            capturePinned = true;
+        }
         
         try {
-            Mat frame = new Mat();
-            
-            if (camera.read(frame) && !frame.empty()) {
-                // Convert Mat to JavaFX Image
-                Image image = matToImage(frame);
+            if (camera.read(frame)) {
+                lastFrameCaptureNanos = frame.getCaptureNanos();
+                latencyProbe.mark(LatencyProbe.Stage.CAPTURED, frame.getSequence(), frame.getCaptureNanos());
                 
-                // Update ImageView on JavaFX thread
-                Platform.runLater(() -> {
-                    if (imageView != null) {
-                        imageView.setImage(image);
-                    }
-                });
+                for (FrameTap tap : frameTaps) {
+                    tap.onFrame(frame);
+                }
+                if (previewPaused) {
+                    return;
+                }
+                
+                // Hand the raw pixels to the presenter; the next FX pulse converts and shows the newest frame
+                PreviewPresenter current = presenter;
+                if (current != null) {
+                    current.submit(frame.getMat(), frame.getSequence());
+                }
             }
             
-            frame.release();
-            
         } catch (Exception e) {
-            System.err.println("[CameraService] Frame capture error: " + e.getMessage());
+            LOG.error("frame capture failed").error(e).log();
         }
     }
     
-    /**
-     * Convert OpenCV Mat to JavaFX Image.
-     */
-    private Image matToImage(Mat frame) {
-        MatOfByte buffer = new MatOfByte();
-        Imgcodecs.imencode(".png", frame, buffer);
-        return new Image(new ByteArrayInputStream(buffer.toArray()));
-    }
-    
     /**
      * Stop the camera feed.
      */
@@ -128,13 +241,32 @@ public class CameraService {
             }
         }
         
-        if (camera != null && camera.isOpened()) {
-            camera.release();
+        if (camera != null) {
+            camera.close();
+        }
+        frame.release();
+        
+        if (presenter != null) {
+            PreviewPresenter stopped = presenter;
+            presenter = null;
+            if (Platform.isFxApplicationThread()) {
+                stopped.stop();
+            } else {
+                Platform.runLater(stopped::stop);
+            }
+            System.out.println("[CameraService] " + stopped);
         }
         
         System.out.println("[CameraService] Camera feed stopped");
     }
     
+    /**
+     * Preview presenter of the running feed (presented/dropped counters), or null.
+     */
+    public PreviewPresenter getPresenter() {
+        return presenter;
+    }
+    
     /**
      * Check if camera is running.
      */
@@ -142,16 +274,23 @@ public class CameraService {
         return isRunning && camera != null && camera.isOpened();
     }
     
+    /**
+     * Capture timestamp (System.nanoTime) of the most recently displayed frame.
+     */
+    public long getLastFrameCaptureNanos() {
+        return lastFrameCaptureNanos;
+    }
+    
     /**
      * Check if camera is available.
      */
     public boolean isCameraAvailable() {
         if (camera == null) {
-            camera = new VideoCapture(0);
+            camera = new CameraFrameSource(0, CaptureProfile.driverDefault(640, 480));
         }
         boolean available = camera.isOpened();
         if (!available) {
-            camera.release();
+            camera.close();
             camera = null;
         }
         return available;
@@ -0,0 +1,348 @@
+package com.kiosk.services;
+
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.smartbin.DetectionResult;
+import com.smartbin.capture.FrameRingBuffer;
+import com.smartbin.capture.FrameTap;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the last few seconds of camera frames and saves them to disk around
+ * events worth reviewing later: low-confidence results, incorrect disposals
+ * and camera errors.
+ *
+ * Frames are downscaled into an off-heap {@link FrameRingBuffer} on the
+ * capture thread. A trigger only queues a request; a background exporter
+ * waits for the post-event frames, copies the window out of the ring and
+ * writes a JPEG sequence plus {@code event.json} with the detections into
+ * its own folder under the clips directory. The oldest clips are deleted to
+ * stay under the disk cap. Capture never waits on any of this: a full
+ * export queue drops the trigger.
+ */
+public class ClipRecorder implements FrameTap, AutoCloseable {
+    private static final Logger LOG = Log.get("clips");
+    private static final DateTimeFormatter FOLDER_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final String PARTIAL_SUFFIX = ".partial";
+
+    private static final class ExportRequest {
+        final String reason;
+        final long eventNanos;
+        final LocalDateTime eventTime;
+        final List<DetectionResult> detections;
+        final int frameWidth;
+        final int frameHeight;
+        final Map<String, String> details;
+
+        ExportRequest(String reason, long eventNanos, List<DetectionResult> detections,
+                      int frameWidth, int frameHeight, Map<String, String> details) {
+            this.reason = reason;
+            this.eventNanos = eventNanos;
+            this.eventTime = LocalDateTime.now();
+            this.detections = detections;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.details = details;
+        }
+    }
+
+    private final Path directory;
+    private final long preNanos;
+    private final long postNanos;
+    private final long frameIntervalNanos;
+    private final long maxBytes;
+    private final long cooldownNanos;
+    private final FrameRingBuffer ring;
+    private final BlockingQueue<ExportRequest> queue = new ArrayBlockingQueue<>(8);
+    private final Map<String, Long> lastTrigger = new ConcurrentHashMap<>();
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong droppedTriggers = new AtomicLong();
+    private volatile boolean running;
+    private Thread exporter;
+    private long lastFrameNanos;
+
+    /**
+     * @param preSeconds   seconds of video kept before an event
+     * @param postSeconds  seconds recorded after it
+     * @param fps          rate frames are sampled into the ring
+     * @param width        stored frame width; height keeps the aspect ratio
+     * @param maxBytes     disk cap for the clips directory
+     * @param cooldownSeconds minimum gap between clips for the same reason
+     */
+    public ClipRecorder(Path directory, double preSeconds, double postSeconds, double fps, int width,
+                        long maxBytes, double cooldownSeconds) {
+        this.directory = directory;
+        this.preNanos = (long) (preSeconds * 1e9);
+        this.postNanos = (long) (postSeconds * 1e9);
+        // Tolerate capture jitter so 30 fps sampled at 10 fps keeps every third frame
+        this.frameIntervalNanos = (long) (0.9e9 / fps);
+        this.maxBytes = maxBytes;
+        this.cooldownNanos = (long) (cooldownSeconds * 1e9);
+        this.ring = new FrameRingBuffer((int) Math.ceil((preSeconds + postSeconds) * fps) + 2, width);
+    }
+
+    /**
+     * Recorder configured from system properties, or null with {@code -Dsmartbin.clips=off}:
+     * {@code smartbin.clips.dir} (clips), {@code smartbin.clips.preSeconds} (5),
+     * {@code smartbin.clips.postSeconds} (1), {@code smartbin.clips.fps} (10),
+     * {@code smartbin.clips.width} (320), {@code smartbin.clips.maxMB} (200),
+     * {@code smartbin.clips.cooldownSeconds} (30).
+     */
+    public static ClipRecorder fromSystemProperties() {
+        if ("off".equalsIgnoreCase(System.getProperty("smartbin.clips", "on"))) {
+            return null;
+        }
+        return new ClipRecorder(
+                Path.of(System.getProperty("smartbin.clips.dir", "clips")),
+                Double.parseDouble(System.getProperty("smartbin.clips.preSeconds", "5")),
+                Double.parseDouble(System.getProperty("smartbin.clips.postSeconds", "1")),
+                Double.parseDouble(System.getProperty("smartbin.clips.fps", "10")),
+                Integer.getInteger("smartbin.clips.width", 320),
+                Long.getLong("smartbin.clips.maxMB", 200) * 1024 * 1024,
+                Double.parseDouble(System.getProperty("smartbin.clips.cooldownSeconds", "30")));
+    }
+
+    public void start() {
+        running = true;
+        exporter = new Thread(this::exportLoop, "clip-exporter");
+        exporter.setDaemon(true);
+        exporter.setPriority(Thread.MIN_PRIORITY);
+        exporter.start();
+    }
+
+    /**
+     * Capture thread: sample the frame into the ring at the configured rate.
+     */
+    @Override
+    public void onFrame(TimestampedFrame frame) {
+        if (!running) {
+            return;
+        }
+        long nanos = frame.getCaptureNanos();
+        if (lastFrameNanos != 0 && nanos - lastFrameNanos < frameIntervalNanos) {
+            return;
+        }
+        lastFrameNanos = nanos;
+        ring.write(frame.getMat(), frame.getSequence(), nanos);
+    }
+
+    /**
+     * Queue a clip around now. Returns false if the reason is cooling down
+     * or the exporter is backed up.
+     *
+     * @param detections  detections to store with the clip, in frameWidth x frameHeight coordinates
+     * @param details     extra key/value context (expected and disposed category, ...)
+     */
+    public boolean trigger(String reason, List<DetectionResult> detections, int frameWidth, int frameHeight,
+                           Map<String, String> details) {
+        if (!running) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Long previous = lastTrigger.get(reason);
+        if (previous != null && now - previous < cooldownNanos) {
+            return false;
+        }
+        lastTrigger.put(reason, now);
+        ExportRequest request = new ExportRequest(reason, now,
+                detections != null ? new ArrayList<>(detections) : Collections.emptyList(),
+                frameWidth, frameHeight, details != null ? details : Collections.emptyMap());
+        if (!queue.offer(request)) {
+            droppedTriggers.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record the kiosk events worth reviewing: low-confidence results and
+     * incorrect disposals. Call on the thread that runs detection.
+     */
+    public void onKioskEvent(KioskEvent event, WasteCategory expected, YoloAdapter adapter) {
+        switch (event.getType()) {
+            case LOW_CONFIDENCE -> {
+                Map<String, String> details = new LinkedHashMap<>();
+                details.put("confidence", String.valueOf(event.getConfidence()));
+                details.put("frameSequence", String.valueOf(event.getFrameSequence()));
+                trigger("low-confidence", adapter.getLastDetections(), adapter.getLastFrameWidth(),
+                        adapter.getLastFrameHeight(), details);
+            }
+            case DISPOSAL_INCORRECT -> {
+                Map<String, String> details = new LinkedHashMap<>();
+                details.put("expected", String.valueOf(expected));
+                details.put("disposed", String.valueOf(event.getCategory()));
+                trigger("incorrect-disposal", adapter.getLastDetections(), adapter.getLastFrameWidth(),
+                        adapter.getLastFrameHeight(), details);
+            }
+            default -> {
+            }
+        }
+    }
+
+    public long getExported() {
+        return exported.get();
+    }
+
+    public long getDroppedTriggers() {
+        return droppedTriggers.get();
+    }
+
+    private void exportLoop() {
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 85);
+        try {
+            while (running || !queue.isEmpty()) {
+                ExportRequest request = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (request == null) {
+                    continue;
+                }
+                long wait = request.eventNanos + postNanos - System.nanoTime();
+                if (wait > 0 && running) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                try {
+                    export(request, params);
+                    enforceDiskCap();
+                } catch (IOException | UncheckedIOException e) {
+                    LOG.error("clip export failed").str("reason", request.reason).error(e).log();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            params.release();
+        }
+    }
+
+    private void export(ExportRequest request, MatOfInt params) throws IOException {
+        List<FrameRingBuffer.Frame> frames = ring.snapshot(
+                request.eventNanos - preNanos, request.eventNanos + postNanos);
+        String name = FOLDER_TIME.format(request.eventTime) + "_" + request.reason;
+        Path partial = directory.resolve(name + PARTIAL_SUFFIX);
+        Files.createDirectories(partial);
+        StringBuilder json = new StringBuilder(1024);
+        try {
+            json.append("{\n  \"reason\": \"").append(request.reason).append("\",\n")
+                    .append("  \"time\": \"").append(request.eventTime).append("\",\n")
+                    .append("  \"details\": {");
+            int field = 0;
+            for (Map.Entry<String, String> entry : request.details.entrySet()) {
+                json.append(field++ > 0 ? ", " : "").append('"').append(entry.getKey()).append("\": \"")
+                        .append(entry.getValue().replace("\"", "'")).append('"');
+            }
+            json.append("},\n  \"detectionFrame\": {\"width\": ").append(request.frameWidth)
+                    .append(", \"height\": ").append(request.frameHeight).append("},\n  \"detections\": [");
+            for (int i = 0; i < request.detections.size(); i++) {
+                DetectionResult detection = request.detections.get(i);
+                Rect box = detection.getBoundingBox();
+                json.append(i > 0 ? "," : "").append("\n    {\"label\": \"").append(detection.getLabel())
+                        .append("\", \"confidence\": ").append(detection.getConfidence())
+                        .append(", \"x\": ").append(box.x).append(", \"y\": ").append(box.y)
+                        .append(", \"width\": ").append(box.width).append(", \"height\": ").append(box.height)
+                        .append('}');
+            }
+            json.append("\n  ],\n  \"frames\": [");
+            for (int i = 0; i < frames.size(); i++) {
+                FrameRingBuffer.Frame frame = frames.get(i);
+                String file = String.format("frame_%03d.jpg", i);
+                Imgcodecs.imwrite(partial.resolve(file).toString(), frame.getMat(), params);
+                long offsetMillis = (frame.getCaptureNanos() - request.eventNanos) / 1_000_000;
+                json.append(i > 0 ? "," : "").append("\n    {\"file\": \"").append(file)
+                        .append("\", \"sequence\": ").append(frame.getSequence())
+                        .append(", \"offsetMs\": ").append(offsetMillis).append('}');
+            }
+            json.append("\n  ]\n}\n");
+        } finally {
+            frames.forEach(FrameRingBuffer.Frame::release);
+        }
+        Files.writeString(partial.resolve("event.json"), json, StandardCharsets.UTF_8);
+        Path done = directory.resolve(name);
+        Files.move(partial, done);
+        exported.incrementAndGet();
+        LOG.info("clip saved").str("reason", request.reason).str("path", done).num("frames", frames.size()).log();
+    }
+
+    /**
+     * Delete the oldest clips until the directory fits under the cap.
+     */
+    private void enforceDiskCap() throws IOException {
+        List<Path> clips;
+        try (Stream<Path> entries = Files.list(directory)) {
+            clips = entries.filter(Files::isDirectory)
+                    .filter(path -> !path.getFileName().toString().endsWith(PARTIAL_SUFFIX))
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .toList();
+        }
+        long[] sizes = new long[clips.size()];
+        long total = 0;
+        for (int i = 0; i < clips.size(); i++) {
+            sizes[i] = sizeOf(clips.get(i));
+            total += sizes[i];
+        }
+        for (int i = 0; i < clips.size() && total > maxBytes; i++) {
+            deleteRecursively(clips.get(i));
+            total -= sizes[i];
+            LOG.info("clip deleted for disk cap").str("path", clips.get(i)).log();
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> {
+                try {
+                    return Files.size(path);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Finish queued exports (without waiting for post-event frames) and free the ring.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (exporter != null) {
+            try {
+                exporter.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ring.close();
+    }
+}
@@ -0,0 +1,259 @@
+package com.kiosk.services;
+
+import com.kiosk.models.WasteCategory;
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.CameraFrameSource;
+import com.smartbin.capture.CaptureProfile;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.capture.VideoFileFrameSource;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import com.smartbin.vision.DropDetector;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Confirms disposals on its own, from a second low-resolution camera aimed
+ * at the bin openings.
+ *
+ * Each opening is a polygon zone named after its {@link WasteCategory}. A
+ * {@link DropDetector} (frame differencing, no network) watches the zones,
+ * and every drop it sees is handed to the listener, which calls
+ * validateDisposal as the test buttons do (a drop with no instruction
+ * pending is ignored there). Capture and detection share one
+ * thread and run at a low fixed rate next to the main pipeline. The
+ * thread's CPU time is counted, and its share of one core is printed on
+ * close.
+ *
+ * Test mode: with {@code smartbin.drop.video} a recording of the bin camera
+ * is played back in a loop at its recorded speed instead of the camera
+ * (frames between ticks are skipped without decoding), so a kiosk can be
+ * run against known drops. DropReplay checks a recording offline against
+ * ground truth.
+ *
+ * <pre>
+ * smartbin.drop.camera          index of the bin camera (off unless this or .video is set)
+ * smartbin.drop.video           recorded video of the bin camera instead (test mode)
+ * smartbin.drop.zones           zones file, default bin-zones.properties
+ * smartbin.drop.fps             10
+ * smartbin.drop.width/height    320x240 requested from the camera
+ * smartbin.drop.senseWidth      96 (thumbnail width)
+ * smartbin.drop.minZoneRatio    0.03 (changed fraction of a zone that makes it active)
+ * smartbin.drop.maxEventMillis  2500 (longer activity is not a drop)
+ * </pre>
+ */
+public class DisposalWatcher implements AutoCloseable {
+    private static final Logger LOG = Log.get("drops");
+
+    private final Supplier<FrameSource> sourceFactory;
+    private final DropDetector detector;
+    private final long intervalMillis;
+    private final String description;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final TimestampedFrame frame = new TimestampedFrame();
+    private final Map<WasteCategory, Long> drops = new EnumMap<>(WasteCategory.class);
+    private volatile Consumer<WasteCategory> listener = category -> { };
+    private ScheduledExecutorService executor;
+    private FrameSource source;
+    private long frames;
+    private long played;
+    private long readFailures;
+    private long cpuNanos;
+    private long startNanos;
+
+    /**
+     * @param sourceFactory Opens the bin camera or recording, on the watcher thread
+     * @param detector Its zones must be named after waste categories
+     * @param description For log output, e.g. "camera 1"
+     */
+    public DisposalWatcher(Supplier<FrameSource> sourceFactory, DropDetector detector, double fps,
+                           String description) {
+        List<String> unknown = new ArrayList<>();
+        for (DropDetector.Zone zone : detector.getZones()) {
+            try {
+                WasteCategory.valueOf(zone.getName());
+            } catch (IllegalArgumentException e) {
+                unknown.add(zone.getName());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("zones must be named after waste categories, not " + unknown);
+        }
+        if (fps <= 0) {
+            throw new IllegalArgumentException("fps must be positive");
+        }
+        this.sourceFactory = sourceFactory;
+        this.detector = detector;
+        this.intervalMillis = Math.max(1, Math.round(1000 / fps));
+        this.description = description;
+    }
+
+    /**
+     * Watcher configured from -Dsmartbin.drop.*, or null if neither a bin
+     * camera nor a recording is set.
+     *
+     * @throws IOException if the zones file cannot be read
+     * @throws IllegalArgumentException if it is invalid
+     */
+    public static DisposalWatcher fromSystemProperties() throws IOException {
+        String video = System.getProperty("smartbin.drop.video");
+        Integer camera = Integer.getInteger("smartbin.drop.camera");
+        if ((video == null || video.isBlank()) && camera == null) {
+            return null;
+        }
+        Path zones = Path.of(System.getProperty("smartbin.drop.zones", "bin-zones.properties"));
+        DropDetector detector = DropDetector.fromSystemProperties(DropDetector.loadZones(zones));
+        double fps = Double.parseDouble(System.getProperty("smartbin.drop.fps", "10"));
+        if (video != null && !video.isBlank()) {
+            return new DisposalWatcher(() -> new VideoFileFrameSource(video, true), detector, fps,
+                    "recording " + video);
+        }
+        int width = Integer.getInteger("smartbin.drop.width", 320);
+        int height = Integer.getInteger("smartbin.drop.height", 240);
+        CaptureProfile profile = new CaptureProfile("bin", CaptureProfile.preferredBackend(), "MJPG",
+                width, height, (int) Math.ceil(fps), 1, CaptureProfile.ExposureMode.DRIVER_DEFAULT, 0);
+        return new DisposalWatcher(() -> new CameraFrameSource(camera, profile), detector, fps,
+                "camera " + camera);
+    }
+
+    /**
+     * Told about every drop, on the watcher thread.
+     */
+    public void setListener(Consumer<WasteCategory> listener) {
+        this.listener = listener != null ? listener : category -> { };
+    }
+
+    /**
+     * Open the source and start watching, on a thread of its own.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "disposal-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        if (source == null && !open()) {
+            executor.shutdown();
+            return;
+        }
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        try {
+            if (source instanceof VideoFileFrameSource video && video.getFps() > 0) {
+                // Keep a recording at the speed it was recorded, as the camera would deliver it
+                long due = (long) ((System.nanoTime() - startNanos) / 1e9 * video.getFps());
+                if (due > played) {
+                    video.skip((int) Math.min(Integer.MAX_VALUE, due - played));
+                    played = due;
+                }
+            }
+            played++;
+            if (!source.read(frame)) {
+                readFailures++;
+                return;
+            }
+            String zone = detector.onFrame(frame.getMat(), frame.getCaptureNanos());
+            synchronized (this) {
+                frames++;
+            }
+            if (zone != null) {
+                WasteCategory category = WasteCategory.valueOf(zone);
+                synchronized (this) {
+                    drops.merge(category, 1L, Long::sum);
+                }
+                LOG.info("drop seen").str("category", category).num("seq", frame.getSequence()).log();
+                listener.accept(category);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("drop detection failed").error(e).log();
+        } finally {
+            long used = threads.getCurrentThreadCpuTime() - cpuStart;
+            synchronized (this) {
+                cpuNanos += used;
+            }
+        }
+    }
+
+    private boolean open() {
+        try {
+            OpenCvLoader.load();
+            source = sourceFactory.get();
+        } catch (RuntimeException e) {
+            LOG.error("bin camera unavailable, disposals will not be confirmed automatically")
+                    .str("source", description)
+                    .error(e)
+                    .log();
+            return false;
+        }
+        if (!source.isOpened()) {
+            LOG.error("bin camera unavailable, disposals will not be confirmed automatically")
+                    .str("source", description)
+                    .log();
+            source.close();
+            source = null;
+            return false;
+        }
+        synchronized (this) {
+            startNanos = System.nanoTime();
+        }
+        System.out.println("[DisposalWatcher] Watching " + detector.getZones().size() + " bin openings on "
+                + description + " every " + intervalMillis + " ms");
+        return true;
+    }
+
+    /**
+     * Share of one core the watcher thread has used since the source opened, in percent.
+     */
+    public synchronized double getCorePercent() {
+        long wall = System.nanoTime() - startNanos;
+        return startNanos == 0 || wall <= 0 ? 0 : 100.0 * cpuNanos / wall;
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+        }
+        if (running != null) {
+            running.shutdownNow();
+            try {
+                running.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+        System.out.println("[DisposalWatcher] " + this);
+        detector.close();
+        frame.getMat().release();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DisposalWatcher[source=%s, frames=%d, readFailures=%d, drops=%s, cpu=%.2f%% of one core, %s]",
+                description, frames, readFailures, drops, getCorePercent(), detector);
+    }
+}
@@ -0,0 +1,309 @@
+package com.kiosk.services;
+
+import com.kiosk.config.KioskConfig;
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.scheduling.TimerWheel;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The kiosk's scan / instruct / confirm cycle as an explicit state machine.
+ * Story #19: Message displayed for 3 seconds, confirmation for 3 seconds.
+ *
+ * <pre>
+ * IDLE --startScanning--> SCANNING
+ * SCANNING --uncertain detection--> LOW_CONFIDENCE --nothing detected--> SCANNING
+ * SCANNING / LOW_CONFIDENCE --confident detection--> CLASSIFIED
+ * CLASSIFIED --3.5 s--> SCANNING (instruction hidden after 3 s)
+ * any state --disposal matches pending instruction--> CONFIRMING --3 s--> SCANNING
+ * any state --stop--> IDLE
+ * </pre>
+ *
+ * A detection may name several categories (a traveller holding a bottle
+ * and a food wrapper). The first is shown and the others are queued: each
+ * queued category is shown in turn when the previous instruction times out
+ * or its confirmation ends, without scanning again. A disposal into any
+ * category of that detection not yet disposed of is confirmed, shown or
+ * still queued. Scanning resumes after the last one.
+ *
+ * A disposal is only checked while an instruction is pending: from the
+ * instruction until every item of it has been confirmed, the next
+ * confident detection replaces it, the disposal window (15 s by default,
+ * so a traveller can walk to the bins after scanning resumes) runs out or
+ * the machine stops. Any other disposal (say, a drop seen with nobody at
+ * the kiosk) is ignored rather than reported as incorrect.
+ *
+ * Timers live on a {@link TimerWheel}, so the same machine runs on the FX
+ * thread (MessageDisplayService pumps the wheel on pulses), on the headless
+ * runtime's scheduler, or on a virtual clock in simulations. Every step is
+ * reported to the listener as a {@link KioskEvent}. Not thread-safe: call
+ * it from the thread that polls the wheel.
+ *
+ * Durations come from {@link KioskConfig#current()} when a timer is set,
+ * so a reloaded configuration applies from the next instruction on; the
+ * constants below are the defaults.
+ */
+public class KioskStateMachine {
+    private static final Logger LOG = Log.get("flow");
+
+    public static final long MESSAGE_MILLIS = 3000;
+    public static final long CONFIRMATION_MILLIS = 3000;
+    public static final long RESCAN_DELAY_MILLIS = 3500;
+    public static final long DISPOSAL_WINDOW_MILLIS = 15_000;
+
+    public enum State {
+        IDLE,
+        SCANNING,
+        CLASSIFIED,
+        LOW_CONFIDENCE,
+        CONFIRMING
+    }
+
+    private final TimerWheel wheel;
+    private Consumer<KioskEvent> listener;
+
+    private State state = State.IDLE;
+    private WasteCategory lastRecommendedCategory;
+    private final ArrayDeque<WasteCategory> queued = new ArrayDeque<>();
+    private final EnumSet<WasteCategory> awaitingDisposal = EnumSet.noneOf(WasteCategory.class);
+    private boolean resumeScanning;
+    private TimerWheel.Timeout messageTimer;
+    private TimerWheel.Timeout rescanTimer;
+    private TimerWheel.Timeout confirmationTimer;
+    private TimerWheel.Timeout disposalTimer;
+
+    public KioskStateMachine(TimerWheel wheel, Consumer<KioskEvent> listener) {
+        this.wheel = wheel;
+        this.listener = listener != null ? listener : event -> { };
+    }
+
+    public void setListener(Consumer<KioskEvent> listener) {
+        this.listener = listener != null ? listener : event -> { };
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * True while frames should be fed to the detector.
+     */
+    public boolean isScanning() {
+        return state == State.SCANNING || state == State.LOW_CONFIDENCE;
+    }
+
+    public WasteCategory getLastRecommendedCategory() {
+        return lastRecommendedCategory;
+    }
+
+    /**
+     * True while a disposal would be checked against an instruction.
+     */
+    public boolean isAwaitingDisposal() {
+        return lastRecommendedCategory != null || !awaitingDisposal.isEmpty();
+    }
+
+    /**
+     * Categories detected alongside the current instruction, in the order they will be shown.
+     */
+    public List<WasteCategory> getQueuedCategories() {
+        return queued.isEmpty() ? Collections.emptyList() : new ArrayList<>(queued);
+    }
+
+    public TimerWheel getWheel() {
+        return wheel;
+    }
+
+    public void startScanning() {
+        if (isScanning()) {
+            return;
+        }
+        enterScanning();
+    }
+
+    /**
+     * Feed the outcome of one detection pass.
+     *
+     * @param category   confidently classified category, or null
+     * @param confidence best detection confidence, NaN if nothing was detected;
+     *                   a value with a null category means "seen but not sure"
+     */
+    public void onDetectionResult(WasteCategory category, long frameSequence, double confidence) {
+        onDetectionResults(category != null ? List.of(category) : Collections.emptyList(), frameSequence, confidence);
+    }
+
+    /**
+     * Feed the outcome of one detection pass that may hold several items.
+     *
+     * @param categories confidently classified categories, best first, without repeats;
+     *                   empty if none
+     */
+    public void onDetectionResults(List<WasteCategory> categories, long frameSequence, double confidence) {
+        if (!isScanning()) {
+            return;
+        }
+        if (!categories.isEmpty()) {
+            queued.clear();
+            awaitingDisposal.clear();
+            awaitingDisposal.addAll(categories);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < categories.size(); i++) {
+                emit(new KioskEvent(KioskEvent.Type.DETECTED, categories.get(i), frameSequence, confidence, now));
+                if (i > 0) {
+                    queued.add(categories.get(i));
+                }
+            }
+            classify(categories.get(0), frameSequence, confidence, true);
+        } else if (!Double.isNaN(confidence)) {
+            if (state != State.LOW_CONFIDENCE) {
+                transition(State.LOW_CONFIDENCE);
+                emit(new KioskEvent(KioskEvent.Type.LOW_CONFIDENCE, null, frameSequence, confidence,
+                        System.currentTimeMillis()));
+            }
+        } else if (state == State.LOW_CONFIDENCE) {
+            enterScanning();
+        }
+    }
+
+    /**
+     * Show an instruction without a detection (test buttons); the kiosk
+     * goes idle afterwards instead of resuming scanning.
+     */
+    public void showInstruction(WasteCategory category) {
+        queued.clear();
+        awaitingDisposal.clear();
+        classify(category, -1, Double.NaN, false);
+    }
+
+    /**
+     * Story #19: Validate disposal and show confirmation.
+     */
+    public void validateDisposal(WasteCategory disposedCategory) {
+        if (!isAwaitingDisposal()) {
+            LOG.debug("disposal ignored, no instruction pending").str("category", disposedCategory).log();
+            return;
+        }
+        boolean recommended = lastRecommendedCategory != null && lastRecommendedCategory == disposedCategory;
+        if (!recommended && !awaitingDisposal.contains(disposedCategory)) {
+            emit(KioskEvent.of(KioskEvent.Type.DISPOSAL_INCORRECT, disposedCategory));
+            return;
+        }
+        awaitingDisposal.remove(disposedCategory);
+        queued.remove(disposedCategory);
+        boolean wasScanning = isScanning() || resumeScanning;
+        cancel(rescanTimer);
+        cancel(confirmationTimer);
+        transition(State.CONFIRMING);
+        emit(KioskEvent.of(KioskEvent.Type.DISPOSAL_CONFIRMED, disposedCategory));
+        confirmationTimer = wheel.schedule(KioskConfig.current().getConfirmationMillis(), () -> {
+            emit(KioskEvent.of(KioskEvent.Type.CONFIRMATION_HIDDEN, disposedCategory));
+            if (state == State.CONFIRMING) {
+                if (!queued.isEmpty()) {
+                    classify(queued.poll(), -1, Double.NaN, wasScanning);
+                    return;
+                }
+                if (awaitingDisposal.isEmpty() || !disposalTimer.isPending()) {
+                    endCycle();
+                }
+                if (wasScanning) {
+                    enterScanning();
+                } else {
+                    transition(State.IDLE);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancel all timers and go idle.
+     */
+    public void stop() {
+        cancel(messageTimer);
+        cancel(rescanTimer);
+        cancel(confirmationTimer);
+        cancel(disposalTimer);
+        endCycle();
+        resumeScanning = false;
+        transition(State.IDLE);
+        emit(KioskEvent.of(KioskEvent.Type.STOPPED, null));
+    }
+
+    private void classify(WasteCategory category, long frameSequence, double confidence, boolean resume) {
+        lastRecommendedCategory = category;
+        resumeScanning = resume;
+        transition(State.CLASSIFIED);
+        emit(new KioskEvent(KioskEvent.Type.INSTRUCTION_SHOWN, category, frameSequence, confidence,
+                System.currentTimeMillis()));
+
+        KioskConfig config = KioskConfig.current();
+        cancel(messageTimer);
+        messageTimer = wheel.schedule(config.getMessageMillis(), () -> {
+            emit(KioskEvent.of(KioskEvent.Type.INSTRUCTION_HIDDEN, category));
+            if (state == State.CLASSIFIED && !queued.isEmpty()) {
+                classify(queued.poll(), -1, Double.NaN, resumeScanning);
+            } else if (state == State.CLASSIFIED && !resumeScanning) {
+                transition(State.IDLE);
+            }
+        });
+        cancel(disposalTimer);
+        disposalTimer = wheel.schedule(config.getDisposalWindowMillis(), () -> {
+            // While an instruction or confirmation is up, its end decides
+            if (state != State.CLASSIFIED && state != State.CONFIRMING) {
+                endCycle();
+            }
+        });
+        cancel(rescanTimer);
+        if (resume && queued.isEmpty()) {
+            rescanTimer = wheel.schedule(config.getRescanDelayMillis(), () -> {
+                if (state == State.CLASSIFIED) {
+                    enterScanning();
+                }
+            });
+        }
+    }
+
+    private void enterScanning() {
+        resumeScanning = false;
+        transition(State.SCANNING);
+        emit(KioskEvent.of(KioskEvent.Type.SCANNING_STARTED, null));
+    }
+
+    /**
+     * Nothing is awaited any more; later disposals are ignored.
+     */
+    private void endCycle() {
+        cancel(disposalTimer);
+        lastRecommendedCategory = null;
+        queued.clear();
+        awaitingDisposal.clear();
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            LOG.debug("state").str("from", state).str("to", next).log();
+            state = next;
+        }
+    }
+
+    private void cancel(TimerWheel.Timeout timer) {
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    private void emit(KioskEvent event) {
+        try {
+            listener.accept(event);
+        } catch (RuntimeException e) {
+            LOG.error("event listener failed").str("event", event.getType()).error(e).log();
+        }
+    }
+}
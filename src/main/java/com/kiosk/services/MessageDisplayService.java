@@ -1,121 +1,149 @@
 package com.kiosk.services;
 
+import com.kiosk.config.KioskConfig;
 import com.kiosk.models.WasteCategory;
-import javafx.animation.PauseTransition;
-import javafx.util.Duration;
+import com.kiosk.scheduling.KioskClock;
+import com.kiosk.scheduling.TimerWheel;
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service for managing disposal message display timing.
  * Story #19: Message displayed for 3 seconds, confirmation for 3 seconds.
  * Updated with scheduleAction and displayConfirmation methods.
+ *
+ * Thin JavaFX adapter: timers live on a {@link TimerWheel} that is polled
+ * on FX pulses while anything is pending, so callbacks still run on the FX
+ * thread. The kiosk flow itself is the {@link KioskStateMachine}, which
+ * shares this wheel. Durations are read from {@link KioskConfig#current()}
+ * each time a message is shown.
  */
 public class MessageDisplayService {
-    
-    // Story #19: Message is displayed for 3 seconds
-    private static final double MESSAGE_DURATION_SECONDS = 3.0;
-    private static final double CONFIRMATION_DURATION_SECONDS = 3.0;
-    
-    private PauseTransition messageTimer;
-    private PauseTransition confirmationTimer;
-    private PauseTransition scheduledActionTimer;
-    private Runnable onMessageComplete;
+
+    private static final long TICK_MILLIS = 10;
+
+    private final TimerWheel wheel;
+    private final KioskStateMachine stateMachine;
+    private final List<TimerWheel.Timeout> scheduledActions = new ArrayList<>();
+    private TimerWheel.Timeout messageTimer;
+    private TimerWheel.Timeout confirmationTimer;
+    private AnimationTimer pump;
+
+    public MessageDisplayService() {
+        this(KioskClock.SYSTEM);
+    }
+
+    public MessageDisplayService(KioskClock clock) {
+        this.wheel = new TimerWheel(clock, TICK_MILLIS);
+        this.wheel.setWakeUp(this::startPump);
+        this.stateMachine = new KioskStateMachine(wheel, null);
+    }
+
+    /**
+     * The kiosk state machine driven by this service's timers.
+     */
+    public KioskStateMachine getStateMachine() {
+        return stateMachine;
+    }
 
     /**
      * Display a message for 3 seconds (Story #19 requirement).
-     * 
+     *
      * @param category The waste category to display
      * @param onComplete Callback when message display is complete
      */
     public void displayMessage(WasteCategory category, Runnable onComplete) {
-        this.onMessageComplete = onComplete;
-        
         // Cancel any existing timer
-        if (messageTimer != null) {
-            messageTimer.stop();
-        }
-        
-        // Create new timer for 3 seconds
-        messageTimer = new PauseTransition(Duration.seconds(MESSAGE_DURATION_SECONDS));
-        messageTimer.setOnFinished(event -> {
-            if (onMessageComplete != null) {
-                onMessageComplete.run();
-            }
-        });
-        
-        messageTimer.play();
+        cancel(messageTimer);
+        messageTimer = schedule(getMessageDuration(), onComplete);
     }
 
     /**
      * Display confirmation message for 3 seconds (Story #19 requirement).
-     * 
+     *
      * @param onComplete Callback when confirmation display is complete
      */
     public void displayConfirmation(Runnable onComplete) {
         // Cancel any existing confirmation timer
-        if (confirmationTimer != null) {
-            confirmationTimer.stop();
-        }
-        
-        // Create new timer for 3 seconds
-        confirmationTimer = new PauseTransition(Duration.seconds(CONFIRMATION_DURATION_SECONDS));
-        confirmationTimer.setOnFinished(event -> {
-            if (onComplete != null) {
-                onComplete.run();
-            }
-        });
-        
-        confirmationTimer.play();
+        cancel(confirmationTimer);
+        confirmationTimer = schedule(getConfirmationDuration(), onComplete);
     }
 
     /**
      * Schedule an action to occur after a delay.
      * Used for testing and restarting detection loops.
-     * 
+     *
+     * Actions are independent: scheduling one no longer cancels the previous
+     * one, so a test validation cannot swallow the scanning restart.
+     *
      * @param delaySeconds Delay in seconds
      * @param action Action to execute
      */
-    public void scheduleAction(double delaySeconds, Runnable action) {
-        if (scheduledActionTimer != null) {
-            scheduledActionTimer.stop();
-        }
-        
-        scheduledActionTimer = new PauseTransition(Duration.seconds(delaySeconds));
-        scheduledActionTimer.setOnFinished(event -> {
-            if (action != null) {
-                action.run();
-            }
-        });
-        
-        scheduledActionTimer.play();
+    public TimerWheel.Timeout scheduleAction(double delaySeconds, Runnable action) {
+        scheduledActions.removeIf(scheduled -> !scheduled.isPending());
+        TimerWheel.Timeout timeout = schedule(delaySeconds, action);
+        scheduledActions.add(timeout);
+        return timeout;
     }
 
     /**
      * Cancel the current message display.
      */
     public void cancelMessage() {
-        if (messageTimer != null) {
-            messageTimer.stop();
-        }
-        if (confirmationTimer != null) {
-            confirmationTimer.stop();
-        }
-        if (scheduledActionTimer != null) {
-            scheduledActionTimer.stop();
+        cancel(messageTimer);
+        cancel(confirmationTimer);
+        for (TimerWheel.Timeout action : scheduledActions) {
+            action.cancel();
         }
+        scheduledActions.clear();
     }
 
     /**
-     * Get the configured message duration in seconds.
+     * Get the configured message duration in seconds (Story #19: 3 seconds by default).
      */
     public double getMessageDuration() {
-        return MESSAGE_DURATION_SECONDS;
+        return KioskConfig.current().getMessageMillis() / 1000.0;
     }
 
     /**
      * Get the configured confirmation duration in seconds.
      */
     public double getConfirmationDuration() {
-        return CONFIRMATION_DURATION_SECONDS;
+        return KioskConfig.current().getConfirmationMillis() / 1000.0;
+    }
+
+    /**
+     * Poll the wheel on FX pulses until it runs empty again.
+     */
+    private void startPump() {
+        if (pump == null) {
+            pump = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    wheel.poll();
+                    if (wheel.isEmpty()) {
+                        // Idle kiosks should not request a pulse every frame
+                        stop();
+                    }
+                }
+            };
+        }
+        pump.start();
     }
-}
 
+    private TimerWheel.Timeout schedule(double delaySeconds, Runnable action) {
+        return wheel.schedule(Math.round(delaySeconds * 1000), () -> {
+            if (action != null) {
+                action.run();
+            }
+        });
+    }
+
+    private void cancel(TimerWheel.Timeout timer) {
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.kiosk.services;
+
+import com.kiosk.metrics.LatencyProbe;
+import com.smartbin.capture.FrameExchange;
+import javafx.animation.AnimationTimer;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pulse-paced presenter for the live camera preview.
+ *
+ * The capture thread submits frames into a single-slot exchange; an
+ * AnimationTimer pulls the newest one on each FX pulse and shows it.
+ * Frames replaced before a pulse picked them up are dropped instead of
+ * queuing on the FX event queue, so preview latency stays within one pulse
+ * no matter how fast capture runs.
+ *
+ * The capture thread only copies the raw pixels into a pooled Mat. Only a
+ * frame a pulse actually presents is converted, straight into the BGRA
+ * {@link PixelBuffer} behind one reused {@link WritableImage}.
+ */
+public class PreviewPresenter {
+
+    private static class Frame {
+        final Mat pixels = new Mat();
+        long sequence;
+    }
+
+    private final ImageView imageView;
+    private final FrameExchange<Frame> exchange = new FrameExchange<>();
+    // At most three frames exist: one being filled, one in the slot, one being presented
+    private final Queue<Frame> free = new ConcurrentLinkedQueue<>();
+    private PixelBuffer<ByteBuffer> buffer;
+    private Mat bgra;
+    private WritableImage image;
+    private final AtomicLong presented = new AtomicLong();
+    private volatile LatencyProbe latencyProbe = LatencyProbe.NONE;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            present();
+        }
+    };
+
+    public PreviewPresenter(ImageView imageView) {
+        this.imageView = imageView;
+    }
+
+    public void setLatencyProbe(LatencyProbe latencyProbe) {
+        this.latencyProbe = latencyProbe != null ? latencyProbe : LatencyProbe.NONE;
+    }
+
+    /**
+     * Start presenting on each pulse. Call from the FX thread.
+     */
+    public void start() {
+        timer.start();
+    }
+
+    /**
+     * Stop presenting. Call from the FX thread.
+     */
+    public void stop() {
+        timer.stop();
+        Frame pending = exchange.take();
+        if (pending != null) {
+            free.offer(pending);
+        }
+    }
+
+    /**
+     * Hand over a copy of a BGR (or grey, or BGRA) frame. Safe to call from
+     * any thread; never blocks. The caller may reuse the Mat right away.
+     */
+    public void submit(Mat source, long sequence) {
+        Frame frame = free.poll();
+        if (frame == null) {
+            frame = new Frame();
+        }
+        source.copyTo(frame.pixels);
+        frame.sequence = sequence;
+        Frame replaced = exchange.offer(frame);
+        if (replaced != null) {
+            free.offer(replaced);
+        }
+    }
+
+    private void present() {
+        Frame frame = exchange.take();
+        if (frame == null) {
+            return;
+        }
+        try {
+            if (imageView == null || frame.pixels.empty()) {
+                return;
+            }
+            show(frame.pixels);
+            presented.incrementAndGet();
+            latencyProbe.mark(LatencyProbe.Stage.PREVIEW_SET, frame.sequence, System.nanoTime());
+        } finally {
+            free.offer(frame);
+        }
+    }
+
+    /**
+     * Convert into the shared pixel buffer; FX thread only.
+     */
+    private void show(Mat pixels) {
+        int width = pixels.cols();
+        int height = pixels.rows();
+        if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+            ByteBuffer bytes = ByteBuffer.allocateDirect(width * height * 4);
+            buffer = new PixelBuffer<>(width, height, bytes, PixelFormat.getByteBgraPreInstance());
+            if (bgra != null) {
+                bgra.release();
+            }
+            // Wraps the buffer's memory, so the conversion below writes the image directly
+            bgra = new Mat(height, width, CvType.CV_8UC4, bytes);
+            image = new WritableImage(buffer);
+        }
+        switch (pixels.channels()) {
+            case 1:
+                Imgproc.cvtColor(pixels, bgra, Imgproc.COLOR_GRAY2BGRA);
+                break;
+            case 4:
+                pixels.copyTo(bgra);
+                break;
+            default:
+                // Opaque, so premultiplied and straight alpha are the same
+                Imgproc.cvtColor(pixels, bgra, Imgproc.COLOR_BGR2BGRA);
+                break;
+        }
+        buffer.updateBuffer(b -> null);
+        if (imageView.getImage() != image) {
+            imageView.setImage(image);
+        }
+    }
+
+    public long getPresentedFrames() {
+        return presented.get();
+    }
+
+    /**
+     * Frames that were captured but replaced before any pulse showed them.
+     */
+    public long getDroppedFrames() {
+        return exchange.getDropped();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PreviewPresenter{presented=%d, dropped=%d}", getPresentedFrames(), getDroppedFrames());
+    }
+}
@@ -0,0 +1,514 @@
+package com.kiosk.services;
+
+import com.smartbin.DetectionResult;
+import com.smartbin.capture.FrameExchange;
+import com.smartbin.capture.FrameTap;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Live camera view for maintenance staff over HTTP.
+ * User Story: Maintenance worker wants to see live camera view.
+ *
+ * Serves {@code /stream.mjpg} (multipart MJPEG), {@code /snapshot.jpg} and a
+ * small page at {@code /}. Frames are handed over from the capture thread
+ * through a single-slot {@link FrameExchange}; one encoder thread draws the
+ * latest detection boxes, JPEG-encodes the frame once at the configured size
+ * and quality, and publishes the bytes for all clients to share. A client
+ * always sends the newest encoded frame when its previous write completes,
+ * so a slow connection skips frames instead of building up delay. Nothing
+ * is encoded while no one is watching.
+ *
+ * Plain blocking sockets rather than the JDK HttpServer: the stream needs a
+ * small socket send buffer so a slow link skips frames, and HttpServer does
+ * not expose one.
+ *
+ * Enabled with {@code -Dsmartbin.stream.port=8081}; see
+ * {@link #fromSystemProperties()} for the other options.
+ */
+public class PreviewStreamServer implements FrameTap {
+    private static final Logger LOG = Log.get("stream");
+    private static final String BOUNDARY = "kioskframe";
+    private static final long CLIENT_WAIT_MILLIS = 2000;
+    private static final int SEND_BUFFER_BYTES = 32 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final Scalar CONFIDENT_COLOR = new Scalar(80, 200, 0);
+    private static final Scalar UNCERTAIN_COLOR = new Scalar(0, 180, 255);
+
+    /**
+     * One JPEG shared by every client.
+     */
+    private static final class EncodedFrame {
+        final byte[] jpeg;
+        final long index;
+
+        EncodedFrame(byte[] jpeg, long index) {
+            this.jpeg = jpeg;
+            this.index = index;
+        }
+    }
+
+    private static final class RawFrame {
+        final Mat mat;
+
+        RawFrame(Mat mat) {
+            this.mat = mat;
+        }
+    }
+
+    private static final class DetectionSnapshot {
+        final List<DetectionResult> detections;
+        final int frameWidth;
+        final int frameHeight;
+        final double threshold;
+
+        DetectionSnapshot(List<DetectionResult> detections, int frameWidth, int frameHeight, double threshold) {
+            this.detections = detections;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.threshold = threshold;
+        }
+    }
+
+    private final int port;
+    private final int width;
+    private final int quality;
+    private final long minFrameNanos;
+    private final int maxClients;
+
+    private final FrameExchange<RawFrame> exchange = new FrameExchange<>();
+    private final ConcurrentLinkedQueue<RawFrame> pool = new ConcurrentLinkedQueue<>();
+    private final Object frameLock = new Object();
+    private final AtomicInteger clients = new AtomicInteger();
+    private final AtomicLong framesEncoded = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private volatile DetectionSnapshot detections =
+            new DetectionSnapshot(Collections.emptyList(), 0, 0, 0);
+    private volatile EncodedFrame latest;
+    private volatile boolean running;
+
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private ExecutorService clientExecutor;
+    private Thread acceptThread;
+    private Thread encoderThread;
+    private long lastEncodeNanos;
+
+    /**
+     * @param port    TCP port to listen on
+     * @param width   stream width in pixels; height keeps the camera aspect ratio
+     * @param quality JPEG quality 1-100
+     * @param maxFps  upper bound on encoded frames per second
+     */
+    public PreviewStreamServer(int port, int width, int quality, double maxFps, int maxClients) {
+        this.port = port;
+        this.width = width;
+        this.quality = Math.max(1, Math.min(100, quality));
+        this.minFrameNanos = maxFps > 0 ? (long) (1e9 / maxFps) : 0;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Server configured from system properties, or null when
+     * {@code smartbin.stream.port} is not set:
+     * {@code smartbin.stream.width} (640), {@code smartbin.stream.quality} (70),
+     * {@code smartbin.stream.fps} (15), {@code smartbin.stream.maxClients} (4).
+     */
+    public static PreviewStreamServer fromSystemProperties() {
+        Integer port = Integer.getInteger("smartbin.stream.port");
+        if (port == null || port <= 0) {
+            return null;
+        }
+        return new PreviewStreamServer(
+                port,
+                Integer.getInteger("smartbin.stream.width", 640),
+                Integer.getInteger("smartbin.stream.quality", 70),
+                Double.parseDouble(System.getProperty("smartbin.stream.fps", "15")),
+                Integer.getInteger("smartbin.stream.maxClients", 4));
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 8);
+        clientExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "preview-stream-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        encoderThread = new Thread(this::encodeLoop, "preview-stream-encoder");
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+        acceptThread = new Thread(this::acceptLoop, "preview-stream-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        System.out.println("[PreviewStreamServer] Serving live view on http://0.0.0.0:" + getPort() + "/");
+    }
+
+    public void stop() {
+        running = false;
+        if (serverSocket != null) {
+            closeQuietly(serverSocket);
+        }
+        // Unblocks viewers stuck writing to a slow connection
+        openSockets.forEach(PreviewStreamServer::closeQuietly);
+        if (clientExecutor != null) {
+            clientExecutor.shutdownNow();
+        }
+        if (encoderThread != null) {
+            LockSupport.unpark(encoderThread);
+            try {
+                encoderThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (frameLock) {
+            frameLock.notifyAll();
+        }
+        RawFrame pending = exchange.take();
+        if (pending != null) {
+            pending.mat.release();
+        }
+        RawFrame pooled;
+        while ((pooled = pool.poll()) != null) {
+            pooled.mat.release();
+        }
+        System.out.println("[PreviewStreamServer] Stopped: " + framesEncoded.get() + " encoded, "
+                + framesSent.get() + " sent, " + framesSkipped.get() + " skipped by slow clients");
+    }
+
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    @Override
+    public void onFrame(TimestampedFrame frame) {
+        offerFrame(frame.getMat());
+    }
+
+    /**
+     * Hand a captured frame to the stream. Cheap when nobody is watching;
+     * otherwise the frame is scaled into a pooled buffer and the caller may
+     * reuse {@code frame} as soon as this returns.
+     */
+    public void offerFrame(Mat frame) {
+        if (!running || clients.get() == 0 || frame == null || frame.empty()) {
+            return;
+        }
+        RawFrame raw = pool.poll();
+        if (raw == null) {
+            raw = new RawFrame(new Mat());
+        }
+        if (frame.cols() > width) {
+            int height = (int) Math.round(frame.rows() * (double) width / frame.cols());
+            Imgproc.resize(frame, raw.mat, new Size(width, height), 0, 0, Imgproc.INTER_AREA);
+        } else {
+            frame.copyTo(raw.mat);
+        }
+        RawFrame replaced = exchange.offer(raw);
+        if (replaced != null) {
+            pool.offer(replaced);
+        }
+        LockSupport.unpark(encoderThread);
+    }
+
+    /**
+     * Latest detections to draw, in the coordinates of a frameWidth x frameHeight image.
+     */
+    public void updateDetections(List<DetectionResult> results, int frameWidth, int frameHeight,
+                                 double threshold) {
+        detections = new DetectionSnapshot(
+                results != null ? results : Collections.emptyList(), frameWidth, frameHeight, threshold);
+    }
+
+    public int getClientCount() {
+        return clients.get();
+    }
+
+    public long getFramesEncoded() {
+        return framesEncoded.get();
+    }
+
+    private void encodeLoop() {
+        MatOfByte buffer = new MatOfByte();
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, quality);
+        try {
+            while (running) {
+                long wait = lastEncodeNanos + minFrameNanos - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+                RawFrame raw = exchange.take();
+                if (raw == null) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                    continue;
+                }
+                lastEncodeNanos = System.nanoTime();
+                drawDetections(raw.mat);
+                Imgcodecs.imencode(".jpg", raw.mat, buffer, params);
+                EncodedFrame encoded = new EncodedFrame(buffer.toArray(), framesEncoded.incrementAndGet());
+                pool.offer(raw);
+                synchronized (frameLock) {
+                    latest = encoded;
+                    frameLock.notifyAll();
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error("encoder stopped").error(e).log();
+        } finally {
+            buffer.release();
+            params.release();
+        }
+    }
+
+    private void drawDetections(Mat mat) {
+        DetectionSnapshot snapshot = detections;
+        if (snapshot.detections.isEmpty() || snapshot.frameWidth <= 0 || snapshot.frameHeight <= 0) {
+            return;
+        }
+        double sx = mat.cols() / (double) snapshot.frameWidth;
+        double sy = mat.rows() / (double) snapshot.frameHeight;
+        for (DetectionResult detection : snapshot.detections) {
+            Rect box = detection.getBoundingBox();
+            Point topLeft = new Point(box.x * sx, box.y * sy);
+            Point bottomRight = new Point((box.x + box.width) * sx, (box.y + box.height) * sy);
+            Scalar color = detection.getConfidence() >= snapshot.threshold ? CONFIDENT_COLOR : UNCERTAIN_COLOR;
+            Imgproc.rectangle(mat, topLeft, bottomRight, color, 2);
+            String label = String.format(Locale.ROOT, "%s %.0f%%",
+                    detection.getLabel(), detection.getConfidence() * 100);
+            Imgproc.putText(mat, label, new Point(topLeft.x + 4, Math.max(14, topLeft.y - 6)),
+                    Imgproc.FONT_HERSHEY_SIMPLEX, 0.5, color, 1);
+        }
+    }
+
+    /**
+     * Wait for an encoded frame newer than {@code afterIndex}; null on timeout or shutdown.
+     */
+    private EncodedFrame awaitFrame(long afterIndex) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CLIENT_WAIT_MILLIS;
+        synchronized (frameLock) {
+            while (running) {
+                EncodedFrame frame = latest;
+                if (frame != null && frame.index > afterIndex) {
+                    return frame;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                frameLock.wait(remaining);
+            }
+        }
+        return null;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    LOG.warn("accept failed").error(e).log();
+                }
+                continue;
+            }
+            try {
+                clientExecutor.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        openSockets.add(socket);
+        try {
+            // A small send buffer makes a slow link block the write (and skip
+            // frames) instead of queueing seconds of video in the kernel
+            socket.setSendBufferSize(SEND_BUFFER_BYTES);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) CLIENT_WAIT_MILLIS);
+            String path = readRequestPath(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            if (path == null) {
+                sendText(out, "400 Bad Request", "Bad request\n");
+            } else if (path.equals("/stream.mjpg")) {
+                handleStream(socket, out);
+            } else if (path.equals("/snapshot.jpg")) {
+                handleSnapshot(out);
+            } else if (path.equals("/")) {
+                handleIndex(out);
+            } else {
+                sendText(out, "404 Not Found", "Not found\n");
+            }
+        } catch (IOException e) {
+            // Viewer went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            openSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Path of a GET request, or null; headers are read and ignored.
+     */
+    private static String readRequestPath(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        String requestLine = reader.readLine();
+        if (requestLine == null) {
+            return null;
+        }
+        String header;
+        while ((header = reader.readLine()) != null && !header.isEmpty()) {
+            // Nothing we need from the headers
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2 || !parts[0].equals("GET")) {
+            return null;
+        }
+        int query = parts[1].indexOf('?');
+        return query >= 0 ? parts[1].substring(0, query) : parts[1];
+    }
+
+    private boolean admit(OutputStream out) throws IOException {
+        if (clients.incrementAndGet() > maxClients) {
+            clients.decrementAndGet();
+            sendText(out, "503 Service Unavailable", "Too many viewers\n");
+            return false;
+        }
+        return true;
+    }
+
+    private void handleStream(Socket socket, OutputStream out) throws IOException, InterruptedException {
+        if (!admit(out)) {
+            return;
+        }
+        LOG.info("viewer connected").str("remote", socket.getRemoteSocketAddress()).num("viewers", clients.get()).log();
+        long lastIndex = -1;
+        try {
+            out.write(("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: multipart/x-mixed-replace; boundary=" + BOUNDARY + "\r\n"
+                    + "Cache-Control: no-cache, no-store\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            while (running) {
+                EncodedFrame frame = awaitFrame(lastIndex);
+                if (frame == null) {
+                    continue;
+                }
+                if (lastIndex >= 0 && frame.index > lastIndex + 1) {
+                    // Still writing the previous frame when these were encoded
+                    framesSkipped.addAndGet(frame.index - lastIndex - 1);
+                }
+                String header = "--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: "
+                        + frame.jpeg.length + "\r\n\r\n";
+                out.write(header.getBytes(StandardCharsets.US_ASCII));
+                out.write(frame.jpeg);
+                out.write(CRLF);
+                out.flush();
+                lastIndex = frame.index;
+                framesSent.incrementAndGet();
+            }
+        } finally {
+            clients.decrementAndGet();
+            LOG.info("viewer disconnected").str("remote", socket.getRemoteSocketAddress()).log();
+        }
+    }
+
+    private void handleSnapshot(OutputStream out) throws IOException, InterruptedException {
+        if (!admit(out)) {
+            return;
+        }
+        try {
+            // Counting as a viewer wakes the encoder, so the snapshot is current
+            EncodedFrame current = latest;
+            EncodedFrame frame = awaitFrame(current != null ? current.index : -1);
+            if (frame == null) {
+                frame = current;
+            }
+            if (frame == null) {
+                sendText(out, "503 Service Unavailable", "No frame available\n");
+                return;
+            }
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: image/jpeg\r\n"
+                    + "Cache-Control: no-cache, no-store\r\n"
+                    + "Content-Length: " + frame.jpeg.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(frame.jpeg);
+            out.flush();
+        } finally {
+            clients.decrementAndGet();
+        }
+    }
+
+    private void handleIndex(OutputStream out) throws IOException {
+        String html = "<!DOCTYPE html><html><head><title>Kiosk camera</title></head>"
+                + "<body style=\"margin:0;background:#000\">"
+                + "<img src=\"/stream.mjpg\" style=\"width:100%;height:auto\" alt=\"Live camera\">"
+                + "</body></html>";
+        send(out, "200 OK", "text/html; charset=utf-8", html);
+    }
+
+    private static void sendText(OutputStream out, String status, String text) throws IOException {
+        send(out, status, "text/plain; charset=utf-8", text);
+    }
+
+    private static void send(OutputStream out, String status, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        out.write(("HTTP/1.1 " + status + "\r\nContent-Type: " + contentType + "\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+}
@@ -1,38 +1,119 @@
 package com.kiosk.services;
 
+import com.kiosk.config.KioskConfig;
 import com.kiosk.models.WasteCategory;
 import com.smartbin.DetectionResult;
+import com.smartbin.OpenCvLoader;
+import com.kiosk.metrics.LatencyProbe;
+import com.smartbin.capture.CameraFrameSource;
+import com.smartbin.capture.CaptureProfileNegotiator;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.FrameTap;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import com.smartbin.remote.RemoteDetector;
+import com.smartbin.remote.RemoteDetectorMetrics;
+import com.smartbin.yolo.CascadeConfig;
+import com.smartbin.yolo.CascadeDetector;
+import com.smartbin.yolo.CascadeMetrics;
+import com.smartbin.yolo.DetectionCache;
+import com.smartbin.yolo.DetectionCacheMetrics;
+import com.smartbin.yolo.Detector;
+import com.smartbin.yolo.SampleCollectingDetector;
+import com.smartbin.yolo.SampleCollector;
 import com.smartbin.yolo.YoloBridge;
 import org.opencv.core.Core;
 import org.opencv.core.Mat;
+import org.opencv.core.Rect;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 public class YoloAdapter {
+    private static final Logger LOG = Log.get("detection");
     
     // Load OpenCV native library
     static {
         try {
-            nu.pattern.OpenCV.loadLocally();
-            System.out.println("[YoloAdapter] OpenCV loaded successfully");
+            OpenCvLoader.load();
+            System.out.println("[YoloAdapter] OpenCV loaded successfully (" + OpenCvLoader.getSource() + ")");
         } catch (Exception e) {
             System.err.println("[YoloAdapter] Failed to load OpenCV: " + e.getMessage());
         }
     }
     
     private YoloBridge bridge;
-    private Mat frame;
-    private static final double CONFIDENCE_THRESHOLD = 0.5;
+    private Detector detector;
+    private SampleCollector sampleCollector;
+    private DetectionCache detectionCache;
+    private RemoteDetector remoteDetector;
+    private FrameSource frameSource;
+    private TimestampedFrame frame;
+    private volatile LatencyProbe latencyProbe = LatencyProbe.NONE;
+    private final List<FrameTap> frameTaps = new CopyOnWriteArrayList<>();
+    private long lastFrameSequence = -1;
+    private List<DetectionResult> lastDetections = Collections.emptyList();
+    private int lastFrameWidth;
+    private int lastFrameHeight;
+    private List<WasteCategory> lastItemCategories = Collections.emptyList();
+    /** Settings last handed to the bridge; detection.confidence is read per frame. */
+    private KioskConfig appliedConfig;
+    /** Confident boxes overlapping a stronger one by more than this are the same item. */
+    private static final double ITEM_OVERLAP = 0.5;
+    private final boolean multiItem = Boolean.parseBoolean(System.getProperty("smartbin.multiItem", "true"));
     
     /**
      * Initialize YOLO adapter with model.
      */
     public YoloAdapter() {
+        this(() -> new CameraFrameSource(0, CaptureProfileNegotiator.select(0, 640, 480)));
+    }
+    
+    /**
+     * Initialize with the configured model and cascade, reading frames from
+     * the given source (e.g. a video file for the headless runtime).
+     */
+    public YoloAdapter(Supplier<FrameSource> frameSourceFactory) {
         try {
-            bridge = new YoloBridge("model/YOLO/best.onnx");
-            frame = new Mat();
+            CascadeConfig config = CascadeConfig.fromSystemProperties();
+            remoteDetector = RemoteDetector.fromSystemProperties(localFallback(config));
+            if (remoteDetector != null) {
+                // The gate still runs here, so empty frames never leave the kiosk
+                detector = config.wrap(remoteDetector);
+                System.out.println("[YoloAdapter] Offloading detection to " + remoteDetector.getAddress());
+            } else {
+                bridge = new YoloBridge(config.getModelPath(), (FrameSource) null, config.getInputSize());
+                sampleCollector = SampleCollector.fromSystemProperties(bridge.getLabels());
+                if (sampleCollector != null) {
+                    try {
+                        sampleCollector.start();
+                    } catch (IOException e) {
+                        // Collecting is optional; detect without it
+                        System.err.println("[YoloAdapter] Sample collection disabled: " + e.getMessage());
+                        sampleCollector = null;
+                    }
+                }
+                if (sampleCollector != null) {
+                    detector = config.wrap(new SampleCollectingDetector(bridge, sampleCollector));
+                } else {
+                    detector = config.wrap(bridge);
+                }
+            }
+            detectionCache = DetectionCache.fromSystemProperties(detector);
+            frameSource = frameSourceFactory.get();
+            frame = new TimestampedFrame();
+            
+            if (config.isEnabled()) {
+                System.out.println("[YoloAdapter] Detection cascade enabled with '" + config.getGateType() + "' gate");
+            }
             
-            if (!bridge.isCameraOpen()) {
+            if (!frameSource.isOpened()) {
                 System.err.println("[YoloAdapter] Warning: Camera not opened");
             }
             
@@ -40,11 +121,139 @@ public class YoloAdapter {
         } catch (Exception e) {
             System.err.println("[YoloAdapter] Failed to initialize: " + e.getMessage());
             e.printStackTrace();
-            bridge = null;
+            if (sampleCollector != null) {
+                sampleCollector.close();
+                sampleCollector = null;
+            }
+            if (remoteDetector != null) {
+                remoteDetector.close();
+                remoteDetector = null;
+            }
+            if (bridge != null) {
+                bridge.close();
+                bridge = null;
+            }
+            detector = null;
+            frameSource = null;
             frame = null;
         }
     }
     
+    /**
+     * Initialize with an explicit frame source and detector, e.g. a synthetic
+     * camera for latency measurements. The adapter owns both and closes them.
+     */
+    public YoloAdapter(FrameSource frameSource, Detector detector) {
+        this.frameSource = frameSource;
+        this.detector = detector;
+        this.frame = new TimestampedFrame();
+    }
+    
+    /**
+     * Local detector for when the inference server is unavailable, or null
+     * with {@code -Dsmartbin.remote.fallback=none}.
+     */
+    private static Supplier<Detector> localFallback(CascadeConfig config) {
+        if ("none".equalsIgnoreCase(System.getProperty("smartbin.remote.fallback", "local"))) {
+            return null;
+        }
+        return () -> new YoloBridge(config.getModelPath(), (FrameSource) null, config.getInputSize());
+    }
+    
+    /**
+     * Install a probe that is told when detection and mapping finish for a frame.
+     */
+    public void setLatencyProbe(LatencyProbe latencyProbe) {
+        this.latencyProbe = latencyProbe != null ? latencyProbe : LatencyProbe.NONE;
+    }
+    
+    /**
+     * Hand every frame read for detection to the tap before it is detected on,
+     * e.g. when there is no separate preview camera (headless). Taps run on
+     * the detection thread and must not block.
+     */
+    public void addFrameTap(FrameTap tap) {
+        frameTaps.add(tap);
+    }
+    
+    /**
+     * All detections from the last detectCategory call, for the preview overlay.
+     */
+    public List<DetectionResult> getLastDetections() {
+        return lastDetections;
+    }
+    
+    public int getLastFrameWidth() {
+        return lastFrameWidth;
+    }
+    
+    public int getLastFrameHeight() {
+        return lastFrameHeight;
+    }
+    
+    public double getConfidenceThreshold() {
+        return KioskConfig.current().getClassifyConfidence();
+    }
+    
+    /**
+     * Categories of the separate confident items in the last frame, best
+     * first and each category once, e.g. [RECYCLE, COMPOST] for a bottle and
+     * a food wrapper held together. Holds at most the best category with
+     * {@code -Dsmartbin.multiItem=false}.
+     */
+    public List<WasteCategory> getLastItemCategories() {
+        return lastItemCategories;
+    }
+    
+    /**
+     * Best confidence in the last frame, or NaN if nothing was detected.
+     * A value below the threshold means an item was seen but not classified.
+     */
+    public double getLastBestConfidence() {
+        DetectionResult best = selectBest(lastDetections);
+        return best != null ? best.getConfidence() : Double.NaN;
+    }
+    
+    /**
+     * True when the model and frame source were set up.
+     */
+    public boolean isReady() {
+        return detector != null && frameSource != null;
+    }
+    
+    /**
+     * Frame used by the last detectCategory call; only valid until the next call.
+     */
+    public Mat getLastFrame() {
+        return frame != null ? frame.getMat() : null;
+    }
+    
+    /**
+     * Sequence number of the frame used by the last detectCategory call.
+     */
+    public long getLastFrameSequence() {
+        return lastFrameSequence;
+    }
+    
+    /**
+     * Read one frame and hand it to the frame taps without running the
+     * detector, e.g. for presence sensing while the kiosk is idle.
+     *
+     * @return false if no frame was available
+     */
+    public boolean readFrame() {
+        if (frameSource == null || frame == null) {
+            return false;
+        }
+        if (!frameSource.read(frame) || frame.isEmpty()) {
+            return false;
+        }
+        for (FrameTap tap : frameTaps) {
+            tap.onFrame(frame);
+        }
+        return true;
+    }
+    
     /**
      * Detect object and map to waste category.
      * Returns null if no detection or confidence too low.
@@ -52,41 +261,145 @@ public class YoloAdapter {
      * Task #414: Maps YOLO classification categories to disposal instructions
      */
     public WasteCategory detectCategory() {
-        if (bridge == null || frame == null) {
+        if (frameSource == null || detector == null || frame == null) {
             return null;
         }
         
+        KioskConfig config = KioskConfig.current();
+        if (config != appliedConfig) {
+            applyConfig(config);
+        }
         try {
-            // Read frame from webcam (pass Mat to readFrame)
-            boolean frameRead = bridge.readFrame(frame);
+            // Read timestamped frame from webcam
+            boolean frameRead = frameSource.read(frame);
             
-            if (!frameRead || frame.empty()) {
+            if (!frameRead || frame.isEmpty()) {
                 return null; // No frame available
             }
+            lastFrameSequence = frame.getSequence();
+            lastFrameWidth = frame.getMat().cols();
+            lastFrameHeight = frame.getMat().rows();
+            for (FrameTap tap : frameTaps) {
+                tap.onFrame(frame);
+            }
             
-            // Run YOLO detection (pass Mat to detect)
-            List<DetectionResult> detections = bridge.detect(frame);
+            // Run YOLO detection (through the detection cache and presence gate when enabled)
+            Detector active = detectionCache != null ? detectionCache : detector;
+            List<DetectionResult> detections = active.detect(frame.getMat());
+            lastDetections = detections != null ? detections : Collections.emptyList();
+            lastItemCategories = Collections.emptyList();
+            LatencyProbe probe = latencyProbe;
+            probe.mark(LatencyProbe.Stage.DETECTED, lastFrameSequence, System.nanoTime());
             
             if (detections == null || detections.isEmpty()) {
                 return null; // No detections
             }
             
             // Get best detection
-            DetectionResult best = bridge.getBestResult(detections);
+            DetectionResult best = selectBest(detections);
             
-            if (best == null || best.getConfidence() < CONFIDENCE_THRESHOLD) {
+            double threshold = config.getClassifyConfidence();
+            if (best == null || best.getConfidence() < threshold) {
                 return null; // Low confidence
             }
             
             // Map YOLO label to WasteCategory
-            return mapLabelToCategory(best.getLabel());
+            WasteCategory category = mapLabelToCategory(best.getLabel());
+            lastItemCategories = multiItem ? itemCategories(detections, best, category, threshold) : List.of(category);
+            probe.mark(LatencyProbe.Stage.MAPPED, lastFrameSequence, System.nanoTime());
+            return category;
             
         } catch (Exception e) {
-            System.err.println("[YoloAdapter] Detection error: " + e.getMessage());
+            LOG.error("detection failed").num("seq", lastFrameSequence).error(e).log();
             return null;
         }
     }
     
+    /**
+     * Hand the network thresholds to the local bridge. Runs on the detection
+     * thread before a frame, so the bridge is never changed mid-detection.
+     */
+    private void applyConfig(KioskConfig config) {
+        if (bridge != null) {
+            bridge.setConfidenceThreshold(config.getDetectorConfidence());
+            bridge.setNmsThreshold(config.getNmsThreshold());
+        }
+        appliedConfig = config;
+    }
+    
+    /**
+     * Categories of the confident detections that do not overlap a stronger
+     * one (the same item seen as two classes), best first, without repeats.
+     */
+    private List<WasteCategory> itemCategories(List<DetectionResult> detections, DetectionResult best,
+                                               WasteCategory bestCategory, double threshold) {
+        if (detections.size() == 1) {
+            return List.of(bestCategory);
+        }
+        List<DetectionResult> items = new ArrayList<>(detections.size());
+        for (DetectionResult detection : detections) {
+            if (detection != best && detection.getConfidence() >= threshold) {
+                items.add(detection);
+            }
+        }
+        if (items.isEmpty()) {
+            return List.of(bestCategory);
+        }
+        items.sort((a, b) -> Float.compare(b.getConfidence(), a.getConfidence()));
+        List<DetectionResult> kept = new ArrayList<>(items.size() + 1);
+        kept.add(best);
+        List<WasteCategory> categories = new ArrayList<>(4);
+        categories.add(bestCategory);
+        EnumSet<WasteCategory> seen = EnumSet.of(bestCategory);
+        for (DetectionResult item : items) {
+            boolean separate = true;
+            for (DetectionResult other : kept) {
+                if (overlap(item.getBoundingBox(), other.getBoundingBox()) > ITEM_OVERLAP) {
+                    separate = false;
+                    break;
+                }
+            }
+            if (!separate) {
+                continue;
+            }
+            kept.add(item);
+            WasteCategory category = mapLabelToCategory(item.getLabel());
+            if (seen.add(category)) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Intersection over union of two boxes; 0 if either is missing.
+     */
+    private static double overlap(Rect a, Rect b) {
+        if (a == null || b == null) {
+            return 0;
+        }
+        int width = Math.min(a.x + a.width, b.x + b.width) - Math.max(a.x, b.x);
+        int height = Math.min(a.y + a.height, b.y + b.height) - Math.max(a.y, b.y);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        double intersection = (double) width * height;
+        return intersection / (a.area() + b.area() - intersection);
+    }
+
+    /**
+     * Highest-confidence detection, or null if the list is empty.
+     */
+    private DetectionResult selectBest(List<DetectionResult> detections) {
+        DetectionResult best = null;
+        for (DetectionResult detection : detections) {
+            if (best == null || detection.getConfidence() > best.getConfidence()) {
+                best = detection;
+            }
+        }
+        return best;
+    }
+    
     /**
      * Task #414: Map YOLO classification label to WasteCategory.
      * 
@@ -107,7 +420,7 @@ public class YoloAdapter {
             lower.contains("paper") ||
             lower.contains("cardboard") ||
             lower.contains("glass")) {
-            System.out.println("[YoloAdapter] Mapped '" + label + "' to RECYCLE");
+            logMapping(label, WasteCategory.RECYCLE);
             return WasteCategory.RECYCLE;
         }
         
@@ -117,7 +430,7 @@ public class YoloAdapter {
             lower.contains("compost") ||
             lower.contains("banana") ||
             lower.contains("apple")) {
-            System.out.println("[YoloAdapter] Mapped '" + label + "' to COMPOST");
+            logMapping(label, WasteCategory.COMPOST);
             return WasteCategory.COMPOST;
         }
         
@@ -126,31 +439,84 @@ public class YoloAdapter {
             lower.contains("electronic") ||
             lower.contains("hazard") ||
             lower.contains("chemical")) {
-            System.out.println("[YoloAdapter] Mapped '" + label + "' to HAZARDOUS");
+            logMapping(label, WasteCategory.HAZARDOUS);
             return WasteCategory.HAZARDOUS;
         }
         
         // Default to trash
-        System.out.println("[YoloAdapter] Mapped '" + label + "' to TRASH (default)");
+        logMapping(label, WasteCategory.TRASH);
         return WasteCategory.TRASH;
     }
+
+    private void logMapping(String label, WasteCategory category) {
+        LOG.debug("mapped label").str("label", label).str("category", category).num("seq", lastFrameSequence).log();
+    }
     
     /**
      * Release resources (camera, model).
      */
     public void close() {
-        if (frame != null && !frame.empty()) {
+        if (frame != null) {
             frame.release();
         }
         
-        if (bridge != null) {
-            try {
+        if (detector instanceof CascadeDetector) {
+            System.out.println("[YoloAdapter] " + ((CascadeDetector) detector).getMetrics());
+        }
+        if (detectionCache != null) {
+            System.out.println("[YoloAdapter] " + detectionCache.getMetrics());
+        }
+        if (remoteDetector != null) {
+            System.out.println("[YoloAdapter] " + remoteDetector.getMetrics());
+        }
+        
+        try {
+            if (detectionCache != null) {
+                detectionCache.close();
+            }
+            if (detector != null) {
+                detector.close();
+            }
+            if (bridge != null && bridge != detector) {
                 bridge.close();
-                System.out.println("[YoloAdapter] Closed successfully");
-            } catch (Exception e) {
-                System.err.println("[YoloAdapter] Error closing: " + e.getMessage());
             }
+            if (remoteDetector != null && remoteDetector != detector) {
+                remoteDetector.close();
+            }
+            if (sampleCollector != null) {
+                sampleCollector.close();
+            }
+            if (frameSource != null) {
+                frameSource.close();
+            }
+            System.out.println("[YoloAdapter] Closed successfully");
+        } catch (Exception e) {
+            System.err.println("[YoloAdapter] Error closing: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Cascade hit rate and latency counters, or null when the cascade is disabled.
+     */
+    public CascadeMetrics getCascadeMetrics() {
+        if (detector instanceof CascadeDetector) {
+            return ((CascadeDetector) detector).getMetrics();
         }
+        return null;
+    }
+    
+    /**
+     * Detection cache hit/miss counters and time saved, or null when the cache is off.
+     */
+    public DetectionCacheMetrics getDetectionCacheMetrics() {
+        return detectionCache != null ? detectionCache.getMetrics() : null;
+    }
+    
+    /**
+     * Remote detection counters, or null when detection runs locally.
+     */
+    public RemoteDetectorMetrics getRemoteDetectorMetrics() {
+        return remoteDetector != null ? remoteDetector.getMetrics() : null;
     }
     
     /**
@@ -0,0 +1,216 @@
+package com.kiosk.telemetry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Rows of one hour, stored column by column.
+ *
+ * In memory the kiosk, name and category columns hold ids from the
+ * store's dictionaries. On disk a segment is self-contained: it carries
+ * its own dictionaries of just the values it uses, each id column is
+ * written one or two bytes wide depending on how many values there are,
+ * confidence is fixed-point in 1/10000, and the whole file is deflated.
+ * Segments are written once and never modified.
+ */
+final class ColumnSegment {
+    private static final int MAGIC = 0x53425443;
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+
+    final long hourStart;
+    int rows;
+    int[] offsetMillis;
+    int[] kiosks;
+    int[] names;
+    int[] categories;
+    float[] confidences;
+    int[] valueMicros;
+
+    ColumnSegment(long hourStart, int capacity) {
+        this.hourStart = hourStart;
+        int size = Math.max(16, capacity);
+        offsetMillis = new int[size];
+        kiosks = new int[size];
+        names = new int[size];
+        categories = new int[size];
+        confidences = new float[size];
+        valueMicros = new int[size];
+    }
+
+    /**
+     * @param category Category id, or -1
+     * @param value    Latency in µs, or -1 for an event
+     */
+    void add(long timestamp, int kiosk, int name, int category, float confidence, int value) {
+        if (rows == offsetMillis.length) {
+            int size = rows * 2;
+            offsetMillis = Arrays.copyOf(offsetMillis, size);
+            kiosks = Arrays.copyOf(kiosks, size);
+            names = Arrays.copyOf(names, size);
+            categories = Arrays.copyOf(categories, size);
+            confidences = Arrays.copyOf(confidences, size);
+            valueMicros = Arrays.copyOf(valueMicros, size);
+        }
+        offsetMillis[rows] = (int) (timestamp - hourStart);
+        kiosks[rows] = kiosk;
+        names[rows] = name;
+        categories[rows] = category;
+        confidences[rows] = confidence;
+        valueMicros[rows] = value;
+        rows++;
+    }
+
+    long timestampOf(int row) {
+        return hourStart + offsetMillis[row];
+    }
+
+    /**
+     * Write to a temporary file next to {@code file} and rename it into place.
+     */
+    void write(Path file, Dictionary kioskDictionary, Dictionary nameDictionary, Dictionary categoryDictionary)
+            throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream raw = Files.newOutputStream(partial);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new DeflaterOutputStream(raw, deflater, 64 * 1024)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(hourStart);
+            out.writeInt(rows);
+            int[] localKiosks = writeLocalDictionary(out, kiosks, kioskDictionary);
+            int[] localNames = writeLocalDictionary(out, names, nameDictionary);
+            int[] localCategories = writeLocalDictionary(out, categories, categoryDictionary);
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(offsetMillis[i]);
+            }
+            writeIds(out, kiosks, localKiosks);
+            writeIds(out, names, localNames);
+            writeIds(out, categories, localCategories);
+            for (int i = 0; i < rows; i++) {
+                float confidence = confidences[i];
+                out.writeShort(Float.isNaN(confidence) ? NONE : Math.round(Math.max(0f, Math.min(1f, confidence)) * 10000));
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(valueMicros[i]);
+            }
+        } finally {
+            deflater.end();
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write the values a column uses and return the global → local id map
+     * (local ids start at 1; 0 is "none").
+     */
+    private int[] writeLocalDictionary(DataOutputStream out, int[] column, Dictionary dictionary) throws IOException {
+        int[] local = new int[dictionary.size()];
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            int id = column[i];
+            if (id != NONE && local[id] == 0) {
+                local[id] = ++count;
+            }
+        }
+        out.writeInt(count);
+        String[] values = new String[count];
+        for (int id = 0; id < local.length; id++) {
+            if (local[id] != 0) {
+                values[local[id] - 1] = dictionary.valueOf(id);
+            }
+        }
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+        return local;
+    }
+
+    private void writeIds(DataOutputStream out, int[] column, int[] local) throws IOException {
+        int count = 0;
+        for (int id : local) {
+            count = Math.max(count, id);
+        }
+        boolean narrow = count < 256;
+        for (int i = 0; i < rows; i++) {
+            int value = column[i] == NONE ? 0 : local[column[i]];
+            if (narrow) {
+                out.writeByte(value);
+            } else {
+                out.writeShort(value);
+            }
+        }
+    }
+
+    /**
+     * Read a segment back, mapping its values into the store's dictionaries.
+     */
+    static ColumnSegment read(Path file, Dictionary kioskDictionary, Dictionary nameDictionary,
+                              Dictionary categoryDictionary) throws IOException {
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(raw), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a telemetry segment: " + file);
+            }
+            long hourStart = in.readLong();
+            int rows = in.readInt();
+            int[] kioskMap = readLocalDictionary(in, kioskDictionary);
+            int[] nameMap = readLocalDictionary(in, nameDictionary);
+            int[] categoryMap = readLocalDictionary(in, categoryDictionary);
+
+            ColumnSegment segment = new ColumnSegment(hourStart, rows);
+            segment.rows = rows;
+            for (int i = 0; i < rows; i++) {
+                segment.offsetMillis[i] = in.readInt();
+            }
+            readIds(in, rows, kioskMap, segment.kiosks);
+            readIds(in, rows, nameMap, segment.names);
+            readIds(in, rows, categoryMap, segment.categories);
+            for (int i = 0; i < rows; i++) {
+                short fixed = in.readShort();
+                segment.confidences[i] = fixed == NONE ? Float.NaN : fixed / 10000f;
+            }
+            for (int i = 0; i < rows; i++) {
+                segment.valueMicros[i] = in.readInt();
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * @return local id → global id, with index 0 mapping to -1 ("none")
+     */
+    private static int[] readLocalDictionary(DataInputStream in, Dictionary dictionary) throws IOException {
+        int count = in.readInt();
+        int[] map = new int[count + 1];
+        map[0] = NONE;
+        for (int i = 1; i <= count; i++) {
+            map[i] = dictionary.idOf(in.readUTF());
+        }
+        return map;
+    }
+
+    private static void readIds(DataInputStream in, int rows, int[] map, int[] column) throws IOException {
+        boolean narrow = map.length - 1 < 256;
+        for (int i = 0; i < rows; i++) {
+            int local = narrow ? in.readUnsignedByte() : in.readUnsignedShort();
+            if (local >= map.length) {
+                throw new IOException("Segment id out of range: " + local);
+            }
+            column[i] = map[local];
+        }
+    }
+}
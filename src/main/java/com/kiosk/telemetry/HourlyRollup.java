@@ -0,0 +1,91 @@
+package com.kiosk.telemetry;
+
+import com.kiosk.metrics.CompactHistogram;
+
+import java.util.Arrays;
+
+/**
+ * Pre-aggregated counts and latency sketches for one kiosk in one hour,
+ * or for a group of them while a query merges cells. Indexed by the
+ * store's dictionary ids.
+ */
+final class HourlyRollup {
+    long events;
+    long[] eventCounts = new long[0];
+    long[] categoryCounts = new long[0];
+    CompactHistogram[] latencies = new CompactHistogram[0];
+
+    /**
+     * @param category Category id or -1
+     * @param detected Whether the event is a DETECTED event, whose category is counted
+     */
+    void addEvent(int name, int category, boolean detected) {
+        events++;
+        eventCounts = grow(eventCounts, name);
+        eventCounts[name]++;
+        if (detected && category >= 0) {
+            categoryCounts = grow(categoryCounts, category);
+            categoryCounts[category]++;
+        }
+    }
+
+    void addLatency(int name, long micros) {
+        if (latencies.length <= name) {
+            latencies = Arrays.copyOf(latencies, name + 1);
+        }
+        if (latencies[name] == null) {
+            latencies[name] = new CompactHistogram();
+        }
+        latencies[name].record(micros * 1000);
+    }
+
+    void merge(HourlyRollup other) {
+        events += other.events;
+        eventCounts = addAll(eventCounts, other.eventCounts);
+        categoryCounts = addAll(categoryCounts, other.categoryCounts);
+        if (latencies.length < other.latencies.length) {
+            latencies = Arrays.copyOf(latencies, other.latencies.length);
+        }
+        for (int i = 0; i < other.latencies.length; i++) {
+            if (other.latencies[i] == null) {
+                continue;
+            }
+            if (latencies[i] == null) {
+                latencies[i] = new CompactHistogram();
+            }
+            latencies[i].merge(other.latencies[i]);
+        }
+    }
+
+    RollupRow toRow(long hourStart, String kiosk, Dictionary names, Dictionary categories) {
+        RollupRow row = new RollupRow(hourStart, kiosk, events);
+        for (int i = 0; i < eventCounts.length; i++) {
+            if (eventCounts[i] > 0) {
+                row.eventCounts.put(names.valueOf(i), eventCounts[i]);
+            }
+        }
+        for (int i = 0; i < categoryCounts.length; i++) {
+            if (categoryCounts[i] > 0) {
+                row.categoryCounts.put(categories.valueOf(i), categoryCounts[i]);
+            }
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            if (latencies[i] != null) {
+                row.latencies.put(names.valueOf(i), latencies[i]);
+            }
+        }
+        return row;
+    }
+
+    private static long[] grow(long[] counts, int index) {
+        return counts.length > index ? counts : Arrays.copyOf(counts, index + 1);
+    }
+
+    private static long[] addAll(long[] counts, long[] other) {
+        long[] result = counts.length >= other.length ? counts : Arrays.copyOf(counts, other.length);
+        for (int i = 0; i < other.length; i++) {
+            result[i] += other[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.kiosk.telemetry;
+
+import com.kiosk.metrics.CompactHistogram;
+import com.kiosk.models.KioskEvent;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One group of a telemetry rollup query: event counts, DETECTED counts by
+ * category and latency sketches for an hour, a kiosk, both or everything.
+ */
+public final class RollupRow {
+    private final long hourStartMillis;
+    private final String kiosk;
+    private final long events;
+    final Map<String, Long> eventCounts = new TreeMap<>();
+    final Map<String, Long> categoryCounts = new TreeMap<>();
+    final Map<String, CompactHistogram> latencies = new TreeMap<>();
+
+    RollupRow(long hourStartMillis, String kiosk, long events) {
+        this.hourStartMillis = hourStartMillis;
+        this.kiosk = kiosk;
+        this.events = events;
+    }
+
+    /**
+     * Start of the hour, or -1 when the query was not grouped by hour.
+     */
+    public long getHourStartMillis() {
+        return hourStartMillis;
+    }
+
+    /**
+     * Kiosk id, or null when the query was not grouped by kiosk.
+     */
+    public String getKiosk() {
+        return kiosk;
+    }
+
+    /**
+     * Kiosk events of any type; latency samples are not counted.
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    public long getEventCount(KioskEvent.Type type) {
+        return eventCounts.getOrDefault(type.name(), 0L);
+    }
+
+    public Map<String, Long> getEventCounts() {
+        return Collections.unmodifiableMap(eventCounts);
+    }
+
+    /**
+     * DETECTED events by WasteCategory name.
+     */
+    public Map<String, Long> getCategoryCounts() {
+        return Collections.unmodifiableMap(categoryCounts);
+    }
+
+    /**
+     * Share of classification attempts that ended low-confidence:
+     * LOW_CONFIDENCE / (LOW_CONFIDENCE + DETECTED), or NaN without either.
+     */
+    public double getLowConfidenceRate() {
+        long low = getEventCount(KioskEvent.Type.LOW_CONFIDENCE);
+        long attempts = low + getEventCount(KioskEvent.Type.DETECTED);
+        return attempts == 0 ? Double.NaN : (double) low / attempts;
+    }
+
+    /**
+     * Latency sketch for a metric, or null if none was reported.
+     */
+    public CompactHistogram getLatency(String metric) {
+        return latencies.get(metric);
+    }
+
+    public Map<String, CompactHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256).append('{');
+        if (hourStartMillis >= 0) {
+            json.append("\"hour\":\"").append(Instant.ofEpochMilli(hourStartMillis)).append("\",");
+        }
+        if (kiosk != null) {
+            json.append("\"kiosk\":\"").append(escape(kiosk)).append("\",");
+        }
+        json.append("\"events\":").append(events);
+        double rate = getLowConfidenceRate();
+        if (!Double.isNaN(rate)) {
+            json.append(",\"lowConfidenceRate\":").append(String.format(Locale.ROOT, "%.4f", rate));
+        }
+        appendCounts(json, "counts", eventCounts);
+        appendCounts(json, "categories", categoryCounts);
+        if (!latencies.isEmpty()) {
+            json.append(",\"latencyMs\":{");
+            boolean first = true;
+            for (Map.Entry<String, CompactHistogram> entry : latencies.entrySet()) {
+                CompactHistogram sketch = entry.getValue();
+                json.append(first ? "" : ",").append('"').append(escape(entry.getKey())).append("\":")
+                        .append(String.format(Locale.ROOT, "{\"n\":%d,\"p50\":%.2f,\"p90\":%.2f,\"p99\":%.2f,\"max\":%.2f}",
+                                sketch.getCount(), sketch.percentile(50) / 1e6, sketch.percentile(90) / 1e6,
+                                sketch.percentile(99) / 1e6, sketch.getMax() / 1e6));
+                first = false;
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendCounts(StringBuilder json, String name, Map<String, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        json.append(",\"").append(name).append("\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            json.append(first ? "" : ",").append('"').append(escape(entry.getKey())).append("\":").append(entry.getValue());
+            first = false;
+        }
+        json.append('}');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,153 @@
+package com.kiosk.telemetry;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Events a kiosk sends in one request, column by column.
+ *
+ * A row is either a kiosk event (name is the event type, category and
+ * confidence when they apply) or a latency sample (name is the metric,
+ * value in microseconds). Names and categories are sent once per batch in
+ * a small dictionary and referenced by index.
+ *
+ * Wire format, big-endian:
+ * <pre>
+ * int magic "SBT1", UTF kiosk, long session, long firstIndex, int rows,
+ * byte names, UTF × names, byte categories, UTF × categories, long baseMillis,
+ * int × rows   timestamp - baseMillis
+ * byte × rows  name index
+ * byte × rows  category index + 1 (0 = none)
+ * float × rows confidence (NaN = none)
+ * int × rows   value in µs (-1 = none)
+ * </pre>
+ * {@code firstIndex} numbers the client's rows since {@code session}
+ * started, so the collector can drop rows it already stored when a batch
+ * is resent after a lost acknowledgement. The acknowledgement is
+ * {@code int magic "SBTA", long firstIndex + rows}.
+ */
+final class TelemetryBatch {
+    static final int MAGIC = 0x53425431;
+    static final int ACK_MAGIC = 0x53425441;
+    static final int MAX_ROWS = 1 << 20;
+    /** Distinct names or categories one batch can reference. */
+    static final int MAX_DICTIONARY = 255;
+
+    final String kiosk;
+    final long session;
+    final long firstIndex;
+    final int rows;
+    final long[] timestamps;
+    final String[] names;
+    final String[] categories;
+    final float[] confidences;
+    final int[] valueMicros;
+
+    TelemetryBatch(String kiosk, long session, long firstIndex, int rows, long[] timestamps, String[] names,
+                   String[] categories, float[] confidences, int[] valueMicros) {
+        this.kiosk = kiosk;
+        this.session = session;
+        this.firstIndex = firstIndex;
+        this.rows = rows;
+        this.timestamps = timestamps;
+        this.names = names;
+        this.categories = categories;
+        this.confidences = confidences;
+        this.valueMicros = valueMicros;
+    }
+
+    /**
+     * Write rows [0, rows) of the arrays; every row's name and category must
+     * be among the given dictionaries.
+     */
+    void write(DataOutputStream out, Dictionary nameDictionary, Dictionary categoryDictionary) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeUTF(kiosk);
+        out.writeLong(session);
+        out.writeLong(firstIndex);
+        out.writeInt(rows);
+        writeDictionary(out, nameDictionary);
+        writeDictionary(out, categoryDictionary);
+        long base = rows > 0 ? timestamps[0] : 0;
+        out.writeLong(base);
+        for (int i = 0; i < rows; i++) {
+            out.writeInt((int) (timestamps[i] - base));
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeByte(nameDictionary.find(names[i]));
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeByte(categories[i] != null ? categoryDictionary.find(categories[i]) + 1 : 0);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeFloat(confidences[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeInt(valueMicros[i]);
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, Dictionary dictionary) throws IOException {
+        out.writeByte(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            out.writeUTF(dictionary.valueOf(i));
+        }
+    }
+
+    static TelemetryBatch read(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Bad telemetry batch magic " + Integer.toHexString(magic));
+        }
+        String kiosk = in.readUTF();
+        long session = in.readLong();
+        long firstIndex = in.readLong();
+        int rows = in.readInt();
+        if (rows < 0 || rows > MAX_ROWS) {
+            throw new IOException("Telemetry batch too large: " + rows);
+        }
+        String[] nameDictionary = readDictionary(in);
+        String[] categoryDictionary = readDictionary(in);
+        long base = in.readLong();
+
+        long[] timestamps = new long[rows];
+        String[] names = new String[rows];
+        String[] categories = new String[rows];
+        float[] confidences = new float[rows];
+        int[] valueMicros = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            timestamps[i] = base + in.readInt();
+        }
+        for (int i = 0; i < rows; i++) {
+            names[i] = lookup(nameDictionary, in.readUnsignedByte());
+        }
+        for (int i = 0; i < rows; i++) {
+            int category = in.readUnsignedByte();
+            categories[i] = category == 0 ? null : lookup(categoryDictionary, category - 1);
+        }
+        for (int i = 0; i < rows; i++) {
+            confidences[i] = in.readFloat();
+        }
+        for (int i = 0; i < rows; i++) {
+            valueMicros[i] = in.readInt();
+        }
+        return new TelemetryBatch(kiosk, session, firstIndex, rows, timestamps, names, categories, confidences,
+                valueMicros);
+    }
+
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        String[] values = new String[in.readUnsignedByte()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+
+    private static String lookup(String[] dictionary, int index) throws IOException {
+        if (index >= dictionary.length) {
+            throw new IOException("Dictionary index out of range: " + index);
+        }
+        return dictionary[index];
+    }
+}
@@ -0,0 +1,378 @@
+package com.kiosk.telemetry;
+
+import com.kiosk.headless.EventSink;
+import com.kiosk.models.KioskEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends kiosk events and latency samples to a {@link TelemetryCollector}.
+ *
+ * Rows go into a fixed-size columnar ring buffer and are sent in batches by
+ * a background thread, every {@code flushMillis} or as soon as
+ * {@code batchSize} rows are waiting. Recording never blocks on the network:
+ * while the collector is unreachable rows accumulate, and once the buffer is
+ * full the oldest are dropped and counted. Reconnects back off from one to
+ * thirty seconds.
+ *
+ * Rows are numbered from the start of the client's session and only
+ * discarded once the collector acknowledges them, so a batch whose
+ * acknowledgement was lost is resent and the collector skips the rows it
+ * already has.
+ *
+ * Configured with {@code -Dsmartbin.telemetry=host:port} (default off),
+ * {@code smartbin.telemetry.kiosk} (host name), {@code smartbin.telemetry.capacity}
+ * (50000 rows, about 1.2 MB), {@code smartbin.telemetry.batchSize} (2000) and
+ * {@code smartbin.telemetry.flushMillis} (5000).
+ */
+public class TelemetryClient implements EventSink {
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int ACK_TIMEOUT_MILLIS = 10_000;
+
+    private final InetSocketAddress address;
+    private final String kiosk;
+    private final long session = new SecureRandom().nextLong();
+    private final int capacity;
+    private final int batchSize;
+    private final long flushMillis;
+
+    // Ring buffer of rows [oldestIndex, nextIndex), guarded by this
+    private final long[] timestamps;
+    private final String[] names;
+    private final String[] categories;
+    private final float[] confidences;
+    private final int[] valueMicros;
+    private long oldestIndex;
+    private long nextIndex;
+    private boolean closing;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sentRows = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // Sender thread only
+    private Socket socket;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream(64 * 1024);
+
+    private final Thread sender;
+
+    /**
+     * @param capacity  Rows kept while the collector is unreachable
+     * @param batchSize Rows that trigger a send before the flush interval
+     */
+    public TelemetryClient(InetSocketAddress address, String kiosk, int capacity, int batchSize, long flushMillis) {
+        if (capacity < 1 || batchSize < 1 || flushMillis < 1) {
+            throw new IllegalArgumentException("Invalid telemetry client settings");
+        }
+        this.address = address;
+        this.kiosk = kiosk;
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, capacity);
+        this.flushMillis = flushMillis;
+        this.timestamps = new long[capacity];
+        this.names = new String[capacity];
+        this.categories = new String[capacity];
+        this.confidences = new float[capacity];
+        this.valueMicros = new int[capacity];
+        this.sender = new Thread(this::sendLoop, "telemetry-sender");
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /**
+     * Client for {@code -Dsmartbin.telemetry=host:port}, or null when it is not set.
+     */
+    public static TelemetryClient fromSystemProperties() {
+        String target = System.getProperty("smartbin.telemetry", "").trim();
+        if (target.isEmpty() || "off".equalsIgnoreCase(target)) {
+            return null;
+        }
+        int colon = target.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("smartbin.telemetry must be host:port: " + target);
+        }
+        String kiosk = System.getProperty("smartbin.telemetry.kiosk", "").trim();
+        if (kiosk.isEmpty()) {
+            try {
+                kiosk = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                kiosk = "kiosk";
+            }
+        }
+        TelemetryClient client = new TelemetryClient(
+                new InetSocketAddress(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1))),
+                kiosk,
+                Integer.getInteger("smartbin.telemetry.capacity", 50_000),
+                Integer.getInteger("smartbin.telemetry.batchSize", 2000),
+                Long.getLong("smartbin.telemetry.flushMillis", 5000));
+        System.out.println("[TelemetryClient] Reporting to " + target + " as " + kiosk);
+        return client;
+    }
+
+    @Override
+    public void publish(KioskEvent event) {
+        record(event.getTimestampMillis(), event.getType().name(),
+                event.getCategory() != null ? event.getCategory().name() : null, (float) event.getConfidence(), -1);
+    }
+
+    /**
+     * Record how long a stage took, e.g. "detect".
+     */
+    public void recordLatency(String metric, long nanos) {
+        record(System.currentTimeMillis(), metric, null, Float.NaN,
+                (int) Math.min(Integer.MAX_VALUE, Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Record a row with an explicit timestamp, for replaying stored events.
+     */
+    public void recordLatency(long timestampMillis, String metric, long nanos) {
+        record(timestampMillis, metric, null, Float.NaN,
+                (int) Math.min(Integer.MAX_VALUE, Math.max(0, nanos / 1000)));
+    }
+
+    private synchronized void record(long timestamp, String name, String category, float confidence, int value) {
+        if (closing) {
+            return;
+        }
+        if (nextIndex - oldestIndex == capacity) {
+            oldestIndex++;
+            dropped.incrementAndGet();
+        }
+        int slot = (int) (nextIndex % capacity);
+        timestamps[slot] = timestamp;
+        names[slot] = name;
+        categories[slot] = category;
+        confidences[slot] = confidence;
+        valueMicros[slot] = value;
+        nextIndex++;
+        recorded.incrementAndGet();
+        if (nextIndex - oldestIndex >= batchSize) {
+            notifyAll();
+        }
+    }
+
+    private void sendLoop() {
+        while (true) {
+            TelemetryBatch batch;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + flushMillis;
+                while (!closing && nextIndex - oldestIndex < batchSize) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (nextIndex == oldestIndex) {
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = nextBatch();
+            }
+            boolean draining;
+            synchronized (this) {
+                draining = closing;
+            }
+            if (send(batch)) {
+                backoffMillis = MIN_BACKOFF_MILLIS;
+                synchronized (this) {
+                    // Rows may have been dropped past the batch while it was in flight
+                    oldestIndex = Math.max(oldestIndex, batch.firstIndex + batch.rows);
+                }
+            } else if (draining) {
+                return;
+            } else {
+                failures.incrementAndGet();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+            }
+        }
+    }
+
+    /**
+     * Copy the oldest pending rows, stopping early where one batch could
+     * not encode them (too many names or categories, or a timestamp more
+     * than an int of milliseconds from the first).
+     */
+    private TelemetryBatch nextBatch() {
+        int limit = (int) Math.min(batchSize, nextIndex - oldestIndex);
+        long[] batchTimestamps = new long[limit];
+        String[] batchNames = new String[limit];
+        String[] batchCategories = new String[limit];
+        float[] batchConfidences = new float[limit];
+        int[] batchValues = new int[limit];
+        Dictionary nameSet = new Dictionary();
+        Dictionary categorySet = new Dictionary();
+        int rows = 0;
+        for (; rows < limit; rows++) {
+            int slot = (int) ((oldestIndex + rows) % capacity);
+            if (rows > 0 && Math.abs(timestamps[slot] - batchTimestamps[0]) > Integer.MAX_VALUE) {
+                break;
+            }
+            if (nameSet.find(names[slot]) < 0 && nameSet.size() == TelemetryBatch.MAX_DICTIONARY) {
+                break;
+            }
+            if (categories[slot] != null && categorySet.find(categories[slot]) < 0
+                    && categorySet.size() == TelemetryBatch.MAX_DICTIONARY) {
+                break;
+            }
+            nameSet.idOf(names[slot]);
+            if (categories[slot] != null) {
+                categorySet.idOf(categories[slot]);
+            }
+            batchTimestamps[rows] = timestamps[slot];
+            batchNames[rows] = names[slot];
+            batchCategories[rows] = categories[slot];
+            batchConfidences[rows] = confidences[slot];
+            batchValues[rows] = valueMicros[slot];
+        }
+        return new TelemetryBatch(kiosk, session, oldestIndex, rows, batchTimestamps, batchNames, batchCategories,
+                batchConfidences, batchValues);
+    }
+
+    /**
+     * Send a batch and wait for its acknowledgement; false if either failed.
+     */
+    private boolean send(TelemetryBatch batch) {
+        try {
+            if (socket == null) {
+                socket = new Socket();
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                socket.setSoTimeout(ACK_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            }
+            encoded.reset();
+            Dictionary nameDictionary = new Dictionary();
+            Dictionary categoryDictionary = new Dictionary();
+            for (int i = 0; i < batch.rows; i++) {
+                nameDictionary.idOf(batch.names[i]);
+                if (batch.categories[i] != null) {
+                    categoryDictionary.idOf(batch.categories[i]);
+                }
+            }
+            batch.write(new DataOutputStream(encoded), nameDictionary, categoryDictionary);
+            encoded.writeTo(out);
+            out.flush();
+            if (in.readInt() != TelemetryBatch.ACK_MAGIC) {
+                throw new IOException("Bad acknowledgement from collector");
+            }
+            long acknowledged = in.readLong();
+            if (acknowledged != batch.firstIndex + batch.rows) {
+                throw new IOException("Collector acknowledged " + acknowledged + ", expected "
+                        + (batch.firstIndex + batch.rows));
+            }
+            sentRows.addAndGet(batch.rows);
+            batches.incrementAndGet();
+            bytesSent.addAndGet(encoded.size());
+            return true;
+        } catch (IOException e) {
+            disconnect();
+            return false;
+        }
+    }
+
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+        socket = null;
+        out = null;
+        in = null;
+    }
+
+    /**
+     * Rows recorded but not yet acknowledged by the collector.
+     */
+    public synchronized long getPending() {
+        return nextIndex - oldestIndex;
+    }
+
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSentRows() {
+        return sentRows.get();
+    }
+
+    /**
+     * Send what is buffered (one attempt, waiting at most {@code timeoutMillis})
+     * and stop the sender.
+     */
+    public void close(long timeoutMillis) {
+        synchronized (this) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            notifyAll();
+        }
+        try {
+            sender.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sender.interrupt();
+        System.out.println("[TelemetryClient] " + this);
+    }
+
+    @Override
+    public void close() {
+        close(3000);
+    }
+
+    @Override
+    public String toString() {
+        long batchCount = batches.get();
+        return String.format("TelemetryClient{kiosk=%s, recorded=%d, sent=%d, pending=%d, dropped=%d, batches=%d, "
+                        + "bytesPerRow=%.1f, failures=%d}",
+                kiosk,
+                recorded.get(),
+                sentRows.get(),
+                getPending(),
+                dropped.get(),
+                batchCount,
+                sentRows.get() == 0 ? 0.0 : (double) bytesSent.get() / sentRows.get(),
+                failures.get());
+    }
+}
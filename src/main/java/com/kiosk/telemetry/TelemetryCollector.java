@@ -0,0 +1,352 @@
+package com.kiosk.telemetry;
+
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives telemetry batches from kiosks into a {@link TelemetryStore} and
+ * answers rollup queries over HTTP.
+ *
+ * Ingest is a TCP listener with one thread per kiosk connection; each batch
+ * is acknowledged once it is in the store. The collector remembers, per
+ * kiosk, the session and row number it has stored up to, and skips rows of
+ * a resent batch it already has. That memory does not survive a restart, so
+ * a batch resent across a collector restart is counted twice. Open segments
+ * are written every {@code flushSeconds} and on close; acknowledged rows
+ * not yet written are lost if the collector is killed.
+ *
+ * Queries: {@code GET /rollup?by=hour|kiosk|hour,kiosk|all} with
+ * {@code hours=24} (the default) or {@code from}/{@code to} in epoch
+ * milliseconds, and optionally {@code kiosk=id}; {@code GET /stats}.
+ *
+ * Usage: TelemetryCollector [--port 7071] [--http-port 7072] [--bind 0.0.0.0]
+ * [--dir telemetry] [--flush-seconds 60] [--segment-rows 262144]
+ */
+public class TelemetryCollector implements AutoCloseable {
+    private static final Logger LOG = Log.get("telemetry");
+
+    private final TelemetryStore store;
+    private final InetSocketAddress ingestAddress;
+    private final InetSocketAddress httpAddress;
+    private final long flushSeconds;
+    private final Map<String, long[]> sessions = new HashMap<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong duplicateRows = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private HttpServer httpServer;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * @param httpAddress Query endpoint, or null for none
+     */
+    public TelemetryCollector(TelemetryStore store, InetSocketAddress ingestAddress, InetSocketAddress httpAddress,
+                              long flushSeconds) {
+        this.store = store;
+        this.ingestAddress = ingestAddress;
+        this.httpAddress = httpAddress;
+        this.flushSeconds = flushSeconds;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(ingestAddress);
+        running = true;
+
+        Thread acceptThread = new Thread(this::acceptLoop, "telemetry-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        if (httpAddress != null) {
+            httpServer = HttpServer.create(httpAddress, 16);
+            httpServer.createContext("/rollup", this::handleRollup);
+            httpServer.createContext("/stats", this::handleStats);
+            httpServer.setExecutor(null);
+            httpServer.start();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "telemetry-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+        System.out.println("[TelemetryCollector] Ingest on " + serverSocket.getLocalSocketAddress()
+                + (httpServer != null ? ", queries on http:/" + httpServer.getAddress() : ""));
+    }
+
+    /**
+     * Ingest port actually bound, e.g. when started on port 0.
+     */
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : ingestAddress.getPort();
+    }
+
+    /**
+     * Query port actually bound, or -1 without an HTTP endpoint.
+     */
+    public int getHttpPort() {
+        return httpServer != null ? httpServer.getAddress().getPort() : -1;
+    }
+
+    public TelemetryStore getStore() {
+        return store;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread reader = new Thread(() -> readLoop(socket), "telemetry-conn-" + socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    LOG.warn("accept failed").error(e).log();
+                }
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (running) {
+                TelemetryBatch batch = TelemetryBatch.read(in);
+                ingest(batch);
+                out.writeInt(TelemetryBatch.ACK_MAGIC);
+                out.writeLong(batch.firstIndex + batch.rows);
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            // Kiosk went away
+        } catch (IOException e) {
+            LOG.warn("dropping kiosk").str("kiosk", socket.getRemoteSocketAddress()).error(e).log();
+        } finally {
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Store the rows of a batch this kiosk session has not sent before.
+     */
+    void ingest(TelemetryBatch batch) throws IOException {
+        long end = batch.firstIndex + batch.rows;
+        synchronized (sessions) {
+            long[] seen = sessions.get(batch.kiosk);
+            int skip = 0;
+            if (seen != null && seen[0] == batch.session) {
+                skip = (int) Math.max(0, Math.min(batch.rows, seen[1] - batch.firstIndex));
+            }
+            if (skip < batch.rows) {
+                store.append(batch, skip);
+            }
+            if (seen == null || seen[0] != batch.session || end > seen[1]) {
+                sessions.put(batch.kiosk, new long[]{batch.session, end});
+            }
+            batches.incrementAndGet();
+            rows.addAndGet(batch.rows - skip);
+            duplicateRows.addAndGet(skip);
+        }
+    }
+
+    private void flush() {
+        try {
+            store.flush();
+        } catch (IOException e) {
+            LOG.error("flush failed").error(e).log();
+        }
+    }
+
+    private void handleRollup(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+        TelemetryStore.GroupBy groupBy;
+        long to;
+        long from;
+        try {
+            groupBy = parseGroupBy(params.getOrDefault("by", "hour"));
+            to = params.containsKey("to") ? Long.parseLong(params.get("to")) : System.currentTimeMillis();
+            from = params.containsKey("from") ? Long.parseLong(params.get("from"))
+                    : to - Long.parseLong(params.getOrDefault("hours", "24")) * TelemetryStore.HOUR_MILLIS;
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "{\"error\":\"" + e.getMessage().replace("\"", "'") + "\"}");
+            return;
+        }
+        List<RollupRow> result = store.rollup(from, to, groupBy, params.get("kiosk"));
+        StringBuilder json = new StringBuilder(256 + result.size() * 256).append("{\"rows\":[");
+        for (int i = 0; i < result.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(result.get(i).toJson());
+        }
+        long elapsed = System.nanoTime() - start;
+        queries.incrementAndGet();
+        queryNanos.addAndGet(elapsed);
+        json.append("],\"elapsedMs\":").append(String.format(java.util.Locale.ROOT, "%.3f", elapsed / 1e6)).append('}');
+        respond(exchange, 200, json.toString());
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "{\"collector\":\"" + this + "\",\"store\":\"" + store + "\"}");
+    }
+
+    static TelemetryStore.GroupBy parseGroupBy(String by) {
+        return switch (by.replace(" ", "").toLowerCase()) {
+            case "all" -> TelemetryStore.GroupBy.ALL;
+            case "hour" -> TelemetryStore.GroupBy.HOUR;
+            case "kiosk" -> TelemetryStore.GroupBy.KIOSK;
+            case "hour,kiosk", "kiosk,hour" -> TelemetryStore.GroupBy.HOUR_AND_KIOSK;
+            default -> throw new IllegalArgumentException("Unknown grouping: " + by);
+        };
+    }
+
+    private static Map<String, String> queryParams(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Block until {@link #close()} is called.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Nothing to do
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        flusher.shutdownNow();
+        try {
+            store.close();
+        } catch (IOException e) {
+            LOG.error("final flush failed").error(e).log();
+        }
+        System.out.println("[TelemetryCollector] " + this);
+        System.out.println("[TelemetryCollector] " + store);
+        stopped.countDown();
+    }
+
+    @Override
+    public String toString() {
+        long queryCount = queries.get();
+        return String.format("TelemetryCollector{batches=%d, rows=%d, duplicateRows=%d, queries=%d, query=%.2fms}",
+                batches.get(),
+                rows.get(),
+                duplicateRows.get(),
+                queryCount,
+                queryCount == 0 ? 0.0 : queryNanos.get() / 1e6 / queryCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 7071;
+        int httpPort = 7072;
+        String bind = "0.0.0.0";
+        String dir = "telemetry";
+        long flushSeconds = 60;
+        int segmentRows = 1 << 18;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--http-port" -> httpPort = Integer.parseInt(args[++i]);
+                case "--bind" -> bind = args[++i];
+                case "--dir" -> dir = args[++i];
+                case "--flush-seconds" -> flushSeconds = Long.parseLong(args[++i]);
+                case "--segment-rows" -> segmentRows = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Usage: TelemetryCollector [--port 7071] [--http-port 7072] [--bind 0.0.0.0]"
+                            + " [--dir telemetry] [--flush-seconds 60] [--segment-rows 262144]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        InetAddress address = InetAddress.getByName(bind);
+        TelemetryCollector collector = new TelemetryCollector(new TelemetryStore(Path.of(dir), segmentRows),
+                new InetSocketAddress(address, port), new InetSocketAddress(address, httpPort), flushSeconds);
+        Runtime.getRuntime().addShutdownHook(new Thread(collector::close, "telemetry-collector-stop"));
+        collector.start();
+        collector.awaitStop();
+        Log.shutdown();
+    }
+}
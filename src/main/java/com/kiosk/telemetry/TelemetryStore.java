@@ -0,0 +1,260 @@
+package com.kiosk.telemetry;
+
+import com.kiosk.models.KioskEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only telemetry store, partitioned by hour and stored by column.
+ *
+ * Rows go into an open {@link ColumnSegment} for their hour; {@link #flush}
+ * writes open segments as new files under {@code <directory>/<hour>/}, so an
+ * hour that receives late rows (a kiosk that was offline) simply gets
+ * another segment. Nothing on disk is rewritten.
+ *
+ * Every appended row also updates a {@link HourlyRollup} for its kiosk and
+ * hour, so rollup queries merge at most hours × kiosks small cells and
+ * never touch the rows. {@link #scan} computes the same answer from the
+ * segments, for checking and for questions the rollups cannot answer. On
+ * start the rollups are rebuilt from the segment files.
+ *
+ * Rows acknowledged but not yet flushed are lost if the process dies.
+ */
+public class TelemetryStore implements AutoCloseable {
+    public enum GroupBy { ALL, HOUR, KIOSK, HOUR_AND_KIOSK }
+
+    static final long HOUR_MILLIS = 3_600_000L;
+    private static final DateTimeFormatter HOUR_DIRECTORY =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final int segmentRows;
+    private final Dictionary kioskDictionary = new Dictionary();
+    private final Dictionary nameDictionary = new Dictionary();
+    private final Dictionary categoryDictionary = new Dictionary();
+    private final int detectedName = nameDictionary.idOf(KioskEvent.Type.DETECTED.name());
+    private final TreeMap<Long, ColumnSegment> open = new TreeMap<>();
+    private final TreeMap<Long, List<Path>> segmentFiles = new TreeMap<>();
+    private final TreeMap<Long, HourlyRollup[]> rollups = new TreeMap<>();
+    private long rows;
+    private long flushedRows;
+    private long bytesOnDisk;
+
+    /**
+     * @param segmentRows Rows after which an hour's open segment is written out
+     */
+    public TelemetryStore(Path directory, int segmentRows) throws IOException {
+        this.directory = directory;
+        this.segmentRows = segmentRows;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory, 2)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".tmp")) {
+                Files.delete(file); // Interrupted flush; the rows were never acknowledged as written
+                continue;
+            }
+            if (!name.endsWith(".seg")) {
+                continue;
+            }
+            ColumnSegment segment = ColumnSegment.read(file, kioskDictionary, nameDictionary, categoryDictionary);
+            segmentFiles.computeIfAbsent(segment.hourStart, hour -> new ArrayList<>()).add(file);
+            for (int i = 0; i < segment.rows; i++) {
+                aggregate(rollups, segment, i);
+            }
+            rows += segment.rows;
+            flushedRows += segment.rows;
+            bytesOnDisk += Files.size(file);
+        }
+        if (!files.isEmpty()) {
+            System.out.println("[TelemetryStore] Loaded " + rows + " rows from " + directory);
+        }
+    }
+
+    /**
+     * Append rows [fromRow, batch.rows) of a batch.
+     */
+    public synchronized void append(TelemetryBatch batch, int fromRow) throws IOException {
+        int kiosk = kioskDictionary.idOf(batch.kiosk);
+        for (int i = fromRow; i < batch.rows; i++) {
+            long timestamp = batch.timestamps[i];
+            long hour = Math.floorDiv(timestamp, HOUR_MILLIS) * HOUR_MILLIS;
+            ColumnSegment segment = open.computeIfAbsent(hour, start -> new ColumnSegment(start, 1024));
+            int name = nameDictionary.idOf(batch.names[i]);
+            int category = batch.categories[i] != null ? categoryDictionary.idOf(batch.categories[i]) : -1;
+            segment.add(timestamp, kiosk, name, category, batch.confidences[i], batch.valueMicros[i]);
+            aggregate(rollups, segment, segment.rows - 1);
+            if (segment.rows >= segmentRows) {
+                flush(hour);
+            }
+        }
+        rows += Math.max(0, batch.rows - fromRow);
+    }
+
+    private void aggregate(TreeMap<Long, HourlyRollup[]> cells, ColumnSegment segment, int row) {
+        int kiosk = segment.kiosks[row];
+        HourlyRollup[] byKiosk = cells.get(segment.hourStart);
+        if (byKiosk == null || byKiosk.length <= kiosk) {
+            HourlyRollup[] grown = new HourlyRollup[Math.max(kioskDictionary.size(), kiosk + 1)];
+            if (byKiosk != null) {
+                System.arraycopy(byKiosk, 0, grown, 0, byKiosk.length);
+            }
+            byKiosk = grown;
+            cells.put(segment.hourStart, byKiosk);
+        }
+        HourlyRollup cell = byKiosk[kiosk];
+        if (cell == null) {
+            cell = new HourlyRollup();
+            byKiosk[kiosk] = cell;
+        }
+        int value = segment.valueMicros[row];
+        if (value >= 0) {
+            cell.addLatency(segment.names[row], value);
+        } else {
+            cell.addEvent(segment.names[row], segment.categories[row], segment.names[row] == detectedName);
+        }
+    }
+
+    /**
+     * Write every open segment to disk.
+     */
+    public synchronized void flush() throws IOException {
+        for (Long hour : new ArrayList<>(open.keySet())) {
+            flush(hour);
+        }
+    }
+
+    private void flush(long hour) throws IOException {
+        ColumnSegment segment = open.remove(hour);
+        if (segment == null || segment.rows == 0) {
+            return;
+        }
+        List<Path> files = segmentFiles.computeIfAbsent(hour, start -> new ArrayList<>());
+        Path hourDirectory = directory.resolve(HOUR_DIRECTORY.format(java.time.Instant.ofEpochMilli(hour)));
+        Files.createDirectories(hourDirectory);
+        Path file = hourDirectory.resolve(String.format("%05d.seg", files.size() + 1));
+        segment.write(file, kioskDictionary, nameDictionary, categoryDictionary);
+        files.add(file);
+        flushedRows += segment.rows;
+        bytesOnDisk += Files.size(file);
+    }
+
+    /**
+     * Counts and latency percentiles for [fromMillis, toMillis), by whole
+     * hours, from the pre-aggregated cells.
+     *
+     * @param kiosk Only this kiosk, or null for all
+     */
+    public synchronized List<RollupRow> rollup(long fromMillis, long toMillis, GroupBy groupBy, String kiosk) {
+        return group(rollups.subMap(hourOf(fromMillis), true, toMillis, false), groupBy, kiosk);
+    }
+
+    /**
+     * Same as {@link #rollup} but computed from the stored rows.
+     */
+    public synchronized List<RollupRow> scan(long fromMillis, long toMillis, GroupBy groupBy, String kiosk)
+            throws IOException {
+        TreeMap<Long, HourlyRollup[]> cells = new TreeMap<>();
+        long fromHour = hourOf(fromMillis);
+        for (Map.Entry<Long, List<Path>> entry : segmentFiles.subMap(fromHour, true, toMillis, false).entrySet()) {
+            for (Path file : entry.getValue()) {
+                ColumnSegment segment = ColumnSegment.read(file, kioskDictionary, nameDictionary, categoryDictionary);
+                for (int i = 0; i < segment.rows; i++) {
+                    aggregate(cells, segment, i);
+                }
+            }
+        }
+        for (ColumnSegment segment : open.subMap(fromHour, true, toMillis, false).values()) {
+            for (int i = 0; i < segment.rows; i++) {
+                aggregate(cells, segment, i);
+            }
+        }
+        return group(cells, groupBy, kiosk);
+    }
+
+    private List<RollupRow> group(NavigableMap<Long, HourlyRollup[]> cells, GroupBy groupBy, String kioskFilter) {
+        int only = kioskFilter != null ? kioskDictionary.find(kioskFilter) : -1;
+        if (kioskFilter != null && only < 0) {
+            return new ArrayList<>();
+        }
+        boolean byHour = groupBy == GroupBy.HOUR || groupBy == GroupBy.HOUR_AND_KIOSK;
+        boolean byKiosk = groupBy == GroupBy.KIOSK || groupBy == GroupBy.HOUR_AND_KIOSK;
+        Map<Long, HourlyRollup> groups = new LinkedHashMap<>();
+        for (Map.Entry<Long, HourlyRollup[]> entry : cells.entrySet()) {
+            HourlyRollup[] byKioskCells = entry.getValue();
+            for (int kiosk = 0; kiosk < byKioskCells.length; kiosk++) {
+                if (byKioskCells[kiosk] == null || (only >= 0 && kiosk != only)) {
+                    continue;
+                }
+                long key = ((byHour ? entry.getKey() / HOUR_MILLIS : 0) << 24) | (byKiosk ? kiosk : 0);
+                groups.computeIfAbsent(key, k -> new HourlyRollup()).merge(byKioskCells[kiosk]);
+            }
+        }
+        List<RollupRow> result = new ArrayList<>(groups.size());
+        for (Map.Entry<Long, HourlyRollup> entry : groups.entrySet()) {
+            long key = entry.getKey();
+            long hour = byHour ? (key >>> 24) * HOUR_MILLIS : -1;
+            String kiosk = byKiosk ? kioskDictionary.valueOf((int) (key & 0xFFFFFF)) : null;
+            result.add(entry.getValue().toRow(hour, kiosk, nameDictionary, categoryDictionary));
+        }
+        result.sort(Comparator.comparingLong(RollupRow::getHourStartMillis)
+                .thenComparing(row -> row.getKiosk() != null ? row.getKiosk() : ""));
+        return result;
+    }
+
+    private static long hourOf(long millis) {
+        return Math.floorDiv(millis, HOUR_MILLIS) * HOUR_MILLIS;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized int getKioskCount() {
+        return kioskDictionary.size();
+    }
+
+    /**
+     * Compressed size of the flushed segments.
+     */
+    public synchronized long getBytesOnDisk() {
+        return bytesOnDisk;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TelemetryStore{rows=%d, flushed=%d, kiosks=%d, hours=%d, segments=%d, disk=%.1fKB, "
+                        + "bytesPerRow=%.2f}",
+                rows,
+                flushedRows,
+                kioskDictionary.size(),
+                rollups.size(),
+                segmentFiles.values().stream().mapToInt(List::size).sum(),
+                bytesOnDisk / 1024.0,
+                flushedRows == 0 ? 0.0 : (double) bytesOnDisk / flushedRows);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
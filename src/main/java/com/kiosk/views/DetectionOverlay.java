@@ -0,0 +1,193 @@
+package com.kiosk.views;
+
+import com.smartbin.DetectionResult;
+import javafx.geometry.Bounds;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Vector overlay that draws detection feedback on top of the camera preview.
+ *
+ * Replaces drawing into a cloned frame (YoloBridge.drawFeedback): boxes,
+ * labels and the status bar are scene-graph nodes placed over
+ * cameraFeedView and composited by Prism, so the frame pixels are never
+ * copied or modified. Updates only move and relabel existing nodes; box
+ * nodes are pooled and hidden when not needed.
+ */
+public class DetectionOverlay extends Pane {
+    private static final Color SUCCESS_COLOR = Color.rgb(0, 160, 0);
+    private static final Color FAILURE_COLOR = Color.rgb(200, 0, 0);
+    private static final double STATUS_BAR_RATIO = 70.0 / 480.0;
+    private static final double PADDING = 12;
+
+    private final List<Rectangle> boxNodes = new ArrayList<>();
+    private final List<Text> labelNodes = new ArrayList<>();
+    private final Rectangle statusBar = new Rectangle();
+    private final Text statusText = new Text();
+
+    private ImageView imageView;
+    private List<DetectionResult> detections = Collections.emptyList();
+    private int frameWidth = 640;
+    private int frameHeight = 480;
+    private double threshold = 0.5;
+    private boolean active = false;
+
+    public DetectionOverlay() {
+        setMouseTransparent(true);
+        setPickOnBounds(false);
+
+        statusText.setFill(Color.WHITE);
+        statusText.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+        statusBar.setOpacity(0.85);
+        getChildren().addAll(statusBar, statusText);
+        setStatusVisible(false);
+    }
+
+    /**
+     * Follow the displayed bounds of the preview image.
+     */
+    public void attachTo(ImageView imageView) {
+        this.imageView = imageView;
+        imageView.boundsInParentProperty().addListener((obs, oldBounds, newBounds) -> requestLayout());
+        imageView.imageProperty().addListener((obs, oldImage, newImage) -> {
+            if (newImage != null && (oldImage == null
+                    || oldImage.getWidth() != newImage.getWidth()
+                    || oldImage.getHeight() != newImage.getHeight())) {
+                requestLayout();
+            }
+        });
+    }
+
+    /**
+     * Show the detections for a frame. Call on the FX thread.
+     *
+     * @param detections Boxes in frame pixel coordinates
+     * @param frameWidth Width of the frame the boxes refer to
+     * @param frameHeight Height of the frame the boxes refer to
+     * @param threshold Confidence threshold used for the status message
+     */
+    public void showDetections(List<DetectionResult> detections, int frameWidth, int frameHeight, double threshold) {
+        this.detections = detections != null ? detections : Collections.emptyList();
+        if (frameWidth > 0 && frameHeight > 0) {
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+        }
+        this.threshold = threshold;
+        this.active = true;
+
+        ensureBoxNodes(this.detections.size());
+        DetectionResult best = best(this.detections);
+        String message = best != null ? best.getStatusMessage(threshold) : "No bottle detected.";
+        if (!message.equals(statusText.getText())) {
+            statusText.setText(message);
+        }
+        statusBar.setFill(best != null ? SUCCESS_COLOR : FAILURE_COLOR);
+        setStatusVisible(true);
+        requestLayout();
+    }
+
+    /**
+     * Remove all feedback (e.g. when scanning stops).
+     */
+    public void clear() {
+        detections = Collections.emptyList();
+        active = false;
+        setStatusVisible(false);
+        for (int i = 0; i < boxNodes.size(); i++) {
+            boxNodes.get(i).setVisible(false);
+            labelNodes.get(i).setVisible(false);
+        }
+    }
+
+    private void setStatusVisible(boolean visible) {
+        statusBar.setVisible(visible);
+        statusText.setVisible(visible);
+    }
+
+    private void ensureBoxNodes(int count) {
+        while (boxNodes.size() < count) {
+            Rectangle box = new Rectangle();
+            box.setFill(Color.TRANSPARENT);
+            box.setStroke(SUCCESS_COLOR);
+            box.setStrokeWidth(2);
+            Text label = new Text();
+            label.setFill(SUCCESS_COLOR);
+            label.setFont(Font.font("Arial", FontWeight.BOLD, 13));
+            boxNodes.add(box);
+            labelNodes.add(label);
+            getChildren().addAll(box, label);
+        }
+    }
+
+    private static DetectionResult best(List<DetectionResult> detections) {
+        DetectionResult best = null;
+        for (DetectionResult detection : detections) {
+            if (best == null || detection.getConfidence() > best.getConfidence()) {
+                best = detection;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        if (!active || imageView == null) {
+            return;
+        }
+
+        Bounds image = imageView.getBoundsInParent();
+        if (image.getWidth() <= 0 || image.getHeight() <= 0) {
+            return;
+        }
+        double scaleX = image.getWidth() / frameWidth;
+        double scaleY = image.getHeight() / frameHeight;
+
+        for (int i = 0; i < boxNodes.size(); i++) {
+            Rectangle node = boxNodes.get(i);
+            Text label = labelNodes.get(i);
+            if (i >= detections.size()) {
+                node.setVisible(false);
+                label.setVisible(false);
+                continue;
+            }
+
+            DetectionResult detection = detections.get(i);
+            Rect box = detection.getBoundingBox();
+            double x = image.getMinX() + box.x * scaleX;
+            double y = image.getMinY() + box.y * scaleY;
+            node.setX(x);
+            node.setY(y);
+            node.setWidth(box.width * scaleX);
+            node.setHeight(box.height * scaleY);
+            node.setVisible(true);
+
+            String text = detection.getLabel() + " " + detection.getConfidencePercentage();
+            if (!text.equals(label.getText())) {
+                label.setText(text);
+            }
+            label.setX(x);
+            label.setY(Math.max(image.getMinY() + 14, y - 4));
+            label.setVisible(true);
+        }
+
+        double barHeight = image.getHeight() * STATUS_BAR_RATIO;
+        statusBar.setX(image.getMinX());
+        statusBar.setY(image.getMaxY() - barHeight);
+        statusBar.setWidth(image.getWidth());
+        statusBar.setHeight(barHeight);
+        statusText.setX(image.getMinX() + PADDING * scaleX);
+        statusText.setY(image.getMaxY() - barHeight / 2 + 5);
+        statusText.setWrappingWidth(image.getWidth() - 2 * PADDING * scaleX);
+    }
+}
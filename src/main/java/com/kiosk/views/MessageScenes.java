@@ -0,0 +1,146 @@
+package com.kiosk.views;
+
+import com.kiosk.models.WasteCategory;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.CacheHint;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One prebuilt disposal message per waste category, stacked so that
+ * showing a message only switches which one is visible.
+ *
+ * Relabelling shared labels for every detection meant a CSS pass and text
+ * layout of all three labels on the pulse that showed the message, and
+ * rasterizing any glyph appearing at a size for the first time. Here every
+ * message is built once with its text fixed, styled, laid out and rendered
+ * off screen as soon as the view is in a scene, and then cached as a bitmap
+ * ({@link CacheHint#SPEED}). Every scene stays
+ * managed, so the stack keeps the size of the largest message and
+ * switching does not resize the surrounding layout. Only the "Then:" line
+ * for queued items is set per message, and only while items are queued.
+ *
+ * Uses the message style classes of kiosk-styles.css (icon-label,
+ * category-label, instruction-label).
+ */
+public class MessageScenes extends StackPane {
+    private final Map<WasteCategory, VBox> scenes = new EnumMap<>(WasteCategory.class);
+    private final Map<WasteCategory, Label> queueLabels = new EnumMap<>(WasteCategory.class);
+    private WasteCategory showing;
+    private boolean prepared;
+
+    public MessageScenes() {
+        setAlignment(Pos.CENTER);
+        for (WasteCategory category : WasteCategory.values()) {
+            Label icon = label(category.getIcon(), "icon-label");
+            Label name = label(category.getCategoryName(), "category-label");
+            Label instruction = label(category.getInstruction(), "instruction-label");
+            Label queue = label("", "instruction-label");
+            queue.setVisible(false);
+            queue.setManaged(false);
+
+            VBox scene = new VBox(10, icon, name, instruction, queue);
+            scene.setAlignment(Pos.CENTER);
+            scene.setVisible(false);
+            scene.setCache(true);
+            scene.setCacheHint(CacheHint.SPEED);
+            scenes.put(category, scene);
+            queueLabels.put(category, queue);
+            getChildren().add(scene);
+        }
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null && !prepared) {
+                Platform.runLater(this::prepare);
+            }
+        });
+    }
+
+    private static Label label(String text, String styleClass) {
+        Label label = new Label(text);
+        label.getStyleClass().add(styleClass);
+        label.setWrapText(true);
+        return label;
+    }
+
+    /**
+     * Style, lay out and render every message once, so the first real one
+     * finds its glyphs rasterized and its bitmap cached. Runs by itself
+     * once the view is in a scene; calling it again does nothing.
+     */
+    public void prepare() {
+        if (prepared || getScene() == null) {
+            return;
+        }
+        prepared = true;
+        for (VBox scene : scenes.values()) {
+            render(scene);
+        }
+    }
+
+    /**
+     * Style, lay out and render a node off screen, all within one FX
+     * runnable so it never appears in a frame. Call on the FX thread.
+     */
+    public static void render(Node node) {
+        boolean visible = node.isVisible();
+        node.setVisible(true);
+        node.applyCss();
+        if (node.getScene() != null) {
+            node.getScene().getRoot().layout();
+        }
+        node.snapshot(null, null);
+        node.setVisible(visible);
+    }
+
+    /**
+     * Show the message for {@code category}, naming any bins still to come.
+     * Call on the FX thread.
+     */
+    public void show(WasteCategory category, List<WasteCategory> queued) {
+        Label queue = queueLabels.get(category);
+        if (queued.isEmpty()) {
+            if (queue.isVisible()) {
+                queue.setVisible(false);
+                queue.setManaged(false);
+            }
+        } else {
+            // Several items in view: name the bins still to come so they can all go in one visit
+            StringBuilder next = new StringBuilder("Then: ");
+            for (int i = 0; i < queued.size(); i++) {
+                next.append(i == 0 ? "" : ", ").append(queued.get(i).getIcon()).append(' ')
+                        .append(queued.get(i).getCategoryName());
+            }
+            queue.setText(next.toString());
+            queue.setVisible(true);
+            queue.setManaged(true);
+        }
+        if (showing != category) {
+            if (showing != null) {
+                scenes.get(showing).setVisible(false);
+            }
+            scenes.get(category).setVisible(true);
+            showing = category;
+        }
+    }
+
+    /**
+     * Category whose message is visible, or null.
+     */
+    public WasteCategory getShowing() {
+        return showing;
+    }
+
+    public void hide() {
+        if (showing != null) {
+            scenes.get(showing).setVisible(false);
+            showing = null;
+        }
+    }
+}
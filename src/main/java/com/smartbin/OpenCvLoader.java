@@ -0,0 +1,43 @@
+package com.smartbin;
+
+import org.opencv.core.Core;
+
+/**
+ * Loads the OpenCV native library once per process.
+ *
+ * A library already on the library path (pre-extracted into the jlink
+ * image's lib directory) is loaded directly. Otherwise the OpenPNP loader
+ * extracts the copy bundled in the jar to a temporary directory, which
+ * writes about 65 MB on every start.
+ */
+public final class OpenCvLoader {
+    private static String source;
+
+    private OpenCvLoader() {
+    }
+
+    /**
+     * @throws RuntimeException if neither way finds a usable library
+     */
+    public static synchronized void load() {
+        if (source != null) {
+            return;
+        }
+        try {
+            System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+            source = "library path";
+            return;
+        } catch (UnsatisfiedLinkError e) {
+            // Not pre-extracted; fall back to the jar
+        }
+        nu.pattern.OpenCV.loadLocally();
+        source = "extracted from jar";
+    }
+
+    /**
+     * Where the library came from, or null if not loaded yet.
+     */
+    public static synchronized String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,116 @@
+package com.smartbin.capture;
+
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+/**
+ * Webcam frame source configured from a CaptureProfile.
+ *
+ * Uses grab() then retrieve() so the timestamp is taken as soon as the
+ * driver hands the frame over, before any decoding.
+ */
+public class CameraFrameSource implements FrameSource {
+    private final VideoCapture camera;
+    private final CaptureProfile profile;
+    private long sequence = 0;
+
+    public CameraFrameSource(int cameraIndex, CaptureProfile profile) {
+        this.profile = profile;
+        this.camera = open(cameraIndex, profile);
+    }
+
+    /**
+     * Open a camera and apply the profile. FOURCC goes first because some
+     * V4L2 drivers reset the frame size when the pixel format changes.
+     * Exposure values are backend specific, so they are only applied when
+     * the profile's backend opened the camera.
+     */
+    static VideoCapture open(int cameraIndex, CaptureProfile profile) {
+        VideoCapture capture = new VideoCapture(cameraIndex, profile.getBackend());
+        boolean fellBack = false;
+        if (!capture.isOpened() && profile.getBackend() != Videoio.CAP_ANY) {
+            capture.release();
+            capture = new VideoCapture(cameraIndex, Videoio.CAP_ANY);
+            fellBack = true;
+        }
+        if (!capture.isOpened()) {
+            return capture;
+        }
+
+        if (profile.getFourcc() != null) {
+            capture.set(Videoio.CAP_PROP_FOURCC, CaptureProfile.fourccCode(profile.getFourcc()));
+        }
+        capture.set(Videoio.CAP_PROP_FRAME_WIDTH, profile.getWidth());
+        capture.set(Videoio.CAP_PROP_FRAME_HEIGHT, profile.getHeight());
+        if (profile.getFps() > 0) {
+            capture.set(Videoio.CAP_PROP_FPS, profile.getFps());
+        }
+        if (profile.getBufferSize() > 0) {
+            capture.set(Videoio.CAP_PROP_BUFFERSIZE, profile.getBufferSize());
+        }
+
+        if (fellBack) {
+            if (profile.getExposureMode() != CaptureProfile.ExposureMode.DRIVER_DEFAULT) {
+                System.out.println("[CameraFrameSource] Camera " + cameraIndex + " opened by "
+                        + capture.getBackendName() + " instead of the profile's backend; exposure left to the driver");
+            }
+            return capture;
+        }
+
+        // V4L2 uses 1 = manual, 3 = aperture priority; other backends use 0.25 / 0.75
+        boolean v4l2 = profile.getBackend() == Videoio.CAP_V4L2;
+        switch (profile.getExposureMode()) {
+            case AUTO:
+                capture.set(Videoio.CAP_PROP_AUTO_EXPOSURE, v4l2 ? 3 : 0.75);
+                break;
+            case MANUAL:
+                capture.set(Videoio.CAP_PROP_AUTO_EXPOSURE, v4l2 ? 1 : 0.25);
+                capture.set(Videoio.CAP_PROP_EXPOSURE, profile.getExposure());
+                break;
+            default:
+                break;
+        }
+        return capture;
+    }
+
+    @Override
+    public boolean read(TimestampedFrame frame) {
+        if (!camera.grab()) {
+            return false;
+        }
+        long captured = System.nanoTime();
+        if (!camera.retrieve(frame.getMat()) || frame.isEmpty()) {
+            return false;
+        }
+        frame.stamp(captured, sequence++);
+        return true;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return camera.isOpened();
+    }
+
+    public CaptureProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Settings the driver actually accepted, for logging.
+     */
+    public String describeNegotiated() {
+        return String.format("%s %dx%d@%.0f buffer=%.0f",
+                CaptureProfile.fourccName(camera.get(Videoio.CAP_PROP_FOURCC)),
+                (int) camera.get(Videoio.CAP_PROP_FRAME_WIDTH),
+                (int) camera.get(Videoio.CAP_PROP_FRAME_HEIGHT),
+                camera.get(Videoio.CAP_PROP_FPS),
+                camera.get(Videoio.CAP_PROP_BUFFERSIZE));
+    }
+
+    @Override
+    public void close() {
+        if (camera.isOpened()) {
+            camera.release();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.smartbin.capture;
+
+import org.opencv.videoio.VideoWriter;
+import org.opencv.videoio.Videoio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Camera settings negotiated with the driver before streaming.
+ *
+ * The important ones for latency are the pixel format (MJPG lets most USB
+ * webcams reach full frame rate) and the driver buffer size (a deep queue
+ * means every frame we read is already several frames old).
+ */
+public class CaptureProfile {
+
+    public enum ExposureMode {
+        /** Leave whatever the driver is configured with. */
+        DRIVER_DEFAULT,
+        /** Let the camera pick exposure; may lower the frame rate in dim light. */
+        AUTO,
+        /** Fixed exposure; keeps the frame rate steady. */
+        MANUAL
+    }
+
+    private final String name;
+    private final int backend;
+    private final String fourcc;
+    private final int width;
+    private final int height;
+    private final int fps;
+    private final int bufferSize;
+    private final ExposureMode exposureMode;
+    private final double exposure;
+
+    /**
+     * @param fourcc Pixel format such as "MJPG" or "YUYV", or null to keep the driver default
+     * @param fps Requested frame rate, or 0 to keep the driver default
+     * @param bufferSize Driver queue length, or 0 to keep the driver default
+     * @param exposure Exposure value used in MANUAL mode (driver units)
+     */
+    public CaptureProfile(String name, int backend, String fourcc, int width, int height,
+                          int fps, int bufferSize, ExposureMode exposureMode, double exposure) {
+        if (fourcc != null && fourcc.length() != 4) {
+            throw new IllegalArgumentException("FOURCC must have 4 characters: " + fourcc);
+        }
+        this.name = name;
+        this.backend = backend;
+        this.fourcc = fourcc;
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.bufferSize = bufferSize;
+        this.exposureMode = exposureMode;
+        this.exposure = exposure;
+    }
+
+    /**
+     * The profiles worth trying on this platform, lowest expected latency first.
+     */
+    public static List<CaptureProfile> candidates(int width, int height) {
+        int backend = preferredBackend();
+        List<CaptureProfile> profiles = new ArrayList<>();
+        profiles.add(new CaptureProfile("mjpg", backend, "MJPG", width, height, 30, 1, ExposureMode.DRIVER_DEFAULT, 0));
+        profiles.add(new CaptureProfile("yuyv", backend, "YUYV", width, height, 30, 1, ExposureMode.DRIVER_DEFAULT, 0));
+        profiles.add(new CaptureProfile("default", backend, null, width, height, 0, 1, ExposureMode.DRIVER_DEFAULT, 0));
+        return profiles;
+    }
+
+    /**
+     * What the app used before profiles existed: size only, everything else left to the driver.
+     */
+    public static CaptureProfile driverDefault(int width, int height) {
+        return new CaptureProfile("driver", Videoio.CAP_ANY, null, width, height, 0, 0, ExposureMode.DRIVER_DEFAULT, 0);
+    }
+
+    /**
+     * V4L2 on Linux and AVFoundation on macOS; OpenCV's choice elsewhere.
+     */
+    public static int preferredBackend() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.contains("linux")) {
+            return Videoio.CAP_V4L2;
+        }
+        if (os.contains("mac")) {
+            return Videoio.CAP_AVFOUNDATION;
+        }
+        return Videoio.CAP_ANY;
+    }
+
+    public static int fourccCode(String fourcc) {
+        return VideoWriter.fourcc(fourcc.charAt(0), fourcc.charAt(1), fourcc.charAt(2), fourcc.charAt(3));
+    }
+
+    public static String fourccName(double code) {
+        int value = (int) code;
+        if (value == 0) {
+            return "----";
+        }
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) ((value >> (8 * i)) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    public CaptureProfile withExposure(ExposureMode mode, double value) {
+        return new CaptureProfile(name, backend, fourcc, width, height, fps, bufferSize, mode, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBackend() {
+        return backend;
+    }
+
+    public String getFourcc() {
+        return fourcc;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public ExposureMode getExposureMode() {
+        return exposureMode;
+    }
+
+    public double getExposure() {
+        return exposure;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CaptureProfile{%s, %s %dx%d@%d, buffer=%d, exposure=%s}",
+                name,
+                fourcc == null ? "native" : fourcc,
+                width, height, fps,
+                bufferSize,
+                exposureMode);
+    }
+}
@@ -0,0 +1,284 @@
+package com.smartbin.capture;
+
+import com.smartbin.OpenCvLoader;
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Startup probe that picks the lowest-latency capture profile a camera supports.
+ *
+ * For each candidate profile it measures the frame rate actually delivered
+ * and how many stale frames the driver had queued after a pause (frames
+ * that come back much faster than the frame interval were already
+ * waiting). Expected staleness is (queue depth + 1) frame intervals; the
+ * profile with the lowest figure wins.
+ *
+ * Properties:
+ * <pre>
+ * smartbin.capture.profile   auto | mjpg | yuyv | default | driver (default auto)
+ * smartbin.capture.exposure  default | auto | manual (default default)
+ * smartbin.capture.exposureValue  exposure for manual mode, driver units (default -6)
+ * smartbin.capture.profileFile  capture-profiles.properties, or off (default capture-profiles.properties)
+ * </pre>
+ * The result is remembered per camera index, so the second opener of the
+ * same camera does not probe again, and the profile picked by probing is
+ * saved to the profile file so later starts skip the probe (delete the
+ * file after changing cameras). The probe takes a second or more per
+ * profile; {@link #selectAsync} starts it on a background thread so it
+ * overlaps model loading instead of holding up the UI.
+ */
+public class CaptureProfileNegotiator {
+    private static final int WARMUP_FRAMES = 5;
+    private static final int MEASURED_FRAMES = 20;
+    private static final long QUEUE_PAUSE_MS = 300;
+    private static final int MAX_QUEUE_PROBE = 8;
+
+    private static final Map<Integer, CompletableFuture<CaptureProfile>> selected = new HashMap<>();
+
+    /**
+     * Result of probing one profile.
+     */
+    public static class ProbeResult {
+        private final CaptureProfile profile;
+        private final boolean opened;
+        private final String negotiated;
+        private final double deliveredFps;
+        private final int queueDepth;
+
+        ProbeResult(CaptureProfile profile, boolean opened, String negotiated, double deliveredFps, int queueDepth) {
+            this.profile = profile;
+            this.opened = opened;
+            this.negotiated = negotiated;
+            this.deliveredFps = deliveredFps;
+            this.queueDepth = queueDepth;
+        }
+
+        public CaptureProfile getProfile() {
+            return profile;
+        }
+
+        public boolean isUsable() {
+            return opened && deliveredFps > 0;
+        }
+
+        public double getDeliveredFps() {
+            return deliveredFps;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * Expected age of a frame when read, in milliseconds.
+         */
+        public double getExpectedLatencyMs() {
+            if (!isUsable()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return (queueDepth + 1) * 1000.0 / deliveredFps;
+        }
+
+        @Override
+        public String toString() {
+            if (!opened) {
+                return profile.getName() + ": not supported";
+            }
+            return String.format("%s: %s, %.1f fps delivered, queue %d, ~%.0f ms stale",
+                    profile.getName(), negotiated, deliveredFps, queueDepth, getExpectedLatencyMs());
+        }
+    }
+
+    private CaptureProfileNegotiator() {
+    }
+
+    /**
+     * Profile to use for a camera, probing on first use. Waits for a probe
+     * already started by {@link #selectAsync}.
+     */
+    public static CaptureProfile select(int cameraIndex, int width, int height) {
+        try {
+            return selectAsync(cameraIndex, width, height).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Start choosing the profile for a camera on a background thread, e.g.
+     * at launch, so {@link #select} later finds it ready.
+     */
+    public static synchronized CompletableFuture<CaptureProfile> selectAsync(int cameraIndex, int width, int height) {
+        return selected.computeIfAbsent(cameraIndex, index -> CompletableFuture.supplyAsync(() -> {
+            OpenCvLoader.load();
+            CaptureProfile profile = withConfiguredExposure(choose(index, width, height));
+            System.out.println("[CaptureProfileNegotiator] Camera " + index + " using " + profile);
+            return profile;
+        }, task -> {
+            Thread thread = new Thread(task, "capture-probe-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }));
+    }
+
+    private static CaptureProfile choose(int cameraIndex, int width, int height) {
+        String requested = System.getProperty("smartbin.capture.profile", "auto").trim();
+        if ("driver".equalsIgnoreCase(requested)) {
+            return CaptureProfile.driverDefault(width, height);
+        }
+
+        List<CaptureProfile> candidates = CaptureProfile.candidates(width, height);
+        if (!"auto".equalsIgnoreCase(requested)) {
+            for (CaptureProfile candidate : candidates) {
+                if (candidate.getName().equalsIgnoreCase(requested)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Unknown capture profile: " + requested);
+        }
+
+        Path profileFile = profileFile();
+        String key = "camera." + cameraIndex + "." + width + "x" + height;
+        String remembered = profileFile != null ? loadProfiles(profileFile).getProperty(key) : null;
+        for (CaptureProfile candidate : candidates) {
+            if (candidate.getName().equals(remembered)) {
+                System.out.println("[CaptureProfileNegotiator] Camera " + cameraIndex + ": " + remembered
+                        + " remembered in " + profileFile + ", not probing");
+                return candidate;
+            }
+        }
+
+        ProbeResult best = null;
+        for (CaptureProfile candidate : candidates) {
+            ProbeResult result = probe(cameraIndex, candidate);
+            System.out.println("[CaptureProfileNegotiator] " + result);
+            if (result.isUsable() && (best == null || result.getExpectedLatencyMs() < best.getExpectedLatencyMs())) {
+                best = result;
+            }
+        }
+        if (best == null) {
+            return CaptureProfile.driverDefault(width, height);
+        }
+        if (profileFile != null) {
+            saveProfile(profileFile, key, best.getProfile().getName());
+        }
+        return best.getProfile();
+    }
+
+    private static Path profileFile() {
+        String file = System.getProperty("smartbin.capture.profileFile", "capture-profiles.properties").trim();
+        return file.isEmpty() || "off".equalsIgnoreCase(file) ? null : Path.of(file);
+    }
+
+    private static Properties loadProfiles(Path file) {
+        Properties profiles = new Properties();
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                profiles.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("[CaptureProfileNegotiator] Ignoring unreadable " + file + ": " + e.getMessage());
+                profiles.clear();
+            }
+        }
+        return profiles;
+    }
+
+    private static void saveProfile(Path file, String key, String profileName) {
+        Properties profiles = loadProfiles(file);
+        profiles.setProperty(key, profileName);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            profiles.store(writer, "Capture profiles picked by probing; delete to probe again");
+        } catch (IOException e) {
+            System.err.println("[CaptureProfileNegotiator] Could not save " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static CaptureProfile withConfiguredExposure(CaptureProfile profile) {
+        String mode = System.getProperty("smartbin.capture.exposure", "default").trim();
+        double value = Double.parseDouble(System.getProperty("smartbin.capture.exposureValue", "-6"));
+        if ("auto".equalsIgnoreCase(mode)) {
+            return profile.withExposure(CaptureProfile.ExposureMode.AUTO, value);
+        }
+        if ("manual".equalsIgnoreCase(mode)) {
+            return profile.withExposure(CaptureProfile.ExposureMode.MANUAL, value);
+        }
+        return profile;
+    }
+
+    /**
+     * Open the camera with a profile and measure delivered FPS and queue depth.
+     */
+    public static ProbeResult probe(int cameraIndex, CaptureProfile profile) {
+        VideoCapture capture = CameraFrameSource.open(cameraIndex, profile);
+        Mat frame = new Mat();
+        try {
+            if (!capture.isOpened()) {
+                return new ProbeResult(profile, false, null, 0, 0);
+            }
+            if (profile.getFourcc() != null) {
+                String actual = CaptureProfile.fourccName(capture.get(Videoio.CAP_PROP_FOURCC));
+                if (!profile.getFourcc().equals(actual)) {
+                    return new ProbeResult(profile, false, actual, 0, 0);
+                }
+            }
+            String negotiated = String.format("%s %dx%d",
+                    CaptureProfile.fourccName(capture.get(Videoio.CAP_PROP_FOURCC)),
+                    (int) capture.get(Videoio.CAP_PROP_FRAME_WIDTH),
+                    (int) capture.get(Videoio.CAP_PROP_FRAME_HEIGHT));
+
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                if (!capture.read(frame)) {
+                    return new ProbeResult(profile, true, negotiated, 0, 0);
+                }
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                if (!capture.grab()) {
+                    return new ProbeResult(profile, true, negotiated, 0, 0);
+                }
+            }
+            double fps = MEASURED_FRAMES / ((System.nanoTime() - start) / 1e9);
+
+            // Let the driver fill its queue, then count frames that come back immediately
+            Thread.sleep(QUEUE_PAUSE_MS);
+            long staleThresholdNanos = (long) (0.3e9 / fps);
+            int queueDepth = 0;
+            for (int i = 0; i < MAX_QUEUE_PROBE; i++) {
+                long grabStart = System.nanoTime();
+                if (!capture.grab()) {
+                    break;
+                }
+                if (System.nanoTime() - grabStart >= staleThresholdNanos) {
+                    break;
+                }
+                queueDepth++;
+            }
+
+            return new ProbeResult(profile, true, negotiated, fps, queueDepth);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ProbeResult(profile, false, null, 0, 0);
+        } finally {
+            frame.release();
+            capture.release();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartbin.capture;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single-slot, lock-free hand-off of the latest value from a producer to a consumer.
+ *
+ * The producer never blocks: offering a new value replaces one the consumer
+ * has not taken yet, and that replaced value is counted as dropped. The
+ * consumer always gets the newest value, so however fast the producer runs
+ * the consumer is at most one value behind.
+ */
+public class FrameExchange<T> {
+    private final AtomicReference<T> slot = new AtomicReference<>();
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Publish a value.
+     *
+     * @return the value it replaced (never taken), or null
+     */
+    public T offer(T value) {
+        offered.incrementAndGet();
+        T previous = slot.getAndSet(value);
+        if (previous != null) {
+            dropped.incrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Take the latest value, or null if nothing new was offered since the last take.
+     */
+    public T take() {
+        return slot.getAndSet(null);
+    }
+
+    public boolean hasValue() {
+        return slot.get() != null;
+    }
+
+    public long getOffered() {
+        return offered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
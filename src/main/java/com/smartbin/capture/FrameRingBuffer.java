@@ -0,0 +1,163 @@
+package com.smartbin.capture;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The last N downscaled frames, kept off the Java heap.
+ *
+ * All slots live in one native Mat allocated on the first write (its
+ * height follows the camera's aspect ratio), so recording allocates nothing
+ * per frame and adds no GC pressure. One thread writes; any thread may
+ * {@link #snapshot} a time window. Writers never wait for readers: each
+ * slot has a version counter (odd while being written), and a reader
+ * discards a frame whose version changed while it was copying it.
+ */
+public class FrameRingBuffer implements AutoCloseable {
+    private final int capacity;
+    private final int width;
+    private final AtomicLongArray versions;
+    private final long[] sequences;
+    private final long[] captureNanos;
+    private volatile Mat storage;
+    private Mat[] slots;
+    private int height;
+    private long written;
+
+    /**
+     * A frame copied out of the ring; the caller releases it.
+     */
+    public static final class Frame {
+        private final Mat mat;
+        private final long sequence;
+        private final long captureNanos;
+
+        Frame(Mat mat, long sequence, long captureNanos) {
+            this.mat = mat;
+            this.sequence = sequence;
+            this.captureNanos = captureNanos;
+        }
+
+        public Mat getMat() {
+            return mat;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getCaptureNanos() {
+            return captureNanos;
+        }
+
+        public void release() {
+            mat.release();
+        }
+    }
+
+    public FrameRingBuffer(int capacity, int width) {
+        if (capacity <= 0 || width <= 0) {
+            throw new IllegalArgumentException("capacity and width must be positive");
+        }
+        this.capacity = capacity;
+        this.width = width;
+        this.versions = new AtomicLongArray(capacity);
+        this.sequences = new long[capacity];
+        this.captureNanos = new long[capacity];
+    }
+
+    /**
+     * Downscale {@code frame} into the next slot. Writer thread only.
+     */
+    public void write(Mat frame, long sequence, long frameCaptureNanos) {
+        if (frame == null || frame.empty() || frame.type() != CvType.CV_8UC3) {
+            return;
+        }
+        if (storage == null) {
+            allocate(frame);
+        }
+        int slot = (int) (written % capacity);
+        long version = versions.get(slot);
+        versions.set(slot, version + 1);
+        Imgproc.resize(frame, slots[slot], slots[slot].size(), 0, 0, Imgproc.INTER_AREA);
+        sequences[slot] = sequence;
+        captureNanos[slot] = frameCaptureNanos;
+        versions.set(slot, version + 2);
+        written++;
+    }
+
+    private void allocate(Mat frame) {
+        height = Math.max(1, (int) Math.round(frame.rows() * (double) width / frame.cols()));
+        Mat all = new Mat(height * capacity, width, CvType.CV_8UC3);
+        slots = new Mat[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = all.rowRange(i * height, (i + 1) * height);
+        }
+        storage = all;
+    }
+
+    /**
+     * Copy out the frames captured in [fromNanos, toNanos], oldest first.
+     */
+    public List<Frame> snapshot(long fromNanos, long toNanos) {
+        List<Frame> frames = new ArrayList<>();
+        if (storage == null) {
+            return frames;
+        }
+        Mat[] current = slots;
+        for (int slot = 0; slot < capacity; slot++) {
+            long before = versions.get(slot);
+            if (before == 0 || (before & 1) != 0) {
+                continue;
+            }
+            long sequence = sequences[slot];
+            long nanos = captureNanos[slot];
+            if (nanos < fromNanos || nanos > toNanos) {
+                continue;
+            }
+            Mat copy = new Mat();
+            current[slot].copyTo(copy);
+            // Keep the reads above from moving past the version re-check
+            VarHandle.acquireFence();
+            if (versions.get(slot) != before) {
+                // Overwritten while copying
+                copy.release();
+                continue;
+            }
+            frames.add(new Frame(copy, sequence, nanos));
+        }
+        frames.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        return frames;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Native bytes held by the ring (0 until the first frame).
+     */
+    public long getNativeBytes() {
+        return storage != null ? (long) width * height * 3 * capacity : 0;
+    }
+
+    @Override
+    public void close() {
+        Mat all = storage;
+        storage = null;
+        if (slots != null) {
+            for (Mat slot : slots) {
+                slot.release();
+            }
+        }
+        if (all != null) {
+            all.release();
+        }
+    }
+}
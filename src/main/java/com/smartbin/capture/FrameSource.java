@@ -0,0 +1,19 @@
+package com.smartbin.capture;
+
+/**
+ * Something frames can be read from: a camera, a video file, a generator.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Read the next frame into {@code frame}, stamping its capture time.
+     *
+     * @return false if no frame was available
+     */
+    boolean read(TimestampedFrame frame);
+
+    boolean isOpened();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,14 @@
+package com.smartbin.capture;
+
+/**
+ * Observer of captured frames, called on the capture thread right after
+ * each read (live view stream, pre-event recorder).
+ *
+ * Implementations must return quickly and must not keep the frame: the
+ * holder and its Mat are reused for the next read.
+ */
+@FunctionalInterface
+public interface FrameTap {
+
+    void onFrame(TimestampedFrame frame);
+}
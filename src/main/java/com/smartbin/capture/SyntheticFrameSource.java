@@ -0,0 +1,144 @@
+package com.smartbin.capture;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Virtual camera that paces itself like a real one and encodes its frame
+ * counter into the pixels.
+ *
+ * The top strip of every frame holds {@link #CODE_BITS} black/white blocks:
+ * bit 0 says whether a synthetic "item" is in view, the rest are the frame
+ * sequence number. Anything downstream that still has the pixels (a Mat,
+ * a decoded JavaFX Image) can recover which frame it is looking at.
+ *
+ * Two sources created with the same start time and frame rate produce the
+ * same sequence number for the same moment, so separate consumers of the
+ * "camera" stay in step.
+ */
+public class SyntheticFrameSource implements FrameSource {
+    public static final int CODE_BITS = 32;
+    public static final int CODE_HEIGHT = 16;
+
+    private static final Scalar BACKGROUND = new Scalar(90, 90, 90);
+    private static final Scalar ITEM_COLOR = new Scalar(40, 180, 220);
+    private static final Scalar WHITE = new Scalar(255, 255, 255);
+    private static final Scalar BLACK = new Scalar(0, 0, 0);
+
+    private final int width;
+    private final int height;
+    private final long startNanos;
+    private final long intervalNanos;
+    private volatile boolean itemPresent = true;
+    private long lastSlot = -1;
+    private boolean open = true;
+
+    public SyntheticFrameSource(int width, int height, double fps, long startNanos) {
+        if (width < CODE_BITS * 4) {
+            throw new IllegalArgumentException("Frame too narrow for the sequence code: " + width);
+        }
+        this.width = width;
+        this.height = height;
+        this.startNanos = startNanos;
+        this.intervalNanos = (long) (1e9 / fps);
+    }
+
+    /**
+     * Blocks until the next frame is "exposed", like a camera at the configured rate.
+     * If the caller fell behind, intermediate frames are skipped.
+     */
+    @Override
+    public synchronized boolean read(TimestampedFrame frame) {
+        if (!open) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        long currentSlot = Math.max(0, (now - startNanos) / intervalNanos);
+        long slot = Math.max(lastSlot + 1, currentSlot);
+        long slotTime = startNanos + slot * intervalNanos;
+        while (System.nanoTime() < slotTime) {
+            LockSupport.parkNanos(slotTime - System.nanoTime());
+        }
+        lastSlot = slot;
+
+        render(frame.getMat(), slot, itemPresent);
+        frame.stamp(slotTime, slot);
+        return true;
+    }
+
+    private void render(Mat mat, long sequence, boolean item) {
+        mat.create(height, width, CvType.CV_8UC3);
+        mat.setTo(BACKGROUND);
+
+        if (item) {
+            int boxWidth = width / 4;
+            int boxHeight = height / 3;
+            int x = (int) ((width - boxWidth) / 2 + (sequence % 20) - 10);
+            int y = (height - boxHeight) / 2;
+            Imgproc.rectangle(mat, new Point(x, y), new Point(x + boxWidth, y + boxHeight), ITEM_COLOR, Imgproc.FILLED);
+        }
+
+        long code = (sequence << 1) | (item ? 1 : 0);
+        int blockWidth = width / CODE_BITS;
+        for (int bit = 0; bit < CODE_BITS; bit++) {
+            Scalar color = ((code >>> bit) & 1) != 0 ? WHITE : BLACK;
+            Imgproc.rectangle(mat,
+                    new Point(bit * blockWidth, 0),
+                    new Point((bit + 1) * blockWidth - 1, CODE_HEIGHT - 1),
+                    color, Imgproc.FILLED);
+        }
+    }
+
+    /**
+     * Read the code strip back from a frame produced by this class.
+     *
+     * @return the encoded value: sequence in the upper bits, item flag in bit 0
+     */
+    public static long decode(Mat frame) {
+        int blockWidth = frame.cols() / CODE_BITS;
+        long code = 0;
+        byte[] pixel = new byte[frame.channels()];
+        for (int bit = 0; bit < CODE_BITS; bit++) {
+            frame.get(CODE_HEIGHT / 2, bit * blockWidth + blockWidth / 2, pixel);
+            if ((pixel[0] & 0xFF) > 127) {
+                code |= 1L << bit;
+            }
+        }
+        return code;
+    }
+
+    public static long sequenceOf(long code) {
+        return code >>> 1;
+    }
+
+    public static boolean itemOf(long code) {
+        return (code & 1) != 0;
+    }
+
+    /**
+     * Show or hide the synthetic item in subsequent frames.
+     */
+    public void setItemPresent(boolean itemPresent) {
+        this.itemPresent = itemPresent;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    @Override
+    public synchronized boolean isOpened() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+    }
+}
@@ -0,0 +1,54 @@
+package com.smartbin.capture;
+
+import org.opencv.core.Mat;
+
+/**
+ * A captured frame together with when it was captured.
+ *
+ * Instances are meant to be reused: a FrameSource reads into the same
+ * holder every time, so the Mat buffer is only allocated once.
+ */
+public class TimestampedFrame {
+    private final Mat mat = new Mat();
+    private long captureNanos;
+    private long sequence = -1;
+
+    public Mat getMat() {
+        return mat;
+    }
+
+    /**
+     * Capture time on the System.nanoTime() clock, taken as soon as the
+     * driver handed the frame over.
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    /**
+     * Monotonic frame counter of the source, starting at 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isEmpty() {
+        return mat.empty();
+    }
+
+    public void stamp(long captureNanos, long sequence) {
+        this.captureNanos = captureNanos;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Age of the frame in milliseconds.
+     */
+    public double getAgeMillis() {
+        return (System.nanoTime() - captureNanos) / 1e6;
+    }
+
+    public void release() {
+        mat.release();
+    }
+}
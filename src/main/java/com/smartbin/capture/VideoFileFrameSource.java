@@ -0,0 +1,85 @@
+package com.smartbin.capture;
+
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+/**
+ * Frames from a recorded video, optionally looping forever.
+ *
+ * Frames are returned as fast as they can be decoded; the timestamp is the
+ * moment each frame was decoded, not its position in the file.
+ */
+public class VideoFileFrameSource implements FrameSource {
+    private final String path;
+    private final boolean loop;
+    private VideoCapture capture;
+    private long sequence = 0;
+
+    public VideoFileFrameSource(String path, boolean loop) {
+        this.path = path;
+        this.loop = loop;
+        this.capture = new VideoCapture(path);
+        if (!capture.isOpened()) {
+            throw new IllegalArgumentException("Cannot open video: " + path);
+        }
+    }
+
+    @Override
+    public synchronized boolean read(TimestampedFrame frame) {
+        if (capture == null) {
+            return false;
+        }
+        boolean read = capture.read(frame.getMat()) && !frame.isEmpty();
+        if (!read && loop) {
+            if (!capture.set(Videoio.CAP_PROP_POS_FRAMES, 0)) {
+                // Some backends cannot seek; reopen instead
+                capture.release();
+                capture = new VideoCapture(path);
+            }
+            read = capture.read(frame.getMat()) && !frame.isEmpty();
+        }
+        if (!read) {
+            return false;
+        }
+        frame.stamp(System.nanoTime(), sequence++);
+        return true;
+    }
+
+    /**
+     * Frame rate the file was recorded at, or 0 if the container does not say.
+     */
+    public synchronized double getFps() {
+        return capture == null ? 0 : Math.max(0, capture.get(Videoio.CAP_PROP_FPS));
+    }
+
+    /**
+     * Skip frames without decoding them, e.g. to play the file at its recorded speed.
+     *
+     * @return false if the end of a non-looping file was reached
+     */
+    public synchronized boolean skip(int count) {
+        for (int i = 0; i < count && capture != null; i++) {
+            if (!capture.grab()) {
+                if (!loop) {
+                    return false;
+                }
+                capture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+            }
+            sequence++;
+        }
+        return capture != null;
+    }
+
+    @Override
+    public synchronized boolean isOpened() {
+        return capture != null && capture.isOpened();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (capture != null) {
+            capture.release();
+            capture = null;
+        }
+    }
+}
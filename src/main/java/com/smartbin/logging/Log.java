@@ -0,0 +1,125 @@
+package com.smartbin.logging;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entry point for the asynchronous structured logger.
+ *
+ * Loggers are looked up once per class ({@code private static final Logger
+ * LOG = Log.get("yolo")}) and events are written by a single background
+ * thread. Configuration comes from system properties:
+ *
+ * <ul>
+ *   <li>{@code smartbin.log.level} - default level for all categories (INFO)</li>
+ *   <li>{@code smartbin.log.categories} - per-category overrides, e.g. {@code yolo=DEBUG,camera=WARN}</li>
+ *   <li>{@code smartbin.log.file} - JSON-lines log file (logs/kiosk.log), {@code none} to disable</li>
+ *   <li>{@code smartbin.log.maxBytes} / {@code smartbin.log.files} - rotation size (10 MB) and kept files (5)</li>
+ *   <li>{@code smartbin.log.console} - minimum level echoed to stdout (INFO), {@code OFF} to silence</li>
+ *   <li>{@code smartbin.log.buffer} - ring capacity in events (8192)</li>
+ * </ul>
+ *
+ * The legacy {@code SMARTBIN_DEBUG=1} environment switch still enables
+ * DEBUG for the yolo category.
+ */
+public final class Log {
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+    private static final Map<String, LogLevel> OVERRIDES = new ConcurrentHashMap<>();
+    private static volatile LogLevel defaultLevel;
+    private static final LogRingBuffer RING;
+    private static final LogWriter WRITER;
+
+    static {
+        defaultLevel = parseLevel(System.getProperty("smartbin.log.level"), LogLevel.INFO);
+        if ("1".equals(System.getenv("SMARTBIN_DEBUG"))) {
+            OVERRIDES.put("yolo", LogLevel.DEBUG);
+        }
+        parseOverrides(System.getProperty("smartbin.log.categories", ""));
+
+        RING = new LogRingBuffer(Integer.getInteger("smartbin.log.buffer", 8192));
+        LogLevel consoleLevel = parseLevel(System.getProperty("smartbin.log.console"), LogLevel.INFO);
+        WRITER = new LogWriter(RING, openFile(), consoleLevel == LogLevel.OFF ? null : System.out, consoleLevel);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::shutdown, "kiosk-log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    public static Logger get(String category) {
+        return LOGGERS.computeIfAbsent(category, c -> new Logger(c, RING, levelFor(c)));
+    }
+
+    /**
+     * Change a category's level at runtime; null restores the default.
+     */
+    public static void setLevel(String category, LogLevel level) {
+        if (level == null) {
+            OVERRIDES.remove(category);
+        } else {
+            OVERRIDES.put(category, level);
+        }
+        Logger logger = LOGGERS.get(category);
+        if (logger != null) {
+            logger.setLevel(levelFor(category));
+        }
+    }
+
+    public static void setDefaultLevel(LogLevel level) {
+        defaultLevel = level;
+        LOGGERS.values().forEach(logger -> logger.setLevel(levelFor(logger.getCategory())));
+    }
+
+    /**
+     * Drain pending events and close the log file. Safe to call more than once.
+     */
+    public static void shutdown() {
+        WRITER.shutdown(2000);
+    }
+
+    private static LogLevel levelFor(String category) {
+        return OVERRIDES.getOrDefault(category, defaultLevel);
+    }
+
+    private static void parseOverrides(String spec) {
+        for (String entry : spec.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            LogLevel level = parseLevel(entry.substring(eq + 1), null);
+            if (level != null) {
+                OVERRIDES.put(entry.substring(0, eq).trim(), level);
+            }
+        }
+    }
+
+    private static LogLevel parseLevel(String value, LogLevel fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return LogLevel.parse(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[Log] Unknown log level '" + value + "', using " + fallback);
+            return fallback;
+        }
+    }
+
+    private static RotatingFileSink openFile() {
+        String file = System.getProperty("smartbin.log.file", "logs/kiosk.log");
+        if ("none".equalsIgnoreCase(file)) {
+            return null;
+        }
+        long maxBytes = Long.getLong("smartbin.log.maxBytes", 10L * 1024 * 1024);
+        int keep = Integer.getInteger("smartbin.log.files", 5);
+        try {
+            return new RotatingFileSink(Path.of(file), maxBytes, keep);
+        } catch (IOException e) {
+            System.err.println("[Log] Cannot open log file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
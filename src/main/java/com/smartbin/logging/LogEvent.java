@@ -0,0 +1,140 @@
+package com.smartbin.logging;
+
+/**
+ * One structured log record being built.
+ *
+ * Events live in a preallocated ring and are reused, so building one does
+ * not allocate: fields are stored as key plus primitive or reference
+ * values and only turned into text on the writer thread. Always finish
+ * with {@link #log()}; an event must not be kept after that.
+ *
+ * <pre>
+ * LOG.info("detection").str("category", category).num("confidence", 0.91).num("latencyMs", 42).log();
+ * </pre>
+ *
+ * When the level or category is disabled, the logger hands out a shared
+ * inactive event whose methods do nothing.
+ */
+public class LogEvent {
+    static final int MAX_FIELDS = 8;
+
+    static final byte KIND_OBJECT = 0;
+    static final byte KIND_LONG = 1;
+    static final byte KIND_DOUBLE = 2;
+
+    static final LogEvent NOOP = new LogEvent(null, false);
+
+    private final LogRingBuffer ring;
+    private final boolean active;
+
+    // Written by the producing thread, read by the writer after publication
+    String category;
+    LogLevel level;
+    String message;
+    String threadName;
+    long timestampMillis;
+    Throwable error;
+    int fieldCount;
+    final String[] keys = new String[MAX_FIELDS];
+    final byte[] kinds = new byte[MAX_FIELDS];
+    final long[] longs = new long[MAX_FIELDS];
+    final double[] doubles = new double[MAX_FIELDS];
+    final Object[] objects = new Object[MAX_FIELDS];
+
+    long sequence;
+    volatile long published = -1;
+
+    LogEvent(LogRingBuffer ring, boolean active) {
+        this.ring = ring;
+        this.active = active;
+    }
+
+    void begin(long sequence, String category, LogLevel level, String message) {
+        this.sequence = sequence;
+        this.category = category;
+        this.level = level;
+        this.message = message;
+        this.threadName = Thread.currentThread().getName();
+        this.timestampMillis = System.currentTimeMillis();
+        this.error = null;
+        this.fieldCount = 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < fieldCount; i++) {
+            objects[i] = null;
+        }
+        error = null;
+        message = null;
+        fieldCount = 0;
+    }
+
+    private int slot(String key) {
+        if (fieldCount >= MAX_FIELDS) {
+            return -1;
+        }
+        keys[fieldCount] = key;
+        return fieldCount++;
+    }
+
+    public LogEvent str(String key, Object value) {
+        if (!active) {
+            return this;
+        }
+        int i = slot(key);
+        if (i >= 0) {
+            kinds[i] = KIND_OBJECT;
+            objects[i] = value;
+        }
+        return this;
+    }
+
+    public LogEvent num(String key, long value) {
+        if (!active) {
+            return this;
+        }
+        int i = slot(key);
+        if (i >= 0) {
+            kinds[i] = KIND_LONG;
+            longs[i] = value;
+        }
+        return this;
+    }
+
+    public LogEvent num(String key, double value) {
+        if (!active) {
+            return this;
+        }
+        int i = slot(key);
+        if (i >= 0) {
+            kinds[i] = KIND_DOUBLE;
+            doubles[i] = value;
+        }
+        return this;
+    }
+
+    public LogEvent error(Throwable error) {
+        if (active) {
+            this.error = error;
+        }
+        return this;
+    }
+
+    /**
+     * Hand the event to the background writer.
+     */
+    public void log() {
+        if (active) {
+            published = sequence;
+            ring.published();
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    LogRingBuffer getRing() {
+        return ring;
+    }
+}
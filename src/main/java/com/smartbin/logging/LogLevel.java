@@ -0,0 +1,17 @@
+package com.smartbin.logging;
+
+/**
+ * Log severity, lowest first.
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    /** Not a real level: a category set to OFF logs nothing. */
+    OFF;
+
+    public static LogLevel parse(String value) {
+        return valueOf(value.trim().toUpperCase());
+    }
+}
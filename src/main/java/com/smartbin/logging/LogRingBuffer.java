@@ -0,0 +1,109 @@
+package com.smartbin.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed ring of preallocated LogEvents shared by all logging threads.
+ *
+ * Producers claim the next sequence with a CAS and never wait: if the
+ * writer has fallen a full ring behind, the event is dropped and counted.
+ * The single writer thread consumes slots strictly in sequence order; a
+ * slot whose producer never publishes it (say, an exception thrown while a
+ * field value was computed) is skipped by the writer after a while. The
+ * writer parks while the ring is empty and publishing unparks it.
+ */
+final class LogRingBuffer {
+    private final LogEvent[] slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed = 0;
+    private volatile Thread waiting;
+
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        this.slots = new LogEvent[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogEvent(this, true);
+        }
+    }
+
+    LogEvent claim(String category, LogLevel level, String message) {
+        while (true) {
+            long sequence = next.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.incrementAndGet();
+                return LogEvent.NOOP;
+            }
+            if (next.compareAndSet(sequence, sequence + 1)) {
+                LogEvent event = slots[(int) (sequence & mask)];
+                event.begin(sequence, category, level, message);
+                return event;
+            }
+        }
+    }
+
+    /**
+     * The next event for the writer, or null if it has not been published yet.
+     */
+    LogEvent peek() {
+        long sequence = consumed;
+        LogEvent event = slots[(int) (sequence & mask)];
+        return event.published == sequence ? event : null;
+    }
+
+    void release(LogEvent event) {
+        event.clear();
+        consumed = event.sequence + 1;
+    }
+
+    /**
+     * Sequence of the slot the writer is waiting for.
+     */
+    long nextToConsume() {
+        return consumed;
+    }
+
+    /**
+     * Give up on a claimed slot that was never published; counted as dropped.
+     */
+    void skip() {
+        consumed = consumed + 1;
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Called by the writer before it parks; it re-checks the ring after this.
+     */
+    void awaitPublish(Thread writer) {
+        waiting = writer;
+    }
+
+    void stopWaiting() {
+        waiting = null;
+    }
+
+    /**
+     * Called after an event is published, to wake a parked writer.
+     */
+    void published() {
+        Thread writer = waiting;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    boolean hasClaimed() {
+        return next.get() > consumed;
+    }
+
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
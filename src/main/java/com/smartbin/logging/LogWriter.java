@@ -0,0 +1,267 @@
+package com.smartbin.logging;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that drains the ring, formats events and writes them.
+ *
+ * The file gets one JSON object per line; the console keeps the existing
+ * "[category] message key=value" look. All formatting and I/O happens
+ * here, never on the capture, detection or FX threads.
+ */
+final class LogWriter implements Runnable {
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault());
+    /** How long a claimed slot may stay unpublished before it is skipped. */
+    private static final long ABANDONED_NANOS = 200_000_000L;
+
+    private final LogRingBuffer ring;
+    private final RotatingFileSink file;
+    private final PrintStream console;
+    private final LogLevel consoleLevel;
+    private final StringBuilder line = new StringBuilder(512);
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long cachedMillis = Long.MIN_VALUE;
+    private String cachedTimestamp;
+
+    LogWriter(LogRingBuffer ring, RotatingFileSink file, PrintStream console, LogLevel consoleLevel) {
+        this.ring = ring;
+        this.file = file;
+        this.console = console;
+        this.consoleLevel = consoleLevel;
+        this.thread = new Thread(this, "kiosk-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        boolean dirty = false;
+        long stalledSequence = -1;
+        long stalledSince = 0;
+        while (running || ring.hasClaimed()) {
+            LogEvent event = ring.peek();
+            if (event == null) {
+                if (dirty) {
+                    flush();
+                    dirty = false;
+                }
+                if (!ring.hasClaimed()) {
+                    idle(0);
+                    continue;
+                }
+                // A producer is filling the next slot and unparks us when it is done
+                long sequence = ring.nextToConsume();
+                if (sequence != stalledSequence) {
+                    stalledSequence = sequence;
+                    stalledSince = System.nanoTime();
+                } else if (System.nanoTime() - stalledSince >= ABANDONED_NANOS) {
+                    // Claimed but never published (it threw before log()); don't block the ring on it
+                    ring.skip();
+                    continue;
+                }
+                idle(ABANDONED_NANOS);
+                continue;
+            }
+            reportDropped();
+            write(event);
+            ring.release(event);
+            dirty = true;
+        }
+        reportDropped();
+        flush();
+    }
+
+    /**
+     * Park until an event is published, for at most {@code nanos} (0: no limit).
+     */
+    private void idle(long nanos) {
+        ring.awaitPublish(thread);
+        if (ring.peek() == null) {
+            if (nanos > 0) {
+                LockSupport.parkNanos(this, nanos);
+            } else if (running && !ring.hasClaimed()) {
+                LockSupport.park(this);
+            }
+        }
+        ring.stopWaiting();
+    }
+
+    private void reportDropped() {
+        long dropped = ring.takeDropped();
+        if (dropped > 0) {
+            line.setLength(0);
+            line.append("{\"ts\":\"").append(timestamp(System.currentTimeMillis()))
+                    .append("\",\"level\":\"WARN\",\"cat\":\"logging\",\"msg\":\"events dropped\",\"count\":")
+                    .append(dropped).append("}\n");
+            writeFile();
+            if (console != null && LogLevel.WARN.ordinal() >= consoleLevel.ordinal()) {
+                console.println("[logging] dropped " + dropped + " events, writer fell behind");
+            }
+        }
+    }
+
+    private void write(LogEvent event) {
+        if (file != null) {
+            formatJson(event);
+            writeFile();
+        }
+        if (console != null && event.level.ordinal() >= consoleLevel.ordinal()) {
+            formatConsole(event);
+            console.print(line);
+            if (event.error != null) {
+                event.error.printStackTrace(console);
+            }
+        }
+    }
+
+    private void writeFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.write(line);
+        } catch (IOException e) {
+            if (console != null) {
+                console.println("[logging] log file write failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void formatJson(LogEvent event) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(timestamp(event.timestampMillis))
+                .append("\",\"level\":\"").append(event.level.name())
+                .append("\",\"cat\":");
+        appendJsonString(event.category);
+        line.append(",\"thread\":");
+        appendJsonString(event.threadName);
+        line.append(",\"msg\":");
+        appendJsonString(event.message);
+        for (int i = 0; i < event.fieldCount; i++) {
+            line.append(',');
+            appendJsonString(event.keys[i]);
+            line.append(':');
+            switch (event.kinds[i]) {
+                case LogEvent.KIND_LONG -> line.append(event.longs[i]);
+                case LogEvent.KIND_DOUBLE -> appendJsonDouble(event.doubles[i]);
+                default -> {
+                    Object value = event.objects[i];
+                    if (value == null) {
+                        line.append("null");
+                    } else {
+                        appendJsonString(String.valueOf(value));
+                    }
+                }
+            }
+        }
+        if (event.error != null) {
+            line.append(",\"error\":");
+            appendJsonString(String.valueOf(event.error));
+        }
+        line.append("}\n");
+    }
+
+    private void formatConsole(LogEvent event) {
+        line.setLength(0);
+        line.append('[').append(event.category).append("] ");
+        if (event.level != LogLevel.INFO) {
+            line.append(event.level.name()).append(' ');
+        }
+        line.append(event.message);
+        for (int i = 0; i < event.fieldCount; i++) {
+            line.append(' ').append(event.keys[i]).append('=');
+            switch (event.kinds[i]) {
+                case LogEvent.KIND_LONG -> line.append(event.longs[i]);
+                case LogEvent.KIND_DOUBLE -> line.append(event.doubles[i]);
+                default -> line.append(event.objects[i]);
+            }
+        }
+        line.append('\n');
+    }
+
+    private String timestamp(long millis) {
+        // Bursts share a millisecond, so only format when it changes
+        if (millis != cachedMillis) {
+            cachedMillis = millis;
+            cachedTimestamp = TIMESTAMP.format(Instant.ofEpochMilli(millis));
+        }
+        return cachedTimestamp;
+    }
+
+    private void appendJsonDouble(double value) {
+        if (Double.isFinite(value)) {
+            line.append(value);
+        } else {
+            line.append("null");
+        }
+    }
+
+    private void appendJsonString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private void flush() {
+        try {
+            if (file != null) {
+                file.flush();
+            }
+        } catch (IOException e) {
+            if (console != null) {
+                console.println("[logging] log file flush failed: " + e.getMessage());
+            }
+        }
+        if (console != null) {
+            console.flush();
+        }
+    }
+
+    void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+                // Nothing more we can report at shutdown
+            }
+        }
+    }
+}
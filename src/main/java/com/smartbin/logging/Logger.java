@@ -0,0 +1,58 @@
+package com.smartbin.logging;
+
+/**
+ * Logger for one category (e.g. "yolo", "camera", "controller").
+ *
+ * The level check is a single volatile read, so disabled calls cost almost
+ * nothing: they return a shared inactive event and build no strings.
+ */
+public final class Logger {
+    private final String category;
+    private final LogRingBuffer ring;
+    private volatile int threshold;
+
+    Logger(String category, LogRingBuffer ring, LogLevel level) {
+        this.category = category;
+        this.ring = ring;
+        this.threshold = level.ordinal();
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public LogLevel getLevel() {
+        return LogLevel.values()[threshold];
+    }
+
+    void setLevel(LogLevel level) {
+        this.threshold = level.ordinal();
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public LogEvent at(LogLevel level, String message) {
+        if (level.ordinal() < threshold) {
+            return LogEvent.NOOP;
+        }
+        return ring.claim(category, level, message);
+    }
+
+    public LogEvent debug(String message) {
+        return at(LogLevel.DEBUG, message);
+    }
+
+    public LogEvent info(String message) {
+        return at(LogLevel.INFO, message);
+    }
+
+    public LogEvent warn(String message) {
+        return at(LogLevel.WARN, message);
+    }
+
+    public LogEvent error(String message) {
+        return at(LogLevel.ERROR, message);
+    }
+}
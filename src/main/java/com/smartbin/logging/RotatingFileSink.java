@@ -0,0 +1,74 @@
+package com.smartbin.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Size-rotated log file: kiosk.log, kiosk.log.1 ... kiosk.log.N.
+ *
+ * Only touched by the writer thread.
+ */
+final class RotatingFileSink {
+    private final Path file;
+    private final long maxBytes;
+    private final int keepFiles;
+    private BufferedWriter out;
+    private long size;
+
+    RotatingFileSink(Path file, long maxBytes, int keepFiles) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.keepFiles = Math.max(1, keepFiles);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        size = Files.exists(file) ? Files.size(file) : 0;
+        out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    void write(CharSequence line) throws IOException {
+        if (size + line.length() > maxBytes && size > 0) {
+            rotate();
+        }
+        out.append(line);
+        size += line.length();
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(rotated(keepFiles));
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            Path from = rotated(i);
+            if (Files.exists(from)) {
+                Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    void close() throws IOException {
+        out.close();
+    }
+}
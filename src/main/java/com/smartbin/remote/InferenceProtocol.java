@@ -0,0 +1,187 @@
+package com.smartbin.remote;
+
+import com.smartbin.DetectionResult;
+import org.opencv.core.Rect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wire format between RemoteDetector and InferenceServer.
+ *
+ * Big-endian, one fixed header per message:
+ * <pre>
+ * request   int magic "SBQ1", byte format, byte reserved, int id,
+ *           short width, short height, int length, then length image bytes
+ * response  int magic "SBR1", byte status, byte reserved, int id,
+ *           int serverMicros, short count, then per detection:
+ *           byte labelLength, label (UTF-8), float confidence,
+ *           short x, short y, short width, short height
+ * </pre>
+ * The image is a JPEG or packed BGR pixels (width × height × 3). Ids are
+ * chosen by the client; a connection may have many requests in flight and
+ * responses are matched by id. Boxes are in the coordinates of the image
+ * that was sent.
+ */
+final class InferenceProtocol {
+    static final int REQUEST_MAGIC = 0x53425131;
+    static final int RESPONSE_MAGIC = 0x53425231;
+
+    static final byte FORMAT_JPEG = 1;
+    static final byte FORMAT_BGR = 2;
+
+    static final byte STATUS_OK = 0;
+    /** Queue full or request waited too long; the client should fall back. */
+    static final byte STATUS_OVERLOADED = 1;
+    static final byte STATUS_ERROR = 2;
+
+    static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+    static final class Request {
+        final int id;
+        final byte format;
+        final int width;
+        final int height;
+        final byte[] payload;
+
+        Request(int id, byte format, int width, int height, byte[] payload) {
+            this.id = id;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+            this.payload = payload;
+        }
+    }
+
+    static final class Response {
+        final int id;
+        final byte status;
+        final int serverMicros;
+        final List<DetectionResult> detections;
+
+        Response(int id, byte status, int serverMicros, List<DetectionResult> detections) {
+            this.id = id;
+            this.status = status;
+            this.serverMicros = serverMicros;
+            this.detections = detections;
+        }
+    }
+
+    private InferenceProtocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, int id, byte format, int width, int height,
+                             byte[] payload, int length) throws IOException {
+        out.writeInt(REQUEST_MAGIC);
+        out.writeByte(format);
+        out.writeByte(0);
+        out.writeInt(id);
+        out.writeShort(width);
+        out.writeShort(height);
+        out.writeInt(length);
+        out.write(payload, 0, length);
+    }
+
+    /**
+     * A whole request as bytes, for a {@link MessageSender}.
+     */
+    static byte[] encodeRequest(int id, byte format, int width, int height, byte[] payload, int length) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length + 32);
+        try {
+            writeRequest(new DataOutputStream(bytes), id, format, width, height, payload, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != REQUEST_MAGIC) {
+            throw new IOException("Bad request magic " + Integer.toHexString(magic));
+        }
+        byte format = in.readByte();
+        in.readByte();
+        int id = in.readInt();
+        int width = in.readUnsignedShort();
+        int height = in.readUnsignedShort();
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException("Request payload too large: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Request(id, format, width, height, payload);
+    }
+
+    static void writeResponse(DataOutputStream out, int id, byte status, int serverMicros,
+                              List<DetectionResult> detections) throws IOException {
+        out.writeInt(RESPONSE_MAGIC);
+        out.writeByte(status);
+        out.writeByte(0);
+        out.writeInt(id);
+        out.writeInt(serverMicros);
+        int count = Math.min(detections.size(), Short.MAX_VALUE);
+        out.writeShort(count);
+        for (int i = 0; i < count; i++) {
+            DetectionResult detection = detections.get(i);
+            byte[] label = detection.getLabel().getBytes(StandardCharsets.UTF_8);
+            int labelLength = Math.min(label.length, 255);
+            out.writeByte(labelLength);
+            out.write(label, 0, labelLength);
+            out.writeFloat(detection.getConfidence());
+            Rect box = detection.getBoundingBox();
+            out.writeShort(clampShort(box.x));
+            out.writeShort(clampShort(box.y));
+            out.writeShort(clampShort(box.width));
+            out.writeShort(clampShort(box.height));
+        }
+    }
+
+    /**
+     * A whole response as bytes, for a {@link MessageSender}.
+     */
+    static byte[] encodeResponse(int id, byte status, int serverMicros, List<DetectionResult> detections) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + detections.size() * 32);
+        try {
+            writeResponse(new DataOutputStream(bytes), id, status, serverMicros, detections);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != RESPONSE_MAGIC) {
+            throw new IOException("Bad response magic " + Integer.toHexString(magic));
+        }
+        byte status = in.readByte();
+        in.readByte();
+        int id = in.readInt();
+        int serverMicros = in.readInt();
+        int count = in.readUnsignedShort();
+        List<DetectionResult> detections = count == 0 ? Collections.emptyList() : new ArrayList<>(count);
+        byte[] label = new byte[255];
+        for (int i = 0; i < count; i++) {
+            int labelLength = in.readUnsignedByte();
+            in.readFully(label, 0, labelLength);
+            float confidence = in.readFloat();
+            Rect box = new Rect(in.readShort(), in.readShort(), in.readShort(), in.readShort());
+            detections.add(new DetectionResult(new String(label, 0, labelLength, StandardCharsets.UTF_8),
+                    confidence, box));
+        }
+        return new Response(id, status, serverMicros, detections);
+    }
+
+    private static int clampShort(int value) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
@@ -0,0 +1,433 @@
+package com.smartbin.remote;
+
+import com.smartbin.DetectionResult;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import com.smartbin.yolo.Detector;
+import com.smartbin.yolo.YoloBridge;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs detection for many thin kiosks on one stronger box.
+ *
+ * Each connection has a reader thread that decodes requests (JPEG or raw
+ * BGR, see {@link InferenceProtocol}) and queues them, so a client may
+ * pipeline several requests without waiting. One inference thread takes
+ * whatever is queued, from any client, up to {@code maxBatch} frames, waiting
+ * at most {@code batchWindowMillis} after the first one for more to arrive,
+ * and runs them through {@link Detector#detectBatch}. Responses go back on
+ * the connection each request came from, tagged with its id, through that
+ * connection's sender thread: a client that stops reading is dropped once
+ * its send queue fills, instead of stalling inference for every kiosk.
+ *
+ * When the queue is full, or a request has waited longer than
+ * {@code maxQueueMillis}, it is answered as overloaded without running the
+ * detector: the kiosk has fallen back to its own detector by then anyway.
+ *
+ * Usage: InferenceServer [--port 7070] [--bind 0.0.0.0] [--max-batch 8]
+ * [--batch-window-ms 2] [--max-queue-ms 500]; the model comes from
+ * smartbin.yolo.model and smartbin.yolo.inputSize like on the kiosk.
+ */
+public class InferenceServer implements AutoCloseable {
+    private static final Logger LOG = Log.get("inference");
+    private static final int SEND_QUEUE = 64;
+
+    private static final class Job {
+        final Connection connection;
+        final int id;
+        final Mat image;
+        final long receivedNanos;
+
+        Job(Connection connection, int id, Mat image, long receivedNanos) {
+            this.connection = connection;
+            this.id = id;
+            this.image = image;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    private final Detector detector;
+    private final InetSocketAddress address;
+    private final int maxBatch;
+    private final long batchWindowNanos;
+    private final long maxQueueNanos;
+    private final BlockingQueue<Job> queue;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong overloaded = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedFrames = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong inferenceNanos = new AtomicLong();
+    private final AtomicLong connectionsAccepted = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private Thread inferenceThread;
+
+    /**
+     * @param detector          Runs on the inference thread only; not closed by the server
+     * @param maxBatch          Most frames per detectBatch call
+     * @param batchWindowMillis How long to wait after the first queued frame for more
+     * @param maxQueueMillis    Requests older than this are answered as overloaded
+     */
+    public InferenceServer(Detector detector, InetSocketAddress address, int maxBatch,
+                           long batchWindowMillis, long maxQueueMillis) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + maxBatch);
+        }
+        this.detector = detector;
+        this.address = address;
+        this.maxBatch = maxBatch;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMillis);
+        this.queue = new ArrayBlockingQueue<>(maxBatch * 4);
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address);
+        running = true;
+
+        inferenceThread = new Thread(this::inferenceLoop, "inference-batch");
+        inferenceThread.setDaemon(true);
+        inferenceThread.start();
+        acceptThread = new Thread(this::acceptLoop, "inference-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        System.out.println("[InferenceServer] Listening on " + serverSocket.getLocalSocketAddress()
+                + " (batch " + maxBatch + ", window " + TimeUnit.NANOSECONDS.toMillis(batchWindowNanos) + " ms)");
+    }
+
+    /**
+     * Port actually bound, e.g. when started on port 0.
+     */
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : address.getPort();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+                connectionsAccepted.incrementAndGet();
+                connection.start();
+            } catch (IOException e) {
+                if (running) {
+                    LOG.warn("accept failed").error(e).log();
+                }
+            }
+        }
+    }
+
+    private void inferenceLoop() {
+        List<Job> batch = new ArrayList<>(maxBatch);
+        List<Mat> frames = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                Job first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                addFresh(first, batch);
+                long deadline = first.receivedNanos + batchWindowNanos;
+                while (batch.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    Job next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    addFresh(next, batch);
+                }
+                if (!batch.isEmpty()) {
+                    runBatch(batch, frames);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                for (Job job : batch) {
+                    job.image.release();
+                }
+                batch.clear();
+                frames.clear();
+            }
+        }
+    }
+
+    /**
+     * Queue a job for the batch, or answer it as overloaded if the client has given up on it.
+     */
+    private void addFresh(Job job, List<Job> batch) {
+        if (System.nanoTime() - job.receivedNanos > maxQueueNanos) {
+            overloaded.incrementAndGet();
+            job.connection.send(job.id, InferenceProtocol.STATUS_OVERLOADED, 0, Collections.emptyList());
+            job.image.release();
+            return;
+        }
+        batch.add(job);
+    }
+
+    private void runBatch(List<Job> batch, List<Mat> frames) {
+        long start = System.nanoTime();
+        for (Job job : batch) {
+            frames.add(job.image);
+            queueNanos.addAndGet(start - job.receivedNanos);
+        }
+
+        List<List<DetectionResult>> results;
+        try {
+            results = detector.detectBatch(frames);
+        } catch (RuntimeException e) {
+            LOG.error("batch detection failed").num("batch", batch.size()).error(e).log();
+            errors.addAndGet(batch.size());
+            for (Job job : batch) {
+                job.connection.send(job.id, InferenceProtocol.STATUS_ERROR, 0, Collections.emptyList());
+            }
+            return;
+        }
+        long end = System.nanoTime();
+        inferenceNanos.addAndGet(end - start);
+        batches.incrementAndGet();
+        batchedFrames.addAndGet(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            Job job = batch.get(i);
+            int serverMicros = (int) Math.min(Integer.MAX_VALUE, (end - job.receivedNanos) / 1000);
+            job.connection.send(job.id, InferenceProtocol.STATUS_OK, serverMicros, results.get(i));
+        }
+    }
+
+    /**
+     * Decode a request into a BGR Mat, or null if the payload is not a valid image.
+     */
+    private static Mat decodeImage(InferenceProtocol.Request request) {
+        if (request.format == InferenceProtocol.FORMAT_JPEG) {
+            MatOfByte encoded = new MatOfByte(request.payload);
+            Mat image = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+            encoded.release();
+            if (image.empty()) {
+                image.release();
+                return null;
+            }
+            return image;
+        }
+        if (request.format == InferenceProtocol.FORMAT_BGR
+                && request.width > 0 && request.height > 0
+                && (long) request.width * request.height * 3 == request.payload.length) {
+            Mat image = new Mat(request.height, request.width, CvType.CV_8UC3);
+            image.put(0, 0, request.payload);
+            return image;
+        }
+        return null;
+    }
+
+    /**
+     * One client connection: reads and queues requests, queues responses for its sender.
+     */
+    private final class Connection {
+        private final Socket socket;
+        private final MessageSender sender;
+        private final Thread reader;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.sender = new MessageSender(new BufferedOutputStream(socket.getOutputStream()), SEND_QUEUE,
+                    "inference-send-" + socket.getPort(), e -> close());
+            this.reader = new Thread(this::readLoop, "inference-conn-" + socket.getPort());
+            this.reader.setDaemon(true);
+        }
+
+        void start() {
+            sender.start();
+            reader.start();
+        }
+
+        private void readLoop() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (running) {
+                    InferenceProtocol.Request request = InferenceProtocol.readRequest(in);
+                    long received = System.nanoTime();
+                    requests.incrementAndGet();
+                    Mat image = decodeImage(request);
+                    if (image == null) {
+                        errors.incrementAndGet();
+                        send(request.id, InferenceProtocol.STATUS_ERROR, 0, Collections.emptyList());
+                        continue;
+                    }
+                    if (!queue.offer(new Job(this, request.id, image, received))) {
+                        image.release();
+                        overloaded.incrementAndGet();
+                        send(request.id, InferenceProtocol.STATUS_OVERLOADED, 0, Collections.emptyList());
+                    }
+                }
+            } catch (EOFException | SocketException e) {
+                // Client went away
+            } catch (IOException e) {
+                LOG.warn("dropping client").str("client", socket.getRemoteSocketAddress()).error(e).log();
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Never blocks; a client too far behind to take the response is dropped.
+         */
+        void send(int id, byte status, int serverMicros, List<DetectionResult> detections) {
+            if (socket.isClosed()) {
+                return;
+            }
+            if (!sender.offer(InferenceProtocol.encodeResponse(id, status, serverMicros, detections))) {
+                LOG.warn("dropping client, not reading responses").str("client", socket.getRemoteSocketAddress())
+                        .log();
+                close();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            sender.close();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Block until {@link #close()} is called.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Nothing to do
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        if (inferenceThread != null) {
+            try {
+                inferenceThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Job job;
+        while ((job = queue.poll()) != null) {
+            job.image.release();
+        }
+        System.out.println("[InferenceServer] " + this);
+        stopped.countDown();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Mean frames per detectBatch call.
+     */
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0.0 : (double) batchedFrames.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        long frames = batchedFrames.get();
+        long count = batches.get();
+        return String.format(
+                "InferenceServer{connections=%d, requests=%d, overloaded=%d, errors=%d, batches=%d, "
+                        + "avgBatch=%.2f, queue=%.2fms, inference=%.2fms/batch}",
+                connectionsAccepted.get(),
+                requests.get(),
+                overloaded.get(),
+                errors.get(),
+                count,
+                getAverageBatchSize(),
+                frames == 0 ? 0.0 : queueNanos.get() / 1e6 / frames,
+                count == 0 ? 0.0 : inferenceNanos.get() / 1e6 / count);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 7070;
+        String bind = "0.0.0.0";
+        int maxBatch = 8;
+        long batchWindowMillis = 2;
+        long maxQueueMillis = 500;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--bind" -> bind = args[++i];
+                case "--max-batch" -> maxBatch = Integer.parseInt(args[++i]);
+                case "--batch-window-ms" -> batchWindowMillis = Long.parseLong(args[++i]);
+                case "--max-queue-ms" -> maxQueueMillis = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Usage: InferenceServer [--port 7070] [--bind 0.0.0.0] [--max-batch 8]"
+                            + " [--batch-window-ms 2] [--max-queue-ms 500]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        String modelPath = System.getProperty("smartbin.yolo.model", "model/YOLO/best.onnx");
+        int inputSize = Integer.getInteger("smartbin.yolo.inputSize", 640);
+        YoloBridge bridge = new YoloBridge(modelPath, (FrameSource) null, inputSize);
+        InferenceServer server = new InferenceServer(bridge,
+                new InetSocketAddress(InetAddress.getByName(bind), port), maxBatch, batchWindowMillis, maxQueueMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "inference-server-stop"));
+        server.start();
+        server.awaitStop();
+        bridge.close();
+        Log.shutdown();
+    }
+}
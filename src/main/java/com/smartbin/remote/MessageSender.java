@@ -0,0 +1,76 @@
+package com.smartbin.remote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Writes encoded messages to a connection from its own thread.
+ *
+ * Socket writes block once the peer stops reading and the send buffer is
+ * full. Queueing here instead means the detection or inference thread
+ * never waits on the network: when the bounded queue is full the message
+ * is refused and the caller decides what that means (a timeout on the
+ * kiosk, a client to drop on the server). Closing the socket unblocks a
+ * write in progress.
+ */
+final class MessageSender {
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> queue;
+    private final Consumer<IOException> onFailure;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param out       Buffered stream of the connection, written by this sender only
+     * @param onFailure Told once when a write fails, on the sender thread
+     */
+    MessageSender(OutputStream out, int capacity, String name, Consumer<IOException> onFailure) {
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.onFailure = onFailure;
+        this.thread = new Thread(this::writeLoop, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queue a message without blocking; false if the queue is full or the sender closed.
+     */
+    boolean offer(byte[] message) {
+        return !closed && queue.offer(message);
+    }
+
+    private void writeLoop() {
+        try {
+            while (!closed) {
+                byte[] message = queue.take();
+                out.write(message);
+                // Batch what is already queued into one segment
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (IOException e) {
+            if (!closed) {
+                onFailure.accept(e);
+            }
+        }
+    }
+
+    /**
+     * Stop writing; the caller closes the socket.
+     */
+    void close() {
+        closed = true;
+        queue.clear();
+        thread.interrupt();
+    }
+}
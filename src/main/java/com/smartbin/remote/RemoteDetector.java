@@ -0,0 +1,417 @@
+package com.smartbin.remote;
+
+import com.smartbin.DetectionResult;
+import com.smartbin.yolo.Detector;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Detector that sends frames to an {@link InferenceServer} and falls back
+ * to a local detector when the server does not answer in time.
+ *
+ * The centred ROI of each frame is scaled down to at most {@code maxSide}
+ * pixels (the network input size; the server would scale it anyway) and
+ * sent as a JPEG or as raw BGR pixels. Boxes come back in frame
+ * coordinates.
+ *
+ * A request that is not answered within the timeout, or that the server
+ * rejects as overloaded, is detected locally instead. After a few timeouts
+ * in a row, or when the connection drops, the connection is closed and
+ * frames go straight to the fallback until the next reconnect attempt,
+ * at most every two seconds. The fallback is created on first use, so a
+ * kiosk that never loses the server never loads the model.
+ *
+ * {@link #submit} may be called from several threads and keeps many
+ * requests in flight on the one connection; {@link #detect} and the
+ * fallback run on the caller's thread like any other detector. Requests
+ * are written by a sender thread, so a server that stops reading (or a
+ * network that drops everything) cannot block the caller; a request that
+ * finds the send queue full counts as a timeout.
+ *
+ * Configured with {@code -Dsmartbin.remote=host:port} (default off),
+ * {@code smartbin.remote.timeoutMillis} (250), {@code smartbin.remote.format}
+ * (jpeg or raw), {@code smartbin.remote.jpegQuality} (85),
+ * {@code smartbin.remote.maxSide} (640) and {@code smartbin.remote.roi} (1.0).
+ */
+public class RemoteDetector implements Detector {
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_RAW = "raw";
+
+    private static final long RETRY_MILLIS = 2000;
+    private static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+    private static final int SEND_QUEUE = 32;
+
+    private final InetSocketAddress address;
+    private final long timeoutMillis;
+    private final byte format;
+    private final int maxSide;
+    private final double roi;
+    private final Supplier<Detector> fallbackFactory;
+    private final RemoteDetectorMetrics metrics = new RemoteDetectorMetrics();
+    private final Map<Integer, CompletableFuture<InferenceProtocol.Response>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    // Encoding scratch, guarded by this
+    private final Mat scaled = new Mat();
+    private final Mat packed = new Mat();
+    private final MatOfByte jpeg = new MatOfByte();
+    private final MatOfInt jpegParams;
+    private byte[] rawBuffer = new byte[0];
+
+    // Connection, guarded by this
+    private Socket socket;
+    private MessageSender sender;
+    private long nextAttemptMillis;
+    private boolean reportedDown;
+    private boolean closed;
+
+    // Detection thread only
+    private int consecutiveTimeouts;
+    private Detector fallback;
+    private boolean fallbackCreated;
+
+    /**
+     * @param fallbackFactory Creates the local detector on first need, or null to report
+     *                        nothing while the server is unavailable
+     * @param format          {@link #FORMAT_JPEG} or {@link #FORMAT_RAW}
+     * @param roi             Centred fraction of the frame to send, in (0, 1]
+     */
+    public RemoteDetector(InetSocketAddress address, long timeoutMillis, String format, int jpegQuality,
+                          int maxSide, double roi, Supplier<Detector> fallbackFactory) {
+        if (roi <= 0 || roi > 1 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Invalid remote detector settings");
+        }
+        if (!FORMAT_JPEG.equals(format) && !FORMAT_RAW.equals(format)) {
+            throw new IllegalArgumentException("Unknown remote frame format: " + format);
+        }
+        this.address = address;
+        this.timeoutMillis = timeoutMillis;
+        this.format = FORMAT_JPEG.equals(format) ? InferenceProtocol.FORMAT_JPEG : InferenceProtocol.FORMAT_BGR;
+        this.jpegParams = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, jpegQuality);
+        this.maxSide = maxSide;
+        this.roi = roi;
+        this.fallbackFactory = fallbackFactory;
+    }
+
+    /**
+     * Remote detector for {@code -Dsmartbin.remote=host:port}, or null when it is not set.
+     */
+    public static RemoteDetector fromSystemProperties(Supplier<Detector> fallbackFactory) {
+        String target = System.getProperty("smartbin.remote", "").trim();
+        if (target.isEmpty() || "off".equalsIgnoreCase(target)) {
+            return null;
+        }
+        int colon = target.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("smartbin.remote must be host:port: " + target);
+        }
+        return new RemoteDetector(
+                new InetSocketAddress(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1))),
+                Long.getLong("smartbin.remote.timeoutMillis", 250),
+                System.getProperty("smartbin.remote.format", FORMAT_JPEG).trim().toLowerCase(),
+                Integer.getInteger("smartbin.remote.jpegQuality", 85),
+                Integer.getInteger("smartbin.remote.maxSide", 640),
+                Double.parseDouble(System.getProperty("smartbin.remote.roi", "1.0")),
+                fallbackFactory);
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public RemoteDetectorMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public List<DetectionResult> detect(Mat frame) {
+        if (frame == null || frame.empty()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        CompletableFuture<List<DetectionResult>> result = submit(frame);
+        try {
+            List<DetectionResult> detections = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            metrics.recordRemote(System.nanoTime() - start);
+            consecutiveTimeouts = 0;
+            return detections;
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            recordTimeout();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                // Could not even be queued for sending
+                recordTimeout();
+            } else if (e.getCause() instanceof ConnectException) {
+                metrics.recordUnavailable();
+            } else {
+                metrics.recordFailure();
+            }
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+        return detectLocally(frame);
+    }
+
+    private void recordTimeout() {
+        metrics.recordTimeout();
+        if (++consecutiveTimeouts >= MAX_CONSECUTIVE_TIMEOUTS) {
+            consecutiveTimeouts = 0;
+            dropConnection(MAX_CONSECUTIVE_TIMEOUTS + " requests in a row timed out");
+        }
+    }
+
+    /**
+     * Send a frame without waiting for the answer, for callers that keep
+     * several frames in flight. The frame is encoded before this returns
+     * and may be reused. The future fails with a ConnectException while the
+     * server is unreachable, with a TimeoutException if the send queue is
+     * full (the server is not reading), and with an IOException if the
+     * server rejects the request or the connection drops; it never times
+     * out by itself.
+     */
+    public CompletableFuture<List<DetectionResult>> submit(Mat frame) {
+        Rect region = roiOf(frame);
+        CompletableFuture<InferenceProtocol.Response> response = new CompletableFuture<>();
+        double scale;
+        int id;
+        synchronized (this) {
+            if (!ensureConnected()) {
+                return CompletableFuture.failedFuture(new ConnectException("Inference server unavailable"));
+            }
+            Mat roiMat = frame.submat(region);
+            byte[] payload;
+            int length;
+            int width;
+            int height;
+            try {
+                Mat image = roiMat;
+                scale = 1.0;
+                int side = Math.max(roiMat.cols(), roiMat.rows());
+                if (maxSide > 0 && side > maxSide) {
+                    scale = (double) maxSide / side;
+                    Imgproc.resize(roiMat, scaled,
+                            new Size(Math.round(roiMat.cols() * scale), Math.round(roiMat.rows() * scale)),
+                            0, 0, Imgproc.INTER_AREA);
+                    image = scaled;
+                }
+                width = image.cols();
+                height = image.rows();
+                if (format == InferenceProtocol.FORMAT_JPEG) {
+                    Imgcodecs.imencode(".jpg", image, jpeg, jpegParams);
+                    payload = jpeg.toArray();
+                    length = payload.length;
+                } else {
+                    if (!image.isContinuous()) {
+                        image.copyTo(packed);
+                        image = packed;
+                    }
+                    length = (int) (image.total() * image.channels());
+                    if (rawBuffer.length != length) {
+                        rawBuffer = new byte[length];
+                    }
+                    image.get(0, 0, rawBuffer);
+                    payload = rawBuffer;
+                }
+            } finally {
+                roiMat.release();
+            }
+
+            id = nextId.incrementAndGet();
+            pending.put(id, response);
+            if (!sender.offer(InferenceProtocol.encodeRequest(id, format, width, height, payload, length))) {
+                pending.remove(id);
+                return CompletableFuture.failedFuture(new TimeoutException("Send queue full"));
+            }
+            metrics.recordSent(length);
+        }
+
+        double inverse = 1.0 / scale;
+        CompletableFuture<List<DetectionResult>> result =
+                response.thenApply(r -> toFrame(r.detections, region, inverse));
+        // Also drops the entry when the caller cancels after a timeout
+        result.whenComplete((r, e) -> pending.remove(id));
+        return result;
+    }
+
+    private Rect roiOf(Mat frame) {
+        int width = (int) Math.round(frame.cols() * roi);
+        int height = (int) Math.round(frame.rows() * roi);
+        return new Rect((frame.cols() - width) / 2, (frame.rows() - height) / 2, width, height);
+    }
+
+    private static List<DetectionResult> toFrame(List<DetectionResult> detections, Rect region, double inverse) {
+        if (detections.isEmpty() || (inverse == 1.0 && region.x == 0 && region.y == 0)) {
+            return detections;
+        }
+        List<DetectionResult> mapped = new ArrayList<>(detections.size());
+        for (DetectionResult detection : detections) {
+            Rect box = detection.getBoundingBox();
+            mapped.add(new DetectionResult(detection.getLabel(), detection.getConfidence(), new Rect(
+                    region.x + (int) Math.round(box.x * inverse),
+                    region.y + (int) Math.round(box.y * inverse),
+                    (int) Math.round(box.width * inverse),
+                    (int) Math.round(box.height * inverse))));
+        }
+        return mapped;
+    }
+
+    private List<DetectionResult> detectLocally(Mat frame) {
+        if (!fallbackCreated) {
+            fallbackCreated = true;
+            if (fallbackFactory != null) {
+                System.out.println("[RemoteDetector] Loading local fallback detector");
+                try {
+                    fallback = fallbackFactory.get();
+                } catch (RuntimeException e) {
+                    System.err.println("[RemoteDetector] No local fallback: " + e.getMessage());
+                }
+            }
+        }
+        return fallback != null ? fallback.detect(frame) : Collections.emptyList();
+    }
+
+    private boolean ensureConnected() {
+        if (closed) {
+            return false;
+        }
+        if (socket != null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextAttemptMillis) {
+            return false;
+        }
+        nextAttemptMillis = now + RETRY_MILLIS;
+        Socket candidate = new Socket();
+        try {
+            candidate.setTcpNoDelay(true);
+            candidate.connect(address, (int) timeoutMillis);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(candidate.getInputStream()));
+            sender = new MessageSender(new BufferedOutputStream(candidate.getOutputStream(), 64 * 1024),
+                    SEND_QUEUE, "remote-detector-sender", e -> disconnect(candidate, e));
+            sender.start();
+            socket = candidate;
+            Thread reader = new Thread(() -> readLoop(candidate, in), "remote-detector-reader");
+            reader.setDaemon(true);
+            reader.start();
+            reportedDown = false;
+            System.out.println("[RemoteDetector] Connected to " + address);
+            return true;
+        } catch (IOException e) {
+            try {
+                candidate.close();
+            } catch (IOException ignored) {
+                // Never connected
+            }
+            if (!reportedDown) {
+                reportedDown = true;
+                System.err.println("[RemoteDetector] Inference server " + address + " unreachable ("
+                        + e.getMessage() + "), detecting locally");
+            }
+            return false;
+        }
+    }
+
+    private void readLoop(Socket connection, DataInputStream in) {
+        try {
+            while (true) {
+                InferenceProtocol.Response response = InferenceProtocol.readResponse(in);
+                metrics.recordResponse(response.serverMicros);
+                CompletableFuture<InferenceProtocol.Response> waiting = pending.get(response.id);
+                if (waiting == null) {
+                    continue; // Caller already gave up
+                }
+                if (response.status == InferenceProtocol.STATUS_OK) {
+                    waiting.complete(response);
+                } else {
+                    waiting.completeExceptionally(new IOException(
+                            response.status == InferenceProtocol.STATUS_OVERLOADED
+                                    ? "Inference server overloaded"
+                                    : "Inference server failed the request"));
+                }
+            }
+        } catch (EOFException e) {
+            disconnect(connection, new IOException("server closed the connection", e));
+        } catch (IOException e) {
+            disconnect(connection, e);
+        }
+    }
+
+    private synchronized void dropConnection(String reason) {
+        if (socket != null) {
+            disconnect(socket, new IOException(reason));
+        }
+    }
+
+    /**
+     * Close the connection if it is still the current one and fail what was in flight on it.
+     */
+    private synchronized void disconnect(Socket connection, IOException cause) {
+        if (connection != socket) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already broken
+        }
+        sender.close();
+        socket = null;
+        sender = null;
+        nextAttemptMillis = System.currentTimeMillis() + RETRY_MILLIS;
+        if (!closed) {
+            System.err.println("[RemoteDetector] Lost " + address + " (" + cause.getMessage()
+                    + "), detecting locally");
+            reportedDown = true;
+        }
+        for (CompletableFuture<InferenceProtocol.Response> waiting : pending.values()) {
+            waiting.completeExceptionally(cause);
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (socket != null) {
+                disconnect(socket, new IOException("closed"));
+            }
+            scaled.release();
+            packed.release();
+            jpeg.release();
+            jpegParams.release();
+        }
+        if (fallback != null) {
+            fallback.close();
+        }
+    }
+}
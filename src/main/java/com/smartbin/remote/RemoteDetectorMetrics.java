@@ -0,0 +1,137 @@
+package com.smartbin.remote;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for detection offloaded to an inference server.
+ *
+ * Every frame is either answered by the server or handed to the local
+ * fallback: after a timeout, an overloaded or failed request, or while the
+ * server is unreachable.
+ */
+public class RemoteDetectorMetrics {
+    private final AtomicLong remote = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong unavailable = new AtomicLong();
+    private final AtomicLong roundTripNanos = new AtomicLong();
+    private final AtomicLong maxRoundTripNanos = new AtomicLong();
+    private final AtomicLong serverMicros = new AtomicLong();
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong requestsSent = new AtomicLong();
+
+    void recordSent(int bytes) {
+        requestsSent.incrementAndGet();
+        bytesSent.addAndGet(bytes);
+    }
+
+    void recordResponse(int micros) {
+        responses.incrementAndGet();
+        serverMicros.addAndGet(micros);
+    }
+
+    void recordRemote(long roundTrip) {
+        remote.incrementAndGet();
+        roundTripNanos.addAndGet(roundTrip);
+        maxRoundTripNanos.accumulateAndGet(roundTrip, Math::max);
+    }
+
+    void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    void recordUnavailable() {
+        unavailable.incrementAndGet();
+    }
+
+    /**
+     * Frames answered by the server.
+     */
+    public long getRemote() {
+        return remote.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Requests the server answered as overloaded or failed, or lost with the connection.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Frames detected locally without trying the server, because it was unreachable.
+     */
+    public long getUnavailable() {
+        return unavailable.get();
+    }
+
+    /**
+     * Answers received from the server, including late ones and those for {@link RemoteDetector#submit}.
+     */
+    public long getResponses() {
+        return responses.get();
+    }
+
+    public long getFallbacks() {
+        return timeouts.get() + failures.get() + unavailable.get();
+    }
+
+    public long getAverageRoundTripNanos() {
+        long count = remote.get();
+        return count == 0 ? 0 : roundTripNanos.get() / count;
+    }
+
+    public long getMaxRoundTripNanos() {
+        return maxRoundTripNanos.get();
+    }
+
+    /**
+     * Mean time from the server receiving a request to answering it (queue plus inference).
+     */
+    public long getAverageServerNanos() {
+        long count = responses.get();
+        return count == 0 ? 0 : serverMicros.get() * 1000 / count;
+    }
+
+    public long getAverageRequestBytes() {
+        long count = requestsSent.get();
+        return count == 0 ? 0 : bytesSent.get() / count;
+    }
+
+    public void reset() {
+        remote.set(0);
+        timeouts.set(0);
+        failures.set(0);
+        unavailable.set(0);
+        roundTripNanos.set(0);
+        maxRoundTripNanos.set(0);
+        serverMicros.set(0);
+        responses.set(0);
+        bytesSent.set(0);
+        requestsSent.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "RemoteDetectorMetrics{remote=%d, timeouts=%d, failures=%d, unavailable=%d, roundTrip=%.2fms, "
+                        + "maxRoundTrip=%.2fms, server=%.2fms, request=%.1fKB}",
+                getRemote(),
+                getTimeouts(),
+                getFailures(),
+                getUnavailable(),
+                getAverageRoundTripNanos() / 1e6,
+                getMaxRoundTripNanos() / 1e6,
+                getAverageServerNanos() / 1e6,
+                getAverageRequestBytes() / 1024.0);
+    }
+}
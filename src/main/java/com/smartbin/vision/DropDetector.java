@@ -0,0 +1,359 @@
+package com.smartbin.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Sees items dropped into bin openings on a camera looking at them, with
+ * frame differencing instead of a network.
+ *
+ * Each opening is a polygon zone in coordinates relative to the frame (0
+ * to 1). Frames are reduced to a small blurred grey thumbnail and compared
+ * with a slowly adapting background of the empty openings; a zone is
+ * active while enough of its pixels differ. A drop is one episode of
+ * activity: it starts when any zone becomes active and ends once every
+ * zone has been quiet for a moment. A hand reaching in and an item falling
+ * through take well under {@code maxEventMillis}; an episode that lasts
+ * longer (someone leaning over the bins, a bag left on the lid) is not a
+ * drop. The episode is reported for the zone with the most activity over
+ * its duration, so a hand crossing one opening on its way to another still
+ * counts once, for the right bin. A change across most of the frame is a
+ * lighting change: the background is replaced and nothing is reported.
+ *
+ * The background only learns while nothing is happening. A change that
+ * stays for {@code RELEARN_MILLIS} becomes part of it. Working buffers are
+ * reused, so one instance must only be used from one thread.
+ */
+public class DropDetector {
+    private static final double BACKGROUND_LEARNING_RATE = 0.05;
+    private static final double PIXEL_DIFF_THRESHOLD = 25.0;
+    private static final double LIGHTING_CHANGE_RATIO = 0.5;
+    private static final long SETTLE_MILLIS = 200;
+    private static final long RELEARN_MILLIS = 10_000;
+
+    /**
+     * An opening: a name (the bin) and a polygon relative to the frame size.
+     */
+    public static final class Zone {
+        private final String name;
+        private final double[] points;
+
+        /**
+         * @param points x0, y0, x1, y1, ... between 0 and 1; at least three points
+         */
+        public Zone(String name, double... points) {
+            if (points.length < 6 || points.length % 2 != 0) {
+                throw new IllegalArgumentException(name + ": a zone needs at least three x,y points");
+            }
+            for (double value : points) {
+                if (!(value >= 0 && value <= 1)) {
+                    throw new IllegalArgumentException(name + ": zone coordinates must be between 0 and 1");
+                }
+            }
+            this.name = name;
+            this.points = points.clone();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(name).append(':');
+            for (int i = 0; i < points.length; i += 2) {
+                text.append(' ').append(points[i]).append(',').append(points[i + 1]);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Zones from a properties file, one per line: {@code NAME = x,y x,y x,y ...}.
+     *
+     * @throws IllegalArgumentException listing every invalid zone
+     */
+    public static List<Zone> loadZones(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        List<Zone> zones = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            try {
+                String[] pairs = properties.getProperty(name).trim().split("\\s+");
+                double[] points = new double[pairs.length * 2];
+                for (int i = 0; i < pairs.length; i++) {
+                    String[] xy = pairs[i].split(",");
+                    if (xy.length != 2) {
+                        throw new IllegalArgumentException(name + ": expected x,y but got '" + pairs[i] + "'");
+                    }
+                    points[2 * i] = Double.parseDouble(xy[0]);
+                    points[2 * i + 1] = Double.parseDouble(xy[1]);
+                }
+                zones.add(new Zone(name, points));
+            } catch (NumberFormatException e) {
+                errors.add(name + ": " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                errors.add(e.getMessage());
+            }
+        }
+        if (zones.isEmpty() && errors.isEmpty()) {
+            errors.add("no zones in " + file);
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return zones;
+    }
+
+    private final List<Zone> zones;
+    private final int senseWidth;
+    private final double minZoneRatio;
+    private final long maxEventNanos;
+
+    private final Mat small = new Mat();
+    private final Mat gray = new Mat();
+    private final Mat grayFloat = new Mat();
+    private final Mat background = new Mat();
+    private final Mat diff = new Mat();
+    private final Mat changed = new Mat();
+    private final Mat scratch = new Mat();
+    private final List<Rect> zoneRects = new ArrayList<>();
+    private final List<Mat> zoneMasks = new ArrayList<>();
+    private final int[] zoneAreas;
+    private final double[] ratios;
+    private final double[] activity;
+    private boolean hasBackground;
+
+    private boolean inEpisode;
+    private boolean tooLong;
+    private long episodeStartNanos;
+    private long lastActiveNanos;
+
+    private long frames;
+    private long episodes;
+    private long drops;
+    private long tooLongEpisodes;
+    private long lightingChanges;
+
+    /**
+     * @param senseWidth Width of the thumbnail compared with the background
+     * @param minZoneRatio Fraction of a zone's pixels that must change for it to be active
+     * @param maxEventMillis Longest episode still counted as a drop
+     */
+    public DropDetector(List<Zone> zones, int senseWidth, double minZoneRatio, long maxEventMillis) {
+        if (zones.isEmpty()) {
+            throw new IllegalArgumentException("at least one zone is needed");
+        }
+        this.zones = List.copyOf(zones);
+        this.senseWidth = senseWidth;
+        this.minZoneRatio = minZoneRatio;
+        this.maxEventNanos = maxEventMillis * 1_000_000L;
+        this.zoneAreas = new int[zones.size()];
+        this.ratios = new double[zones.size()];
+        this.activity = new double[zones.size()];
+    }
+
+    /**
+     * Detector with the thresholds from -Dsmartbin.drop.* (see DisposalWatcher).
+     */
+    public static DropDetector fromSystemProperties(List<Zone> zones) {
+        return new DropDetector(zones,
+                Integer.getInteger("smartbin.drop.senseWidth", 96),
+                Double.parseDouble(System.getProperty("smartbin.drop.minZoneRatio", "0.03")),
+                Long.getLong("smartbin.drop.maxEventMillis", 2500));
+    }
+
+    public List<Zone> getZones() {
+        return zones;
+    }
+
+    /**
+     * Look at the next frame of the bin camera.
+     *
+     * @param frame BGR or greyscale frame
+     * @param nanos When it was captured (or its position in a recording)
+     * @return the zone an item was just dropped into, or null
+     */
+    public String onFrame(Mat frame, long nanos) {
+        if (frame == null || frame.empty()) {
+            return null;
+        }
+        frames++;
+        int height = Math.max(1, frame.rows() * senseWidth / frame.cols());
+        Imgproc.resize(frame, small, new Size(senseWidth, height), 0, 0, Imgproc.INTER_AREA);
+        if (small.channels() == 3) {
+            Imgproc.cvtColor(small, gray, Imgproc.COLOR_BGR2GRAY);
+        } else {
+            small.copyTo(gray);
+        }
+        Imgproc.GaussianBlur(gray, gray, new Size(5, 5), 0);
+        gray.convertTo(grayFloat, CvType.CV_32F);
+
+        if (!hasBackground || background.cols() != grayFloat.cols() || background.rows() != grayFloat.rows()) {
+            buildMasks(grayFloat.cols(), grayFloat.rows());
+            grayFloat.copyTo(background);
+            hasBackground = true;
+            return null;
+        }
+
+        Core.absdiff(grayFloat, background, diff);
+        Imgproc.threshold(diff, diff, PIXEL_DIFF_THRESHOLD, 255, Imgproc.THRESH_BINARY);
+        diff.convertTo(changed, CvType.CV_8U);
+        if (Core.countNonZero(changed) > LIGHTING_CHANGE_RATIO * changed.total()) {
+            // Lights switched or the camera adjusted exposure: start over from this frame
+            lightingChanges++;
+            grayFloat.copyTo(background);
+            inEpisode = false;
+            return null;
+        }
+
+        boolean active = false;
+        for (int i = 0; i < ratios.length; i++) {
+            Mat zone = changed.submat(zoneRects.get(i));
+            Core.bitwise_and(zone, zoneMasks.get(i), scratch);
+            zone.release();
+            ratios[i] = (double) Core.countNonZero(scratch) / zoneAreas[i];
+            active |= ratios[i] >= minZoneRatio;
+        }
+
+        if (!inEpisode) {
+            if (!active) {
+                Imgproc.accumulateWeighted(grayFloat, background, BACKGROUND_LEARNING_RATE);
+                return null;
+            }
+            inEpisode = true;
+            tooLong = false;
+            episodeStartNanos = nanos;
+            Arrays.fill(activity, 0);
+            episodes++;
+        }
+
+        if (active) {
+            lastActiveNanos = nanos;
+            for (int i = 0; i < ratios.length; i++) {
+                activity[i] += ratios[i];
+            }
+            if (nanos - episodeStartNanos > RELEARN_MILLIS * 1_000_000L) {
+                // Something stayed: it is part of the scene now
+                grayFloat.copyTo(background);
+                inEpisode = false;
+            } else if (!tooLong && nanos - episodeStartNanos > maxEventNanos) {
+                tooLong = true;
+                tooLongEpisodes++;
+            }
+            return null;
+        }
+        if (nanos - lastActiveNanos < SETTLE_MILLIS * 1_000_000L) {
+            return null;
+        }
+
+        inEpisode = false;
+        if (tooLong) {
+            return null;
+        }
+        int best = 0;
+        for (int i = 1; i < activity.length; i++) {
+            if (activity[i] > activity[best]) {
+                best = i;
+            }
+        }
+        drops++;
+        return zones.get(best).getName();
+    }
+
+    private void buildMasks(int width, int height) {
+        for (Mat mask : zoneMasks) {
+            mask.release();
+        }
+        zoneMasks.clear();
+        zoneRects.clear();
+        Rect frame = new Rect(0, 0, width, height);
+        for (int i = 0; i < zones.size(); i++) {
+            double[] points = zones.get(i).points;
+            Point[] pixels = new Point[points.length / 2];
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = new Point(points[2 * p] * (width - 1), points[2 * p + 1] * (height - 1));
+            }
+            MatOfPoint polygon = new MatOfPoint(pixels);
+            Rect rect = intersect(Imgproc.boundingRect(polygon), frame);
+            for (Point pixel : pixels) {
+                pixel.x -= rect.x;
+                pixel.y -= rect.y;
+            }
+            polygon.fromArray(pixels);
+            Mat mask = Mat.zeros(rect.height, rect.width, CvType.CV_8U);
+            Imgproc.fillPoly(mask, Collections.singletonList(polygon), new Scalar(255));
+            polygon.release();
+            zoneRects.add(rect);
+            zoneMasks.add(mask);
+            zoneAreas[i] = Math.max(1, Core.countNonZero(mask));
+        }
+    }
+
+    private static Rect intersect(Rect a, Rect b) {
+        int x = Math.max(a.x, b.x);
+        int y = Math.max(a.y, b.y);
+        int right = Math.min(a.x + a.width, b.x + b.width);
+        int bottom = Math.min(a.y + a.height, b.y + b.height);
+        return new Rect(x, y, Math.max(1, right - x), Math.max(1, bottom - y));
+    }
+
+    /**
+     * Forget the background, e.g. after the camera was moved.
+     */
+    public void reset() {
+        hasBackground = false;
+        inEpisode = false;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDrops() {
+        return drops;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DropDetector[zones=%d, frames=%d, episodes=%d, drops=%d, tooLong=%d, lightingChanges=%d]",
+                zones.size(), frames, episodes, drops, tooLongEpisodes, lightingChanges);
+    }
+
+    public void close() {
+        small.release();
+        gray.release();
+        grayFloat.release();
+        background.release();
+        diff.release();
+        changed.release();
+        scratch.release();
+        for (Mat mask : zoneMasks) {
+            mask.release();
+        }
+        zoneMasks.clear();
+        hasBackground = false;
+    }
+}
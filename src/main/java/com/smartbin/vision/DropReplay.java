@@ -0,0 +1,287 @@
+package com.smartbin.vision;
+
+import com.smartbin.OpenCvLoader;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recorded-video test mode for the {@link DropDetector}.
+ *
+ * Runs the detector over a recording of the bin camera (a video file, or a
+ * directory of images such as an incident clip, in name order) at the rate
+ * the kiosk would run it. Frames of a faster recording are skipped, and
+ * the timestamps come from the recording, not from the wall clock, so
+ * results do not depend on how fast it is decoded. Prints every drop, and
+ * with a ground-truth file ({@code seconds,ZONE} per line) how many were
+ * found in the right zone, in the wrong zone, missed or made up. Also
+ * reports the CPU time per frame, for reading and for detection, and the
+ * share of one core that adds up to.
+ *
+ * Usage: DropReplay &lt;video file | image directory&gt; --zones bin-zones.properties
+ *                   [--fps 10] [--truth drops.csv] [--tolerance-ms 1000]
+ * Detector thresholds come from the usual smartbin.drop.* properties.
+ */
+public class DropReplay {
+
+    /**
+     * A drop into a zone at a time in the recording.
+     */
+    public static final class Drop {
+        private final long nanos;
+        private final String zone;
+
+        public Drop(long nanos, String zone) {
+            this.nanos = nanos;
+            this.zone = zone;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public String getZone() {
+            return zone;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%8.2f s  %s", nanos / 1e9, zone);
+        }
+    }
+
+    private final DropDetector detector;
+    private final long intervalNanos;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<Drop> drops = new ArrayList<>();
+    private long nextDueNanos;
+    private long frames;
+    private long readCpuNanos;
+    private long detectCpuNanos;
+
+    public DropReplay(DropDetector detector, double fps) {
+        this.detector = detector;
+        this.intervalNanos = (long) (1e9 / fps);
+    }
+
+    /**
+     * Frames of a video file, timed by their position in it.
+     */
+    public void replayVideo(String path, double fallbackFps) {
+        VideoCapture capture = new VideoCapture(path);
+        if (!capture.isOpened()) {
+            throw new IllegalArgumentException("Cannot open video: " + path);
+        }
+        double fileFps = capture.get(Videoio.CAP_PROP_FPS);
+        double frameNanos = 1e9 / (fileFps > 0 ? fileFps : fallbackFps);
+        Mat frame = new Mat();
+        try {
+            for (long index = 0; ; index++) {
+                long nanos = (long) (index * frameNanos);
+                if (nanos < nextDueNanos) {
+                    if (!capture.grab()) {
+                        break;
+                    }
+                    continue;
+                }
+                long start = cpuNanos();
+                boolean read = capture.read(frame) && !frame.empty();
+                readCpuNanos += cpuNanos() - start;
+                if (!read) {
+                    break;
+                }
+                process(frame, nanos);
+            }
+        } finally {
+            frame.release();
+            capture.release();
+        }
+    }
+
+    /**
+     * Images of a directory, one every 1/{@code fps} seconds.
+     */
+    public void replayDirectory(File directory, double fps) {
+        File[] files = directory.listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        if (files == null) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        double frameNanos = 1e9 / fps;
+        for (int index = 0; index < files.length; index++) {
+            long nanos = (long) (index * frameNanos);
+            if (nanos < nextDueNanos) {
+                continue;
+            }
+            long start = cpuNanos();
+            Mat frame = Imgcodecs.imread(files[index].getAbsolutePath());
+            readCpuNanos += cpuNanos() - start;
+            if (!frame.empty()) {
+                process(frame, nanos);
+            }
+            frame.release();
+        }
+    }
+
+    private void process(Mat frame, long nanos) {
+        nextDueNanos = nanos + intervalNanos - intervalNanos / 10;
+        frames++;
+        long start = cpuNanos();
+        String zone = detector.onFrame(frame, nanos);
+        detectCpuNanos += cpuNanos() - start;
+        if (zone != null) {
+            drops.add(new Drop(nanos, zone));
+        }
+    }
+
+    private long cpuNanos() {
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    public List<Drop> getDrops() {
+        return drops;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * CPU time per frame spent reading (decoding) it.
+     */
+    public double getReadMicrosPerFrame() {
+        return frames == 0 ? 0 : readCpuNanos / 1e3 / frames;
+    }
+
+    /**
+     * CPU time per frame spent in the detector.
+     */
+    public double getDetectMicrosPerFrame() {
+        return frames == 0 ? 0 : detectCpuNanos / 1e3 / frames;
+    }
+
+    /**
+     * Share of one core that reading and detecting would take at the replay rate, in percent.
+     */
+    public double getCorePercent() {
+        return (readCpuNanos + detectCpuNanos) / (double) Math.max(1, frames) / intervalNanos * 100;
+    }
+
+    /**
+     * Drops against ground truth: a found drop matches the nearest unmatched
+     * true drop within the tolerance.
+     *
+     * @return {right zone, wrong zone, missed, made up}
+     */
+    public int[] score(List<Drop> truth, long toleranceMillis) {
+        long tolerance = toleranceMillis * 1_000_000L;
+        boolean[] used = new boolean[truth.size()];
+        int right = 0;
+        int wrong = 0;
+        int madeUp = 0;
+        for (Drop found : drops) {
+            int best = -1;
+            for (int i = 0; i < truth.size(); i++) {
+                long distance = Math.abs(truth.get(i).nanos - found.nanos);
+                if (!used[i] && distance <= tolerance
+                        && (best < 0 || distance < Math.abs(truth.get(best).nanos - found.nanos))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                madeUp++;
+            } else {
+                used[best] = true;
+                if (truth.get(best).zone.equals(found.zone)) {
+                    right++;
+                } else {
+                    wrong++;
+                }
+            }
+        }
+        return new int[]{right, wrong, truth.size() - right - wrong, madeUp};
+    }
+
+    /**
+     * Ground truth: {@code seconds,ZONE} per line; blank lines and # comments are skipped.
+     */
+    public static List<Drop> loadTruth(Path file) throws IOException {
+        List<Drop> truth = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            try {
+                truth.add(new Drop((long) (Double.parseDouble(parts[0].strip()) * 1e9), parts[1].strip()));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(file + " line " + (n + 1) + ": expected 'seconds,ZONE'");
+            }
+        }
+        return truth;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String input = null;
+        Path zonesFile = null;
+        Path truthFile = null;
+        double fps = 10;
+        long toleranceMillis = 1000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--zones" -> zonesFile = Path.of(args[++i]);
+                case "--truth" -> truthFile = Path.of(args[++i]);
+                case "--fps" -> fps = Double.parseDouble(args[++i]);
+                case "--tolerance-ms" -> toleranceMillis = Long.parseLong(args[++i]);
+                default -> input = args[i];
+            }
+        }
+        if (input == null || zonesFile == null) {
+            System.err.println("Usage: DropReplay <video file | image directory> --zones bin-zones.properties"
+                    + " [--fps 10] [--truth drops.csv] [--tolerance-ms 1000]");
+            System.exit(2);
+        }
+
+        OpenCvLoader.load();
+        DropDetector detector = DropDetector.fromSystemProperties(DropDetector.loadZones(zonesFile));
+        DropReplay replay = new DropReplay(detector, fps);
+        File file = new File(input);
+        if (file.isDirectory()) {
+            replay.replayDirectory(file, fps);
+        } else {
+            replay.replayVideo(input, fps);
+        }
+        for (Drop drop : replay.getDrops()) {
+            System.out.println(drop);
+        }
+        System.out.println("[DropReplay] " + detector);
+        System.out.printf(Locale.ROOT, "[DropReplay] %d frames at %.0f fps: read %.0f us, detect %.0f us per frame,"
+                        + " %.2f%% of one core%n",
+                replay.getFrames(), fps, replay.getReadMicrosPerFrame(), replay.getDetectMicrosPerFrame(),
+                replay.getCorePercent());
+        if (truthFile != null) {
+            int[] score = replay.score(loadTruth(truthFile), toleranceMillis);
+            System.out.printf("[DropReplay] right zone %d, wrong zone %d, missed %d, made up %d%n",
+                    score[0], score[1], score[2], score[3]);
+        }
+        detector.close();
+    }
+}
@@ -0,0 +1,50 @@
+package com.smartbin.vision;
+
+/**
+ * The most recent perceptual hashes, for near-duplicate checks.
+ *
+ * A plain ring of longs: 8 bytes per entry and a linear Hamming-distance
+ * scan, which for a few thousand entries costs a few microseconds and
+ * needs no rebalancing. The oldest hash is overwritten once full.
+ * Not thread-safe.
+ */
+public class HashIndex {
+    private final long[] hashes;
+    private int size;
+    private int next;
+
+    public HashIndex(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.hashes = new long[capacity];
+    }
+
+    public void add(long hash) {
+        hashes[next] = hash;
+        next = (next + 1) % hashes.length;
+        if (size < hashes.length) {
+            size++;
+        }
+    }
+
+    /**
+     * True if any stored hash is within {@code maxDistance} bits of {@code hash}.
+     */
+    public boolean containsNear(long hash, int maxDistance) {
+        for (int i = 0; i < size; i++) {
+            if (Long.bitCount(hashes[i] ^ hash) <= maxDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return hashes.length;
+    }
+}
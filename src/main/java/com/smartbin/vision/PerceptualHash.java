@@ -0,0 +1,81 @@
+package com.smartbin.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit DCT perceptual hash (pHash) of an image.
+ *
+ * The image is reduced to 32x32 grey, transformed with a DCT, and each of
+ * the 8x8 lowest frequencies becomes one bit: set when above the median of
+ * the block. Small changes in lighting, noise or JPEG quality flip only a few
+ * bits, so two frames of the same scene are a small {@link #distance} apart.
+ *
+ * Working buffers are reused between calls, so one instance must only be
+ * used from one thread.
+ */
+public class PerceptualHash {
+    private static final int SIZE = 32;
+    private static final int BLOCK = 8;
+    private static final Size REDUCED = new Size(SIZE, SIZE);
+
+    private final Mat grey = new Mat();
+    private final Mat reduced = new Mat();
+    private final Mat floats = new Mat();
+    private final Mat dct = new Mat();
+    private final Mat block = new Mat();
+    private final float[] coefficients = new float[BLOCK * BLOCK];
+    private final float[] sorted = new float[BLOCK * BLOCK - 1];
+
+    /**
+     * Hash a BGR or greyscale image (or a submat ROI of one).
+     */
+    public long hash(Mat image) {
+        // Reduce first: converting 32x32 to grey is far cheaper than a full frame
+        Imgproc.resize(image, reduced, REDUCED, 0, 0, Imgproc.INTER_AREA);
+        Mat source = reduced;
+        if (reduced.channels() == 3) {
+            Imgproc.cvtColor(reduced, grey, Imgproc.COLOR_BGR2GRAY);
+            source = grey;
+        }
+        source.convertTo(floats, CvType.CV_32F);
+        Core.dct(floats, dct);
+        Mat lowest = dct.submat(0, BLOCK, 0, BLOCK);
+        lowest.copyTo(block);
+        lowest.release();
+        block.get(0, 0, coefficients);
+
+        // The DC term only measures overall brightness; leave it out of the median
+        System.arraycopy(coefficients, 1, sorted, 0, sorted.length);
+        Arrays.sort(sorted);
+        float median = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+
+        long hash = 0;
+        for (int i = 1; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Number of differing bits; 0 is identical, around 32 is unrelated.
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    public void release() {
+        grey.release();
+        reduced.release();
+        floats.release();
+        dct.release();
+        block.release();
+    }
+}
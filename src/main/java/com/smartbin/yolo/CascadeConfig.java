@@ -0,0 +1,122 @@
+package com.smartbin.yolo;
+
+/**
+ * Configuration for the detection cascade, read from system properties.
+ *
+ * <pre>
+ * smartbin.yolo.model           Full detector model (default model/YOLO/best.onnx)
+ * smartbin.yolo.inputSize       Full detector input size in px (default 640)
+ * smartbin.cascade.gate         none | onnx | motion (default none)
+ * smartbin.cascade.gateModel    Gate classifier model (default model/gate/presence.onnx)
+ * smartbin.cascade.thumbnail    Gate thumbnail size in px, 96-160 recommended (default 128)
+ * smartbin.cascade.threshold    Gate score threshold for the onnx gate (default 0.5)
+ * smartbin.cascade.gateOutput   probability | logits, what the gate model outputs (default logits)
+ * smartbin.cascade.motionRatio  Changed-pixel ratio for the motion gate (default 0.02)
+ * </pre>
+ */
+public class CascadeConfig {
+    public static final String GATE_NONE = "none";
+    public static final String GATE_ONNX = "onnx";
+    public static final String GATE_MOTION = "motion";
+
+    private final String modelPath;
+    private final int inputSize;
+    private final String gateType;
+    private final String gateModelPath;
+    private final int thumbnailSize;
+    private final double gateThreshold;
+    private final OnnxPresenceGate.Output gateOutput;
+    private final double motionRatio;
+
+    public CascadeConfig(String modelPath, int inputSize, String gateType, String gateModelPath,
+                         int thumbnailSize, double gateThreshold, OnnxPresenceGate.Output gateOutput,
+                         double motionRatio) {
+        if (inputSize < 32 || inputSize % 32 != 0) {
+            throw new IllegalArgumentException("YOLO input size must be a positive multiple of 32: " + inputSize);
+        }
+        if (thumbnailSize < 16 || thumbnailSize > inputSize) {
+            throw new IllegalArgumentException("Gate thumbnail size out of range: " + thumbnailSize);
+        }
+        if (!GATE_NONE.equals(gateType) && !GATE_ONNX.equals(gateType) && !GATE_MOTION.equals(gateType)) {
+            throw new IllegalArgumentException("Unknown cascade gate: " + gateType);
+        }
+        this.modelPath = modelPath;
+        this.inputSize = inputSize;
+        this.gateType = gateType;
+        this.gateModelPath = gateModelPath;
+        this.thumbnailSize = thumbnailSize;
+        this.gateThreshold = gateThreshold;
+        this.gateOutput = gateOutput;
+        this.motionRatio = motionRatio;
+    }
+
+    public static CascadeConfig fromSystemProperties() {
+        return new CascadeConfig(
+                System.getProperty("smartbin.yolo.model", "model/YOLO/best.onnx"),
+                Integer.getInteger("smartbin.yolo.inputSize", 640),
+                System.getProperty("smartbin.cascade.gate", GATE_NONE).trim().toLowerCase(),
+                System.getProperty("smartbin.cascade.gateModel", "model/gate/presence.onnx"),
+                Integer.getInteger("smartbin.cascade.thumbnail", 128),
+                Double.parseDouble(System.getProperty("smartbin.cascade.threshold", "0.5")),
+                OnnxPresenceGate.Output.fromName(System.getProperty("smartbin.cascade.gateOutput", "logits")),
+                Double.parseDouble(System.getProperty("smartbin.cascade.motionRatio", "0.02")));
+    }
+
+    /**
+     * Build the first-stage gate, or null when the cascade is disabled.
+     */
+    public PresenceGate createGate() {
+        switch (gateType) {
+            case GATE_ONNX:
+                return new OnnxPresenceGate(gateModelPath, thumbnailSize, gateThreshold, gateOutput);
+            case GATE_MOTION:
+                return new MotionPresenceGate(thumbnailSize, motionRatio);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Wrap the full detector in a cascade if a gate is configured.
+     */
+    public Detector wrap(Detector fullDetector) {
+        PresenceGate gate = createGate();
+        return gate == null ? fullDetector : new CascadeDetector(gate, fullDetector);
+    }
+
+    public boolean isEnabled() {
+        return !GATE_NONE.equals(gateType);
+    }
+
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public String getGateType() {
+        return gateType;
+    }
+
+    public String getGateModelPath() {
+        return gateModelPath;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public double getGateThreshold() {
+        return gateThreshold;
+    }
+
+    public OnnxPresenceGate.Output getGateOutput() {
+        return gateOutput;
+    }
+
+    public double getMotionRatio() {
+        return motionRatio;
+    }
+}
@@ -0,0 +1,55 @@
+package com.smartbin.yolo;
+
+import com.smartbin.DetectionResult;
+import org.opencv.core.Mat;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Two-stage cascade: a cheap presence gate in front of the full detector.
+ * Frames the gate rejects return no detections without touching the network.
+ */
+public class CascadeDetector implements Detector {
+    private final PresenceGate gate;
+    private final Detector detector;
+    private final CascadeMetrics metrics = new CascadeMetrics();
+
+    public CascadeDetector(PresenceGate gate, Detector detector) {
+        this.gate = gate;
+        this.detector = detector;
+    }
+
+    @Override
+    public List<DetectionResult> detect(Mat frame) {
+        long start = System.nanoTime();
+        boolean present = gate.isItemPresent(frame);
+        long gateTime = System.nanoTime() - start;
+
+        if (!present) {
+            metrics.recordRejected(gateTime);
+            return Collections.emptyList();
+        }
+
+        long detectStart = System.nanoTime();
+        List<DetectionResult> results = detector.detect(frame);
+        metrics.recordPassed(gateTime, System.nanoTime() - detectStart);
+        return results;
+    }
+
+    public CascadeMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PresenceGate getGate() {
+        return gate;
+    }
+
+    /**
+     * Closes the gate only; the wrapped detector is owned by the caller.
+     */
+    @Override
+    public void close() {
+        gate.close();
+    }
+}
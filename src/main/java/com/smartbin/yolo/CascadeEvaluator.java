@@ -0,0 +1,152 @@
+package com.smartbin.yolo;
+
+import com.smartbin.DetectionResult;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.videoio.VideoCapture;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Offline evaluation of the cascade gate against the full detector.
+ *
+ * Runs both stages on every frame of a recording (a video file or a
+ * directory of images, processed in name order) and reports how many
+ * frames the full detector found an item in that the gate would have
+ * dropped.
+ *
+ * Usage: CascadeEvaluator &lt;video file | image directory&gt;
+ * The cascade itself is configured with the usual smartbin.* properties.
+ */
+public class CascadeEvaluator {
+
+    private final PresenceGate gate;
+    private final YoloBridge detector;
+
+    private long frames;
+    private long gatePassed;
+    private long detectorPositives;
+    private long missed;
+    private long gateNanos;
+    private long detectorNanos;
+
+    public CascadeEvaluator(PresenceGate gate, YoloBridge detector) {
+        this.gate = gate;
+        this.detector = detector;
+    }
+
+    public void evaluate(Mat frame) {
+        long start = System.nanoTime();
+        boolean present = gate.isItemPresent(frame);
+        long afterGate = System.nanoTime();
+        List<DetectionResult> detections = detector.detect(frame);
+        long afterDetect = System.nanoTime();
+
+        boolean positive = detector.getBestResult(detections) != null;
+
+        frames++;
+        gateNanos += afterGate - start;
+        detectorNanos += afterDetect - afterGate;
+        if (present) {
+            gatePassed++;
+        }
+        if (positive) {
+            detectorPositives++;
+            if (!present) {
+                missed++;
+            }
+        }
+    }
+
+    public void evaluateVideo(String path) {
+        VideoCapture capture = new VideoCapture(path);
+        if (!capture.isOpened()) {
+            throw new IllegalArgumentException("Cannot open video: " + path);
+        }
+        Mat frame = new Mat();
+        try {
+            while (capture.read(frame) && !frame.empty()) {
+                evaluate(frame);
+            }
+        } finally {
+            frame.release();
+            capture.release();
+        }
+    }
+
+    public void evaluateDirectory(File directory) {
+        File[] files = directory.listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        if (files == null) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            Mat frame = Imgcodecs.imread(file.getAbsolutePath());
+            if (!frame.empty()) {
+                evaluate(frame);
+            }
+            frame.release();
+        }
+    }
+
+    public long getMissed() {
+        return missed;
+    }
+
+    public String report() {
+        long rejected = frames - gatePassed;
+        double avgDetectorMs = frames == 0 ? 0 : detectorNanos / 1e6 / frames;
+        double avgGateMs = frames == 0 ? 0 : gateNanos / 1e6 / frames;
+        double savedMs = rejected * Math.max(0, avgDetectorMs - avgGateMs);
+        return String.format(
+                "Cascade evaluation (gate=%s)%n"
+                        + "  frames:              %d%n"
+                        + "  gate passed:         %d (%.1f%%)%n"
+                        + "  detector positives:  %d%n"
+                        + "  missed by gate:      %d (%.1f%% of positives)%n"
+                        + "  avg gate time:       %.2f ms%n"
+                        + "  avg detector time:   %.2f ms%n"
+                        + "  est. time saved:     %.1f ms over %d rejected frames%n",
+                gate.getName(),
+                frames,
+                gatePassed, frames == 0 ? 0.0 : 100.0 * gatePassed / frames,
+                detectorPositives,
+                missed, detectorPositives == 0 ? 0.0 : 100.0 * missed / detectorPositives,
+                avgGateMs,
+                avgDetectorMs,
+                savedMs, rejected);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: CascadeEvaluator <video file | image directory>");
+            System.exit(2);
+        }
+
+        CascadeConfig config = CascadeConfig.fromSystemProperties();
+        PresenceGate gate = config.createGate();
+        if (gate == null) {
+            System.err.println("[CascadeEvaluator] No gate configured; set -Dsmartbin.cascade.gate=onnx|motion");
+            System.exit(2);
+        }
+
+        try (YoloBridge bridge = new YoloBridge(config.getModelPath(), -1, config.getInputSize())) {
+            CascadeEvaluator evaluator = new CascadeEvaluator(gate, bridge);
+            File input = new File(args[0]);
+            if (input.isDirectory()) {
+                evaluator.evaluateDirectory(input);
+            } else {
+                evaluator.evaluateVideo(input.getPath());
+            }
+            System.out.print(evaluator.report());
+        } finally {
+            gate.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.smartbin.yolo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the two-stage detection cascade.
+ *
+ * Latency saved is estimated per rejected frame as the running average cost
+ * of the full detector minus what the gate itself cost.
+ */
+public class CascadeMetrics {
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong gateNanos = new AtomicLong();
+    private final AtomicLong detectorNanos = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    void recordRejected(long gateTime) {
+        frames.incrementAndGet();
+        gateNanos.addAndGet(gateTime);
+        long avgDetector = getAverageDetectorNanos();
+        if (avgDetector > gateTime) {
+            savedNanos.addAndGet(avgDetector - gateTime);
+        }
+    }
+
+    void recordPassed(long gateTime, long detectorTime) {
+        frames.incrementAndGet();
+        passed.incrementAndGet();
+        gateNanos.addAndGet(gateTime);
+        detectorNanos.addAndGet(detectorTime);
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    public long getPassedFrames() {
+        return passed.get();
+    }
+
+    public long getRejectedFrames() {
+        return frames.get() - passed.get();
+    }
+
+    /**
+     * Fraction of frames the gate sent on to the full detector.
+     */
+    public double getHitRate() {
+        long total = frames.get();
+        return total == 0 ? 0.0 : (double) passed.get() / total;
+    }
+
+    public long getAverageGateNanos() {
+        long total = frames.get();
+        return total == 0 ? 0 : gateNanos.get() / total;
+    }
+
+    public long getAverageDetectorNanos() {
+        long count = passed.get();
+        return count == 0 ? 0 : detectorNanos.get() / count;
+    }
+
+    public long getSavedNanos() {
+        return savedNanos.get();
+    }
+
+    public void reset() {
+        frames.set(0);
+        passed.set(0);
+        gateNanos.set(0);
+        detectorNanos.set(0);
+        savedNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "CascadeMetrics{frames=%d, passed=%d, hitRate=%.1f%%, gate=%.2fms, detector=%.2fms, saved=%.1fms}",
+                getFrames(),
+                getPassedFrames(),
+                getHitRate() * 100,
+                getAverageGateNanos() / 1e6,
+                getAverageDetectorNanos() / 1e6,
+                getSavedNanos() / 1e6);
+    }
+}
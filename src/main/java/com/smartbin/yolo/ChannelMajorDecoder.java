@@ -0,0 +1,62 @@
+package com.smartbin.yolo;
+
+/**
+ * YOLOv8 default export: [1, 4 + classes, candidates].
+ */
+final class ChannelMajorDecoder extends OutputDecoder {
+
+    ChannelMajorDecoder(int channels, int candidates) {
+        super(channels, candidates);
+    }
+
+    @Override
+    OutputLayout getLayout() {
+        return OutputLayout.CHANNEL_MAJOR;
+    }
+
+    @Override
+    void decode(float[] data, float threshold, DecodedCandidates out) {
+        decodeRange(data, threshold, out, 0, candidates);
+    }
+
+    /**
+     * Decode candidates [from, to); also the remainder loop of the vector decoder.
+     */
+    void decodeRange(float[] data, float threshold, DecodedCandidates out, int from, int to) {
+        int classes = getClassCount();
+        int scoreBase = 4 * candidates;
+
+        for (int i = from; i < to; i++) {
+            int bestClass = 0;
+            float bestScore = data[scoreBase + i];
+            for (int c = 1; c < classes; c++) {
+                float score = data[scoreBase + c * candidates + i];
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestClass = c;
+                }
+            }
+
+            float confidence = clamp(bestScore);
+            if (confidence < threshold) {
+                out.reject(bestScore);
+                continue;
+            }
+            addBox(data, i, confidence, bestClass, out);
+        }
+    }
+
+    /**
+     * Add candidate {@code i}, whose box is stored as cx, cy, w, h in channels 0-3.
+     */
+    void addBox(float[] data, int i, float confidence, int classId, DecodedCandidates out) {
+        float width = data[i + 2 * candidates];
+        float height = data[i + 3 * candidates];
+        out.add(data[i] - width / 2, data[i + candidates] - height / 2, width, height, confidence, classId);
+    }
+
+    @Override
+    float valueAt(float[] data, int candidate, int channel) {
+        return data[candidate + channel * candidates];
+    }
+}
@@ -0,0 +1,233 @@
+package com.smartbin.yolo;
+
+import com.smartbin.OpenCvLoader;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfRect2d;
+import org.opencv.core.Rect;
+import org.opencv.core.Rect2d;
+import org.opencv.dnn.Dnn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Micro-benchmark of output decoding and NMS for 1-, 20- and 80-class models.
+ *
+ * Builds synthetic [1, 4 + classes, candidates] tensors like a 640 px
+ * YOLOv8 head produces: low background scores everywhere, plus a cluster
+ * of confident, overlapping candidates around each object and some
+ * confusion with other classes. Times the scalar and vector channel-major
+ * decoders and three NMS variants: Dnn.NMSBoxes (class-agnostic, what
+ * YoloBridge used before), Dnn.NMSBoxesBatched (class-aware) and GridNms.
+ * Also checks that both decoders agree and that GridNms keeps the same
+ * boxes as NMSBoxesBatched.
+ *
+ * Usage: DecodeBenchmark [--iterations 2000] [--candidates 8400] [--threshold 0.4] [--classes 1,20,80]
+ * Run with --add-modules jdk.incubator.vector to include the vector decoder.
+ */
+public class DecodeBenchmark {
+    private static final int INPUT_SIZE = 640;
+    private static final float NMS_THRESHOLD = 0.45f;
+    private static final int CANDIDATES_PER_OBJECT = 30;
+    // Long enough for C2 to finish even when the compiler shares one core with the benchmark
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int iterations = 2000;
+        int candidateCount = 8400;
+        float threshold = 0.4f;
+        String classList = "1,20,80";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--candidates" -> candidateCount = Integer.parseInt(args[++i]);
+                case "--threshold" -> threshold = Float.parseFloat(args[++i]);
+                case "--classes" -> classList = args[++i];
+                default -> {
+                    System.err.println("Usage: DecodeBenchmark [--iterations 2000] [--candidates 8400] [--threshold 0.4]"
+                            + " [--classes 1,20,80]");
+                    System.exit(2);
+                }
+            }
+        }
+        OpenCvLoader.load();
+        boolean vector = OutputLayout.isVectorApiEnabled();
+        System.out.println("[DecodeBenchmark] " + candidateCount + " candidates, threshold " + threshold
+                + ", vector decoder " + (vector ? "on" : "off (add --add-modules jdk.incubator.vector)"));
+        System.out.println(String.format(Locale.ROOT, "%-8s %-8s %-10s %-10s %-10s %-10s %-10s %-10s",
+                "classes", "boxes", "scalar", "vector", "speedup", "nmsBoxes", "batched", "grid"));
+
+        for (String item : classList.split(",")) {
+            int classes = Integer.parseInt(item.trim());
+            // About one object per class up to 60, 4 for a single-class model
+            int objects = classes == 1 ? 4 : Math.min(60, classes);
+            run(classes, objects, candidateCount, threshold, iterations, vector);
+        }
+    }
+
+    private static void run(int classes, int objects, int candidateCount, float threshold, int iterations,
+                            boolean vector) {
+        int channels = 4 + classes;
+        float[] data = synthesize(classes, objects, candidateCount, new Random(42 + classes));
+        ChannelMajorDecoder scalarDecoder = new ChannelMajorDecoder(channels, candidateCount);
+        OutputDecoder vectorDecoder = vector ? new VectorChannelMajorDecoder(channels, candidateCount) : null;
+
+        DecodedCandidates reference = decode(scalarDecoder, data, threshold);
+        if (vectorDecoder != null) {
+            checkSame(reference, decode(vectorDecoder, data, threshold));
+        }
+
+        double scalarMicros = timeDecode(scalarDecoder, data, threshold, iterations);
+        double vectorMicros = vectorDecoder != null ? timeDecode(vectorDecoder, data, threshold, iterations) : Double.NaN;
+
+        GridNms grid = new GridNms();
+        int[] batchedKeep = nmsBatched(reference, threshold);
+        int[] gridKeep = grid.suppress(reference, NMS_THRESHOLD);
+        int[] sortedBatched = batchedKeep.clone();
+        int[] sortedGrid = gridKeep.clone();
+        Arrays.sort(sortedBatched);
+        Arrays.sort(sortedGrid);
+        if (!Arrays.equals(sortedBatched, sortedGrid)) {
+            throw new IllegalStateException(classes + " classes: GridNms kept " + gridKeep.length
+                    + " boxes, NMSBoxesBatched " + batchedKeep.length);
+        }
+
+        int nmsIterations = Math.max(10, iterations / 4);
+        double nmsBoxesMicros = time(nmsIterations, () -> nmsBoxes(reference, threshold).length);
+        double batchedMicros = time(nmsIterations, () -> nmsBatched(reference, threshold).length);
+        double gridMicros = time(nmsIterations, () -> grid.suppress(reference, NMS_THRESHOLD).length);
+
+        System.out.println(String.format(Locale.ROOT,
+                "%-8d %-8s %-10s %-10s %-10s %-10s %-10s %-10s",
+                classes,
+                reference.size() + "->" + gridKeep.length,
+                micros(scalarMicros),
+                micros(vectorMicros),
+                Double.isNaN(vectorMicros) ? "-" : String.format(Locale.ROOT, "%.1fx", scalarMicros / vectorMicros),
+                micros(nmsBoxesMicros),
+                micros(batchedMicros),
+                micros(gridMicros)));
+    }
+
+    /**
+     * Background noise on every score, plus a cluster of jittered, confident
+     * candidates per object.
+     */
+    private static float[] synthesize(int classes, int objects, int candidateCount, Random random) {
+        float[] data = new float[(4 + classes) * candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            data[i] = random.nextFloat() * INPUT_SIZE;
+            data[i + candidateCount] = random.nextFloat() * INPUT_SIZE;
+            data[i + 2 * candidateCount] = 16 + random.nextFloat() * 160;
+            data[i + 3 * candidateCount] = 16 + random.nextFloat() * 160;
+            for (int c = 0; c < classes; c++) {
+                data[(4 + c) * candidateCount + i] = random.nextFloat() * 0.02f;
+            }
+        }
+        for (int o = 0; o < objects; o++) {
+            float cx = 40 + random.nextFloat() * (INPUT_SIZE - 80);
+            float cy = 40 + random.nextFloat() * (INPUT_SIZE - 80);
+            float w = 30 + random.nextFloat() * 150;
+            float h = 30 + random.nextFloat() * 150;
+            int cls = random.nextInt(classes);
+            for (int k = 0; k < CANDIDATES_PER_OBJECT; k++) {
+                int i = random.nextInt(candidateCount);
+                data[i] = cx + (float) random.nextGaussian() * w * 0.08f;
+                data[i + candidateCount] = cy + (float) random.nextGaussian() * h * 0.08f;
+                data[i + 2 * candidateCount] = w * (0.85f + random.nextFloat() * 0.3f);
+                data[i + 3 * candidateCount] = h * (0.85f + random.nextFloat() * 0.3f);
+                data[(4 + cls) * candidateCount + i] = 0.3f + random.nextFloat() * 0.65f;
+                if (classes > 1) {
+                    int confused = random.nextInt(classes);
+                    data[(4 + confused) * candidateCount + i] = Math.max(
+                            data[(4 + confused) * candidateCount + i], random.nextFloat() * 0.5f);
+                }
+            }
+        }
+        return data;
+    }
+
+    private static DecodedCandidates decode(OutputDecoder decoder, float[] data, float threshold) {
+        DecodedCandidates out = new DecodedCandidates(INPUT_SIZE, INPUT_SIZE, 1.0, 1.0);
+        decoder.decode(data, threshold, out);
+        return out;
+    }
+
+    private static double timeDecode(OutputDecoder decoder, float[] data, float threshold, int iterations) {
+        return time(iterations, () -> decode(decoder, data, threshold).size());
+    }
+
+    private static void checkSame(DecodedCandidates a, DecodedCandidates b) {
+        if (!a.boxes.equals(b.boxes) || !a.confidences.equals(b.confidences) || !a.classIds.equals(b.classIds)
+                || Float.compare(a.bestRejectedScore, b.bestRejectedScore) != 0) {
+            throw new IllegalStateException("Vector decoder disagrees with the scalar decoder: "
+                    + a.size() + " vs " + b.size() + " candidates");
+        }
+    }
+
+    private static int[] nmsBoxes(DecodedCandidates candidates, float threshold) {
+        MatOfRect2d boxes = toRect2d(candidates);
+        MatOfFloat scores = new MatOfFloat();
+        scores.fromList(candidates.confidences);
+        MatOfInt indices = new MatOfInt();
+        Dnn.NMSBoxes(boxes, scores, threshold, NMS_THRESHOLD, indices);
+        int[] keep = indices.toArray();
+        boxes.release();
+        scores.release();
+        indices.release();
+        return keep;
+    }
+
+    private static int[] nmsBatched(DecodedCandidates candidates, float threshold) {
+        MatOfRect2d boxes = toRect2d(candidates);
+        MatOfFloat scores = new MatOfFloat();
+        scores.fromList(candidates.confidences);
+        MatOfInt classIds = new MatOfInt();
+        classIds.fromList(candidates.classIds);
+        MatOfInt indices = new MatOfInt();
+        Dnn.NMSBoxesBatched(boxes, scores, classIds, threshold, NMS_THRESHOLD, indices);
+        int[] keep = indices.toArray();
+        boxes.release();
+        scores.release();
+        classIds.release();
+        indices.release();
+        return keep;
+    }
+
+    private static MatOfRect2d toRect2d(DecodedCandidates candidates) {
+        List<Rect2d> boxes = new ArrayList<>(candidates.size());
+        for (Rect box : candidates.boxes) {
+            boxes.add(new Rect2d(box.x, box.y, box.width, box.height));
+        }
+        MatOfRect2d mat = new MatOfRect2d();
+        mat.fromList(boxes);
+        return mat;
+    }
+
+    /**
+     * Mean microseconds per call, after warming up for at least as many calls
+     * and WARMUP_NANOS so the JIT has compiled the loop.
+     */
+    private static double time(int iterations, IntSupplier work) {
+        long warmUntil = System.nanoTime() + WARMUP_NANOS;
+        for (int i = 0; i < iterations || System.nanoTime() < warmUntil; i++) {
+            sink += work.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += work.getAsInt();
+        }
+        return (System.nanoTime() - start) / 1e3 / iterations;
+    }
+
+    private static String micros(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.1fus", value);
+    }
+}
@@ -0,0 +1,76 @@
+package com.smartbin.yolo;
+
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boxes that cleared the confidence threshold for one frame, in frame pixels.
+ * Filled by an OutputDecoder, consumed by NMS.
+ */
+class DecodedCandidates {
+    final List<Rect> boxes = new ArrayList<>();
+    final List<Float> confidences = new ArrayList<>();
+    final List<Integer> classIds = new ArrayList<>();
+
+    private final int frameWidth;
+    private final int frameHeight;
+    final double xFactor;
+    final double yFactor;
+
+    /** Best score below the threshold, for the debug log. */
+    float bestRejectedScore = Float.NEGATIVE_INFINITY;
+
+    DecodedCandidates(int frameWidth, int frameHeight, double xFactor, double yFactor) {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.xFactor = xFactor;
+        this.yFactor = yFactor;
+    }
+
+    /**
+     * Add a box given in network input pixels as top-left corner plus size.
+     */
+    void add(float x, float y, float width, float height, float confidence, int classId) {
+        int left = (int) (x * xFactor);
+        int top = (int) (y * yFactor);
+        int boxWidth = (int) (width * xFactor);
+        int boxHeight = (int) (height * yFactor);
+
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        boxWidth = Math.min(boxWidth, frameWidth - left);
+        boxHeight = Math.min(boxHeight, frameHeight - top);
+
+        if (boxWidth <= 0 || boxHeight <= 0) {
+            return;
+        }
+
+        boxes.add(new Rect(left, top, boxWidth, boxHeight));
+        confidences.add(confidence);
+        classIds.add(classId);
+    }
+
+    void reject(float score) {
+        if (!Float.isNaN(score) && score > bestRejectedScore) {
+            bestRejectedScore = score;
+        }
+    }
+
+    int getFrameWidth() {
+        return frameWidth;
+    }
+
+    int getFrameHeight() {
+        return frameHeight;
+    }
+
+    boolean isEmpty() {
+        return boxes.isEmpty();
+    }
+
+    int size() {
+        return boxes.size();
+    }
+}
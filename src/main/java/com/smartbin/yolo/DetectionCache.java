@@ -0,0 +1,169 @@
+package com.smartbin.yolo;
+
+import com.smartbin.DetectionResult;
+import com.smartbin.vision.PerceptualHash;
+import org.opencv.core.Mat;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reuses detections for frames that look like one seen recently, e.g. an
+ * item held still in front of the camera or shown again after the rescan.
+ *
+ * Each frame's ROI (a centred fraction of the frame) is reduced to a 64-bit
+ * {@link PerceptualHash}. If a cached entry is within {@code maxDistance}
+ * bits and younger than the TTL, its detections are returned without
+ * running the wrapped detector. Entries are kept in LRU order and the TTL
+ * counts from when the network produced them, so a scene that never changes
+ * is still re-detected every TTL.
+ *
+ * Frames where nothing was detected are never cached: a small item entering
+ * an otherwise static scene moves the hash by only a few bits, and would
+ * otherwise match the cached empty scene and go unseen.
+ *
+ * Configured with {@code -Dsmartbin.cache=off|on} (default off),
+ * {@code smartbin.cache.maxDistance} (3), {@code smartbin.cache.ttlMillis} (5000),
+ * {@code smartbin.cache.capacity} (32) and {@code smartbin.cache.roi} (0.6).
+ * Not thread-safe, like the detectors it wraps.
+ */
+public class DetectionCache implements Detector {
+
+    private static final class Entry {
+        final long hash;
+        final List<DetectionResult> results;
+        final long createdNanos;
+
+        Entry(long hash, List<DetectionResult> results, long createdNanos) {
+            this.hash = hash;
+            this.results = results;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    private final Detector detector;
+    private final int maxDistance;
+    private final long ttlNanos;
+    private final double roi;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final PerceptualHash hasher = new PerceptualHash();
+    private final DetectionCacheMetrics metrics = new DetectionCacheMetrics();
+
+    /**
+     * @param maxDistance most differing hash bits for a hit
+     * @param roi         centred fraction of the frame to hash, in (0, 1]
+     */
+    public DetectionCache(Detector detector, int maxDistance, long ttlMillis, int capacity, double roi) {
+        if (capacity <= 0 || roi <= 0 || roi > 1) {
+            throw new IllegalArgumentException("Invalid detection cache settings");
+        }
+        this.detector = detector;
+        this.maxDistance = maxDistance;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.roi = roi;
+        this.entries = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Cache in front of the detector with {@code -Dsmartbin.cache=on}, otherwise null.
+     */
+    public static DetectionCache fromSystemProperties(Detector detector) {
+        if (!"on".equalsIgnoreCase(System.getProperty("smartbin.cache", "off"))) {
+            return null;
+        }
+        return new DetectionCache(detector,
+                Integer.getInteger("smartbin.cache.maxDistance", 3),
+                Long.getLong("smartbin.cache.ttlMillis", 5000),
+                Integer.getInteger("smartbin.cache.capacity", 32),
+                Double.parseDouble(System.getProperty("smartbin.cache.roi", "0.6")));
+    }
+
+    @Override
+    public List<DetectionResult> detect(Mat frame) {
+        if (frame == null || frame.empty()) {
+            return detector.detect(frame);
+        }
+        long start = System.nanoTime();
+        long hash = hashRoi(frame);
+        Entry hit = lookup(hash, start);
+        long lookupTime = System.nanoTime() - start;
+        if (hit != null) {
+            metrics.recordHit(lookupTime);
+            return hit.results;
+        }
+
+        long detectStart = System.nanoTime();
+        List<DetectionResult> results = List.copyOf(detector.detect(frame));
+        long now = System.nanoTime();
+        metrics.recordMiss(lookupTime, now - detectStart);
+        if (!results.isEmpty()) {
+            entries.put(hash, new Entry(hash, results, now));
+        }
+        return results;
+    }
+
+    private long hashRoi(Mat frame) {
+        if (roi >= 1.0) {
+            return hasher.hash(frame);
+        }
+        int width = (int) Math.round(frame.cols() * roi);
+        int height = (int) Math.round(frame.rows() * roi);
+        int x = (frame.cols() - width) / 2;
+        int y = (frame.rows() - height) / 2;
+        Mat region = frame.submat(y, y + height, x, x + width);
+        long hash = hasher.hash(region);
+        region.release();
+        return hash;
+    }
+
+    /**
+     * Closest live entry within maxDistance, dropping expired ones on the way.
+     */
+    private Entry lookup(long hash, long now) {
+        Entry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.createdNanos > ttlNanos) {
+                iterator.remove();
+                metrics.recordExpired();
+                continue;
+            }
+            int distance = PerceptualHash.distance(hash, entry.hash);
+            if (distance <= maxDistance && distance < bestDistance) {
+                best = entry;
+                bestDistance = distance;
+            }
+        }
+        if (best != null) {
+            // Touch for LRU order
+            entries.get(best.hash);
+        }
+        return best;
+    }
+
+    public DetectionCacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Releases the hash buffers only; the wrapped detector is owned by the caller.
+     */
+    @Override
+    public void close() {
+        entries.clear();
+        hasher.release();
+    }
+}
@@ -0,0 +1,92 @@
+package com.smartbin.yolo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the perceptual-hash detection cache.
+ *
+ * Time saved is estimated per hit as the running average cost of the
+ * wrapped detector minus what hashing and the lookup cost.
+ */
+public class DetectionCacheMetrics {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private final AtomicLong detectorNanos = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    void recordHit(long lookupTime) {
+        hits.incrementAndGet();
+        lookupNanos.addAndGet(lookupTime);
+        long avgDetector = getAverageDetectorNanos();
+        if (avgDetector > lookupTime) {
+            savedNanos.addAndGet(avgDetector - lookupTime);
+        }
+    }
+
+    void recordMiss(long lookupTime, long detectorTime) {
+        misses.incrementAndGet();
+        lookupNanos.addAndGet(lookupTime);
+        detectorNanos.addAndGet(detectorTime);
+    }
+
+    void recordExpired() {
+        expired.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Entries dropped because they outlived the TTL.
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    public long getAverageLookupNanos() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : lookupNanos.get() / total;
+    }
+
+    public long getAverageDetectorNanos() {
+        long count = misses.get();
+        return count == 0 ? 0 : detectorNanos.get() / count;
+    }
+
+    public long getSavedNanos() {
+        return savedNanos.get();
+    }
+
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        expired.set(0);
+        lookupNanos.set(0);
+        detectorNanos.set(0);
+        savedNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "DetectionCacheMetrics{hits=%d, misses=%d, hitRate=%.1f%%, lookup=%.2fms, detector=%.2fms, saved=%.1fms}",
+                getHits(),
+                getMisses(),
+                getHitRate() * 100,
+                getAverageLookupNanos() / 1e6,
+                getAverageDetectorNanos() / 1e6,
+                getSavedNanos() / 1e6);
+    }
+}
@@ -0,0 +1,41 @@
+package com.smartbin.yolo;
+
+import com.smartbin.DetectionResult;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Anything that turns a camera frame into detection results.
+ * Implemented by YoloBridge and by the decorators that wrap it.
+ */
+public interface Detector extends AutoCloseable {
+
+    /**
+     * Run detection on a single BGR frame.
+     *
+     * @param frame Frame to analyse (not modified or released)
+     * @return Detections, never null
+     */
+    List<DetectionResult> detect(Mat frame);
+
+    /**
+     * Run detection on several frames, e.g. requests batched by the inference
+     * server. The default detects them one by one; YoloBridge runs a single
+     * batched forward pass when the model allows it.
+     *
+     * @return One result list per frame, in the same order
+     */
+    default List<List<DetectionResult>> detectBatch(List<Mat> frames) {
+        List<List<DetectionResult>> results = new ArrayList<>(frames.size());
+        for (Mat frame : frames) {
+            results.add(detect(frame));
+        }
+        return results;
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartbin.yolo;
+
+/**
+ * End-to-end exports that already ran NMS inside the graph (YOLOv10 style):
+ * [1, detections, 6] as x1, y1, x2, y2, score, class.
+ */
+final class EndToEndDecoder extends OutputDecoder {
+
+    EndToEndDecoder(int channels, int candidates) {
+        super(channels, candidates);
+    }
+
+    @Override
+    OutputLayout getLayout() {
+        return OutputLayout.END_TO_END;
+    }
+
+    @Override
+    int getClassCount() {
+        return 1;
+    }
+
+    @Override
+    boolean requiresNms() {
+        return false;
+    }
+
+    @Override
+    void decode(float[] data, float threshold, DecodedCandidates out) {
+        for (int i = 0, row = 0; i < candidates; i++, row += channels) {
+            float confidence = clamp(data[row + 4]);
+            if (confidence < threshold) {
+                out.reject(data[row + 4]);
+                continue;
+            }
+
+            float x1 = data[row];
+            float y1 = data[row + 1];
+            out.add(x1, y1, data[row + 2] - x1, data[row + 3] - y1, confidence, (int) data[row + 5]);
+        }
+    }
+
+    @Override
+    float valueAt(float[] data, int candidate, int channel) {
+        return data[candidate * channels + channel];
+    }
+}
@@ -0,0 +1,152 @@
+package com.smartbin.yolo;
+
+import org.opencv.core.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Class-aware greedy non-maximum suppression backed by a uniform grid.
+ *
+ * Candidates are visited by descending confidence (ties in index order);
+ * one is dropped when it overlaps an already kept box of the same class by
+ * more than the IoU threshold, which is what Dnn.NMSBoxes does per class.
+ * Boxes of different classes never suppress each other.
+ *
+ * Dnn.NMSBoxes compares each candidate with every kept box. Here each
+ * kept box is registered in the cells it covers of its class's grid, and a
+ * candidate is only compared with kept boxes of its class registered in its
+ * own cells: two boxes with any overlap share at least one cell. Cells are
+ * sized from the mean box size, so a box covers a few cells. Scratch arrays
+ * are reused; not thread-safe.
+ */
+final class GridNms {
+    private static final int MIN_CELL = 16;
+
+    private long[] order = new long[0];
+    private int[] x1 = new int[0];
+    private int[] y1 = new int[0];
+    private int[] x2 = new int[0];
+    private int[] y2 = new int[0];
+    private int[] classOf = new int[0];
+    private int[] checkedBy = new int[0];
+    private int[] cellHeads = new int[0];
+    private int[] entryBox = new int[64];
+    private int[] entryNext = new int[64];
+    private int[] kept = new int[0];
+
+    /**
+     * @return indices into {@code candidates} that survive, by descending confidence
+     */
+    int[] suppress(DecodedCandidates candidates, float iouThreshold) {
+        int n = candidates.size();
+        if (n == 0) {
+            return new int[0];
+        }
+        ensureCapacity(n);
+
+        long sizeSum = 0;
+        int classCount = 1;
+        for (int i = 0; i < n; i++) {
+            Rect box = candidates.boxes.get(i);
+            x1[i] = box.x;
+            y1[i] = box.y;
+            x2[i] = box.x + box.width;
+            y2[i] = box.y + box.height;
+            sizeSum += Math.max(box.width, box.height);
+            classOf[i] = Math.max(0, candidates.classIds.get(i));
+            classCount = Math.max(classCount, classOf[i] + 1);
+            // Confidences are in [0, 1], so their bit patterns sort like the values
+            int bits = Float.floatToIntBits(candidates.confidences.get(i));
+            order[i] = ((long) bits << 32) | (0xFFFFFFFFL - i);
+            checkedBy[i] = -1;
+        }
+        Arrays.sort(order, 0, n);
+
+        int frameWidth = Math.max(1, candidates.getFrameWidth());
+        int frameHeight = Math.max(1, candidates.getFrameHeight());
+        int cell = (int) Math.max(MIN_CELL, Math.min(sizeSum / n, Math.max(frameWidth, frameHeight) / 4));
+        int columns = (frameWidth + cell - 1) / cell;
+        int rows = (frameHeight + cell - 1) / cell;
+        int cells = columns * rows;
+        // One grid per class, so a candidate never scans boxes it cannot suppress
+        if (cellHeads.length < cells * classCount) {
+            cellHeads = new int[cells * classCount];
+        }
+        Arrays.fill(cellHeads, 0, cells * classCount, -1);
+
+        int keptCount = 0;
+        int entries = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            int i = (int) (0xFFFFFFFFL - (order[k] & 0xFFFFFFFFL));
+            int grid = classOf[i] * cells;
+            int c0 = Math.min(columns - 1, x1[i] / cell);
+            int c1 = Math.min(columns - 1, Math.max(0, x2[i] - 1) / cell);
+            int r0 = Math.min(rows - 1, y1[i] / cell);
+            int r1 = Math.min(rows - 1, Math.max(0, y2[i] - 1) / cell);
+
+            boolean suppressed = false;
+            for (int r = r0; r <= r1 && !suppressed; r++) {
+                for (int c = c0; c <= c1 && !suppressed; c++) {
+                    for (int e = cellHeads[grid + r * columns + c]; e >= 0; e = entryNext[e]) {
+                        int other = entryBox[e];
+                        if (checkedBy[other] == i) {
+                            continue;
+                        }
+                        checkedBy[other] = i;
+                        if (iou(i, other) > iouThreshold) {
+                            suppressed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (suppressed) {
+                continue;
+            }
+
+            kept[keptCount++] = i;
+            int needed = entries + (r1 - r0 + 1) * (c1 - c0 + 1);
+            if (needed > entryBox.length) {
+                int size = Math.max(needed, entryBox.length * 2);
+                entryBox = Arrays.copyOf(entryBox, size);
+                entryNext = Arrays.copyOf(entryNext, size);
+            }
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int head = grid + r * columns + c;
+                    entryBox[entries] = i;
+                    entryNext[entries] = cellHeads[head];
+                    cellHeads[head] = entries++;
+                }
+            }
+        }
+        return Arrays.copyOf(kept, keptCount);
+    }
+
+    private double iou(int a, int b) {
+        int width = Math.min(x2[a], x2[b]) - Math.max(x1[a], x1[b]);
+        int height = Math.min(y2[a], y2[b]) - Math.max(y1[a], y1[b]);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        double intersection = (double) width * height;
+        double areaA = (double) (x2[a] - x1[a]) * (y2[a] - y1[a]);
+        double areaB = (double) (x2[b] - x1[b]) * (y2[b] - y1[b]);
+        return intersection / (areaA + areaB - intersection);
+    }
+
+    private void ensureCapacity(int n) {
+        if (order.length >= n) {
+            return;
+        }
+        int size = Math.max(n, order.length * 2);
+        order = new long[size];
+        x1 = new int[size];
+        y1 = new int[size];
+        x2 = new int[size];
+        y2 = new int[size];
+        classOf = new int[size];
+        checkedBy = new int[size];
+        kept = new int[size];
+    }
+}
@@ -0,0 +1,249 @@
+package com.smartbin.yolo;
+
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import org.opencv.core.Core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Remembers what loading a model taught us, so the next start does not
+ * have to find out again.
+ *
+ * OpenCV's Java API cannot serialize a net with its backend-specific layer
+ * set-up, so the cache keeps what can be reused: the output shape found by
+ * the probe forward pass (skipping a full inference at start-up), whether
+ * the requested backend/target failed and fell back to OpenCV/CPU, and
+ * whether the model accepts batched input. Compiled OpenCL kernels are
+ * cached by OpenCV itself in {@code OPENCV_OPENCL_CACHE_DIR}, which the
+ * launcher points into the same directory.
+ *
+ * An entry is keyed by the SHA-256 of the model file, backend, target and
+ * input size, and is only used if it was written by the same OpenCV
+ * version and entry format. Hashing a model in a fresh JVM costs more than
+ * the probe it saves (about 190 ms for 12 MB), so an index remembers each
+ * model path's size, modification time and hash; the file is hashed again
+ * only when those change. Entries for the same model path with another
+ * hash are deleted when a new one is stored, so replacing the model file
+ * invalidates its entries.
+ *
+ * Configured with {@code -Dsmartbin.yolo.cache=off|on} (default on),
+ * {@code smartbin.yolo.cache.dir} (model-cache) and
+ * {@code smartbin.yolo.cache.verify} (false; true hashes the model on
+ * every start).
+ */
+final class ModelArtifactCache {
+    private static final Logger LOG = Log.get("yolo");
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".properties";
+    private static final String INDEX = "models.index";
+
+    /**
+     * What one load of a model with a given backend and target found out.
+     */
+    static final class Entry {
+        final String key;
+        final Path model;
+        final String sha256;
+        final String backend;
+        final String target;
+        final int inputSize;
+        String stamp;
+        int[] shape;
+        boolean fellBack;
+        boolean batchSupported = true;
+
+        Entry(String key, Path model, String sha256, String backend, String target, int inputSize) {
+            this.key = key;
+            this.model = model;
+            this.sha256 = sha256;
+            this.backend = backend;
+            this.target = target;
+            this.inputSize = inputSize;
+        }
+    }
+
+    private final Path directory;
+    private final boolean verify;
+    private final Properties index = new Properties();
+    private long hashNanos = -1;
+
+    ModelArtifactCache(Path directory, boolean verify) {
+        this.directory = directory;
+        this.verify = verify;
+        Path file = directory.resolve(INDEX);
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                index.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.warn("unreadable model cache index, models will be hashed").str("file", file).error(e).log();
+                index.clear();
+            }
+        }
+    }
+
+    /**
+     * Cache in {@code smartbin.yolo.cache.dir}, or null with {@code -Dsmartbin.yolo.cache=off}.
+     */
+    static ModelArtifactCache fromSystemProperties() {
+        if ("off".equalsIgnoreCase(System.getProperty("smartbin.yolo.cache", "on"))) {
+            return null;
+        }
+        return new ModelArtifactCache(Path.of(System.getProperty("smartbin.yolo.cache.dir", "model-cache")),
+                Boolean.getBoolean("smartbin.yolo.cache.verify"));
+    }
+
+    /**
+     * Identifies the model and returns an entry for it. The entry has a shape
+     * if an earlier load with the same key stored one; otherwise the caller
+     * fills it in and {@link #store}s it.
+     */
+    Entry lookup(Path model, String backend, String target, int inputSize) throws IOException {
+        Path absolute = model.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+        String stamp = attributes.size() + " " + attributes.lastModifiedTime().toMillis();
+        String indexed = index.getProperty(absolute.toString());
+        String sha256;
+        if (!verify && indexed != null && indexed.startsWith(stamp + " ")) {
+            sha256 = indexed.substring(stamp.length() + 1);
+            hashNanos = -1;
+        } else {
+            long start = System.nanoTime();
+            sha256 = sha256(absolute);
+            hashNanos = System.nanoTime() - start;
+        }
+        String key = sha256.substring(0, 16) + "-" + backend + "-" + target + "-" + inputSize;
+        Entry entry = new Entry(key, absolute, sha256, backend, target, inputSize);
+        entry.stamp = stamp;
+
+        Path file = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return entry;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("unreadable model cache entry, ignoring").str("file", file).error(e).log();
+            Files.deleteIfExists(file);
+            return entry;
+        }
+        if (!String.valueOf(FORMAT_VERSION).equals(properties.getProperty("format"))
+                || !Core.VERSION.equals(properties.getProperty("opencv"))
+                || !sha256.equals(properties.getProperty("sha256"))) {
+            System.out.println("[ModelArtifactCache] Discarding stale entry " + file.getFileName()
+                    + " (format " + properties.getProperty("format")
+                    + ", OpenCV " + properties.getProperty("opencv") + ")");
+            Files.deleteIfExists(file);
+            return entry;
+        }
+        try {
+            String[] shape = properties.getProperty("shape", "").split("x");
+            entry.shape = new int[]{Integer.parseInt(shape[0]), Integer.parseInt(shape[1])};
+        } catch (RuntimeException e) {
+            LOG.warn("model cache entry has no valid shape, ignoring").str("file", file).log();
+            Files.deleteIfExists(file);
+            return entry;
+        }
+        entry.fellBack = Boolean.parseBoolean(properties.getProperty("fellBack"));
+        entry.batchSupported = Boolean.parseBoolean(properties.getProperty("batchSupported", "true"));
+        if (hashNanos >= 0) {
+            // Same content with a new timestamp, e.g. the model was copied again
+            index(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Writes the entry (atomically) and drops entries left by earlier
+     * versions of the same model file.
+     */
+    void store(Entry entry) throws IOException {
+        Files.createDirectories(directory);
+        index(entry);
+
+        Properties properties = new Properties();
+        properties.setProperty("format", String.valueOf(FORMAT_VERSION));
+        properties.setProperty("opencv", Core.VERSION);
+        properties.setProperty("model", entry.model.toString());
+        properties.setProperty("sha256", entry.sha256);
+        properties.setProperty("backend", entry.backend);
+        properties.setProperty("target", entry.target);
+        properties.setProperty("inputSize", String.valueOf(entry.inputSize));
+        properties.setProperty("shape", entry.shape[0] + "x" + entry.shape[1]);
+        properties.setProperty("fellBack", String.valueOf(entry.fellBack));
+        properties.setProperty("batchSupported", String.valueOf(entry.batchSupported));
+
+        write(directory.resolve(entry.key + SUFFIX), properties, "Model artifacts for " + entry.model.getFileName());
+    }
+
+    /**
+     * Time the last {@link #lookup} spent hashing the model file, or -1 if
+     * the indexed hash was used.
+     */
+    long getHashNanos() {
+        return hashNanos;
+    }
+
+    private void index(Entry entry) throws IOException {
+        String model = entry.model.toString();
+        String indexed = index.getProperty(model);
+        if ((entry.stamp + " " + entry.sha256).equals(indexed)) {
+            return;
+        }
+        String previous = indexed == null ? null : indexed.substring(indexed.lastIndexOf(' ') + 1);
+        if (previous != null && !previous.equals(entry.sha256)) {
+            removeEntries(previous.substring(0, Math.min(16, previous.length())), entry.model);
+        }
+        index.setProperty(model, entry.stamp + " " + entry.sha256);
+        write(directory.resolve(INDEX), index, "Model files: size, modified, SHA-256");
+    }
+
+    private void write(Path file, Properties properties, String comment) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            properties.store(writer, comment);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void removeEntries(String hashPrefix, Path model) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, hashPrefix + "-*" + SUFFIX)) {
+            for (Path file : files) {
+                System.out.println("[ModelArtifactCache] Model " + model.getFileName()
+                        + " changed, removing " + file.getFileName());
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
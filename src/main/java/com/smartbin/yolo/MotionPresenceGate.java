@@ -0,0 +1,83 @@
+package com.smartbin.yolo;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Hand-crafted presence gate that needs no model.
+ *
+ * Keeps a slowly adapting background of the empty scene on a grayscale
+ * thumbnail and reports an item when enough pixels differ from it. The
+ * background only learns from frames judged empty, so an item held still
+ * keeps the gate open. It cannot tell a bare hand from a hand holding an
+ * item; the full detector still makes that call.
+ */
+public class MotionPresenceGate implements PresenceGate {
+    private static final double BACKGROUND_LEARNING_RATE = 0.05;
+    private static final double PIXEL_DIFF_THRESHOLD = 25.0;
+
+    private final int thumbnailWidth;
+    private final double minForegroundRatio;
+
+    private final Mat small = new Mat();
+    private final Mat gray = new Mat();
+    private final Mat grayFloat = new Mat();
+    private final Mat background = new Mat();
+    private final Mat diff = new Mat();
+    private final Mat mask = new Mat();
+    private boolean hasBackground = false;
+
+    public MotionPresenceGate(int thumbnailWidth, double minForegroundRatio) {
+        this.thumbnailWidth = thumbnailWidth;
+        this.minForegroundRatio = minForegroundRatio;
+    }
+
+    @Override
+    public synchronized boolean isItemPresent(Mat frame) {
+        if (frame == null || frame.empty()) {
+            return false;
+        }
+
+        int height = Math.max(1, frame.rows() * thumbnailWidth / frame.cols());
+        Imgproc.resize(frame, small, new Size(thumbnailWidth, height), 0, 0, Imgproc.INTER_AREA);
+        Imgproc.cvtColor(small, gray, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.GaussianBlur(gray, gray, new Size(5, 5), 0);
+        gray.convertTo(grayFloat, CvType.CV_32F);
+
+        if (!hasBackground || background.size().width != grayFloat.size().width
+                || background.size().height != grayFloat.size().height) {
+            grayFloat.copyTo(background);
+            hasBackground = true;
+            return false;
+        }
+
+        Core.absdiff(grayFloat, background, diff);
+        Imgproc.threshold(diff, mask, PIXEL_DIFF_THRESHOLD, 1.0, Imgproc.THRESH_BINARY);
+        double ratio = Core.sumElems(mask).val[0] / mask.total();
+
+        boolean present = ratio >= minForegroundRatio;
+        if (!present) {
+            Imgproc.accumulateWeighted(grayFloat, background, BACKGROUND_LEARNING_RATE);
+        }
+        return present;
+    }
+
+    @Override
+    public String getName() {
+        return "motion";
+    }
+
+    @Override
+    public synchronized void close() {
+        small.release();
+        gray.release();
+        grayFloat.release();
+        background.release();
+        diff.release();
+        mask.release();
+        hasBackground = false;
+    }
+}
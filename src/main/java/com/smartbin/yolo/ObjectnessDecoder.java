@@ -0,0 +1,61 @@
+package com.smartbin.yolo;
+
+/**
+ * YOLOv5 style export: [1, candidates, 5 + classes].
+ * Confidence is objectness times the best class score.
+ */
+final class ObjectnessDecoder extends OutputDecoder {
+
+    ObjectnessDecoder(int channels, int candidates) {
+        super(channels, candidates);
+    }
+
+    @Override
+    OutputLayout getLayout() {
+        return OutputLayout.OBJECTNESS;
+    }
+
+    @Override
+    int getClassCount() {
+        return Math.max(1, channels - 5);
+    }
+
+    @Override
+    void decode(float[] data, float threshold, DecodedCandidates out) {
+        int classes = getClassCount();
+
+        for (int i = 0, row = 0; i < candidates; i++, row += channels) {
+            float objectness = data[row + 4];
+            if (objectness < threshold) {
+                // Class scores are at most 1, so the product cannot clear the threshold
+                out.reject(objectness);
+                continue;
+            }
+
+            int bestClass = 0;
+            float bestScore = data[row + 5];
+            for (int c = 1; c < classes; c++) {
+                float score = data[row + 5 + c];
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestClass = c;
+                }
+            }
+
+            float confidence = clamp(objectness * bestScore);
+            if (confidence < threshold) {
+                out.reject(objectness * bestScore);
+                continue;
+            }
+
+            float width = data[row + 2];
+            float height = data[row + 3];
+            out.add(data[row] - width / 2, data[row + 1] - height / 2, width, height, confidence, bestClass);
+        }
+    }
+
+    @Override
+    float valueAt(float[] data, int candidate, int channel) {
+        return data[candidate * channels + channel];
+    }
+}
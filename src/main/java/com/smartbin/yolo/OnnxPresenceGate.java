@@ -0,0 +1,103 @@
+package com.smartbin.yolo;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Presence gate backed by a small image classifier (MobileNet-class ONNX).
+ *
+ * The model is expected to take a square RGB thumbnail scaled to [0, 1] and
+ * return either a single "item present" score or two class scores
+ * ([empty, item]). Whether those are probabilities or raw logits is part of
+ * the export and has to be configured: logits go through a sigmoid (one
+ * score) or softmax (two), probabilities are used as they are, so the
+ * threshold is always a probability.
+ */
+public class OnnxPresenceGate implements PresenceGate {
+    private static final Scalar BLOB_MEAN = new Scalar(0, 0, 0);
+    private static final double SCALE = 1.0 / 255.0;
+
+    /**
+     * What the model's output scores are.
+     */
+    public enum Output {
+        PROBABILITY,
+        LOGITS;
+
+        public static Output fromName(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown gate output: " + name + " (probability or logits)");
+            }
+        }
+    }
+
+    private final Net net;
+    private final Size inputSize;
+    private final double threshold;
+    private final Output outputKind;
+
+    public OnnxPresenceGate(String modelPath, int thumbnailSize, double threshold, Output output) {
+        File file = new File(modelPath);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("Gate model file not found at: " + file.getAbsolutePath());
+        }
+        this.net = Dnn.readNetFromONNX(file.getAbsolutePath());
+        this.inputSize = new Size(thumbnailSize, thumbnailSize);
+        this.threshold = threshold;
+        this.outputKind = output;
+    }
+
+    @Override
+    public boolean isItemPresent(Mat frame) {
+        return score(frame) >= threshold;
+    }
+
+    /**
+     * Probability that an item is present in the frame.
+     */
+    public double score(Mat frame) {
+        if (frame == null || frame.empty()) {
+            return 0.0;
+        }
+
+        Mat blob = Dnn.blobFromImage(frame, SCALE, inputSize, BLOB_MEAN, true, false);
+        net.setInput(blob);
+        Mat output = net.forward();
+        blob.release();
+
+        int count = (int) output.total();
+        float[] scores = new float[count];
+        Mat flat = output.reshape(1, 1);
+        flat.get(0, 0, scores);
+        flat.release();
+        output.release();
+
+        if (count == 0) {
+            return 0.0;
+        }
+        // One score for "item", or a two-class head over [empty, item]
+        double item = scores[count == 1 ? 0 : 1];
+        if (Double.isNaN(item) || count > 1 && Double.isNaN(scores[0])) {
+            return 0.0;
+        }
+        if (outputKind == Output.PROBABILITY) {
+            return Math.min(1.0, Math.max(0.0, item));
+        }
+        // Sigmoid of the item logit, or of its margin over empty, which is the two-class softmax
+        double logit = count == 1 ? item : item - scores[0];
+        return 1.0 / (1.0 + Math.exp(-logit));
+    }
+
+    @Override
+    public String getName() {
+        return "onnx";
+    }
+}
@@ -0,0 +1,71 @@
+package com.smartbin.yolo;
+
+/**
+ * Decodes one YOLO output layout into candidate boxes.
+ *
+ * A decoder is chosen once when the model is loaded (see
+ * OutputLayoutResolver) so the per-frame loop never has to guess the
+ * tensor shape.
+ */
+abstract class OutputDecoder {
+    protected final int channels;
+    protected final int candidates;
+
+    OutputDecoder(int channels, int candidates) {
+        this.channels = channels;
+        this.candidates = candidates;
+    }
+
+    abstract OutputLayout getLayout();
+
+    /**
+     * Append every candidate scoring at least {@code threshold} to {@code out}.
+     */
+    abstract void decode(float[] data, float threshold, DecodedCandidates out);
+
+    /**
+     * Raw tensor value for one candidate and channel; used for debug logging only.
+     */
+    abstract float valueAt(float[] data, int candidate, int channel);
+
+    /**
+     * Whether the network output still needs non-maximum suppression.
+     */
+    boolean requiresNms() {
+        return true;
+    }
+
+    int getChannels() {
+        return channels;
+    }
+
+    int getCandidates() {
+        return candidates;
+    }
+
+    int getClassCount() {
+        return Math.max(1, channels - 4);
+    }
+
+    int getTensorSize() {
+        return channels * candidates;
+    }
+
+    static float clamp(float value) {
+        if (Float.isNaN(value)) {
+            return 0f;
+        }
+        if (value < 0f) {
+            return 0f;
+        }
+        if (value > 1f) {
+            return 1f;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[channels=%d, candidates=%d]", getLayout().getDisplayName(), channels, candidates);
+    }
+}
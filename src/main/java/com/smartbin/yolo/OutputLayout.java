@@ -0,0 +1,70 @@
+package com.smartbin.yolo;
+
+/**
+ * Known YOLO output tensor layouts.
+ */
+public enum OutputLayout {
+    /** YOLOv8 default export: [1, 4 + classes, candidates], boxes as cx, cy, w, h. */
+    CHANNEL_MAJOR("yolov8"),
+
+    /** Transposed YOLOv8 export: [1, candidates, 4 + classes]. */
+    ROW_MAJOR("yolov8-transposed"),
+
+    /** YOLOv5 style: [1, candidates, 5 + classes] with an objectness score before the class scores. */
+    OBJECTNESS("yolov5"),
+
+    /** End-to-end exports with NMS built in (YOLOv10 style): [1, detections, 6] as x1, y1, x2, y2, score, class. */
+    END_TO_END("end-to-end");
+
+    private final String displayName;
+
+    OutputLayout(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Parse a layout name as used by the smartbin.yolo.layout property.
+     * Accepts the enum name or the display name, case-insensitively.
+     */
+    public static OutputLayout fromName(String name) {
+        for (OutputLayout layout : values()) {
+            if (layout.name().equalsIgnoreCase(name) || layout.displayName.equalsIgnoreCase(name)) {
+                return layout;
+            }
+        }
+        throw new IllegalArgumentException("Unknown YOLO output layout: " + name);
+    }
+
+    /**
+     * Create the decoder specialised for this layout.
+     */
+    OutputDecoder createDecoder(int channels, int candidates) {
+        switch (this) {
+            case CHANNEL_MAJOR:
+                return isVectorApiEnabled()
+                        ? new VectorChannelMajorDecoder(channels, candidates)
+                        : new ChannelMajorDecoder(channels, candidates);
+            case ROW_MAJOR:
+                return new RowMajorDecoder(channels, candidates);
+            case OBJECTNESS:
+                return new ObjectnessDecoder(channels, candidates);
+            case END_TO_END:
+                return new EndToEndDecoder(channels, candidates);
+            default:
+                throw new IllegalStateException("No decoder for " + this);
+        }
+    }
+
+    /**
+     * True when jdk.incubator.vector was resolved (--add-modules) and
+     * -Dsmartbin.yolo.simd=off was not given.
+     */
+    static boolean isVectorApiEnabled() {
+        return !"off".equalsIgnoreCase(System.getProperty("smartbin.yolo.simd", "auto"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
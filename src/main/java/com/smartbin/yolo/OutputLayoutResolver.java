@@ -0,0 +1,106 @@
+package com.smartbin.yolo;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+
+/**
+ * Works out a model's output layout once, at load time.
+ *
+ * Runs a single forward pass on a blank input, looks at the output shape
+ * and picks the matching decoder. The smartbin.yolo.layout property
+ * (yolov8, yolov8-transposed, yolov5, end-to-end) overrides the guess
+ * for exports the heuristics get wrong. When the shape is already known
+ * ({@link ModelArtifactCache}) the forward pass is skipped.
+ *
+ * A transposed YOLOv8 output ([candidates, 4 + classes]) and a YOLOv5 one
+ * ([candidates, 5 + classes]) differ only by the class count, so with more
+ * than one class the labels (smartbin.yolo.labels) or an explicit layout
+ * must be configured; the shape alone is refused rather than guessed.
+ */
+final class OutputLayoutResolver {
+    // End-to-end exports keep at most a few hundred detections; raw heads have thousands of candidates
+    private static final int MAX_END_TO_END_DETECTIONS = 1000;
+
+    private OutputLayoutResolver() {
+    }
+
+    /**
+     * Output shape of one forward pass on a blank input, as [rows, cols].
+     */
+    static int[] probeShape(Net net, Size inputSize) {
+        Mat input = new Mat(inputSize, CvType.CV_8UC3, new Scalar(0, 0, 0));
+        Mat blob = Dnn.blobFromImage(input, 1.0 / 255.0, inputSize, new Scalar(0, 0, 0), true, false);
+        try {
+            net.setInput(blob);
+            Mat output = net.forward();
+            int[] shape = shapeOf(output);
+            output.release();
+            return shape;
+        } finally {
+            input.release();
+            blob.release();
+        }
+    }
+
+    /**
+     * @param labelCount Configured number of classes, or 0 if unknown
+     */
+    static OutputDecoder forShape(int[] shape, int labelCount) {
+        String override = System.getProperty("smartbin.yolo.layout");
+        OutputLayout layout = (override == null || override.isBlank() || "auto".equalsIgnoreCase(override))
+                ? detect(shape, labelCount)
+                : OutputLayout.fromName(override.trim());
+        return createDecoder(layout, shape);
+    }
+
+    /**
+     * Output shape without the batch dimension, as [rows, cols].
+     */
+    static int[] shapeOf(Mat output) {
+        int dims = output.dims();
+        if (dims >= 3) {
+            return new int[]{output.size(dims - 2), output.size(dims - 1)};
+        }
+        return new int[]{output.rows(), output.cols()};
+    }
+
+    static OutputLayout detect(int[] shape, int labelCount) {
+        int rows = shape[0];
+        int cols = shape[1];
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalStateException("Unsupported YOLO output shape: [" + rows + ", " + cols + "]");
+        }
+
+        if (cols == 6 && rows <= MAX_END_TO_END_DETECTIONS) {
+            return OutputLayout.END_TO_END;
+        }
+        if (rows < cols) {
+            return OutputLayout.CHANNEL_MAJOR;
+        }
+        if (labelCount > 0) {
+            if (cols == 4 + labelCount) {
+                return OutputLayout.ROW_MAJOR;
+            }
+            if (cols == 5 + labelCount) {
+                return OutputLayout.OBJECTNESS;
+            }
+        } else if (cols == 5) {
+            // YOLOv5 would have no classes at all
+            return OutputLayout.ROW_MAJOR;
+        }
+        throw new IllegalStateException("Cannot tell transposed YOLOv8 from YOLOv5 for output [" + rows + ", "
+                + cols + "] with " + (labelCount > 0 ? labelCount + " labels" : "unknown labels")
+                + "; set smartbin.yolo.labels or smartbin.yolo.layout");
+    }
+
+    static OutputDecoder createDecoder(OutputLayout layout, int[] shape) {
+        if (layout == OutputLayout.CHANNEL_MAJOR) {
+            return layout.createDecoder(shape[0], shape[1]);
+        }
+        return layout.createDecoder(shape[1], shape[0]);
+    }
+}
@@ -0,0 +1,26 @@
+package com.smartbin.yolo;
+
+import org.opencv.core.Mat;
+
+/**
+ * First stage of the detection cascade.
+ * Answers "is an item in front of the camera" on a small thumbnail so the
+ * full YOLO network only runs on frames that are worth it.
+ */
+public interface PresenceGate extends AutoCloseable {
+
+    /**
+     * @param frame Full-resolution BGR frame (not modified or released)
+     * @return true if the frame should be passed to the full detector
+     */
+    boolean isItemPresent(Mat frame);
+
+    /**
+     * Short name used in logs and evaluation reports.
+     */
+    String getName();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,48 @@
+package com.smartbin.yolo;
+
+/**
+ * Transposed YOLOv8 export: [1, candidates, 4 + classes].
+ */
+final class RowMajorDecoder extends OutputDecoder {
+
+    RowMajorDecoder(int channels, int candidates) {
+        super(channels, candidates);
+    }
+
+    @Override
+    OutputLayout getLayout() {
+        return OutputLayout.ROW_MAJOR;
+    }
+
+    @Override
+    void decode(float[] data, float threshold, DecodedCandidates out) {
+        int classes = getClassCount();
+
+        for (int i = 0, row = 0; i < candidates; i++, row += channels) {
+            int bestClass = 0;
+            float bestScore = data[row + 4];
+            for (int c = 1; c < classes; c++) {
+                float score = data[row + 4 + c];
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestClass = c;
+                }
+            }
+
+            float confidence = clamp(bestScore);
+            if (confidence < threshold) {
+                out.reject(bestScore);
+                continue;
+            }
+
+            float width = data[row + 2];
+            float height = data[row + 3];
+            out.add(data[row] - width / 2, data[row + 1] - height / 2, width, height, confidence, bestClass);
+        }
+    }
+
+    @Override
+    float valueAt(float[] data, int candidate, int channel) {
+        return data[candidate * channels + channel];
+    }
+}
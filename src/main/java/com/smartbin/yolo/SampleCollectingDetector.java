@@ -0,0 +1,33 @@
+package com.smartbin.yolo;
+
+import com.smartbin.DetectionResult;
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Passes every frame to YoloBridge and offers the ones it was unsure about
+ * to a {@link SampleCollector}. Sits directly around the bridge because it
+ * needs the raw top score, including candidates below the threshold.
+ * The bridge and the collector are owned by the caller.
+ */
+public class SampleCollectingDetector implements Detector {
+    private final YoloBridge bridge;
+    private final SampleCollector collector;
+
+    public SampleCollectingDetector(YoloBridge bridge, SampleCollector collector) {
+        this.bridge = bridge;
+        this.collector = collector;
+    }
+
+    @Override
+    public List<DetectionResult> detect(Mat frame) {
+        List<DetectionResult> results = bridge.detect(frame);
+        collector.offer(frame, bridge.getLastTopScore(), results);
+        return results;
+    }
+
+    public SampleCollector getCollector() {
+        return collector;
+    }
+}
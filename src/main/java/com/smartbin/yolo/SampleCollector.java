@@ -0,0 +1,348 @@
+package com.smartbin.yolo;
+
+import com.smartbin.DetectionResult;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.Logger;
+import com.smartbin.vision.HashIndex;
+import com.smartbin.vision.PerceptualHash;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Collects frames the model was unsure about, for retraining best.onnx.
+ *
+ * A frame qualifies when its top raw score falls in [minScore, maxScore).
+ * The inference thread only checks the band, copies the frame into a pooled
+ * Mat and offers it to a queue; when the pool is empty the sample is
+ * dropped. A background thread hashes each sample ({@link PerceptualHash}),
+ * skips near-duplicates of recently kept samples, applies the rate limit
+ * and writes a dataset in YOLO layout:
+ *
+ * <pre>
+ * samples/images/&lt;time&gt;_s&lt;score%&gt;_&lt;hash&gt;.jpg
+ * samples/labels/&lt;same name&gt;.txt   one "class cx cy w h" line per detection (normalized)
+ * </pre>
+ *
+ * Label files are pre-annotation stubs to correct, not ground truth. The
+ * least recently modified samples are deleted to stay under the disk quota;
+ * hashes of existing samples are read back from the file names at start.
+ */
+public class SampleCollector implements AutoCloseable {
+    private static final Logger LOG = Log.get("samples");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int POOL_SIZE = 4;
+    private static final int INDEX_CAPACITY = 4096;
+
+    private static final class Sample {
+        final Mat frame = new Mat();
+        float topScore;
+        List<DetectionResult> detections;
+    }
+
+    private final Path imageDir;
+    private final Path labelDir;
+    private final float minScore;
+    private final float maxScore;
+    private final long minIntervalNanos;
+    private final long maxBytes;
+    private final int maxDistance;
+    private final List<String> labels;
+
+    private final ConcurrentLinkedQueue<Sample> pool = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Sample> queue = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final HashIndex index = new HashIndex(INDEX_CAPACITY);
+    private final PerceptualHash hasher = new PerceptualHash();
+    private final Map<Path, Long> stored = new LinkedHashMap<>();
+    private long storedBytes;
+    private volatile long nextAllowedNanos;
+    private volatile boolean running;
+    private Thread writer;
+
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param maxPerMinute  most samples written per minute
+     * @param maxBytes      disk quota for images and labels
+     * @param maxDistance   pHash bits within which a frame counts as a duplicate
+     * @param labels        class names in model order, for the label files
+     */
+    public SampleCollector(Path directory, double minScore, double maxScore, double maxPerMinute,
+                           long maxBytes, int maxDistance, List<String> labels) {
+        if (minScore >= maxScore) {
+            throw new IllegalArgumentException("Empty confidence band: " + minScore + ".." + maxScore);
+        }
+        this.imageDir = directory.resolve("images");
+        this.labelDir = directory.resolve("labels");
+        this.minScore = (float) minScore;
+        this.maxScore = (float) maxScore;
+        this.minIntervalNanos = (long) (60e9 / maxPerMinute);
+        this.maxBytes = maxBytes;
+        this.maxDistance = maxDistance;
+        this.labels = labels;
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool.add(new Sample());
+        }
+    }
+
+    /**
+     * Collector configured from system properties, or null unless
+     * {@code -Dsmartbin.samples=on}: {@code smartbin.samples.dir} (samples),
+     * {@code smartbin.samples.minScore} (0.2), {@code smartbin.samples.maxScore} (0.5),
+     * {@code smartbin.samples.perMinute} (6), {@code smartbin.samples.maxMB} (500),
+     * {@code smartbin.samples.maxDistance} (8).
+     */
+    public static SampleCollector fromSystemProperties(List<String> labels) {
+        if (!"on".equalsIgnoreCase(System.getProperty("smartbin.samples", "off"))) {
+            return null;
+        }
+        return new SampleCollector(
+                Path.of(System.getProperty("smartbin.samples.dir", "samples")),
+                Double.parseDouble(System.getProperty("smartbin.samples.minScore", "0.2")),
+                Double.parseDouble(System.getProperty("smartbin.samples.maxScore", "0.5")),
+                Double.parseDouble(System.getProperty("smartbin.samples.perMinute", "6")),
+                Long.getLong("smartbin.samples.maxMB", 500) * 1024 * 1024,
+                Integer.getInteger("smartbin.samples.maxDistance", 8),
+                labels);
+    }
+
+    /**
+     * Load existing samples into the quota and the duplicate index, then start writing.
+     */
+    public void start() throws IOException {
+        Files.createDirectories(imageDir);
+        Files.createDirectories(labelDir);
+        loadExisting();
+        running = true;
+        writer = new Thread(this::writeLoop, "sample-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+        System.out.println("[SampleCollector] Collecting scores in [" + minScore + ", " + maxScore + ") to "
+                + imageDir.getParent() + " (" + stored.size() + " existing samples)");
+    }
+
+    /**
+     * Inference thread: queue the frame if its top score is in the band.
+     * The frame is copied, so the caller may reuse it right away.
+     *
+     * @return true if the frame was queued
+     */
+    public boolean offer(Mat frame, float topScore, List<DetectionResult> detections) {
+        if (!running || !(topScore >= minScore && topScore < maxScore)) {
+            return false;
+        }
+        if (System.nanoTime() < nextAllowedNanos) {
+            // Would be rate limited anyway; skip the copy
+            rateLimited.incrementAndGet();
+            return false;
+        }
+        Sample sample = pool.poll();
+        if (sample == null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        frame.copyTo(sample.frame);
+        sample.topScore = topScore;
+        sample.detections = detections;
+        if (!queue.offer(sample)) {
+            pool.add(sample);
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getSaved() {
+        return saved.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void writeLoop() {
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 95);
+        try {
+            while (running || !queue.isEmpty()) {
+                Sample sample = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (sample == null) {
+                    continue;
+                }
+                try {
+                    process(sample, params);
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("sample write failed").error(e).log();
+                } finally {
+                    sample.detections = null;
+                    pool.add(sample);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            params.release();
+            hasher.release();
+        }
+    }
+
+    private void process(Sample sample, MatOfInt params) throws IOException {
+        long hash = hasher.hash(sample.frame);
+        if (index.containsNear(hash, maxDistance)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        long now = System.nanoTime();
+        if (now < nextAllowedNanos) {
+            rateLimited.incrementAndGet();
+            return;
+        }
+        nextAllowedNanos = now + minIntervalNanos;
+        index.add(hash);
+
+        String name = String.format(Locale.ROOT, "%s_s%02d_%016x",
+                FILE_TIME.format(LocalDateTime.now()), (int) (sample.topScore * 100), hash);
+        Path image = imageDir.resolve(name + ".jpg");
+        Path label = labelDir.resolve(name + ".txt");
+        if (!Imgcodecs.imwrite(image.toString(), sample.frame, params)) {
+            throw new IOException("Could not write " + image);
+        }
+        Files.writeString(label, yoloLabels(sample), StandardCharsets.UTF_8);
+
+        long bytes = Files.size(image) + Files.size(label);
+        stored.put(image, bytes);
+        storedBytes += bytes;
+        saved.incrementAndGet();
+        LOG.debug("sample saved").str("file", image.getFileName()).num("score", sample.topScore).log();
+        enforceQuota();
+    }
+
+    private String yoloLabels(Sample sample) {
+        StringBuilder out = new StringBuilder();
+        double width = sample.frame.cols();
+        double height = sample.frame.rows();
+        for (DetectionResult detection : sample.detections) {
+            int classId = labels.indexOf(detection.getLabel());
+            if (classId < 0) {
+                continue;
+            }
+            Rect box = detection.getBoundingBox();
+            out.append(String.format(Locale.ROOT, "%d %.6f %.6f %.6f %.6f%n", classId,
+                    (box.x + box.width / 2.0) / width, (box.y + box.height / 2.0) / height,
+                    box.width / width, box.height / height));
+        }
+        return out.toString();
+    }
+
+    private void enforceQuota() throws IOException {
+        Iterator<Map.Entry<Path, Long>> eldest = stored.entrySet().iterator();
+        while (storedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Path, Long> entry = eldest.next();
+            Path image = entry.getKey();
+            Files.deleteIfExists(image);
+            Files.deleteIfExists(labelFor(image));
+            storedBytes -= entry.getValue();
+            eldest.remove();
+            LOG.info("sample deleted for quota").str("file", image.getFileName()).log();
+        }
+    }
+
+    /**
+     * Oldest-modified first, so samples an annotator has touched recently are kept longest.
+     */
+    private void loadExisting() throws IOException {
+        Map<Path, Long> modified = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.list(imageDir)) {
+            for (Path image : files.filter(path -> path.toString().endsWith(".jpg")).toList()) {
+                modified.put(image, Files.getLastModifiedTime(image).toMillis());
+            }
+        }
+        List<Path> images = new ArrayList<>(modified.keySet());
+        images.sort(Comparator.comparing(modified::get));
+        for (Path image : images) {
+            long bytes = Files.size(image);
+            Path label = labelFor(image);
+            if (Files.exists(label)) {
+                bytes += Files.size(label);
+            }
+            stored.put(image, bytes);
+            storedBytes += bytes;
+            Long hash = hashFromName(image);
+            if (hash != null) {
+                index.add(hash);
+            }
+        }
+    }
+
+    private Path labelFor(Path image) {
+        String name = image.getFileName().toString();
+        return labelDir.resolve(name.substring(0, name.length() - ".jpg".length()) + ".txt");
+    }
+
+    private static Long hashFromName(Path image) {
+        String name = image.getFileName().toString();
+        int start = name.lastIndexOf('_') + 1;
+        int end = name.length() - ".jpg".length();
+        if (start <= 0 || end - start != 16) {
+            return null;
+        }
+        try {
+            return Long.parseUnsignedLong(name.substring(start, end), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write what is already queued, then stop.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Sample sample;
+        while ((sample = pool.poll()) != null) {
+            sample.frame.release();
+        }
+        System.out.println("[SampleCollector] saved=" + saved + ", duplicates=" + duplicates
+                + ", rateLimited=" + rateLimited + ", dropped=" + dropped);
+    }
+}
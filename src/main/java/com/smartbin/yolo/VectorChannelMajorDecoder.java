@@ -0,0 +1,91 @@
+package com.smartbin.yolo;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * YOLOv8 default export decoded with the Vector API.
+ *
+ * In [1, 4 + classes, candidates] the scores of one class are contiguous,
+ * so each SIMD lane takes one candidate and the class argmax sweeps the
+ * class rows in memory order: one sequential vector load per class instead
+ * of a strided scalar read per candidate and class. Only blocks with a
+ * lane over the threshold are looked at lane by lane.
+ *
+ * Needs the jdk.incubator.vector module at run time (--add-modules);
+ * {@link OutputLayout#createDecoder} falls back to ChannelMajorDecoder
+ * when it is not resolved. Same results as the scalar decoder.
+ */
+final class VectorChannelMajorDecoder extends OutputDecoder {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+
+    private final ChannelMajorDecoder scalar;
+    private final float[] laneScores = new float[FLOATS.length()];
+    private final int[] laneClasses = new int[FLOATS.length()];
+
+    VectorChannelMajorDecoder(int channels, int candidates) {
+        super(channels, candidates);
+        this.scalar = new ChannelMajorDecoder(channels, candidates);
+    }
+
+    @Override
+    OutputLayout getLayout() {
+        return OutputLayout.CHANNEL_MAJOR;
+    }
+
+    @Override
+    void decode(float[] data, float threshold, DecodedCandidates out) {
+        if (threshold <= 0f) {
+            // Clamping makes negative and NaN scores pass a zero threshold; keep the scalar rules
+            scalar.decode(data, threshold, out);
+            return;
+        }
+        int classes = getClassCount();
+        int scoreBase = 4 * candidates;
+        int lanes = FLOATS.length();
+        int bound = FLOATS.loopBound(candidates);
+
+        FloatVector rejectedMax = FloatVector.broadcast(FLOATS, Float.NEGATIVE_INFINITY);
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            FloatVector best = FloatVector.fromArray(FLOATS, data, scoreBase + i);
+            IntVector bestClass = IntVector.zero(INTS);
+            for (int c = 1; c < classes; c++) {
+                FloatVector score = FloatVector.fromArray(FLOATS, data, scoreBase + c * candidates + i);
+                VectorMask<Float> better = score.compare(VectorOperators.GT, best);
+                best = best.blend(score, better);
+                bestClass = bestClass.blend(c, better.cast(INTS));
+            }
+
+            VectorMask<Float> accepted = best.compare(VectorOperators.GE, threshold);
+            // NaN lanes are ignored like DecodedCandidates.reject does
+            VectorMask<Float> skipped = accepted.or(best.compare(VectorOperators.NE, best));
+            rejectedMax = rejectedMax.max(best.blend(Float.NEGATIVE_INFINITY, skipped));
+            if (accepted.anyTrue()) {
+                best.intoArray(laneScores, 0);
+                bestClass.intoArray(laneClasses, 0);
+                for (int lane = accepted.firstTrue(); lane < lanes; lane++) {
+                    if (accepted.laneIsSet(lane)) {
+                        scalar.addBox(data, i + lane, clamp(laneScores[lane]), laneClasses[lane], out);
+                    }
+                }
+            }
+        }
+        out.reject(rejectedMax.reduceLanes(VectorOperators.MAX));
+        scalar.decodeRange(data, threshold, out, i, candidates);
+    }
+
+    @Override
+    float valueAt(float[] data, int candidate, int channel) {
+        return scalar.valueAt(data, candidate, channel);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + " (" + FLOATS.length() + " lanes)";
+    }
+}
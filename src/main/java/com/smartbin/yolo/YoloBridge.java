@@ -1,6 +1,6 @@
 package com.smartbin.yolo;
 
-import org.opencv.core.Core;
+import org.opencv.core.CvException;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfFloat;
 import org.opencv.core.MatOfInt;
@@ -13,245 +13,483 @@ import org.opencv.core.Size;
 import org.opencv.dnn.Dnn;
 import org.opencv.dnn.Net;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.videoio.VideoCapture;
-import org.opencv.videoio.Videoio;
 import com.smartbin.DetectionResult;
+import com.smartbin.OpenCvLoader;
+import com.smartbin.capture.CameraFrameSource;
+import com.smartbin.capture.CaptureProfileNegotiator;
+import com.smartbin.capture.FrameSource;
+import com.smartbin.capture.TimestampedFrame;
+import com.smartbin.logging.Log;
+import com.smartbin.logging.LogEvent;
+import com.smartbin.logging.LogLevel;
+import com.smartbin.logging.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
- * Helper around YOLOv8 ONNX inference and simple webcam streaming.
+ * Helper around YOLO ONNX inference and simple webcam streaming.
+ * The output layout (YOLOv8, transposed YOLOv8, YOLOv5 or end-to-end with
+ * built-in NMS) is resolved once when the model is loaded. Class names come
+ * from {@code smartbin.yolo.labels} (comma-separated, in class id order;
+ * default a single "bottle" class).
+ *
+ * The DNN backend and target come from {@code smartbin.yolo.backend}
+ * (opencv, openvino, cuda, vkcom; default opencv) and
+ * {@code smartbin.yolo.target} (cpu, opencl, opencl_fp16, cuda, cuda_fp16,
+ * vulkan, myriad, npu; default cpu). If the build does not support them the
+ * net falls back to OpenCV/CPU. What the first load found out is kept in a
+ * {@link ModelArtifactCache}.
  */
-public class YoloBridge implements AutoCloseable {
-    private static final Size INPUT_SIZE = new Size(640, 640);
+public class YoloBridge implements Detector {
+    private static final Logger LOG = Log.get("yolo");
+    private static final String[] SAMPLE_KEYS = {"c0", "c1", "c2", "c3", "c4", "c5", "c6"};
+
+    private static final int DEFAULT_INPUT_SIZE = 640;
     private static final Scalar BLOB_MEAN = new Scalar(0, 0, 0);
     private static final double SCALE = 1.0 / 255.0;
 
     // Static initializer to load OpenCV native library
     static {
         try {
-            // First try to load using the OpenPNP loader
-            nu.pattern.OpenCV.loadLocally();
-            System.out.println("[YoloBridge] OpenCV loaded successfully using OpenPNP loader");
-        } catch (Exception e) {
-            try {
-                // Fallback to standard OpenCV loader
-                System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
-                System.out.println("[YoloBridge] OpenCV loaded successfully using Core.NATIVE_LIBRARY_NAME");
-            } catch (UnsatisfiedLinkError err) {
-                System.err.println("[YoloBridge] Failed to load OpenCV native library");
-                System.err.println("Error: " + err.getMessage());
-                throw new RuntimeException("OpenCV native library not found. Please ensure OpenCV is properly installed.", err);
-            }
+            // Pre-extracted library if present, otherwise the OpenPNP loader
+            OpenCvLoader.load();
+            System.out.println("[YoloBridge] OpenCV loaded successfully (" + OpenCvLoader.getSource() + ")");
+        } catch (RuntimeException | UnsatisfiedLinkError err) {
+            System.err.println("[YoloBridge] Failed to load OpenCV native library");
+            System.err.println("Error: " + err.getMessage());
+            throw new RuntimeException("OpenCV native library not found. Please ensure OpenCV is properly installed.", err);
         }
     }
 
     private final Net net;
-    private final VideoCapture camera;
+    private final FrameSource camera;
     private final List<String> labels;
+    private final Size inputSize;
+
+    private final OutputDecoder decoder;
+    private final GridNms gridNms = new GridNms();
+    private final boolean useOpenCvNms = "opencv".equalsIgnoreCase(System.getProperty("smartbin.yolo.nms", "grid"));
+    private float[] outputBuffer;
+    private float[] batchBuffer;
+    private boolean batchSupported = true;
+    private final ModelArtifactCache artifactCache;
+    private final ModelArtifactCache.Entry artifacts;
 
     private double confidenceThreshold = 0.4;
-    private final double nmsThreshold = 0.45;
-    private boolean loggedOutputShape = false;
-    private final boolean debugMode = "1".equals(System.getenv("SMARTBIN_DEBUG"));
+    private double nmsThreshold = 0.45;
     private boolean loggedSample = false;
+    private float lastTopScore = Float.NaN;
 
     public YoloBridge(String modelPath) {
         this(modelPath, 0);
     }
 
     public YoloBridge(String modelPath, int cameraIndex) {
+        this(modelPath, cameraIndex, DEFAULT_INPUT_SIZE);
+    }
+
+    /**
+     * @param modelPath Path to the ONNX model
+     * @param cameraIndex Webcam to open, or a negative value for offline use without a camera
+     * @param inputSize Square network input size in pixels
+     */
+    public YoloBridge(String modelPath, int cameraIndex, int inputSize) {
+        this(modelPath,
+                cameraIndex >= 0
+                        ? new CameraFrameSource(cameraIndex, CaptureProfileNegotiator.select(cameraIndex, 640, 480))
+                        : null,
+                inputSize);
+    }
+
+    /**
+     * @param modelPath Path to the ONNX model
+     * @param frameSource Where readFrame gets frames from, or null for offline use.
+     *                    The bridge takes ownership and closes it.
+     * @param inputSize Square network input size in pixels
+     */
+    public YoloBridge(String modelPath, FrameSource frameSource, int inputSize) {
         File file = new File(modelPath);
         if (!file.exists()) {
+            if (frameSource != null) {
+                frameSource.close();
+            }
             throw new IllegalArgumentException("Model file not found at: " + file.getAbsolutePath());
         }
+        long start = System.nanoTime();
         this.net = Dnn.readNetFromONNX(file.getAbsolutePath());
-        this.camera = new VideoCapture(cameraIndex);
-        this.camera.set(Videoio.CAP_PROP_FRAME_WIDTH, 640);
-        this.camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, 480);
-        this.labels = Collections.singletonList("bottle");
+        this.camera = frameSource;
+        this.inputSize = new Size(inputSize, inputSize);
+        String configuredLabels = System.getProperty("smartbin.yolo.labels", "").trim();
+        this.labels = configuredLabels.isEmpty()
+                ? Collections.singletonList("bottle")
+                : List.of(configuredLabels.split("\\s*,\\s*"));
+
+        String backend = System.getProperty("smartbin.yolo.backend", "opencv").trim().toLowerCase(Locale.ROOT);
+        String target = System.getProperty("smartbin.yolo.target", "cpu").trim().toLowerCase(Locale.ROOT);
+        int backendId = backendId(backend);
+        int targetId = targetId(target);
+        ModelArtifactCache cache = ModelArtifactCache.fromSystemProperties();
+        ModelArtifactCache.Entry entry = null;
+        if (cache != null) {
+            try {
+                entry = cache.lookup(file.toPath(), backend, target, inputSize);
+            } catch (IOException e) {
+                LOG.warn("model artifact cache unavailable").error(e).log();
+                cache = null;
+            }
+        }
+        this.artifactCache = cache;
+        this.artifacts = entry;
+
+        boolean cached = entry != null && entry.shape != null;
+        int[] shape;
+        if (cached) {
+            if (!entry.fellBack) {
+                preferBackend(backend, target);
+            }
+            shape = entry.shape;
+            batchSupported = entry.batchSupported;
+        } else {
+            boolean fellBack = !preferBackend(backend, target);
+            try {
+                shape = OutputLayoutResolver.probeShape(net, this.inputSize);
+            } catch (CvException e) {
+                if (fellBack || backendId == Dnn.DNN_BACKEND_OPENCV && targetId == Dnn.DNN_TARGET_CPU) {
+                    throw e;
+                }
+                LOG.warn("backend failed on first inference, falling back to OpenCV/CPU")
+                        .str("backend", backend)
+                        .str("target", target)
+                        .error(e)
+                        .log();
+                useOpenCvCpu();
+                fellBack = true;
+                shape = OutputLayoutResolver.probeShape(net, this.inputSize);
+            }
+            if (entry != null) {
+                entry.shape = shape;
+                entry.fellBack = fellBack;
+                storeArtifacts();
+            }
+        }
+        // The single default label is a name, not a class count to trust
+        this.decoder = OutputLayoutResolver.forShape(shape, configuredLabels.isEmpty() ? 0 : labels.size());
+        System.out.println("[YoloBridge] Resolved output layout: " + decoder
+                + (decoder.requiresNms() ? "" : " (NMS in model, skipping Java NMS)"));
+        System.out.printf("[YoloBridge] Model ready in %d ms (%s/%s%s, artifact cache %s)%n",
+                (System.nanoTime() - start) / 1_000_000, backend, target,
+                entry != null && entry.fellBack ? " unavailable, using opencv/cpu" : "",
+                cache == null ? "off" : (cached ? "hit" : "miss")
+                        + (cache.getHashNanos() < 0 ? "" : ", hashed in " + cache.getHashNanos() / 1_000_000 + " ms"));
+    }
+
+    /**
+     * @return false if the backend/target was rejected and the net uses OpenCV/CPU
+     */
+    private boolean preferBackend(String backend, String target) {
+        try {
+            net.setPreferableBackend(backendId(backend));
+            net.setPreferableTarget(targetId(target));
+            return true;
+        } catch (CvException e) {
+            LOG.warn("backend not available, falling back to OpenCV/CPU")
+                    .str("backend", backend)
+                    .str("target", target)
+                    .error(e)
+                    .log();
+            useOpenCvCpu();
+            return false;
+        }
+    }
+
+    private void useOpenCvCpu() {
+        net.setPreferableBackend(Dnn.DNN_BACKEND_OPENCV);
+        net.setPreferableTarget(Dnn.DNN_TARGET_CPU);
+    }
+
+    private void storeArtifacts() {
+        try {
+            artifactCache.store(artifacts);
+        } catch (IOException e) {
+            LOG.warn("could not write model artifact cache").error(e).log();
+        }
+    }
+
+    private static int backendId(String name) {
+        return switch (name) {
+            case "opencv" -> Dnn.DNN_BACKEND_OPENCV;
+            case "openvino", "inference_engine" -> Dnn.DNN_BACKEND_INFERENCE_ENGINE;
+            case "cuda" -> Dnn.DNN_BACKEND_CUDA;
+            case "vkcom", "vulkan" -> Dnn.DNN_BACKEND_VKCOM;
+            default -> throw new IllegalArgumentException("Unknown DNN backend: " + name);
+        };
+    }
+
+    private static int targetId(String name) {
+        return switch (name) {
+            case "cpu" -> Dnn.DNN_TARGET_CPU;
+            case "opencl" -> Dnn.DNN_TARGET_OPENCL;
+            case "opencl_fp16" -> Dnn.DNN_TARGET_OPENCL_FP16;
+            case "cuda" -> Dnn.DNN_TARGET_CUDA;
+            case "cuda_fp16" -> Dnn.DNN_TARGET_CUDA_FP16;
+            case "vulkan" -> Dnn.DNN_TARGET_VULKAN;
+            case "myriad" -> Dnn.DNN_TARGET_MYRIAD;
+            case "npu" -> Dnn.DNN_TARGET_NPU;
+            default -> throw new IllegalArgumentException("Unknown DNN target: " + name);
+        };
+    }
+
+    /**
+     * Output layout resolved when the model was loaded.
+     */
+    public OutputLayout getOutputLayout() {
+        return decoder.getLayout();
     }
 
     public boolean isCameraOpen() {
-        return camera.isOpened();
+        return camera != null && camera.isOpened();
     }
 
     public double getConfidenceThreshold() {
         return confidenceThreshold;
     }
 
+    /**
+     * Class labels in model output order (index = YOLO class id).
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Highest raw score in the last detect call, including candidates below
+     * the confidence threshold; NaN if the output could not be decoded.
+     */
+    public float getLastTopScore() {
+        return lastTopScore;
+    }
+
     public void setConfidenceThreshold(double confidenceThreshold) {
         this.confidenceThreshold = Math.max(0.0, Math.min(1.0, confidenceThreshold));
     }
 
-    public boolean readFrame(Mat frame) {
-        return camera.read(frame);
+    public double getNmsThreshold() {
+        return nmsThreshold;
     }
 
+    /**
+     * IoU above which a box is suppressed by a stronger one; applies from the next detect call.
+     */
+    public void setNmsThreshold(double nmsThreshold) {
+        this.nmsThreshold = Math.max(0.0, Math.min(1.0, nmsThreshold));
+    }
+
+    /**
+     * Read the next frame, stamped with its capture time.
+     */
+    public boolean readFrame(TimestampedFrame frame) {
+        return camera != null && camera.read(frame);
+    }
+
+    @Override
     public List<DetectionResult> detect(Mat frame) {
         if (frame == null || frame.empty()) {
             return Collections.emptyList();
         }
 
-        Mat blob = Dnn.blobFromImage(frame, SCALE, INPUT_SIZE, BLOB_MEAN, true, false);
+        Mat blob = Dnn.blobFromImage(frame, SCALE, inputSize, BLOB_MEAN, true, false);
         net.setInput(blob);
         Mat rawOutput = net.forward();
         blob.release();
 
-        if (!loggedOutputShape) {
-            System.out.printf("YOLO output shape: [%d, %d, %d]%n",
-                    (int) rawOutput.size(0),
-                    (int) rawOutput.size(1),
-                    (int) rawOutput.size(2));
-            loggedOutputShape = true;
-        }
-
         List<DetectionResult> detections = parseDetections(frame, rawOutput);
         rawOutput.release();
         return detections;
     }
 
-    private List<DetectionResult> parseDetections(Mat frame, Mat output) {
-        if (output.empty()) {
-            return Collections.emptyList();
+    /**
+     * One forward pass over all frames ([N, 3, H, W] blob). Models exported
+     * with a fixed batch size of 1 fail the first batched pass; from then on
+     * the frames are detected one by one.
+     */
+    @Override
+    public List<List<DetectionResult>> detectBatch(List<Mat> frames) {
+        if (frames.size() < 2 || !batchSupported) {
+            return Detector.super.detectBatch(frames);
+        }
+        for (Mat frame : frames) {
+            if (frame == null || frame.empty()) {
+                return Detector.super.detectBatch(frames);
+            }
         }
 
-        int candidates = (int) output.size(2);
-        int channels = (int) output.size(1);
+        Mat blob = Dnn.blobFromImages(frames, SCALE, inputSize, BLOB_MEAN, true, false);
+        Mat rawOutput;
+        try {
+            net.setInput(blob);
+            rawOutput = net.forward();
+        } catch (CvException e) {
+            batchSupported = false;
+            System.out.println("[YoloBridge] Model does not accept batched input, detecting frames one by one");
+            if (artifacts != null && artifacts.shape != null) {
+                artifacts.batchSupported = false;
+                storeArtifacts();
+            }
+            return Detector.super.detectBatch(frames);
+        } finally {
+            blob.release();
+        }
 
-        if (candidates == 0 || channels == 0) {
-            candidates = (int) output.size(1);
-            channels = (int) output.size(2);
+        int tensorSize = decoder.getTensorSize();
+        List<List<DetectionResult>> results = new ArrayList<>(frames.size());
+        if (rawOutput.total() != (long) tensorSize * frames.size()) {
+            LOG.warn("batched output size does not match resolved layout")
+                    .num("total", rawOutput.total())
+                    .num("batch", frames.size())
+                    .str("layout", decoder)
+                    .log();
+            rawOutput.release();
+            for (int i = 0; i < frames.size(); i++) {
+                results.add(Collections.emptyList());
+            }
+            return results;
         }
 
-        if (candidates == 0 || channels == 0) {
-            return Collections.emptyList();
+        int batchSize = tensorSize * frames.size();
+        if (batchBuffer == null || batchBuffer.length != batchSize) {
+            batchBuffer = new float[batchSize];
         }
+        Mat flat = rawOutput.reshape(1, 1);
+        flat.get(0, 0, batchBuffer);
+        flat.release();
+        rawOutput.release();
 
-        float[] data = new float[candidates * channels];
-        output.reshape(1, 1).get(0, 0, data);
+        float[] data = outputBuffer(tensorSize);
+        for (int i = 0; i < frames.size(); i++) {
+            System.arraycopy(batchBuffer, i * tensorSize, data, 0, tensorSize);
+            results.add(decodeDetections(frames.get(i), data));
+        }
+        return results;
+    }
 
-        List<Rect> boxes = new ArrayList<>();
-        List<Float> confidences = new ArrayList<>();
-        List<Integer> classIds = new ArrayList<>();
+    private List<DetectionResult> parseDetections(Mat frame, Mat output) {
+        lastTopScore = Float.NaN;
+        if (output.empty()) {
+            return Collections.emptyList();
+        }
 
-        double xFactor = frame.cols() / INPUT_SIZE.width;
-        double yFactor = frame.rows() / INPUT_SIZE.height;
+        int tensorSize = decoder.getTensorSize();
+        if (output.total() != tensorSize) {
+            LOG.warn("output size does not match resolved layout")
+                    .num("total", output.total())
+                    .str("layout", decoder)
+                    .log();
+            return Collections.emptyList();
+        }
 
-        int classOffset = 4;
-        int classes = Math.max(1, channels - classOffset);
+        float[] data = outputBuffer(tensorSize);
+        Mat flat = output.reshape(1, 1);
+        flat.get(0, 0, data);
+        flat.release();
+        return decodeDetections(frame, data);
+    }
 
-        double bestRawScore = Double.NEGATIVE_INFINITY;
-        double bestSigmoidScore = Double.NEGATIVE_INFINITY;
+    private float[] outputBuffer(int tensorSize) {
+        if (outputBuffer == null || outputBuffer.length != tensorSize) {
+            outputBuffer = new float[tensorSize];
+        }
+        return outputBuffer;
+    }
 
-        if (debugMode && !loggedSample) {
-            logSampleRows(data, candidates, channels);
+    private List<DetectionResult> decodeDetections(Mat frame, float[] data) {
+        boolean debug = LOG.isEnabled(LogLevel.DEBUG);
+        if (debug && !loggedSample) {
+            logSampleRows(data);
             loggedSample = true;
         }
 
-        for (int i = 0; i < candidates; i++) {
-            float x = data[i];
-            float y = data[i + candidates];
-            float width = data[i + 2 * candidates];
-            float height = data[i + 3 * candidates];
-
-            int bestClass = 0;
-            float bestScore = data[i + classOffset * candidates];
-
-            for (int c = 1; c < classes; c++) {
-                float score = data[i + (classOffset + c) * candidates];
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestClass = c;
-                }
-            }
-
-            float confidence = clamp(bestScore);
-            if (confidence < confidenceThreshold) {
-                if (!Float.isNaN(bestScore)) {
-                    bestRawScore = Math.max(bestRawScore, bestScore);
-                }
-                if (!Float.isNaN(confidence)) {
-                    bestSigmoidScore = Math.max(bestSigmoidScore, confidence);
-                }
-                continue;
-            }
+        DecodedCandidates candidates = new DecodedCandidates(
+                frame.cols(),
+                frame.rows(),
+                frame.cols() / inputSize.width,
+                frame.rows() / inputSize.height);
+        decoder.decode(data, (float) confidenceThreshold, candidates);
+        float topScore = candidates.bestRejectedScore;
+        for (float confidence : candidates.confidences) {
+            topScore = Math.max(topScore, confidence);
+        }
+        lastTopScore = topScore;
 
-            int left = (int) ((x - width / 2) * xFactor);
-            int top = (int) ((y - height / 2) * yFactor);
-            int boxWidth = (int) (width * xFactor);
-            int boxHeight = (int) (height * yFactor);
+        if (debug && candidates.isEmpty()) {
+            LOG.debug("no detection cleared threshold")
+                    .num("threshold", confidenceThreshold)
+                    .num("bestRejected", candidates.bestRejectedScore)
+                    .log();
+        }
 
-            left = Math.max(0, left);
-            top = Math.max(0, top);
-            boxWidth = Math.min(boxWidth, frame.cols() - left);
-            boxHeight = Math.min(boxHeight, frame.rows() - top);
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-            if (boxWidth <= 0 || boxHeight <= 0) {
-                continue;
+        if (!decoder.requiresNms()) {
+            List<DetectionResult> results = new ArrayList<>(candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                results.add(toResult(candidates, i));
             }
-
-            boxes.add(new Rect(left, top, boxWidth, boxHeight));
-            confidences.add(confidence);
-            classIds.add(bestClass);
+            return results;
         }
 
-        if (debugMode && boxes.isEmpty()) {
-            System.out.printf(
-                    "Debug: no detection cleared threshold %.2f | best raw %.3f | best sigmoid %.3f%n",
-                    confidenceThreshold,
-                    bestRawScore,
-                    bestSigmoidScore);
+        int[] keep = useOpenCvNms ? openCvNms(candidates) : gridNms.suppress(candidates, (float) nmsThreshold);
+        if (keep.length == 0) {
+            return Collections.emptyList();
         }
 
-        if (boxes.isEmpty()) {
-            return Collections.emptyList();
+        List<DetectionResult> results = new ArrayList<>(keep.length);
+        for (int idx : keep) {
+            results.add(toResult(candidates, idx));
         }
+        return results;
+    }
 
-        List<Rect2d> boxes2d = new ArrayList<>(boxes.size());
-        for (Rect box : boxes) {
+    /**
+     * Class-agnostic Dnn.NMSBoxes, the behaviour before GridNms (-Dsmartbin.yolo.nms=opencv).
+     */
+    private int[] openCvNms(DecodedCandidates candidates) {
+        List<Rect2d> boxes2d = new ArrayList<>(candidates.size());
+        for (Rect box : candidates.boxes) {
             boxes2d.add(new Rect2d(box.x, box.y, box.width, box.height));
         }
 
         MatOfRect2d boxMat = new MatOfRect2d();
         boxMat.fromList(boxes2d);
         MatOfFloat confidenceMat = new MatOfFloat();
-        confidenceMat.fromList(confidences);
+        confidenceMat.fromList(candidates.confidences);
         MatOfInt indices = new MatOfInt();
         Dnn.NMSBoxes(boxMat, confidenceMat, (float) confidenceThreshold, (float) nmsThreshold, indices);
 
         int[] keep = indices.toArray();
-        if (keep.length == 0) {
-            return Collections.emptyList();
-        }
-
-        List<DetectionResult> results = new ArrayList<>(keep.length);
-        for (int idx : keep) {
-            String label = classIds.get(idx) < labels.size()
-                    ? labels.get(classIds.get(idx))
-                    : "unknown";
-            results.add(new DetectionResult(label, confidences.get(idx), boxes.get(idx)));
-        }
-        return results;
+        boxMat.release();
+        confidenceMat.release();
+        indices.release();
+        return keep;
     }
 
-    private float clamp(float value) {
-        if (Float.isNaN(value)) {
-            return 0f;
-        }
-        if (value < 0f) {
-            return 0f;
-        }
-        if (value > 1f) {
-            return 1f;
-        }
-        return value;
+    private DetectionResult toResult(DecodedCandidates candidates, int index) {
+        int classId = candidates.classIds.get(index);
+        String label = classId >= 0 && classId < labels.size()
+                ? labels.get(classId)
+                : "unknown";
+        return new DetectionResult(label, candidates.confidences.get(index), candidates.boxes.get(index));
     }
 
-    private void logSampleRows(float[] data, int candidates, int channels) {
+    private void logSampleRows(float[] data) {
+        int candidates = decoder.getCandidates();
+        int channels = decoder.getChannels();
         int[] sampleIndices = buildSampleIndices(candidates);
         float min = Float.POSITIVE_INFINITY;
         float max = Float.NEGATIVE_INFINITY;
@@ -266,29 +504,20 @@ public class YoloBridge implements AutoCloseable {
                 max = value;
             }
         }
-        System.out.printf("Debug raw output min=%.4f max=%.4f%n", min, max);
-        System.out.println("Debug sample of raw model rows (x, y, w, h, score...):");
+        LOG.debug("raw output range")
+                .str("layout", decoder.getLayout().getDisplayName())
+                .num("min", min)
+                .num("max", max)
+                .log();
         for (int index : sampleIndices) {
             if (index >= candidates) {
                 break;
             }
-            StringBuilder builder = new StringBuilder("  row ")
-                    .append(index)
-                    .append(": ");
-            builder.append(String.format("x=%.4f y=%.4f w=%.4f h=%.4f",
-                    data[index],
-                    data[index + candidates],
-                    data[index + 2 * candidates],
-                    data[index + 3 * candidates]));
-            if (channels > 4) {
-                for (int c = 0; c < Math.min(channels - 4, 3); c++) {
-                    builder.append(" class")
-                            .append(c)
-                            .append('=')
-                            .append(String.format("%.4f", data[index + (4 + c) * candidates]));
-                }
+            LogEvent row = LOG.debug("raw output row").num("row", index);
+            for (int c = 0; c < Math.min(channels, SAMPLE_KEYS.length); c++) {
+                row.num(SAMPLE_KEYS[c], decoder.valueAt(data, index, c));
             }
-            System.out.println(builder);
+            row.log();
         }
     }
 
@@ -318,6 +547,11 @@ public class YoloBridge implements AutoCloseable {
         return best;
     }
 
+    /**
+     * Draw the detection box and status bar onto a copy of the frame.
+     * The caller owns the returned Mat and must release it.
+     * The kiosk UI uses DetectionOverlay instead, which never copies the frame.
+     */
     public Mat drawFeedback(Mat frame, DetectionResult bestDetection) {
         Mat display = frame.clone();
         Scalar successColor = new Scalar(0, 160, 0);
@@ -352,8 +586,8 @@ public class YoloBridge implements AutoCloseable {
 
     @Override
     public void close() {
-        if (camera.isOpened()) {
-            camera.release();
+        if (camera != null) {
+            camera.close();
         }
     }
 }
@@ -4,13 +4,28 @@ module com.kiosk {
     requires javafx.graphics;
     requires javafx.swing;
     requires java.desktop;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.httpserver;
     requires opencv;
+    requires static jdk.incubator.vector;
 
     exports com.kiosk;
+    exports com.kiosk.config;
     exports com.kiosk.controllers;
+    exports com.kiosk.headless;
+    exports com.kiosk.metrics;
     exports com.kiosk.models;
+    exports com.kiosk.runtime;
+    exports com.kiosk.scheduling;
     exports com.kiosk.services;
+    exports com.kiosk.telemetry;
+    exports com.kiosk.views;
     exports com.smartbin;
+    exports com.smartbin.capture;
+    exports com.smartbin.logging;
+    exports com.smartbin.remote;
+    exports com.smartbin.vision;
     exports com.smartbin.yolo;
 
     opens com.kiosk.controllers to javafx.fxml;
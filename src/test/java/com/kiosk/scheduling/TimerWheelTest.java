@@ -0,0 +1,173 @@
+package com.kiosk.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private VirtualClock clock;
+    private TimerWheel wheel;
+    private List<String> ran;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+        wheel = new TimerWheel(clock, 10);
+        ran = new ArrayList<>();
+    }
+
+    @Test
+    void runsTaskOnceWhenDue() {
+        wheel.schedule(100, () -> ran.add("a"));
+
+        clock.advanceMillis(90);
+        assertEquals(0, wheel.poll());
+        clock.advanceMillis(10);
+        assertEquals(1, wheel.poll());
+        clock.advanceMillis(1000);
+        assertEquals(0, wheel.poll());
+
+        assertEquals(List.of("a"), ran);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void roundsDelayUpToNextTick() {
+        wheel.schedule(1, () -> ran.add("a"));
+
+        assertEquals(0, wheel.poll());
+        clock.advanceMillis(10);
+        assertEquals(1, wheel.poll());
+    }
+
+    @Test
+    void runsInDeadlineOrderAcrossLevels() {
+        // 10 ms ticks: level 0 spans 640 ms, level 1 about 41 s, level 2 about 44 min
+        wheel.schedule(3 * 60 * 60 * 1000L, () -> ran.add("hours"));
+        wheel.schedule(20 * 60 * 1000L, () -> ran.add("minutes"));
+        wheel.schedule(5000, () -> ran.add("seconds"));
+        wheel.schedule(50, () -> ran.add("millis"));
+
+        for (int i = 0; i < 4 * 60 * 60 * 10; i++) {
+            clock.advance(100, TimeUnit.MILLISECONDS);
+            wheel.poll();
+        }
+
+        assertEquals(List.of("millis", "seconds", "minutes", "hours"), ran);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void firesLateTimersOnLargeClockJump() {
+        wheel.schedule(700, () -> ran.add("a"));
+        wheel.schedule(100_000, () -> ran.add("b"));
+
+        clock.advanceMillis(200_000);
+        assertEquals(2, wheel.poll());
+        assertEquals(List.of("a", "b"), ran);
+    }
+
+    @Test
+    void cancelledTimerDoesNotRun() {
+        TimerWheel.Timeout timeout = wheel.schedule(100, () -> ran.add("a"));
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isPending());
+        assertEquals(0, wheel.size());
+        clock.advanceMillis(200);
+        assertEquals(0, wheel.poll());
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    void timerCancelledBySameTickTaskDoesNotRun() {
+        TimerWheel.Timeout[] second = new TimerWheel.Timeout[1];
+        TimerWheel.Timeout[] first = new TimerWheel.Timeout[1];
+        // Both land in the same slot; whichever runs first cancels the other
+        first[0] = wheel.schedule(100, () -> {
+            ran.add("first");
+            assertTrue(second[0].cancel());
+        });
+        second[0] = wheel.schedule(100, () -> {
+            ran.add("second");
+            assertTrue(first[0].cancel());
+        });
+
+        clock.advanceMillis(100);
+        assertEquals(1, wheel.poll());
+
+        assertEquals(1, ran.size());
+        assertTrue(wheel.isEmpty());
+        assertFalse(first[0].isPending());
+        assertFalse(second[0].isPending());
+    }
+
+    @Test
+    void cancelAfterRunReturnsFalse() {
+        TimerWheel.Timeout timeout = wheel.schedule(10, () -> ran.add("a"));
+        clock.advanceMillis(10);
+        wheel.poll();
+
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isPending());
+    }
+
+    @Test
+    void taskMayScheduleAnother() {
+        wheel.schedule(100, () -> {
+            ran.add("a");
+            wheel.schedule(100, () -> ran.add("b"));
+        });
+
+        clock.advanceMillis(100);
+        wheel.poll();
+        assertEquals(List.of("a"), ran);
+        clock.advanceMillis(100);
+        wheel.poll();
+        assertEquals(List.of("a", "b"), ran);
+    }
+
+    @Test
+    void wakeUpCalledWhenFirstTimerAdded() {
+        int[] wakeUps = new int[1];
+        wheel.setWakeUp(() -> wakeUps[0]++);
+
+        wheel.schedule(100, () -> { });
+        wheel.schedule(200, () -> { });
+        assertEquals(1, wakeUps[0]);
+
+        clock.advanceMillis(300);
+        wheel.poll();
+        wheel.schedule(100, () -> { });
+        assertEquals(2, wakeUps[0]);
+    }
+
+    @Test
+    void delayCountsFromNowAfterIdleGapWithoutPolls() {
+        wheel.schedule(100, () -> ran.add("first"));
+        clock.advanceMillis(100);
+        wheel.poll();
+
+        // An FX pump stops polling once the wheel is empty
+        clock.advanceMillis(60_000);
+        wheel.schedule(3000, () -> ran.add("second"));
+        clock.advanceMillis(20);
+        wheel.poll();
+        assertEquals(List.of("first"), ran);
+
+        clock.advanceMillis(2970);
+        wheel.poll();
+        assertEquals(List.of("first"), ran);
+        clock.advanceMillis(10);
+        wheel.poll();
+        assertEquals(List.of("first", "second"), ran);
+    }
+}
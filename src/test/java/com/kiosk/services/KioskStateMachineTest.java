@@ -0,0 +1,270 @@
+package com.kiosk.services;
+
+import com.kiosk.models.KioskEvent;
+import com.kiosk.models.WasteCategory;
+import com.kiosk.scheduling.TimerWheel;
+import com.kiosk.scheduling.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.kiosk.models.WasteCategory.COMPOST;
+import static com.kiosk.models.WasteCategory.RECYCLE;
+import static com.kiosk.models.WasteCategory.TRASH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KioskStateMachineTest {
+    private VirtualClock clock;
+    private TimerWheel wheel;
+    private KioskStateMachine machine;
+    private List<String> events;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+        wheel = new TimerWheel(clock, 10);
+        events = new ArrayList<>();
+        machine = new KioskStateMachine(wheel, event -> events.add(describe(event)));
+    }
+
+    private static String describe(KioskEvent event) {
+        return event.getCategory() == null ? event.getType().name() : event.getType() + ":" + event.getCategory();
+    }
+
+    private void advance(long millis) {
+        for (long t = 0; t < millis; t += 10) {
+            clock.advanceMillis(10);
+            wheel.poll();
+        }
+    }
+
+    private void detect(WasteCategory... categories) {
+        machine.onDetectionResults(List.of(categories), 1, 0.9);
+    }
+
+    @Test
+    void instructionThenScanningAgain() {
+        machine.startScanning();
+        detect(RECYCLE);
+        assertEquals(KioskStateMachine.State.CLASSIFIED, machine.getState());
+        assertEquals(RECYCLE, machine.getLastRecommendedCategory());
+
+        advance(KioskStateMachine.MESSAGE_MILLIS);
+        assertEquals(KioskStateMachine.State.CLASSIFIED, machine.getState());
+        advance(KioskStateMachine.RESCAN_DELAY_MILLIS - KioskStateMachine.MESSAGE_MILLIS);
+
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertEquals(List.of("SCANNING_STARTED", "DETECTED:RECYCLE", "INSTRUCTION_SHOWN:RECYCLE",
+                "INSTRUCTION_HIDDEN:RECYCLE", "SCANNING_STARTED"), events);
+    }
+
+    @Test
+    void detectionsIgnoredWhileNotScanning() {
+        detect(RECYCLE);
+        assertEquals(KioskStateMachine.State.IDLE, machine.getState());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void lowConfidenceReportedOnceThenBackToScanning() {
+        machine.startScanning();
+        machine.onDetectionResults(List.of(), 1, 0.3);
+        machine.onDetectionResults(List.of(), 2, 0.35);
+        assertEquals(KioskStateMachine.State.LOW_CONFIDENCE, machine.getState());
+        machine.onDetectionResults(List.of(), 3, Double.NaN);
+
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertEquals(List.of("SCANNING_STARTED", "LOW_CONFIDENCE", "SCANNING_STARTED"), events);
+    }
+
+    @Test
+    void matchingDisposalIsConfirmed() {
+        machine.startScanning();
+        detect(RECYCLE);
+        advance(1000);
+        machine.validateDisposal(RECYCLE);
+        assertEquals(KioskStateMachine.State.CONFIRMING, machine.getState());
+
+        advance(KioskStateMachine.CONFIRMATION_MILLIS);
+
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertEquals(List.of("SCANNING_STARTED", "DETECTED:RECYCLE", "INSTRUCTION_SHOWN:RECYCLE",
+                "DISPOSAL_CONFIRMED:RECYCLE", "INSTRUCTION_HIDDEN:RECYCLE", "CONFIRMATION_HIDDEN:RECYCLE",
+                "SCANNING_STARTED"), events);
+    }
+
+    @Test
+    void wrongDisposalIsReportedAndInstructionStays() {
+        machine.startScanning();
+        detect(RECYCLE);
+        machine.validateDisposal(TRASH);
+
+        assertEquals(KioskStateMachine.State.CLASSIFIED, machine.getState());
+        assertEquals("DISPOSAL_INCORRECT:TRASH", events.get(events.size() - 1));
+    }
+
+    @Test
+    void testButtonInstructionGoesIdle() {
+        machine.showInstruction(COMPOST);
+        advance(KioskStateMachine.RESCAN_DELAY_MILLIS + 1000);
+
+        assertEquals(KioskStateMachine.State.IDLE, machine.getState());
+        assertEquals(List.of("INSTRUCTION_SHOWN:COMPOST", "INSTRUCTION_HIDDEN:COMPOST"), events);
+    }
+
+    @Test
+    void stopCancelsTimers() {
+        machine.startScanning();
+        detect(RECYCLE);
+        machine.stop();
+        events.clear();
+
+        advance(10_000);
+
+        assertEquals(KioskStateMachine.State.IDLE, machine.getState());
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void disposalWithNoInstructionIsIgnored() {
+        machine.startScanning();
+        assertFalse(machine.isAwaitingDisposal());
+        machine.validateDisposal(TRASH);
+
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertEquals(List.of("SCANNING_STARTED"), events);
+    }
+
+    @Test
+    void correctDisposalAfterScanningResumesIsConfirmed() {
+        machine.startScanning();
+        detect(RECYCLE);
+        // The traveller reaches the bins after the instruction has gone and scanning resumed
+        advance(5000);
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertTrue(machine.isAwaitingDisposal());
+        machine.validateDisposal(RECYCLE);
+        assertEquals("DISPOSAL_CONFIRMED:RECYCLE", events.get(events.size() - 1));
+
+        advance(KioskStateMachine.CONFIRMATION_MILLIS);
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertFalse(machine.isAwaitingDisposal());
+    }
+
+    @Test
+    void instructionNoLongerAwaitedAfterDisposalWindow() {
+        machine.startScanning();
+        detect(RECYCLE);
+        advance(KioskStateMachine.DISPOSAL_WINDOW_MILLIS - 10);
+        assertTrue(machine.isAwaitingDisposal());
+        advance(10);
+        events.clear();
+
+        assertFalse(machine.isAwaitingDisposal());
+        assertNull(machine.getLastRecommendedCategory());
+        machine.validateDisposal(RECYCLE);
+        machine.validateDisposal(TRASH);
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void nextDetectionReplacesPendingInstruction() {
+        machine.startScanning();
+        detect(RECYCLE, COMPOST);
+        advance(KioskStateMachine.MESSAGE_MILLIS + KioskStateMachine.RESCAN_DELAY_MILLIS);
+        detect(TRASH);
+        machine.validateDisposal(RECYCLE);
+
+        assertEquals("DISPOSAL_INCORRECT:RECYCLE", events.get(events.size() - 1));
+        machine.validateDisposal(TRASH);
+        assertEquals("DISPOSAL_CONFIRMED:TRASH", events.get(events.size() - 1));
+    }
+
+    @Test
+    void instructionNoLongerAwaitedAfterConfirmationOrStop() {
+        machine.showInstruction(COMPOST);
+        // Test buttons dispose after the message has gone
+        advance(KioskStateMachine.RESCAN_DELAY_MILLIS);
+        assertTrue(machine.isAwaitingDisposal());
+        machine.validateDisposal(COMPOST);
+        advance(KioskStateMachine.CONFIRMATION_MILLIS);
+        assertEquals(KioskStateMachine.State.IDLE, machine.getState());
+        assertFalse(machine.isAwaitingDisposal());
+
+        machine.startScanning();
+        detect(RECYCLE, COMPOST);
+        machine.stop();
+        assertFalse(machine.isAwaitingDisposal());
+        assertNull(machine.getLastRecommendedCategory());
+        events.clear();
+        machine.validateDisposal(COMPOST);
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void severalItemsAreShownInTurnWithoutScanning() {
+        machine.startScanning();
+        detect(RECYCLE, COMPOST);
+        assertEquals(List.of(COMPOST), machine.getQueuedCategories());
+
+        advance(KioskStateMachine.MESSAGE_MILLIS);
+        assertEquals(KioskStateMachine.State.CLASSIFIED, machine.getState());
+        assertEquals(COMPOST, machine.getLastRecommendedCategory());
+        assertEquals(List.of(), machine.getQueuedCategories());
+
+        advance(KioskStateMachine.RESCAN_DELAY_MILLIS);
+
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+        assertEquals(List.of("SCANNING_STARTED", "DETECTED:RECYCLE", "DETECTED:COMPOST",
+                "INSTRUCTION_SHOWN:RECYCLE", "INSTRUCTION_HIDDEN:RECYCLE", "INSTRUCTION_SHOWN:COMPOST",
+                "INSTRUCTION_HIDDEN:COMPOST", "SCANNING_STARTED"), events);
+    }
+
+    @Test
+    void queuedItemShownAfterConfirmation() {
+        machine.startScanning();
+        detect(RECYCLE, COMPOST);
+        advance(500);
+        machine.validateDisposal(RECYCLE);
+        advance(KioskStateMachine.CONFIRMATION_MILLIS);
+
+        assertEquals(KioskStateMachine.State.CLASSIFIED, machine.getState());
+        assertEquals(COMPOST, machine.getLastRecommendedCategory());
+        machine.validateDisposal(COMPOST);
+        advance(KioskStateMachine.CONFIRMATION_MILLIS);
+
+        assertEquals(KioskStateMachine.State.SCANNING, machine.getState());
+    }
+
+    @Test
+    void queuedItemMayBeDisposedBeforeItIsShown() {
+        machine.startScanning();
+        detect(RECYCLE, COMPOST, TRASH);
+        machine.validateDisposal(TRASH);
+
+        assertEquals("DISPOSAL_CONFIRMED:TRASH", events.get(events.size() - 1));
+        assertEquals(List.of(COMPOST), machine.getQueuedCategories());
+    }
+
+    @Test
+    void confirmationEndingOnSameTickAsMessageDoesNotHideNextInstruction() {
+        // 100 ms ticks keep both 3 s timers on the finest level, where the later one runs first
+        wheel = new TimerWheel(clock, 100);
+        machine = new KioskStateMachine(wheel, event -> events.add(describe(event)));
+        machine.startScanning();
+        detect(RECYCLE, COMPOST);
+        // Confirmation ends on the tick the first instruction times out; showing the next cancels that timeout
+        machine.validateDisposal(RECYCLE);
+        advance(KioskStateMachine.CONFIRMATION_MILLIS);
+
+        assertEquals(KioskStateMachine.State.CLASSIFIED, machine.getState());
+        assertEquals("INSTRUCTION_SHOWN:COMPOST", events.get(events.size() - 1));
+        advance(KioskStateMachine.MESSAGE_MILLIS - 100);
+        assertEquals("INSTRUCTION_SHOWN:COMPOST", events.get(events.size() - 1));
+    }
+}
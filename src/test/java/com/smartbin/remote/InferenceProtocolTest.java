@@ -0,0 +1,159 @@
+package com.smartbin.remote;
+
+import com.smartbin.DetectionResult;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InferenceProtocolTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private DataInputStream written() {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    void requestRoundTrip() throws IOException {
+        byte[] image = {1, 2, 3, 4, 5, 6, 7, 8};
+        // Only the first length bytes of the buffer are sent
+        InferenceProtocol.writeRequest(out, 42, InferenceProtocol.FORMAT_JPEG, 640, 480, image, 5);
+        assertEquals(18 + 5, bytes.size());
+
+        InferenceProtocol.Request request = InferenceProtocol.readRequest(written());
+        assertEquals(42, request.id);
+        assertEquals(InferenceProtocol.FORMAT_JPEG, request.format);
+        assertEquals(640, request.width);
+        assertEquals(480, request.height);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, request.payload);
+    }
+
+    @Test
+    void encodedMessagesMatchStreamWrites() throws IOException {
+        byte[] image = {1, 2, 3, 4, 5, 6, 7, 8};
+        InferenceProtocol.writeRequest(out, 3, InferenceProtocol.FORMAT_BGR, 2, 1, image, 6);
+        assertArrayEquals(bytes.toByteArray(),
+                InferenceProtocol.encodeRequest(3, InferenceProtocol.FORMAT_BGR, 2, 1, image, 6));
+
+        bytes.reset();
+        List<DetectionResult> detections = List.of(new DetectionResult("can", 0.25f, new Rect(1, 2, 3, 4)));
+        InferenceProtocol.writeResponse(out, 9, InferenceProtocol.STATUS_OK, 55, detections);
+        assertArrayEquals(bytes.toByteArray(),
+                InferenceProtocol.encodeResponse(9, InferenceProtocol.STATUS_OK, 55, detections));
+    }
+
+    @Test
+    void sizesAboveShortMaxSurvive() throws IOException {
+        InferenceProtocol.writeRequest(out, 1, InferenceProtocol.FORMAT_BGR, 40000, 65535, new byte[0], 0);
+
+        InferenceProtocol.Request request = InferenceProtocol.readRequest(written());
+        assertEquals(40000, request.width);
+        assertEquals(65535, request.height);
+        assertEquals(0, request.payload.length);
+    }
+
+    @Test
+    void responseRoundTrip() throws IOException {
+        List<DetectionResult> detections = List.of(
+                new DetectionResult("bottle", 0.875f, new Rect(10, 20, 30, 40)),
+                new DetectionResult("café cup", 0.5f, new Rect(-5, 0, 100, 200)));
+        InferenceProtocol.writeResponse(out, 7, InferenceProtocol.STATUS_OK, 1234, detections);
+
+        InferenceProtocol.Response response = InferenceProtocol.readResponse(written());
+        assertEquals(7, response.id);
+        assertEquals(InferenceProtocol.STATUS_OK, response.status);
+        assertEquals(1234, response.serverMicros);
+        assertEquals(2, response.detections.size());
+        for (int i = 0; i < detections.size(); i++) {
+            DetectionResult expected = detections.get(i);
+            DetectionResult actual = response.detections.get(i);
+            assertEquals(expected.getLabel(), actual.getLabel());
+            assertEquals(expected.getConfidence(), actual.getConfidence());
+            assertEquals(expected.getBoundingBox(), actual.getBoundingBox());
+        }
+    }
+
+    @Test
+    void emptyResponseCarriesStatus() throws IOException {
+        InferenceProtocol.writeResponse(out, 3, InferenceProtocol.STATUS_OVERLOADED, 0, List.of());
+
+        InferenceProtocol.Response response = InferenceProtocol.readResponse(written());
+        assertEquals(3, response.id);
+        assertEquals(InferenceProtocol.STATUS_OVERLOADED, response.status);
+        assertTrue(response.detections.isEmpty());
+    }
+
+    @Test
+    void longLabelIsTruncatedAndBoxIsClamped() throws IOException {
+        String label = "x".repeat(300);
+        InferenceProtocol.writeResponse(out, 1, InferenceProtocol.STATUS_OK, 0,
+                List.of(new DetectionResult(label, 0.9f, new Rect(-40000, 5, 70000, 40000))));
+
+        DetectionResult detection = InferenceProtocol.readResponse(written()).detections.get(0);
+        assertEquals(label.substring(0, 255), detection.getLabel());
+        assertEquals(new Rect(Short.MIN_VALUE, 5, Short.MAX_VALUE, Short.MAX_VALUE), detection.getBoundingBox());
+    }
+
+    @Test
+    void messagesAreReadBackToBack() throws IOException {
+        InferenceProtocol.writeRequest(out, 1, InferenceProtocol.FORMAT_JPEG, 320, 240, new byte[]{9, 9}, 2);
+        InferenceProtocol.writeRequest(out, 2, InferenceProtocol.FORMAT_BGR, 1, 1, new byte[]{1, 2, 3}, 3);
+
+        DataInputStream in = written();
+        assertEquals(1, InferenceProtocol.readRequest(in).id);
+        InferenceProtocol.Request second = InferenceProtocol.readRequest(in);
+        assertEquals(2, second.id);
+        assertArrayEquals(new byte[]{1, 2, 3}, second.payload);
+        assertThrows(EOFException.class, () -> InferenceProtocol.readRequest(in));
+    }
+
+    @Test
+    void badMagicIsRejected() throws IOException {
+        InferenceProtocol.writeResponse(out, 1, InferenceProtocol.STATUS_OK, 0, List.of());
+
+        // A response where a request is expected and vice versa
+        assertThrows(IOException.class, () -> InferenceProtocol.readRequest(written()));
+        bytes.reset();
+        InferenceProtocol.writeRequest(out, 1, InferenceProtocol.FORMAT_JPEG, 1, 1, new byte[0], 0);
+        assertThrows(IOException.class, () -> InferenceProtocol.readResponse(written()));
+    }
+
+    @Test
+    void oversizedOrNegativePayloadIsRejected() throws IOException {
+        for (int length : new int[]{InferenceProtocol.MAX_PAYLOAD + 1, -1}) {
+            bytes.reset();
+            out.writeInt(InferenceProtocol.REQUEST_MAGIC);
+            out.writeByte(InferenceProtocol.FORMAT_JPEG);
+            out.writeByte(0);
+            out.writeInt(1);
+            out.writeShort(640);
+            out.writeShort(480);
+            out.writeInt(length);
+
+            IOException e = assertThrows(IOException.class, () -> InferenceProtocol.readRequest(written()));
+            assertTrue(e.getMessage().contains("too large"), e.getMessage());
+        }
+    }
+
+    @Test
+    void truncatedPayloadFails() throws IOException {
+        InferenceProtocol.writeRequest(out, 1, InferenceProtocol.FORMAT_JPEG, 1, 1, new byte[10], 10);
+        byte[] cut = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+
+        assertThrows(EOFException.class,
+                () -> InferenceProtocol.readRequest(new DataInputStream(new ByteArrayInputStream(cut))));
+    }
+}
@@ -0,0 +1,122 @@
+package com.smartbin.yolo;
+
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GridNmsTest {
+    private final GridNms nms = new GridNms();
+
+    private static DecodedCandidates candidates(int width, int height) {
+        return new DecodedCandidates(width, height, 1, 1);
+    }
+
+    @Test
+    void emptyInputKeepsNothing() {
+        assertEquals(0, nms.suppress(candidates(640, 480), 0.45f).length);
+    }
+
+    @Test
+    void overlappingBoxOfSameClassIsSuppressed() {
+        DecodedCandidates boxes = candidates(640, 480);
+        boxes.add(100, 100, 100, 100, 0.7f, 0);
+        boxes.add(105, 105, 100, 100, 0.9f, 0);
+        boxes.add(400, 300, 50, 50, 0.5f, 0);
+
+        assertArrayEquals(new int[]{1, 2}, nms.suppress(boxes, 0.45f));
+    }
+
+    @Test
+    void differentClassesDoNotSuppressEachOther() {
+        DecodedCandidates boxes = candidates(640, 480);
+        boxes.add(100, 100, 100, 100, 0.9f, 0);
+        boxes.add(100, 100, 100, 100, 0.8f, 1);
+
+        assertArrayEquals(new int[]{0, 1}, nms.suppress(boxes, 0.45f));
+    }
+
+    @Test
+    void overlapAtThresholdIsKept() {
+        DecodedCandidates boxes = candidates(640, 480);
+        boxes.add(0, 0, 100, 100, 0.9f, 0);
+        // IoU = 50 / 150 = 1/3
+        boxes.add(50, 0, 100, 100, 0.8f, 0);
+
+        assertArrayEquals(new int[]{0, 1}, nms.suppress(boxes, 0.34f));
+        assertArrayEquals(new int[]{0}, nms.suppress(boxes, 0.33f));
+    }
+
+    @Test
+    void equalConfidencesKeepLowerIndex() {
+        DecodedCandidates boxes = candidates(640, 480);
+        boxes.add(100, 100, 100, 100, 0.8f, 0);
+        boxes.add(100, 100, 100, 100, 0.8f, 0);
+
+        assertArrayEquals(new int[]{0}, nms.suppress(boxes, 0.45f));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomBoxes() {
+        Random random = new Random(43);
+        for (int round = 0; round < 200; round++) {
+            int width = 320 + random.nextInt(1600);
+            int height = 240 + random.nextInt(900);
+            DecodedCandidates boxes = candidates(width, height);
+            int count = random.nextInt(400);
+            for (int i = 0; i < count; i++) {
+                // Clusters of similar boxes, as a detector produces around each object, plus some huge ones
+                float size = random.nextInt(10) == 0 ? width / 2f : 10 + random.nextInt(150);
+                boxes.add(random.nextInt(width), random.nextInt(height), size * (0.5f + random.nextFloat()),
+                        size * (0.5f + random.nextFloat()), Math.round(random.nextFloat() * 20) / 20f,
+                        random.nextInt(3));
+            }
+            float iou = 0.2f + random.nextFloat() * 0.6f;
+
+            assertArrayEquals(bruteForce(boxes, iou), nms.suppress(boxes, iou), "round " + round);
+        }
+    }
+
+    /**
+     * Greedy class-aware NMS comparing every candidate with every kept box.
+     */
+    private static int[] bruteForce(DecodedCandidates boxes, float threshold) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < boxes.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingDouble(i -> -boxes.confidences.get(i))
+                .thenComparingInt(i -> i));
+        List<Integer> kept = new ArrayList<>();
+        for (int i : order) {
+            boolean suppressed = false;
+            for (int k : kept) {
+                if (boxes.classIds.get(k).equals(boxes.classIds.get(i))
+                        && iou(boxes.boxes.get(k), boxes.boxes.get(i)) > threshold) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                kept.add(i);
+            }
+        }
+        return kept.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double iou(Rect a, Rect b) {
+        int width = Math.min(a.x + a.width, b.x + b.width) - Math.max(a.x, b.x);
+        int height = Math.min(a.y + a.height, b.y + b.height) - Math.max(a.y, b.y);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        double intersection = (double) width * height;
+        return intersection / ((double) a.width * a.height + (double) b.width * b.height - intersection);
+    }
+}
@@ -0,0 +1,164 @@
+package com.smartbin.yolo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputDecoderTest {
+
+    @AfterEach
+    void clearOverride() {
+        System.clearProperty("smartbin.yolo.layout");
+    }
+
+    @Test
+    void detectsLayoutFromShape() {
+        assertEquals(OutputLayout.CHANNEL_MAJOR, OutputLayoutResolver.detect(new int[]{84, 8400}, 80));
+        assertEquals(OutputLayout.ROW_MAJOR, OutputLayoutResolver.detect(new int[]{8400, 84}, 80));
+        assertEquals(OutputLayout.OBJECTNESS, OutputLayoutResolver.detect(new int[]{25200, 85}, 80));
+        assertEquals(OutputLayout.END_TO_END, OutputLayoutResolver.detect(new int[]{300, 6}, 80));
+        assertThrows(IllegalStateException.class, () -> OutputLayoutResolver.detect(new int[]{0, 84}, 80));
+    }
+
+    @Test
+    void transposedTwoClassOutputNeedsLabelsOrLayout() {
+        // [8400, 6] is 4 + 2 classes for YOLOv8 but would be 5 + 1 for YOLOv5
+        assertEquals(OutputLayout.ROW_MAJOR, OutputLayoutResolver.detect(new int[]{8400, 6}, 2));
+        assertEquals(OutputLayout.OBJECTNESS, OutputLayoutResolver.detect(new int[]{8400, 6}, 1));
+        assertThrows(IllegalStateException.class, () -> OutputLayoutResolver.detect(new int[]{8400, 6}, 0));
+        assertThrows(IllegalStateException.class, () -> OutputLayoutResolver.detect(new int[]{8400, 6}, 3));
+        assertEquals(OutputLayout.ROW_MAJOR, OutputLayoutResolver.detect(new int[]{8400, 5}, 0));
+
+        System.setProperty("smartbin.yolo.layout", "yolov8-transposed");
+        OutputDecoder decoder = OutputLayoutResolver.forShape(new int[]{8400, 6}, 0);
+        assertInstanceOf(RowMajorDecoder.class, decoder);
+        assertEquals(6, decoder.getChannels());
+    }
+
+    @Test
+    void overrideWinsOverShape() {
+        System.setProperty("smartbin.yolo.layout", "yolov5");
+        OutputDecoder decoder = OutputLayoutResolver.forShape(new int[]{8400, 84}, 80);
+
+        assertInstanceOf(ObjectnessDecoder.class, decoder);
+        assertEquals(84, decoder.getChannels());
+        assertEquals(8400, decoder.getCandidates());
+    }
+
+    @Test
+    void parsesLayoutNames() {
+        assertEquals(OutputLayout.ROW_MAJOR, OutputLayout.fromName("YOLOv8-Transposed"));
+        assertEquals(OutputLayout.END_TO_END, OutputLayout.fromName("end_to_end"));
+        assertThrows(IllegalArgumentException.class, () -> OutputLayout.fromName("yolov3"));
+    }
+
+    @Test
+    void channelMajorDecodesCentreBoxesAndBestClass() {
+        // 3 classes, 3 candidates: [cx..., cy..., w..., h..., class0..., class1..., class2...]
+        float[] data = {
+                100, 10, 200,
+                50, 10, 100,
+                20, 4, 40,
+                10, 4, 30,
+                0.1f, 0.1f, 0.3f,
+                0.8f, 0.1f, 0.2f,
+                0.2f, 0.1f, 0.1f};
+        DecodedCandidates out = new DecodedCandidates(640, 480, 1, 1);
+
+        new ChannelMajorDecoder(7, 3).decode(data, 0.5f, out);
+
+        assertEquals(1, out.size());
+        assertEquals(new Rect(90, 45, 20, 10), out.boxes.get(0));
+        assertEquals(0.8f, out.confidences.get(0));
+        assertEquals(1, out.classIds.get(0));
+        assertEquals(0.3f, out.bestRejectedScore);
+    }
+
+    @Test
+    void rowMajorMatchesChannelMajor() {
+        float[] rows = {
+                100, 50, 20, 10, 0.1f, 0.8f, 0.2f,
+                10, 10, 4, 4, 0.1f, 0.1f, 0.1f,
+                200, 100, 40, 30, 0.3f, 0.2f, 0.9f};
+        DecodedCandidates out = new DecodedCandidates(640, 480, 1, 1);
+
+        new RowMajorDecoder(7, 3).decode(rows, 0.5f, out);
+
+        assertEquals(2, out.size());
+        assertEquals(new Rect(90, 45, 20, 10), out.boxes.get(0));
+        assertEquals(1, out.classIds.get(0));
+        assertEquals(new Rect(180, 85, 40, 30), out.boxes.get(1));
+        assertEquals(2, out.classIds.get(1));
+    }
+
+    @Test
+    void objectnessMultipliesClassScore() {
+        float[] rows = {
+                100, 50, 20, 10, 0.9f, 0.2f, 0.8f,
+                100, 50, 20, 10, 0.3f, 1.0f, 0.0f,
+                100, 50, 20, 10, 0.6f, 0.5f, 0.5f};
+        ObjectnessDecoder decoder = new ObjectnessDecoder(7, 3);
+        DecodedCandidates out = new DecodedCandidates(640, 480, 1, 1);
+
+        decoder.decode(rows, 0.5f, out);
+
+        assertEquals(2, decoder.getClassCount());
+        assertEquals(1, out.size());
+        assertEquals(0.9f * 0.8f, out.confidences.get(0), 1e-6);
+        assertEquals(1, out.classIds.get(0));
+        assertEquals(0.6f * 0.5f, out.bestRejectedScore, 1e-6);
+    }
+
+    @Test
+    void endToEndReadsCornersAndSkipsNms() {
+        float[] rows = {
+                10, 20, 110, 70, 0.9f, 3,
+                0, 0, 5, 5, 0.2f, 1};
+        EndToEndDecoder decoder = new EndToEndDecoder(6, 2);
+        DecodedCandidates out = new DecodedCandidates(640, 480, 1, 1);
+
+        decoder.decode(rows, 0.5f, out);
+
+        assertFalse(decoder.requiresNms());
+        assertEquals(1, out.size());
+        assertEquals(new Rect(10, 20, 100, 50), out.boxes.get(0));
+        assertEquals(3, out.classIds.get(0));
+    }
+
+    @Test
+    void boxesAreScaledToFrameAndClipped() {
+        float[] rows = {
+                600, 300, 100, 100, 0.9f,
+                320, 320, 0, 10, 0.9f};
+        // Network input 640x640, frame 1280x720
+        DecodedCandidates out = new DecodedCandidates(1280, 720, 2, 720 / 640.0);
+
+        new RowMajorDecoder(5, 2).decode(rows, 0.5f, out);
+
+        assertEquals(1, out.size());
+        Rect box = out.boxes.get(0);
+        assertEquals(1100, box.x);
+        assertEquals(1280, box.x + box.width);
+        assertTrue(box.y >= 0 && box.y + box.height <= 720);
+    }
+
+    @Test
+    void confidenceIsClampedAndNanIgnored() {
+        float[] rows = {
+                100, 50, 20, 10, 1.5f,
+                100, 50, 20, 10, Float.NaN};
+        DecodedCandidates out = new DecodedCandidates(640, 480, 1, 1);
+
+        new RowMajorDecoder(5, 2).decode(rows, 0.5f, out);
+
+        assertEquals(1, out.size());
+        assertEquals(1f, out.confidences.get(0));
+        assertEquals(Float.NEGATIVE_INFINITY, out.bestRejectedScore);
+    }
+}
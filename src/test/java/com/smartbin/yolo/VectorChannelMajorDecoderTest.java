@@ -0,0 +1,51 @@
+package com.smartbin.yolo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorChannelMajorDecoderTest {
+
+    @Test
+    void usedWhenVectorModuleIsResolved() {
+        // Surefire runs with --add-modules jdk.incubator.vector
+        assertTrue(OutputLayout.isVectorApiEnabled());
+        assertInstanceOf(VectorChannelMajorDecoder.class, OutputLayout.CHANNEL_MAJOR.createDecoder(84, 8400));
+    }
+
+    @Test
+    void matchesScalarDecoder() {
+        Random random = new Random(7);
+        // Candidate counts that are and are not a multiple of any vector length
+        for (int candidates : new int[]{1, 7, 64, 100, 8400}) {
+            for (int classes : new int[]{1, 4, 80}) {
+                int channels = 4 + classes;
+                float[] data = new float[channels * candidates];
+                for (int i = 0; i < 4 * candidates; i++) {
+                    data[i] = random.nextFloat() * 640;
+                }
+                for (int i = 4 * candidates; i < data.length; i++) {
+                    int kind = random.nextInt(100);
+                    data[i] = kind == 0 ? Float.NaN : kind == 1 ? -0.5f : kind == 2 ? 1.5f : random.nextFloat() * 0.6f;
+                }
+                for (float threshold : new float[]{0f, 0.25f, 0.5f, 0.59f, 2f}) {
+                    DecodedCandidates expected = new DecodedCandidates(640, 640, 1, 1);
+                    DecodedCandidates actual = new DecodedCandidates(640, 640, 1, 1);
+
+                    new ChannelMajorDecoder(channels, candidates).decode(data, threshold, expected);
+                    new VectorChannelMajorDecoder(channels, candidates).decode(data, threshold, actual);
+
+                    String where = candidates + " candidates, " + classes + " classes, threshold " + threshold;
+                    assertEquals(expected.boxes, actual.boxes, where);
+                    assertEquals(expected.confidences, actual.confidences, where);
+                    assertEquals(expected.classIds, actual.classIds, where);
+                    assertEquals(expected.bestRejectedScore, actual.bestRejectedScore, where);
+                }
+            }
+        }
+    }
+}